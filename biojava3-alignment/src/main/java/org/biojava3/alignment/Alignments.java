@@ -24,19 +24,23 @@
 package org.biojava3.alignment;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 
 import org.biojava3.alignment.template.*;
 import org.biojava3.core.sequence.template.Compound;
 import org.biojava3.core.sequence.template.Sequence;
 import org.biojava3.core.util.ConcurrencyTools;
+import org.biojava3.phylo.FastNeighborJoining;
 
 import org.forester.phylogeny.Phylogeny;
-import org.forester.phylogenyinference.BasicSymmetricalDistanceMatrix;
-import org.forester.phylogenyinference.NeighborJoining;
 
 /**
  * Static utility to easily run alignment routines.  To exit cleanly after running any parallel method that mentions
@@ -61,6 +65,7 @@ public class Alignments {
      */
     public static enum PairwiseAligner {
         GLOBAL,
+        GLOBAL_LINEAR_SPACE,
         LOCAL
     }
 
@@ -78,9 +83,36 @@ public class Alignments {
         WU_MANBER
     }
 
+    private static int maxPendingPairs = 4 * Runtime.getRuntime().availableProcessors();
+
     // prevents instantiation
     private Alignments() { }
 
+    /**
+     * Returns the maximum number of pair calculations queued or running at once in the shared thread pool during a
+     * streaming all-pairs method.
+     *
+     * @return the maximum number of pending pair calculations
+     */
+    public static int getMaxPendingPairs() {
+        return maxPendingPairs;
+    }
+
+    /**
+     * Sets the maximum number of pair calculations queued or running at once in the shared thread pool during a
+     * streaming all-pairs method.  This should be somewhat larger than the number of threads in the pool to keep
+     * every thread busy.
+     *
+     * @param maxPendingPairs the maximum number of pending pair calculations
+     * @throws IllegalArgumentException if maxPendingPairs < 1
+     */
+    public static void setMaxPendingPairs(int maxPendingPairs) {
+        if (maxPendingPairs < 1) {
+            throw new IllegalArgumentException("At least one pair must be allowed to run: " + maxPendingPairs);
+        }
+        Alignments.maxPendingPairs = maxPendingPairs;
+    }
+
     /**
      * Factory method which computes a sequence alignment for all {@link Sequence} pairs in the given {@link List}.
      * This method runs the alignments in parallel by submitting all of the alignments to the shared thread pool of the
@@ -117,6 +149,64 @@ public class Alignments {
         return runScorers(getScorerList(sequences, type, gapPenalty, subMatrix));
     }
 
+    /**
+     * Factory method which streams a sequence alignment for all {@link Sequence} pairs in the given {@link List} to a
+     * listener.  Alignments are created only as needed and at most {@link #getMaxPendingPairs()} of them wait or run
+     * in the shared thread pool of the {@link ConcurrencyTools} utility at any time, so memory use stays constant
+     * however many pairs there are.  Each {@link SequencePair} is passed to the listener on the calling thread as soon
+     * as it completes; this method returns after the last one.
+     * If a pair fails, pending pairs are cancelled and its exception is passed on as described for
+     * {@link ConcurrencyTools#get(Future)}.
+     *
+     * @param <S> each {@link Sequence} of an alignment pair is of type S
+     * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+     * @param sequences the {@link List} of {@link Sequence}s to align
+     * @param type chosen type from list of pairwise sequence alignment routines
+     * @param gapPenalty the gap penalties used during alignment
+     * @param subMatrix the set of substitution scores used during alignment
+     * @param listener receives each sequence alignment pair along with the indices of its {@link Sequence}s
+     */
+    public static <S extends Sequence<C>, C extends Compound> void getAllPairsAlignments(final List<S> sequences,
+            final PairwiseAligner type, final GapPenalty gapPenalty, final SubstitutionMatrix<C> subMatrix,
+            PairwiseResultListener<SequencePair<S, C>> listener) {
+        runAllPairs(sequences.size(), new PairTaskFactory<SequencePair<S, C>>() {
+            @Override
+            public Callable<SequencePair<S, C>> getTask(int query, int target) {
+                return new CallablePairwiseSequenceAligner<S, C>(getAligner(sequences.get(query),
+                        sequences.get(target), type, gapPenalty, subMatrix));
+            }
+        }, listener);
+    }
+
+    /**
+     * Factory method which streams a sequence pair score for all {@link Sequence} pairs in the given {@link List} to
+     * a listener.  Scorers are created only as needed and at most {@link #getMaxPendingPairs()} of them wait or run in
+     * the shared thread pool of the {@link ConcurrencyTools} utility at any time, so memory use stays constant however
+     * many pairs there are.  Each score is passed to the listener on the calling thread as soon as it completes; this
+     * method returns after the last one.
+     * If a pair fails, pending pairs are cancelled and its exception is passed on as described for
+     * {@link ConcurrencyTools#get(Future)}.
+     *
+     * @param <S> each {@link Sequence} of a pair is of type S
+     * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+     * @param sequences the {@link List} of {@link Sequence}s to align
+     * @param type chosen type from list of pairwise sequence scoring routines
+     * @param gapPenalty the gap penalties used during alignment
+     * @param subMatrix the set of substitution scores used during alignment
+     * @param listener receives each sequence pair score along with the indices of its {@link Sequence}s
+     */
+    public static <S extends Sequence<C>, C extends Compound> void getAllPairsScores(final List<S> sequences,
+            final PairwiseScorer type, final GapPenalty gapPenalty, final SubstitutionMatrix<C> subMatrix,
+            PairwiseResultListener<Integer> listener) {
+        runAllPairs(sequences.size(), new PairTaskFactory<Integer>() {
+            @Override
+            public Callable<Integer> getTask(int query, int target) {
+                return new CallablePairwiseSequenceScorer<S, C>(getScorer(sequences.get(query), sequences.get(target),
+                        type, gapPenalty, subMatrix));
+            }
+        }, listener);
+    }
+
     public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getMultipleSequenceAlignment(
             List<S> sequences, MSAEmulation type, Object... settings) {
         // TODO multiple sequence alignments, convert other factories to this parameter style?
@@ -163,21 +253,26 @@ public class Alignments {
         List<PairwiseSequenceScorer<S, C>> scorers = getScorerList(sequences, type, gapPenalty, subMatrix);
         runScorers(scorers);
         Iterator<PairwiseSequenceScorer<S, C>> scorerIterator = scorers.iterator();
-        BasicSymmetricalDistanceMatrix distances = new BasicSymmetricalDistanceMatrix(sequences.size());
-        for (int i = 0; i < sequences.size(); i++) {
-            distances.setIdentifier(i, sequences.get(i).getSequenceAsString()); // TODO? use accession ID or hash code
+        String[] identifiers = new String[sequences.size()];
+        double[] distances = new double[FastNeighborJoining.getPackedLength(sequences.size())];
+        for (int i = 0, index = 0; i < sequences.size(); i++) {
+            identifiers[i] = sequences.get(i).getSequenceAsString(); // TODO? use accession ID or hash code
             for (int j = i+1; j < sequences.size(); j++) {
                 PairwiseSequenceScorer<S, C> scorer = scorerIterator.next();
-                distances.setValue(i, j, (double)(scorer.getMaxScore() - scorer.getScore()) / (scorer.getMaxScore()
-                        - scorer.getMinScore()));
+                distances[index++] = (double)(scorer.getMaxScore() - scorer.getScore()) /
+                        (scorer.getMaxScore() - scorer.getMinScore());
             }
         }
-        return NeighborJoining.createInstance().execute(distances);
+        FastNeighborJoining nj = new FastNeighborJoining(identifiers, distances);
+        nj.setParallel(true);
+        return nj.getPhylogeny();
     }
 
     /**
      * Factory method to run a list of alignments concurrently.  This method runs the alignments in parallel by
      * submitting all of the alignment tasks to the shared thread pool of the {@link ConcurrencyTools} utility.
+     * If an alignment fails, the remaining ones are cancelled and its exception is passed on as described for
+     * {@link ConcurrencyTools#get(Future)}.
      *
      * @param <A> each {@link Aligner} is of type A
      * @param <S> each {@link Sequence} of an alignment pair is of type S
@@ -199,6 +294,8 @@ public class Alignments {
     /**
      * Factory method to run a list of scorers concurrently.  This method runs the scorers in parallel by submitting
      * all of the scoring tasks to the shared thread pool of the {@link ConcurrencyTools} utility.
+     * If a scorer fails, the remaining ones are cancelled and its exception is passed on as described for
+     * {@link ConcurrencyTools#get(Future)}.
      *
      * @param <P> each {@link Scorer} is of type P
      * @param <S> each {@link Sequence} of an alignment pair is of type S
@@ -231,9 +328,10 @@ public class Alignments {
         default:
         case GLOBAL:
             return new NeedlemanWunsch<S, C>(query, target, gapPenalty, subMatrix);
+        case GLOBAL_LINEAR_SPACE:
+            return new Hirschberg<S, C>(query, target, gapPenalty, subMatrix);
         case LOCAL:
-            // TODO local alignment option
-            return null;
+            return new SmithWaterman<S, C>(query, target, gapPenalty, subMatrix);
         }
     }
 
@@ -249,29 +347,101 @@ public class Alignments {
         return allPairs;
     }
 
-    // retrieves calculated elements from a list on the concurrent execution queue
+    // retrieves calculated elements from a list on the concurrent execution queue; if any calculation fails, the rest
+    // are cancelled and the failure is passed on
     private static <E> List<E> getListFromFutures(List<Future<E>> futures) {
         List<E> list = new ArrayList<E>();
-        for (Future<E> f : futures) {
-            // TODO when added to ConcurrencyTools, log completions and exceptions instead of printing stack traces
-            try {
-                list.add(f.get());
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            } catch (ExecutionException e) {
-                e.printStackTrace();
+        try {
+            for (Future<E> f : futures) {
+                list.add(ConcurrencyTools.get(f));
             }
+        } catch (RuntimeException e) {
+            cancelAll(futures);
+            throw e;
+        } catch (Error e) {
+            cancelAll(futures);
+            throw e;
         }
         return list;
     }
 
+    // cancels every calculation which has not finished yet
+    private static <E> void cancelAll(Collection<? extends Future<E>> futures) {
+        for (Future<E> f : futures) {
+            f.cancel(true);
+        }
+    }
+
+    // helper interface for streaming that creates the calculation for a pair of sequences
+    private interface PairTaskFactory<R> {
+        Callable<R> getTask(int query, int target);
+    }
+
+    // helper class for streaming that runs the calculation for a pair of sequences and keeps the indices of the pair
+    private static class PairTask<R> implements Callable<PairTask<R>> {
+
+        private int query, target;
+        private Callable<R> task;
+        private R result;
+
+        private PairTask(int query, int target, Callable<R> task) {
+            this.query = query;
+            this.target = target;
+            this.task = task;
+        }
+
+        @Override
+        public PairTask<R> call() throws Exception {
+            result = task.call();
+            task = null;
+            return this;
+        }
+
+    }
+
+    // runs a task for each pair from a list of sequences; tasks are created as earlier ones complete, so that at most
+    // maxPendingPairs are in the shared thread pool, and results reach the listener in order of completion
+    private static <R> void runAllPairs(int size, PairTaskFactory<R> factory, PairwiseResultListener<R> listener) {
+        CompletionService<PairTask<R>> service = new ExecutorCompletionService<PairTask<R>>(
+                ConcurrencyTools.getThreadPool());
+        Set<Future<PairTask<R>>> pending = new HashSet<Future<PairTask<R>>>();
+        int query = 0, target = 1;
+        try {
+            while (!pending.isEmpty() || target < size) {
+                if (target < size && pending.size() < maxPendingPairs) {
+                    pending.add(service.submit(new PairTask<R>(query, target, factory.getTask(query, target))));
+                    if (++target == size) {
+                        target = ++query + 1;
+                    }
+                } else {
+                    Future<PairTask<R>> future;
+                    try {
+                        future = service.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for pairs", e);
+                    }
+                    pending.remove(future);
+                    PairTask<R> done = ConcurrencyTools.get(future);
+                    listener.resultReady(done.query, done.target, done.result);
+                }
+            }
+        } catch (RuntimeException e) {
+            cancelAll(pending);
+            throw e;
+        } catch (Error e) {
+            cancelAll(pending);
+            throw e;
+        }
+    }
+
     // constructs a pairwise sequence scorer
     private static <S extends Sequence<C>, C extends Compound> PairwiseSequenceScorer<S, C> getScorer(
             S query, S target, PairwiseScorer type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
         switch(type) {
         default:
         case GLOBAL:
-            return getAligner(query, target, PairwiseAligner.GLOBAL, gapPenalty, subMatrix);
+            return new NeedlemanWunschScorer<S, C>(query, target, gapPenalty, subMatrix);
         case GLOBAL_IDENTITIES:
             return new FractionalIdentityScorer<S, C>(getAligner(query, target, PairwiseAligner.GLOBAL, gapPenalty,
                     subMatrix));
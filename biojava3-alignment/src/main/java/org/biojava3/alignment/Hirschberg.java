@@ -0,0 +1,442 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.biojava3.alignment.template.AlignedSequence;
+import org.biojava3.alignment.template.AlignedSequence.Step;
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.template.Compound;
+import org.biojava3.core.sequence.template.CompoundSet;
+import org.biojava3.core.sequence.template.Sequence;
+
+/**
+ * Computes the same pairwise global sequence alignment as {@link NeedlemanWunsch} without keeping the full score
+ * matrices in memory.  Hirschberg showed that the traceback of a dynamic programming alignment can be recovered by
+ * divide and conquer.  This class fills the score rows of a region once, carrying along for every cell the point at
+ * which its traceback crosses the middle row of the query.  The point reached from the end of the region splits it
+ * into an upper and a lower quadrant, which are solved the same way.  Blocks small enough to fit in
+ * {@link #getMaxBlockCells()} cells are aligned directly.
+ *
+ * Because the crossing point follows the same choices as the traceback of {@link NeedlemanWunsch}, the highroad
+ * alignment chosen on ties is identical.  Memory use grows with the target length times the logarithm of the query
+ * length instead of with the product of both lengths.  The two quadrants together cover half of the region, so about
+ * twice the cells of the full score matrix are filled in total.  Scores are summed as int, so long sequences do not
+ * overflow.
+ *
+ * Since the score matrix is inherently quadratic, requesting it via {@link #setStoringScoreMatrix(boolean)} or
+ * {@link #getScoreMatrix()} falls back to the full {@link NeedlemanWunsch} calculation.
+ *
+ * Compounds are numbered by byte ordinals.  If the {@link CompoundSet} is too large for that, only the compounds of the
+ * pair are numbered, so a pair holding more than 128 distinct compounds throws an {@link IllegalArgumentException}.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ */
+public class Hirschberg<S extends Sequence<C>, C extends Compound> extends NeedlemanWunsch<S, C> {
+
+    private static int defaultMaxBlockCells = 1 << 20;
+
+    /**
+     * Sets the default size of the largest block which is aligned directly with a full score matrix.
+     *
+     * @param cells the default maximum number of cells in a directly aligned block
+     */
+    public static void setDefaultMaxBlockCells(int cells) {
+        defaultMaxBlockCells = cells;
+    }
+
+    // score used for unreachable states; far enough from overflow to survive repeated penalties
+    private static final int NEG = Integer.MIN_VALUE / 4;
+
+    // state indices for alignment with affine gap penalties; ANY lets the traceback pick the best end state
+    private static final int M = 0, IX = 1, IY = 2, ANY = -1;
+
+    private int maxBlockCells = defaultMaxBlockCells;
+
+    // alignment specific fields, only set during a call to align()
+    private byte[] queryOrdinals, targetOrdinals;
+    private short[][] subs;
+    private List<Step> sx, sy;
+    private int gop, gep;
+
+    // number of score cells filled by the last alignment, read by tests to check the amount of work
+    long cells;
+
+    /**
+     * Before running a pairwise global sequence alignment, data must be sent in via calls to
+     * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+     * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+     */
+    public Hirschberg() {
+    }
+
+    /**
+     * Prepares for a pairwise global sequence alignment.
+     *
+     * @param query the first {@link Sequence} of the pair to align
+     * @param target the second {@link Sequence} of the pair to align
+     * @param gapPenalty the gap penalties used during alignment
+     * @param subMatrix the set of substitution scores used during alignment
+     */
+    public Hirschberg(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+        super(query, target, gapPenalty, subMatrix);
+    }
+
+    /**
+     * Returns the size of the largest block which is aligned directly with a full score matrix.
+     *
+     * @return the maximum number of cells in a directly aligned block
+     */
+    public int getMaxBlockCells() {
+        return maxBlockCells;
+    }
+
+    /**
+     * Sets the size of the largest block which is aligned directly with a full score matrix.
+     *
+     * @param maxBlockCells the maximum number of cells in a directly aligned block
+     */
+    public void setMaxBlockCells(int maxBlockCells) {
+        this.maxBlockCells = maxBlockCells;
+        reset();
+    }
+
+    // helper method that performs alignment
+    @Override
+    protected void align() {
+        if (isStoringScoreMatrix()) {
+            super.align();
+            return;
+        }
+        reset();
+        S query = getQuery(), target = getTarget();
+        GapPenalty gapPenalty = getGapPenalty();
+        SubstitutionMatrix<C> subMatrix = getSubstitutionMatrix();
+
+        if (query == null || target == null || gapPenalty == null || subMatrix == null
+                || !query.getCompoundSet().equals(target.getCompoundSet())) {
+            return;
+        }
+
+        long timeStart = System.nanoTime();
+        byte[] qo = new byte[query.getLength()], to = new byte[target.getLength()];
+        short[][] subs = SimpleSubstitutionMatrix.getInstance(subMatrix).getOrdinals(query, target, qo, to);
+        List<Step> sx = new ArrayList<Step>(), sy = new ArrayList<Step>();
+        alignOrdinals(qo, to, subs, gapPenalty, sx, sy);
+
+        // set output fields
+        pair = new SimpleSequencePair<S, C>(query, target, sx, sy);
+        time = System.nanoTime() - timeStart;
+    }
+
+    // package method that fills the empty lists sx and sy with the steps of the global alignment of two ordinal
+    // sequences and returns its score; lets other aligners align a subsequence in linear space
+    int alignOrdinals(byte[] queryOrdinals, byte[] targetOrdinals, short[][] subs, GapPenalty gapPenalty,
+            List<Step> sx, List<Step> sy) {
+        this.queryOrdinals = queryOrdinals;
+        this.targetOrdinals = targetOrdinals;
+        this.subs = subs;
+        this.sx = sx;
+        this.sy = sy;
+        gop = gapPenalty.getOpenPenalty();
+        gep = gapPenalty.getExtensionPenalty();
+        cells = 0;
+        int rows = queryOrdinals.length, cols = targetOrdinals.length, y;
+
+        // steps are collected from the end of the alignment backwards
+        if (gapPenalty.getType() == GapPenalty.Type.LINEAR) {
+            int[] top = new int[cols + 1];
+            for (y = 1; y <= cols; y++) {
+                top[y] = top[y - 1] + gep;
+            }
+            y = traceLinear(0, 0, top, rows, cols, true);
+        } else {
+            int[][] top = new int[3][cols + 1];
+            top[IX][0] = top[IY][0] = gop;
+            for (y = 1; y <= cols; y++) {
+                top[M][y] = top[IX][y] = NEG;
+                top[IY][y] = Math.max(top[M][y - 1] + gop, top[IY][y - 1]) + gep;
+            }
+            y = traceAffine(0, 0, top, rows, cols, ANY)[0];
+        }
+        for (; y > 0; y--) {
+            sx.add(Step.GAP);
+            sy.add(Step.COMPOUND);
+        }
+        Collections.reverse(sx);
+        Collections.reverse(sy);
+
+        // release alignment specific fields
+        this.queryOrdinals = this.targetOrdinals = null;
+        this.subs = null;
+        this.sx = this.sy = null;
+        return score;
+    }
+
+    // helper method that returns the substitution score of query index x and target index y (both from 1)
+    private int getSubstitution(int x, int y) {
+        return subs[queryOrdinals[x - 1]][targetOrdinals[y - 1]];
+    }
+
+    // helper methods for alignment with linear gap penalties
+
+    // fills scores of row x for the width columns from startY given the scores of row x - 1
+    private void fillLinear(int x, int startY, int[] prev, int[] cur, int width) {
+        short[] sub = subs[queryOrdinals[x - 1]];
+        cur[0] = prev[0] + gep;
+        for (int y = 1; y < width; y++) {
+            cur[y] = Math.max(Math.max(prev[y] + gep, cur[y - 1] + gep),
+                    prev[y - 1] + sub[targetOrdinals[startY + y - 1]]);
+        }
+        cells += width;
+    }
+
+    // fills row x like fillLinear and passes on, for each cell, the column at which the highroad path traced back
+    // from that cell first reaches the middle row
+    private void fillLinear(int x, int startY, int[] prev, int[] cur, int[] prevCross, int[] curCross,
+            int width) {
+        fillLinear(x, startY, prev, cur, width);
+        short[] sub = subs[queryOrdinals[x - 1]];
+        curCross[0] = prevCross[0];
+        for (int y = 1; y < width; y++) {
+            if (cur[y] == prev[y] + gep) {
+                curCross[y] = prevCross[y];
+            } else if (cur[y] == prev[y - 1] + sub[targetOrdinals[startY + y - 1]]) {
+                curCross[y] = prevCross[y - 1];
+            } else {
+                curCross[y] = curCross[y - 1];
+            }
+        }
+    }
+
+    // traces highroad path backwards from (endX, endY) until it reaches row startX, returns column of arrival; top
+    // holds the scores of row startX from column startY onwards
+    private int traceLinear(int startX, int startY, int[] top, int endX, int endY, boolean root) {
+        int width = endY - startY + 1;
+        if (endX - startX <= 1 || (long) (endX - startX + 1) * width <= maxBlockCells) {
+            int[][] block = new int[endX - startX + 1][];
+            block[0] = top;
+            for (int r = 1; r < block.length; r++) {
+                block[r] = new int[width];
+                fillLinear(startX + r, startY, block[r - 1], block[r], width);
+            }
+            if (root) {
+                score = block[block.length - 1][width - 1];
+            }
+            return startY + tracebackLinear(startX, startY, block, width - 1);
+        }
+
+        // a forward pass finds the cell (midX, midY) where the highroad path last leaves the middle row
+        int midX = (startX + endX) / 2;
+        int[] prev = top, cur = new int[width], spare = new int[width];
+        int[] prevCross = new int[width], curCross = new int[width], spareCross;
+        for (int x = startX + 1; x <= endX; x++) {
+            if (x <= midX) {
+                fillLinear(x, startY, prev, cur, width);
+            } else {
+                fillLinear(x, startY, prev, cur, prevCross, curCross, width);
+                spareCross = prevCross;
+                prevCross = curCross;
+                curCross = spareCross;
+            }
+            if (x == midX) {
+                for (int y = 0; y < width; y++) {
+                    prevCross[y] = y;
+                }
+            }
+            prev = cur;
+            cur = spare;
+            spare = prev;
+        }
+        if (root) {
+            score = prev[width - 1];
+        }
+        int midY = startY + prevCross[width - 1];
+        cur = spare = prev = prevCross = curCross = spareCross = null;
+
+        // the lower quadrant starts from (midX, midY) alone; the upper quadrant keeps the top row of this region
+        int[] midTop = new int[endY - midY + 1];
+        for (int y = 1; y < midTop.length; y++) {
+            midTop[y] = midTop[y - 1] + gep;
+        }
+        midY = traceLinear(midX, midY, midTop, endX, endY, false);
+        midTop = null;
+        return traceLinear(startX, startY, top, midX, midY, false);
+    }
+
+    // traceback within a block whose first row is startX and first column is startY: chooses highroad alignment
+    private int tracebackLinear(int startX, int startY, int[][] block, int y) {
+        int x = block.length - 1;
+        while (x > 0) {
+            if (y == 0 || block[x][y] == block[x - 1][y] + gep) {
+                sx.add(Step.COMPOUND);
+                sy.add(Step.GAP);
+                x--;
+            } else if (block[x][y] == block[x - 1][y - 1] + getSubstitution(startX + x, startY + y)) {
+                sx.add(Step.COMPOUND);
+                sy.add(Step.COMPOUND);
+                x--;
+                y--;
+            } else {
+                sx.add(Step.GAP);
+                sy.add(Step.COMPOUND);
+                y--;
+            }
+        }
+        return y;
+    }
+
+    // helper methods for alignment with affine gap penalties
+
+    // fills scores of row x for the width columns from startY given the scores of row x - 1
+    private void fillAffine(int x, int startY, int[][] prev, int[][] cur, int width) {
+        short[] sub = subs[queryOrdinals[x - 1]];
+        int[] pm = prev[M], pix = prev[IX], piy = prev[IY], cm = cur[M], cix = cur[IX], ciy = cur[IY];
+        cm[0] = ciy[0] = NEG;
+        cix[0] = Math.max(pm[0] + gop, pix[0]) + gep;
+        for (int y = 1; y < width; y++) {
+            cm[y] = Math.max(Math.max(pm[y - 1], pix[y - 1]), piy[y - 1]) + sub[targetOrdinals[startY + y - 1]];
+            cix[y] = Math.max(pm[y] + gop, pix[y]) + gep;
+            ciy[y] = Math.max(cm[y - 1] + gop, ciy[y - 1]) + gep;
+        }
+        cells += width;
+    }
+
+    // fills row x like fillAffine and passes on, for each cell and state, the node (column * 3 + state) at which the
+    // highroad path traced back from there first reaches the middle row
+    private void fillAffine(int x, int startY, int[][] prev, int[][] cur, int[][] prevCross, int[][] curCross,
+            int width) {
+        fillAffine(x, startY, prev, cur, width);
+        int[] pm = prev[M], pix = prev[IX], cm = cur[M], ciy = cur[IY];
+        curCross[M][0] = curCross[IY][0] = -1;
+        curCross[IX][0] = prevCross[(pm[0] + gop > pix[0]) ? M : IX][0];
+        for (int y = 1; y < width; y++) {
+            curCross[M][y] = prevCross[getBestState(prev, y - 1)][y - 1];
+            curCross[IX][y] = prevCross[(pm[y] + gop > pix[y]) ? M : IX][y];
+            curCross[IY][y] = curCross[(cm[y - 1] + gop >= ciy[y - 1]) ? M : IY][y - 1];
+        }
+    }
+
+    // traces highroad path backwards from state at (endX, endY) until it reaches row startX, returns arrival node;
+    // top holds the scores of row startX from column startY onwards
+    private int[] traceAffine(int startX, int startY, int[][] top, int endX, int endY, int endState) {
+        int width = endY - startY + 1;
+        if (endX - startX <= 1 || (long) (endX - startX + 1) * width <= maxBlockCells) {
+            int[][][] block = new int[endX - startX + 1][][];
+            block[0] = top;
+            for (int r = 1; r < block.length; r++) {
+                block[r] = new int[3][width];
+                fillAffine(startX + r, startY, block[r - 1], block[r], width);
+            }
+            int[] arrival = tracebackAffine(block, width - 1, endState);
+            arrival[0] += startY;
+            return arrival;
+        }
+
+        // a forward pass finds the node (midX, midY, midState) where the highroad path last leaves the middle row
+        int midX = (startX + endX) / 2;
+        int[][] prev = top, cur = new int[3][width], spare = new int[3][width];
+        int[][] prevCross = new int[3][width], curCross = new int[3][width], spareCross;
+        for (int x = startX + 1; x <= endX; x++) {
+            if (x <= midX) {
+                fillAffine(x, startY, prev, cur, width);
+            } else {
+                fillAffine(x, startY, prev, cur, prevCross, curCross, width);
+                spareCross = prevCross;
+                prevCross = curCross;
+                curCross = spareCross;
+            }
+            if (x == midX) {
+                for (int s = 0; s < 3; s++) {
+                    for (int y = 0; y < width; y++) {
+                        prevCross[s][y] = 3 * y + s;
+                    }
+                }
+            }
+            prev = cur;
+            cur = spare;
+            spare = prev;
+        }
+        if (endState == ANY) {
+            endState = getBestState(prev, width - 1);
+            score = prev[endState][width - 1];
+        }
+        int midY = startY + prevCross[endState][width - 1] / 3, midState = prevCross[endState][width - 1] % 3;
+        cur = spare = prev = prevCross = curCross = spareCross = null;
+
+        // the lower quadrant starts from the middle node alone; the upper quadrant keeps the top row of this region
+        int[][] midTop = new int[3][endY - midY + 1];
+        for (int y = 0; y < midTop[0].length; y++) {
+            midTop[M][y] = midTop[IX][y] = midTop[IY][y] = NEG;
+        }
+        midTop[midState][0] = 0;
+        for (int y = 1; y < midTop[0].length; y++) {
+            midTop[IY][y] = Math.max(midTop[M][y - 1] + gop, midTop[IY][y - 1]) + gep;
+        }
+        int[] mid = traceAffine(midX, midY, midTop, endX, endY, endState);
+        midTop = null;
+        return traceAffine(startX, startY, top, midX, mid[0], mid[1]);
+    }
+
+    // traceback within a block of score rows: chooses highroad alignment
+    private int[] tracebackAffine(int[][][] block, int y, int last) {
+        int x = block.length - 1;
+        if (last == ANY) {
+            last = getBestState(block[x], y);
+            score = block[x][last][y];
+        }
+        while (x > 0) {
+            switch (last) {
+            case IX:
+                sx.add(Step.COMPOUND);
+                sy.add(Step.GAP);
+                x--;
+                last = (block[x][M][y] + gop > block[x][IX][y]) ? M : IX;
+                break;
+            case M:
+                sx.add(Step.COMPOUND);
+                sy.add(Step.COMPOUND);
+                x--;
+                y--;
+                last = getBestState(block[x], y);
+                break;
+            case IY:
+                sx.add(Step.GAP);
+                sy.add(Step.COMPOUND);
+                y--;
+                last = (block[x][M][y] + gop >= block[x][IY][y]) ? M : IY;
+            }
+        }
+        return new int[] {y, last};
+    }
+
+    // returns the state with maximum score in the given column, preferring gaps in the target on ties
+    private static int getBestState(int[][] row, int y) {
+        int max = Math.max(Math.max(row[M][y], row[IX][y]), row[IY][y]);
+        return (max == row[IX][y]) ? IX : ((max == row[M][y]) ? M : IY);
+    }
+
+}
@@ -83,6 +83,8 @@ public class NeedlemanWunsch<S extends Sequence<C>, C extends Compound>
         }
 
         long timeStart = System.nanoTime();
+        short[][] subs = SimpleSubstitutionMatrix.getInstance(subMatrix).getProfile(query, target);
+        short[] sub;
         scores = new short[query.getLength() + 1][target.getLength() + 1];
         scores[0][0] = 0;
         int x, y;
@@ -98,10 +100,11 @@ public class NeedlemanWunsch<S extends Sequence<C>, C extends Compound>
                 scores[0][y] = (short) (scores[0][y - 1] + gapPenalty.getExtensionPenalty());
             }
             for (x = 1; x < scores.length; x++) {
+                sub = subs[x - 1];
                 for (y = 1; y < scores[0].length; y++) {
                     scores[x][y] = (short) Math.max(Math.max(scores[x - 1][y] + gapPenalty.getExtensionPenalty(),
                             scores[x][y - 1] + gapPenalty.getExtensionPenalty()), scores[x - 1][y - 1] +
-                            subMatrix.getValue(query.getCompoundAt(x), target.getCompoundAt(y)));
+                            sub[y - 1]);
                 }
             }
             // traceback: chooses highroad alignment
@@ -116,8 +119,7 @@ public class NeedlemanWunsch<S extends Sequence<C>, C extends Compound>
                     sx.add(0, Step.COMPOUND);
                     sy.add(0, Step.GAP);
                     x--;
-                } else if (scores[x][y] == scores[x - 1][y - 1] + subMatrix.getValue(query.getCompoundAt(x),
-                        target.getCompoundAt(y))) {
+                } else if (scores[x][y] == scores[x - 1][y - 1] + subs[x - 1][y - 1]) {
                     sx.add(0, Step.COMPOUND);
                     sy.add(0, Step.COMPOUND);
                     x--;
@@ -143,9 +145,10 @@ public class NeedlemanWunsch<S extends Sequence<C>, C extends Compound>
                 iy[0][y] = (short) (iy[0][y - 1] + gapPenalty.getExtensionPenalty());
             }
             for (x = 1; x < scores.length; x++) {
+                sub = subs[x - 1];
                 for (y = 1; y < scores[0].length; y++) {
                     scores[x][y] = (short) (Math.max(Math.max(scores[x - 1][y - 1], ix[x - 1][y - 1]),
-                            iy[x - 1][y - 1]) + subMatrix.getValue(query.getCompoundAt(x), target.getCompoundAt(y)));
+                            iy[x - 1][y - 1]) + sub[y - 1]);
                     ix[x][y] = (short) (Math.max(scores[x - 1][y] + gapPenalty.getOpenPenalty(), ix[x - 1][y])
                             + gapPenalty.getExtensionPenalty());
                     iy[x][y] = (short) (Math.max(scores[x][y - 1] + gapPenalty.getOpenPenalty(), iy[x][y - 1])
@@ -0,0 +1,216 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment;
+
+import org.biojava3.alignment.template.AlignedSequence;
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.PairwiseSequenceScorer;
+import org.biojava3.alignment.template.SequencePair;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.template.Compound;
+import org.biojava3.core.sequence.template.Sequence;
+
+/**
+ * Implements an algorithm which computes the score of a pairwise global sequence alignment without building the
+ * alignment itself.  The reported score equals that of {@link NeedlemanWunsch} for the same input, but only a single
+ * row of each score matrix is kept and no traceback is performed.  This makes scoring many pairs, such as all pairs of
+ * a family before building a guide tree, considerably cheaper than full alignment.
+ *
+ * The aligned pair is only built if {@link #getPair()} is called, in which case a full alignment is run.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ */
+public class NeedlemanWunschScorer<S extends Sequence<C>, C extends Compound> implements PairwiseSequenceScorer<S, C> {
+
+    // score used for unreachable states; far enough from overflow to survive repeated penalties
+    private static final int NEG = Integer.MIN_VALUE / 4;
+
+    // input fields
+    private S query, target;
+    private GapPenalty gapPenalty;
+    private SubstitutionMatrix<C> subMatrix;
+
+    // output fields
+    private int max, min, score;
+    private boolean scored;
+    private SequencePair<S, C> pair;
+
+    /**
+     * Prepares for a pairwise global sequence scoring.
+     *
+     * @param query the first {@link Sequence} of the pair to score
+     * @param target the second {@link Sequence} of the pair to score
+     * @param gapPenalty the gap penalties used during alignment
+     * @param subMatrix the set of substitution scores used during alignment
+     */
+    public NeedlemanWunschScorer(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+        this.query = query;
+        this.target = target;
+        this.gapPenalty = gapPenalty;
+        this.subMatrix = subMatrix;
+    }
+
+    /**
+     * Returns the query {@link Sequence}.
+     *
+     * @return the first {@link Sequence} of the pair to score
+     */
+    public S getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the target {@link Sequence}.
+     *
+     * @return the second {@link Sequence} of the pair to score
+     */
+    public S getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the gap penalties.
+     *
+     * @return the gap penalties used during alignment
+     */
+    public GapPenalty getGapPenalty() {
+        return gapPenalty;
+    }
+
+    /**
+     * Returns the substitution matrix.
+     *
+     * @return the set of substitution scores used during alignment
+     */
+    public SubstitutionMatrix<C> getSubstitutionMatrix() {
+        return subMatrix;
+    }
+
+    // methods for PairwiseSequenceScorer
+
+    /**
+     * Returns the aligned pair.  Since this scorer performs no traceback, a full global alignment is run on the
+     * first call.
+     */
+    @Override
+    public SequencePair<S, C> getPair() {
+        if (pair == null) {
+            pair = new Hirschberg<S, C>(query, target, gapPenalty, subMatrix).getPair();
+        }
+        return pair;
+    }
+
+    // methods for Scorer
+
+    @Override
+    public int getMaxScore() {
+        if (!scored) {
+            score();
+        }
+        return max;
+    }
+
+    @Override
+    public int getMinScore() {
+        if (!scored) {
+            score();
+        }
+        return min;
+    }
+
+    @Override
+    public int getScore() {
+        if (!scored) {
+            score();
+        }
+        return score;
+    }
+
+    // helper method that performs scoring
+    private void score() {
+        scored = true;
+        if (query == null || target == null || gapPenalty == null || subMatrix == null
+                || !query.getCompoundSet().equals(target.getCompoundSet())) {
+            return;
+        }
+
+        // same bounds as an alignment from AbstractPairwiseSequenceAligner
+        int subLength = Math.min(query.getLength(), target.getLength()), maxLength = query.getLength()
+                + target.getLength(), penalties = gapPenalty.getOpenPenalty() + gapPenalty.getExtensionPenalty();
+        max = subLength * subMatrix.getMaxValue();
+        min = Math.min(subLength * subMatrix.getMinValue() + (maxLength - subLength) * penalties,
+                maxLength * penalties);
+
+        short[][] profile = SimpleSubstitutionMatrix.getInstance(subMatrix).getProfile(query, target);
+        score = (gapPenalty.getType() == GapPenalty.Type.LINEAR) ? scoreLinear(profile) : scoreAffine(profile);
+    }
+
+    // scores with a single rolling row
+    private int scoreLinear(short[][] profile) {
+        int gep = gapPenalty.getExtensionPenalty(), cols = target.getLength(), diagonal, previous;
+        int[] row = new int[cols + 1];
+        for (int y = 1; y <= cols; y++) {
+            row[y] = row[y - 1] + gep;
+        }
+        for (short[] sub : profile) {
+            diagonal = row[0];
+            row[0] += gep;
+            for (int y = 1; y <= cols; y++) {
+                previous = row[y];
+                row[y] = Math.max(Math.max(previous + gep, row[y - 1] + gep), diagonal + sub[y - 1]);
+                diagonal = previous;
+            }
+        }
+        return row[cols];
+    }
+
+    // scores with a single rolling row for each of the match, query gap and target gap states
+    private int scoreAffine(short[][] profile) {
+        int gop = gapPenalty.getOpenPenalty(), gep = gapPenalty.getExtensionPenalty(), cols = target.getLength(),
+                dm, dix, diy, pm, pix;
+        int[] m = new int[cols + 1], ix = new int[cols + 1], iy = new int[cols + 1];
+        ix[0] = iy[0] = gop;
+        for (int y = 1; y <= cols; y++) {
+            m[y] = ix[y] = NEG;
+            iy[y] = Math.max(m[y - 1] + gop, iy[y - 1]) + gep;
+        }
+        for (short[] sub : profile) {
+            dm = m[0];
+            dix = ix[0];
+            diy = iy[0];
+            ix[0] = Math.max(m[0] + gop, ix[0]) + gep;
+            m[0] = iy[0] = NEG;
+            for (int y = 1; y <= cols; y++) {
+                pm = m[y];
+                pix = ix[y];
+                m[y] = Math.max(Math.max(dm, dix), diy) + sub[y - 1];
+                ix[y] = Math.max(pm + gop, pix) + gep;
+                dm = pm;
+                dix = pix;
+                diy = iy[y];
+                iy[y] = Math.max(m[y - 1] + gop, iy[y - 1]) + gep;
+            }
+        }
+        return Math.max(Math.max(m[cols], ix[cols]), iy[cols]);
+    }
+
+}
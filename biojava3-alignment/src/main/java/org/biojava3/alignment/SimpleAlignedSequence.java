@@ -327,8 +327,10 @@ public class SimpleAlignedSequence<C extends Compound> implements AlignedSequenc
         for (int i = 0; i < getStart().getPosition(); i++, a++) {
             sequenceFromAlignment[a - 1] = s;
         }
+        // the last aligned compound bounds the sequence index; it is counted from the start of the original sequence,
+        // while the end of the location is counted along the alignment
         for (; a <= length; a++) {
-            if (s < getEnd().getPosition() && !isGap(a)) {
+            if (s < original.getLength() - numAfter && !isGap(a)) {
                 s++;
             }
             sequenceFromAlignment[a - 1] = s;
@@ -57,6 +57,23 @@ public class SimpleSequencePair<S extends Sequence<C>, C extends Compound> exten
         super(query, target, sx, sy);
     }
 
+    /**
+     * Creates a pair profile for the given sequences in a local alignment.
+     *
+     * @param query the first sequence of the pair
+     * @param target the second sequence of the pair
+     * @param sx lists whether the query sequence aligns a {@link Compound} or gap at each index of the alignment
+     * @param xb number of {@link Compound}s skipped in the query sequence before the aligned region
+     * @param xa number of {@link Compound}s skipped in the query sequence after the aligned region
+     * @param sy lists whether the target sequence aligns a {@link Compound} or gap at each index of the alignment
+     * @param yb number of {@link Compound}s skipped in the target sequence before the aligned region
+     * @param ya number of {@link Compound}s skipped in the target sequence after the aligned region
+     * @throws IllegalArgumentException if alignments differ in size or given sequences do not fit in alignments
+     */
+    public SimpleSequencePair(S query, S target, List<Step> sx, int xb, int xa, List<Step> sy, int yb, int ya) {
+        super(query, target, sx, xb, xa, sy, yb, ya);
+    }
+
     @Override
     public C getCompoundInQueryAt(int alignmentIndex) {
         return getAlignedSequence(1).getCompoundAt(alignmentIndex);
@@ -31,7 +31,10 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.StringTokenizer;
 
@@ -40,11 +43,17 @@ import org.biojava3.core.sequence.compound.AminoAcidCompound;
 import org.biojava3.core.sequence.compound.AminoAcidCompoundSet;
 import org.biojava3.core.sequence.template.Compound;
 import org.biojava3.core.sequence.template.CompoundSet;
+import org.biojava3.core.sequence.template.Sequence;
 
 /**
  * Implements a data structure which holds the score (penalty or bonus) given during alignment for the exchange of one
  * {@link Compound} in a sequence for another.
  *
+ * Besides lookup by {@link Compound}, each matrix numbers the {@link Compound}s of its {@link CompoundSet} with an
+ * ordinal.  Aligners translate a {@link Sequence} to ordinals once with {@link #getOrdinals(Sequence)} and then score
+ * from the dense {@link #getOrdinalMatrix()} by plain array indexing.  {@link CompoundSet}s too large for byte ordinals
+ * are scored by {@link Compound} lookup instead.
+ *
  * @author Mark Chapman
  * @param <C> each element of the matrix corresponds to a pair of {@link Compound}s of type C
  */
@@ -58,6 +67,8 @@ public class SimpleSubstitutionMatrix<C extends Compound> implements Substitutio
     private short[][] matrix;
     private short max, min;
     private List<C> rows, cols;
+    private Map<C, Integer> ordinals;
+    private short[][] ordinalMatrix;
 
     /**
      * Creates a substitution matrix using the defaults.
@@ -127,6 +138,29 @@ public class SimpleSubstitutionMatrix<C extends Compound> implements Substitutio
                 }
             }
         }
+        setOrdinals();
+    }
+
+    /**
+     * Creates a substitution matrix holding the same values as another.  Every pair of {@link Compound}s from the
+     * {@link CompoundSet} of the given matrix is looked up once.
+     *
+     * @param subMatrix the set of substitution scores to copy
+     */
+    public SimpleSubstitutionMatrix(SubstitutionMatrix<C> subMatrix) {
+        compoundSet = subMatrix.getCompoundSet();
+        description = subMatrix.getDescription();
+        name = subMatrix.getName();
+        max = subMatrix.getMaxValue();
+        min = subMatrix.getMinValue();
+        rows = cols = compoundSet.getAllCompounds();
+        matrix = new short[rows.size()][cols.size()];
+        for (int r = 0; r < rows.size(); r++) {
+            for (int c = 0; c < cols.size(); c++) {
+                matrix[r][c] = subMatrix.getValue(rows.get(r), cols.get(c));
+            }
+        }
+        setOrdinals();
     }
 
     // helper constructor that creates a substitution matrix by parsing input
@@ -167,6 +201,171 @@ public class SimpleSubstitutionMatrix<C extends Compound> implements Substitutio
         for (int i = 0; i < rows.size(); i++) {
             matrix[i] = matrixIn.get(i);
         }
+        setOrdinals();
+    }
+
+    // helper method that numbers each distinct compound of the compound set and fills the dense ordinal matrix; the
+    // last ordinal stands for any compound outside of the compound set
+    private void setOrdinals() {
+        ordinals = new LinkedHashMap<C, Integer>();
+        for (C compound : compoundSet.getAllCompounds()) {
+            if (!ordinals.containsKey(compound)) {
+                ordinals.put(compound, ordinals.size());
+            }
+        }
+        List<C> compounds = new ArrayList<C>(ordinals.keySet());
+        ordinalMatrix = new short[compounds.size() + 1][compounds.size() + 1];
+        for (int from = 0; from < ordinalMatrix.length; from++) {
+            for (int to = 0; to < ordinalMatrix.length; to++) {
+                ordinalMatrix[from][to] = (from == compounds.size() || to == compounds.size()) ? min :
+                        getValueFromMatrix(compounds.get(from), compounds.get(to));
+            }
+        }
+    }
+
+    // helper method that looks up the value for a pair of compounds by their position along the axes of the matrix
+    private short getValueFromMatrix(C from, C to) {
+        int row = rows.indexOf(from), col = cols.indexOf(to);
+        if (row == -1 || col == -1) {
+            row = cols.indexOf(from);
+            col = rows.indexOf(to);
+            if (row == -1 || col == -1) {
+                return min;
+            }
+        }
+        return matrix[row][col];
+    }
+
+    /**
+     * Returns the ordinal of a {@link Compound}.  Ordinals run from 0 for each distinct {@link Compound} of the
+     * {@link CompoundSet}; all other {@link Compound}s share the last ordinal, which is always scored as
+     * {@link #getMinValue()}.
+     *
+     * @param compound the {@link Compound} to number
+     * @return the ordinal of the given {@link Compound}
+     */
+    public int getOrdinal(C compound) {
+        Integer ordinal = ordinals.get(compound);
+        return (ordinal == null) ? ordinals.size() : ordinal;
+    }
+
+    /**
+     * Returns the ordinal of each {@link Compound} of a {@link Sequence}, in order.  Ordinals are stored as bytes, so
+     * this is only possible if the {@link CompoundSet} holds at most {@link Byte#MAX_VALUE} distinct {@link Compound}s;
+     * for larger sets, scores have to be looked up with {@link #getValue(Compound, Compound)} instead.
+     *
+     * @param sequence the {@link Sequence} to translate
+     * @return the ordinals of the {@link Compound}s of the given {@link Sequence}, or null if the {@link CompoundSet}
+     * holds too many {@link Compound}s to number in a byte
+     */
+    public byte[] getOrdinals(Sequence<C> sequence) {
+        if (ordinals.size() > Byte.MAX_VALUE) {
+            return null;
+        }
+        byte[] translated = new byte[sequence.getLength()];
+        int i = 0;
+        for (C compound : sequence) {
+            translated[i++] = (byte) getOrdinal(compound);
+        }
+        return translated;
+    }
+
+    /**
+     * Returns the entire matrix indexed by the ordinals of {@link #getOrdinal(Compound)} instead of the order of the
+     * labels along the axes.  The value for a conversion is found at [ordinal of original][ordinal of replacement].
+     * The returned array is shared by every caller and must not be modified.
+     *
+     * @return the matrix indexed by ordinal
+     */
+    public short[][] getOrdinalMatrix() {
+        return ordinalMatrix;
+    }
+
+    // package method that fills the given arrays with byte ordinals for a pair of sequences and returns the matrix
+    // they index: the shared ordinal matrix if the whole compound set fits, otherwise one numbering only the compounds
+    // held by the pair, filled by map lookup
+    short[][] getOrdinals(Sequence<C> query, Sequence<C> target, byte[] queryOrdinals, byte[] targetOrdinals) {
+        byte[] qo = getOrdinals(query), to = getOrdinals(target);
+        if (qo != null) {
+            System.arraycopy(qo, 0, queryOrdinals, 0, qo.length);
+            System.arraycopy(to, 0, targetOrdinals, 0, to.length);
+            return ordinalMatrix;
+        }
+        Map<C, Integer> local = new LinkedHashMap<C, Integer>();
+        numberLocally(query, local, queryOrdinals);
+        numberLocally(target, local, targetOrdinals);
+        List<C> compounds = new ArrayList<C>(local.keySet());
+        short[][] subs = new short[compounds.size()][compounds.size()];
+        for (int r = 0; r < subs.length; r++) {
+            for (int c = 0; c < subs.length; c++) {
+                subs[r][c] = getValue(compounds.get(r), compounds.get(c));
+            }
+        }
+        return subs;
+    }
+
+    // helper method that numbers the compounds of a sequence in order of first appearance, continuing the given map
+    private void numberLocally(Sequence<C> sequence, Map<C, Integer> local, byte[] translated) {
+        int i = 0;
+        for (C compound : sequence) {
+            Integer ordinal = local.get(compound);
+            if (ordinal == null) {
+                if (local.size() > Byte.MAX_VALUE) {
+                    throw new IllegalArgumentException("Too many distinct compounds in a pair of sequences to number "
+                            + "in a byte: more than " + (Byte.MAX_VALUE + 1));
+                }
+                ordinal = local.size();
+                local.put(compound, ordinal);
+            }
+            translated[i++] = (byte) (int) ordinal;
+        }
+    }
+
+    // package method that returns the substitution scores of each compound of the query against the whole target,
+    // indexed [x][y] from 0; rows of equal compounds are shared, so each is filled once per distinct compound, by
+    // ordinal if the compound set fits byte ordinals and by map lookup otherwise
+    short[][] getProfile(Sequence<C> query, Sequence<C> target) {
+        short[][] profile = new short[query.getLength()][];
+        byte[] qo = getOrdinals(query), to = getOrdinals(target);
+        if (qo != null) {
+            short[][] rows = new short[ordinalMatrix.length][];
+            for (int x = 0; x < qo.length; x++) {
+                if (rows[qo[x]] == null) {
+                    short[] sub = ordinalMatrix[qo[x]], row = new short[to.length];
+                    for (int y = 0; y < to.length; y++) {
+                        row[y] = sub[to[y]];
+                    }
+                    rows[qo[x]] = row;
+                }
+                profile[x] = rows[qo[x]];
+            }
+        } else {
+            List<C> targetCompounds = target.getAsList();
+            Map<C, short[]> rows = new HashMap<C, short[]>();
+            int x = 0;
+            for (C compound : query) {
+                short[] row = rows.get(compound);
+                if (row == null) {
+                    row = new short[targetCompounds.size()];
+                    for (int y = 0; y < row.length; y++) {
+                        row[y] = getValue(compound, targetCompounds.get(y));
+                    }
+                    rows.put(compound, row);
+                }
+                profile[x++] = row;
+            }
+        }
+        return profile;
+    }
+
+    // package method that returns the given matrix if it supports ordinal lookup already, otherwise a copy that does
+    static <C extends Compound> SimpleSubstitutionMatrix<C> getInstance(SubstitutionMatrix<C> subMatrix) {
+        if (subMatrix instanceof SimpleSubstitutionMatrix<?>) {
+            @SuppressWarnings("unchecked") // a SubstitutionMatrix<C> can only be a SimpleSubstitutionMatrix<C>
+            SimpleSubstitutionMatrix<C> simple = (SimpleSubstitutionMatrix<C>) subMatrix;
+            return simple;
+        }
+        return new SimpleSubstitutionMatrix<C>(subMatrix);
     }
 
     @Override
@@ -229,15 +428,8 @@ public class SimpleSubstitutionMatrix<C extends Compound> implements Substitutio
 
     @Override
     public short getValue(C from, C to) {
-        int row = rows.indexOf(from), col = cols.indexOf(to);
-        if (row == -1 || col == -1) {
-            row = cols.indexOf(from);
-            col = rows.indexOf(to);
-            if (row == -1 || col == -1) {
-                return min;
-            }
-        }
-        return matrix[row][col];
+        Integer row = ordinals.get(from), col = ordinals.get(to);
+        return (row == null || col == null) ? getValueFromMatrix(from, to) : ordinalMatrix[row][col];
     }
 
     @Override
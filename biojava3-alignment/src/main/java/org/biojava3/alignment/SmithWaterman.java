@@ -0,0 +1,396 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.biojava3.alignment.template.AlignedSequence;
+import org.biojava3.alignment.template.AlignedSequence.Step;
+import org.biojava3.alignment.template.AbstractPairwiseSequenceAligner;
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.template.Compound;
+import org.biojava3.core.sequence.template.CompoundSet;
+import org.biojava3.core.sequence.template.Sequence;
+
+/**
+ * Smith and Waterman defined an algorithm for pairwise local sequence alignments (best match of sections from each
+ * {@link Sequence}).  This class performs such local sequence comparisons efficiently by dynamic programming.
+ *
+ * Scores are computed with Farrar's striped layout: the query is split into {@link #LANES} interleaved segments so
+ * that each step of the inner loop updates independent cells held side by side in int arrays, substitution scores
+ * come from a query profile, and gaps along the query are propagated in a separate lazy pass which usually ends after
+ * a few cells.  {@link #getScore()} stops after this pass, and the query profile is kept while only the target
+ * changes, which makes scanning many targets with {@link #setTarget(Sequence)} cheap.  The aligned pair of the best
+ * hit is recovered on request: a backwards pass from the end of the hit finds its start and the hit itself is aligned
+ * globally in linear space by {@link Hirschberg}.
+ *
+ * Gap penalties and tie breaking follow {@link NeedlemanWunsch}.  Among equally scoring hits, the one ending first in
+ * the target (then first in the query) is reported.  If no alignment scores above zero, the pair holds the single
+ * best substitution.
+ *
+ * Compounds are numbered by byte ordinals.  If the {@link CompoundSet} is too large for that, only the compounds of the
+ * pair are numbered, so a pair holding more than 128 distinct compounds throws an {@link IllegalArgumentException}.
+ *
+ * @param <S> each {@link Sequence} of the alignment pair is of type S
+ * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+ */
+public class SmithWaterman<S extends Sequence<C>, C extends Compound> extends AbstractPairwiseSequenceAligner<S, C> {
+
+    /**
+     * Number of interleaved query segments processed side by side in the inner loop.
+     */
+    public static final int LANES = 8;
+
+    // score used for unreachable states; far enough from overflow to survive repeated penalties
+    private static final int NEG = Integer.MIN_VALUE / 4;
+
+    // alignment specific fields, only set during a call to align() or getScore()
+    private byte[] queryOrdinals, targetOrdinals;
+    private short[][] subs;
+    private int open, extend, endX, endY;
+    private boolean scored;
+
+    // kept across alignments, so scanning targets with one query only converts the matrix and builds the query
+    // profile once
+    private SubstitutionMatrix<C> convertedMatrix;
+    private SimpleSubstitutionMatrix<C> ordinalMatrix;
+    private S profileQuery;
+    private short[][] profileSubs;
+    private int[][] profile;
+
+    /**
+     * Before running a pairwise local sequence alignment, data must be sent in via calls to
+     * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
+     * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
+     */
+    public SmithWaterman() {
+    }
+
+    /**
+     * Prepares for a pairwise local sequence alignment.
+     *
+     * @param query the first {@link Sequence} of the pair to align
+     * @param target the second {@link Sequence} of the pair to align
+     * @param gapPenalty the gap penalties used during alignment
+     * @param subMatrix the set of substitution scores used during alignment
+     */
+    public SmithWaterman(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+        super(query, target, gapPenalty, subMatrix);
+    }
+
+    // methods for Scorer
+
+    /**
+     * Returns 0, since a local alignment never scores below an empty one.
+     */
+    @Override
+    public int getMinScore() {
+        return 0;
+    }
+
+    /**
+     * Returns the score of the best local alignment.  Only the scoring pass is run if the aligned pair has not been
+     * requested yet: the striped one, or the full one if the score matrix is stored.
+     */
+    @Override
+    public int getScore() {
+        if (pair == null && !scored) {
+            if (prepare()) {
+                if (isStoringScoreMatrix()) {
+                    scoreFull();
+                } else {
+                    scoreStriped();
+                }
+            }
+            release();
+        }
+        return score;
+    }
+
+    // helper method that performs alignment
+    @Override
+    protected void align() {
+        if (!prepare()) {
+            return;
+        }
+        long timeStart = System.nanoTime();
+        if (isStoringScoreMatrix()) {
+            scoreFull();
+        } else {
+            scoreStriped();
+        }
+        List<Step> sx = new ArrayList<Step>(), sy = new ArrayList<Step>();
+        int startX = endX, startY = endY;
+        if (score > 0) {
+            int[] start = findStart();
+            startX = start[0];
+            startY = start[1];
+            new Hirschberg<S, C>().alignOrdinals(Arrays.copyOfRange(queryOrdinals, startX - 1, endX),
+                    Arrays.copyOfRange(targetOrdinals, startY - 1, endY), subs, getGapPenalty(), sx, sy);
+        } else {
+            setBestSubstitution();
+            startX = endX;
+            startY = endY;
+            sx.add(Step.COMPOUND);
+            sy.add(Step.COMPOUND);
+        }
+
+        // set output fields
+        pair = new SimpleSequencePair<S, C>(getQuery(), getTarget(), sx, startX - 1, queryOrdinals.length - endX,
+                sy, startY - 1, targetOrdinals.length - endY);
+        time = System.nanoTime() - timeStart;
+        release();
+    }
+
+    // helper method that resets output fields
+    @Override
+    protected void reset() {
+        super.reset();
+        scored = false;
+    }
+
+    // helper method that resets output fields and sets alignment specific fields, returns false for invalid input
+    private boolean prepare() {
+        reset();
+        S query = getQuery(), target = getTarget();
+        GapPenalty gapPenalty = getGapPenalty();
+        SubstitutionMatrix<C> subMatrix = getSubstitutionMatrix();
+
+        if (query == null || target == null || gapPenalty == null || subMatrix == null
+                || !query.getCompoundSet().equals(target.getCompoundSet())) {
+            return false;
+        }
+
+        queryOrdinals = new byte[query.getLength()];
+        targetOrdinals = new byte[target.getLength()];
+        if (convertedMatrix != subMatrix) {
+            convertedMatrix = subMatrix;
+            ordinalMatrix = SimpleSubstitutionMatrix.getInstance(subMatrix);
+        }
+        subs = ordinalMatrix.getOrdinals(query, target, queryOrdinals, targetOrdinals);
+        // penalties as positive costs: opening counts the first gap position, as in NeedlemanWunsch
+        open = -(gapPenalty.getOpenPenalty() + gapPenalty.getExtensionPenalty());
+        extend = -gapPenalty.getExtensionPenalty();
+        score = 0;
+        endX = endY = 1;
+        scored = true;
+        return true;
+    }
+
+    // helper method that releases alignment specific fields
+    private void release() {
+        queryOrdinals = targetOrdinals = null;
+        subs = null;
+    }
+
+    // scores with Farrar's striped layout: query index x (from 0) is kept at segment x % length, lane x / length
+    private void scoreStriped() {
+        int rows = queryOrdinals.length, cols = targetOrdinals.length;
+        if (rows == 0 || cols == 0) {
+            return;
+        }
+        int length = (rows + LANES - 1) / LANES, cells = length * LANES, i, k, s, h, m, e, f, best = 0;
+        int[][] profile = getStripedProfile(length);
+        int[] hLoad = new int[cells], hStore = new int[cells], eAll = new int[cells], fAll = new int[cells],
+                vDiag = new int[LANES], vF = new int[LANES], vMax = new int[LANES], swap;
+        Arrays.fill(eAll, NEG);
+        for (int y = 0; y < cols; y++) {
+            int[] sub = profile[targetOrdinals[y]];
+            // the diagonal of the first segment comes from the last segment of the previous lane
+            shift(hLoad, cells - LANES, vDiag, 0);
+            Arrays.fill(vF, NEG);
+            Arrays.fill(vMax, NEG);
+            for (s = 0, i = 0; s < length; s++) {
+                for (k = 0; k < LANES; k++, i++) {
+                    m = Math.max(vDiag[k], 0) + sub[i];
+                    e = eAll[i];
+                    f = vF[k];
+                    h = Math.max(m, Math.max(e, f));
+                    hStore[i] = h;
+                    fAll[i] = f;
+                    vMax[k] = Math.max(vMax[k], h);
+                    eAll[i] = Math.max(e - extend, m - open);
+                    vF[k] = Math.max(f - extend, m - open);
+                    vDiag[k] = hLoad[i];
+                }
+            }
+            // lazy pass: carries gaps along the query across segment boundaries until no lane improves
+            shift(vF, 0, vF, NEG);
+            for (s = 0, i = 0; ; ) {
+                boolean improved = false;
+                for (k = 0; k < LANES; k++, i++) {
+                    if (vF[k] > fAll[i]) {
+                        fAll[i] = vF[k];
+                        hStore[i] = Math.max(hStore[i], vF[k]);
+                        improved = true;
+                    }
+                    vF[k] = fAll[i] - extend;
+                }
+                if (!improved) {
+                    break;
+                }
+                if (++s == length) {
+                    s = i = 0;
+                    shift(vF, 0, vF, NEG);
+                }
+            }
+            for (k = 0; k < LANES; k++) {
+                if (vMax[k] > best) {
+                    best = vMax[k];
+                    endY = y + 1;
+                    endX = getFirstIndexOf(hStore, best, length) + 1;
+                }
+            }
+            swap = hLoad;
+            hLoad = hStore;
+            hStore = swap;
+        }
+        score = best;
+    }
+
+    // returns, for each ordinal, substitution scores against the query in striped order; padding never scores; the
+    // profile is rebuilt only for another query or ordinal matrix, which includes every pair numbered locally
+    private int[][] getStripedProfile(int length) {
+        if (profile != null && profileQuery == getQuery() && profileSubs == subs) {
+            return profile;
+        }
+        profile = new int[subs.length][length * LANES];
+        for (int c = 0; c < subs.length; c++) {
+            for (int s = 0, i = 0; s < length; s++) {
+                for (int k = 0; k < LANES; k++, i++) {
+                    int x = k * length + s;
+                    profile[c][i] = (x < queryOrdinals.length) ? subs[queryOrdinals[x]][c] : NEG;
+                }
+            }
+        }
+        profileQuery = getQuery();
+        profileSubs = subs;
+        return profile;
+    }
+
+    // copies lanes of the vector at offset in source into target moved up by one lane, filling the first lane
+    private static void shift(int[] source, int offset, int[] target, int first) {
+        for (int k = LANES - 1; k > 0; k--) {
+            target[k] = source[offset + k - 1];
+        }
+        target[0] = first;
+    }
+
+    // returns the smallest query index (from 0) with the given score in a striped column
+    private static int getFirstIndexOf(int[] column, int value, int length) {
+        for (int k = 0; k < LANES; k++) {
+            for (int s = 0; s < length; s++) {
+                if (column[s * LANES + k] == value) {
+                    return k * length + s;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // scores with full matrices, which are kept as the score matrix
+    private void scoreFull() {
+        int rows = queryOrdinals.length, cols = targetOrdinals.length, x, y, best = 0;
+        int[][] m = new int[rows + 1][cols + 1], ix = new int[rows + 1][cols + 1], iy = new int[rows + 1][cols + 1];
+        scores = new short[rows + 1][cols + 1];
+        for (x = 0; x <= rows; x++) {
+            ix[x][0] = iy[x][0] = m[x][0] = NEG;
+        }
+        for (y = 0; y <= cols; y++) {
+            ix[0][y] = iy[0][y] = m[0][y] = NEG;
+        }
+        for (x = 1; x <= rows; x++) {
+            short[] sub = subs[queryOrdinals[x - 1]];
+            for (y = 1; y <= cols; y++) {
+                m[x][y] = Math.max(Math.max(Math.max(m[x - 1][y - 1], ix[x - 1][y - 1]), iy[x - 1][y - 1]), 0)
+                        + sub[targetOrdinals[y - 1]];
+                ix[x][y] = Math.max(m[x - 1][y] - open, ix[x - 1][y] - extend);
+                iy[x][y] = Math.max(m[x][y - 1] - open, iy[x][y - 1] - extend);
+                scores[x][y] = (short) Math.max(Math.max(Math.max(m[x][y], ix[x][y]), iy[x][y]), 0);
+            }
+        }
+        // same choice among ties as the striped pass
+        for (y = 1; y <= cols; y++) {
+            for (x = 1; x <= rows; x++) {
+                int h = Math.max(Math.max(m[x][y], ix[x][y]), iy[x][y]);
+                if (h > best) {
+                    best = h;
+                    endX = x;
+                    endY = y;
+                }
+            }
+        }
+        score = best;
+    }
+
+    // sets the end of the hit to the best single substitution when no alignment scores above zero
+    private void setBestSubstitution() {
+        int best = Integer.MIN_VALUE;
+        for (int y = 1; y <= targetOrdinals.length; y++) {
+            for (int x = 1; x <= queryOrdinals.length; x++) {
+                if (subs[queryOrdinals[x - 1]][targetOrdinals[y - 1]] > best) {
+                    best = subs[queryOrdinals[x - 1]][targetOrdinals[y - 1]];
+                    endX = x;
+                    endY = y;
+                }
+            }
+        }
+    }
+
+    // returns the start {x, y} (from 1) of the best hit: aligns backwards from its end, anchored there, and picks the
+    // smallest region whose global score equals the local score
+    private int[] findStart() {
+        int[] m = new int[endY + 1], ix = new int[endY + 1], iy = new int[endY + 1];
+        int gop = getGapPenalty().getOpenPenalty(), gep = getGapPenalty().getExtensionPenalty(), dm, dix, diy, pm,
+                pix, b;
+        ix[0] = iy[0] = gop;
+        for (b = 1; b <= endY; b++) {
+            m[b] = ix[b] = NEG;
+            iy[b] = Math.max(m[b - 1] + gop, iy[b - 1]) + gep;
+        }
+        for (int a = 1; a <= endX; a++) {
+            short[] sub = subs[queryOrdinals[endX - a]];
+            dm = m[0];
+            dix = ix[0];
+            diy = iy[0];
+            ix[0] = Math.max(m[0] + gop, ix[0]) + gep;
+            m[0] = iy[0] = NEG;
+            for (b = 1; b <= endY; b++) {
+                pm = m[b];
+                pix = ix[b];
+                m[b] = Math.max(Math.max(dm, dix), diy) + sub[targetOrdinals[endY - b]];
+                ix[b] = Math.max(pm + gop, pix) + gep;
+                dm = pm;
+                dix = pix;
+                diy = iy[b];
+                iy[b] = Math.max(m[b - 1] + gop, iy[b - 1]) + gep;
+                if (m[b] == score) {
+                    return new int[] {endX - a + 1, endY - b + 1};
+                }
+            }
+        }
+        return new int[] {1, 1};
+    }
+
+}
@@ -46,8 +46,8 @@ public abstract class AbstractPairwiseSequenceAligner<S extends Sequence<C>, C e
     private boolean storingScoreMatrix;
 
     // output fields
-    private short max, min;
-    protected short score;
+    private int max, min;
+    protected int score;
     protected short[][] scores;
     protected SequencePair<S, C> pair;
     protected long time = -1;
@@ -209,7 +209,7 @@ public abstract class AbstractPairwiseSequenceAligner<S extends Sequence<C>, C e
         StringBuilder s = new StringBuilder();
         CompoundSet<C> compoundSet = query.getCompoundSet();
         int lengthCompound = compoundSet.getMaxSingleCompoundStringLength(), lengthRest =
-                Math.max(Math.max(Short.toString(min).length(), Short.toString(max).length()), lengthCompound) + 1;
+                Math.max(Math.max(Integer.toString(min).length(), Integer.toString(max).length()), lengthCompound) + 1;
         String newLine = System.getProperty("line.separator"),
                 padCompound = "%" + Integer.toString(lengthCompound) + "s",
                 padRest = "%" + Integer.toString(lengthRest);
@@ -308,8 +308,8 @@ public abstract class AbstractPairwiseSequenceAligner<S extends Sequence<C>, C e
         if (query != null && target != null && gapPenalty != null && subMatrix != null) {
             int subLength = Math.min(query.getLength(), target.getLength()), maxLength = query.getLength()
                     + target.getLength(), penalties = gapPenalty.getOpenPenalty() + gapPenalty.getExtensionPenalty();
-            max = (short) (subLength * subMatrix.getMaxValue());
-            score = min = (short) Math.min(subLength * subMatrix.getMinValue() + (maxLength - subLength) * penalties,
+            max = subLength * subMatrix.getMaxValue();
+            score = min = Math.min(subLength * subMatrix.getMinValue() + (maxLength - subLength) * penalties,
                     maxLength * penalties);
         }
         scores = null;
@@ -0,0 +1,42 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment.template;
+
+import org.biojava3.core.sequence.template.Sequence;
+
+/**
+ * Defines a callback which receives the result for a pair of {@link Sequence}s as soon as its calculation completes.
+ * Used to stream results of all-pairs calculations instead of collecting them.
+ *
+ * @param <R> each result is of type R, such as a {@link SequencePair} or an {@link Integer} score
+ */
+public interface PairwiseResultListener<R> {
+
+    /**
+     * Receives the result calculated for a pair of {@link Sequence}s.
+     *
+     * @param query index (from 0) of the first {@link Sequence} of the pair in the input list
+     * @param target index (from 0) of the second {@link Sequence} of the pair in the input list
+     * @param result the result calculated for the pair
+     */
+    void resultReady(int query, int target, R result);
+
+}
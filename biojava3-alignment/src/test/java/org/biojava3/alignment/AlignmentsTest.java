@@ -0,0 +1,131 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava3.alignment.Alignments.PairwiseAligner;
+import org.biojava3.alignment.Alignments.PairwiseScorer;
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.PairwiseResultListener;
+import org.biojava3.alignment.template.SequencePair;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.ProteinSequence;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.biojava3.core.util.ConcurrencyTools;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AlignmentsTest {
+
+    private List<ProteinSequence> sequences;
+    private GapPenalty gaps;
+    private SubstitutionMatrix<AminoAcidCompound> blosum62;
+    private int maxPendingPairs;
+
+    @Before
+    public void setup() {
+        sequences = new ArrayList<ProteinSequence>();
+        for (String s : new String[] {"ARND", "RDG", "ARNDCQ", "WWCWW", "GGQ", "MKLV"}) {
+            sequences.add(new ProteinSequence(s));
+        }
+        gaps = new SimpleGapPenalty();
+        blosum62 = new SimpleSubstitutionMatrix<AminoAcidCompound>();
+        maxPendingPairs = Alignments.getMaxPendingPairs();
+    }
+
+    @After
+    public void teardown() {
+        Alignments.setMaxPendingPairs(maxPendingPairs);
+        ConcurrencyTools.shutdown();
+    }
+
+    @Test
+    public void testGetAllPairsAlignmentsListener() {
+        Alignments.setMaxPendingPairs(2);
+        final boolean[][] seen = new boolean[sequences.size()][sequences.size()];
+        Alignments.getAllPairsAlignments(sequences, PairwiseAligner.GLOBAL, gaps, blosum62,
+                new PairwiseResultListener<SequencePair<ProteinSequence, AminoAcidCompound>>() {
+            @Override
+            public void resultReady(int query, int target, SequencePair<ProteinSequence, AminoAcidCompound> result) {
+                assertTrue(query < target);
+                assertFalse(seen[query][target]);
+                seen[query][target] = true;
+                assertEquals(result.toString(), Alignments.getPairwiseAlignment(sequences.get(query),
+                        sequences.get(target), PairwiseAligner.GLOBAL, gaps, blosum62).toString());
+            }
+        });
+        for (int i = 0; i < sequences.size(); i++) {
+            for (int j = i + 1; j < sequences.size(); j++) {
+                assertTrue(seen[i][j]);
+            }
+        }
+    }
+
+    @Test
+    public void testGetAllPairsScoresListener() {
+        final int[] count = new int[1];
+        Alignments.getAllPairsScores(sequences, PairwiseScorer.LOCAL, gaps, blosum62,
+                new PairwiseResultListener<Integer>() {
+            @Override
+            public void resultReady(int query, int target, Integer result) {
+                count[0]++;
+                assertEquals(result.intValue(), Alignments.getPairwiseScore(sequences.get(query),
+                        sequences.get(target), PairwiseScorer.LOCAL, gaps, blosum62));
+            }
+        });
+        assertEquals(count[0], sequences.size() * (sequences.size() - 1) / 2);
+    }
+
+    @Test
+    public void testGetAllPairsScoresListenerEmpty() {
+        final int[] count = new int[1];
+        Alignments.getAllPairsScores(sequences.subList(0, 1), PairwiseScorer.GLOBAL, gaps, blosum62,
+                new PairwiseResultListener<Integer>() {
+            @Override
+            public void resultReady(int query, int target, Integer result) {
+                count[0]++;
+            }
+        });
+        assertEquals(count[0], 0);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testGetAllPairsScoresListenerFailure() {
+        Alignments.getAllPairsScores(sequences, PairwiseScorer.GLOBAL, gaps, blosum62,
+                new PairwiseResultListener<Integer>() {
+            @Override
+            public void resultReady(int query, int target, Integer result) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSetMaxPendingPairs() {
+        Alignments.setMaxPendingPairs(0);
+    }
+
+}
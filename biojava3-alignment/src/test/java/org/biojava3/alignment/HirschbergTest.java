@@ -0,0 +1,135 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.ProteinSequence;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.biojava3.core.sequence.compound.AminoAcidCompoundSet;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HirschbergTest {
+
+    private ProteinSequence query, target;
+    private GapPenalty gaps;
+    private SubstitutionMatrix<AminoAcidCompound> blosum62;
+    private Hirschberg<ProteinSequence, AminoAcidCompound> alignment, self;
+
+    @Before
+    public void setup() {
+        query = new ProteinSequence("ARND");
+        target = new ProteinSequence("RDG");
+        gaps = new SimpleGapPenalty();
+        blosum62 = new SimpleSubstitutionMatrix<AminoAcidCompound>();
+        alignment = new Hirschberg<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+        self = new Hirschberg<ProteinSequence, AminoAcidCompound>(query, query, gaps, blosum62);
+    }
+
+    @Test
+    public void testHirschberg() {
+        Hirschberg<ProteinSequence, AminoAcidCompound> h = new Hirschberg<ProteinSequence, AminoAcidCompound>();
+        h.setQuery(query);
+        h.setTarget(target);
+        h.setGapPenalty(gaps);
+        h.setSubstitutionMatrix(blosum62);
+        assertEquals(h.getScore(), alignment.getScore());
+    }
+
+    @Test
+    public void testGetScore() {
+        assertEquals(alignment.getScore(), new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target,
+                gaps, blosum62).getScore());
+        assertEquals(self.getScore(), new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, query,
+                gaps, blosum62).getScore());
+    }
+
+    @Test
+    public void testGetPair() {
+        assertEquals(alignment.getPair().toString(), String.format("ARND%n-RDG%n"));
+        assertEquals(self.getPair().toString(), String.format("ARND%nARND%n"));
+    }
+
+    @Test
+    public void testGetScoreMatrix() {
+        assertNotNull(alignment.getScoreMatrix());
+        assertFalse(alignment.isStoringScoreMatrix());
+        assertEquals(self.getScoreMatrixAt(3, 4), new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query,
+                query, gaps, blosum62).getScoreMatrixAt(3, 4));
+    }
+
+    @Test
+    public void testMatchesNeedlemanWunsch() {
+        Random random = new Random(1L);
+        SubstitutionMatrix<AminoAcidCompound> identity = new SimpleSubstitutionMatrix<AminoAcidCompound>(
+                AminoAcidCompoundSet.getAminoAcidCompoundSet(), (short) 2, (short) -1);
+        for (int i = 0; i < 200; i++) {
+            // small alphabets cause many ties, which must still resolve to the same highroad alignment
+            String alphabet = "ARNDCQEGHILKMFPSTWYV".substring(0, 1 + random.nextInt(i % 2 == 0 ? 3 : 20));
+            ProteinSequence q = new ProteinSequence(getRandomString(random, alphabet, 1 + random.nextInt(60))),
+                    t = new ProteinSequence(getRandomString(random, alphabet, 1 + random.nextInt(60)));
+            GapPenalty g = new SimpleGapPenalty((short) random.nextInt(4), (short) (1 + random.nextInt(3)));
+            SubstitutionMatrix<AminoAcidCompound> m = random.nextBoolean() ? blosum62 : identity;
+            NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw =
+                    new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(q, t, g, m);
+            Hirschberg<ProteinSequence, AminoAcidCompound> h =
+                    new Hirschberg<ProteinSequence, AminoAcidCompound>(q, t, g, m);
+            h.setMaxBlockCells(random.nextInt(20));
+            assertEquals(nw.getScore(), h.getScore());
+            assertEquals(nw.getPair().toString(), h.getPair().toString());
+        }
+    }
+
+    @Test
+    public void testLongUnequalMatchesNeedlemanWunsch() {
+        Random random = new Random(2L);
+        SubstitutionMatrix<AminoAcidCompound> identity = new SimpleSubstitutionMatrix<AminoAcidCompound>(
+                AminoAcidCompoundSet.getAminoAcidCompoundSet(), (short) 2, (short) -1);
+        ProteinSequence q = new ProteinSequence(getRandomString(random, "ARN", 1200)),
+                t = new ProteinSequence(getRandomString(random, "ARN", 500));
+        for (short open : new short[] {0, 3}) {
+            GapPenalty g = new SimpleGapPenalty(open, (short) 1);
+            NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw =
+                    new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(q, t, g, identity);
+            Hirschberg<ProteinSequence, AminoAcidCompound> h =
+                    new Hirschberg<ProteinSequence, AminoAcidCompound>(q, t, g, identity);
+            h.setMaxBlockCells(16);
+            assertEquals(nw.getScore(), h.getScore());
+            assertEquals(nw.getPair().toString(), h.getPair().toString());
+            // each level of the recursion fills half the cells of the one above, about twice the full matrix in all
+            assertTrue(h.cells <= 5L * (q.getLength() + 1) * (t.getLength() + 1) / 2);
+        }
+    }
+
+    private static String getRandomString(Random random, String alphabet, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+
+}
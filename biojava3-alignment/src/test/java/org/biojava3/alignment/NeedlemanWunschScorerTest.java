@@ -0,0 +1,98 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.ProteinSequence;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NeedlemanWunschScorerTest {
+
+    private ProteinSequence query, target;
+    private GapPenalty gaps;
+    private SubstitutionMatrix<AminoAcidCompound> blosum62;
+    private NeedlemanWunschScorer<ProteinSequence, AminoAcidCompound> scorer, self;
+    private NeedlemanWunsch<ProteinSequence, AminoAcidCompound> alignment;
+
+    @Before
+    public void setup() {
+        query = new ProteinSequence("ARND");
+        target = new ProteinSequence("RDG");
+        gaps = new SimpleGapPenalty();
+        blosum62 = new SimpleSubstitutionMatrix<AminoAcidCompound>();
+        scorer = new NeedlemanWunschScorer<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+        self = new NeedlemanWunschScorer<ProteinSequence, AminoAcidCompound>(query, query, gaps, blosum62);
+        alignment = new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+    }
+
+    @Test
+    public void testGetPair() {
+        assertEquals(scorer.getPair().toString(), String.format("ARND%n-RDG%n"));
+        assertEquals(self.getPair().toString(), String.format("ARND%nARND%n"));
+    }
+
+    @Test
+    public void testGetMaxScore() {
+        assertEquals(scorer.getMaxScore(), alignment.getMaxScore());
+        assertEquals(self.getMaxScore(), 44);
+    }
+
+    @Test
+    public void testGetMinScore() {
+        assertEquals(scorer.getMinScore(), alignment.getMinScore());
+    }
+
+    @Test
+    public void testGetScore() {
+        assertEquals(scorer.getScore(), alignment.getScore());
+        assertEquals(self.getScore(), new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, query, gaps,
+                blosum62).getScore());
+    }
+
+    @Test
+    public void testGetScoreRandom() {
+        GapPenalty linear = new SimpleGapPenalty((short) 0, (short) 3);
+        Random random = new Random(2L);
+        for (int i = 0; i < 50; i++) {
+            ProteinSequence q = getRandomSequence(random), t = getRandomSequence(random);
+            for (GapPenalty g : new GapPenalty[] {gaps, linear}) {
+                assertEquals(new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(q, t, g, blosum62).getScore(),
+                        new NeedlemanWunschScorer<ProteinSequence, AminoAcidCompound>(q, t, g, blosum62).getScore());
+            }
+        }
+    }
+
+    private static ProteinSequence getRandomSequence(Random random) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0, length = 1 + random.nextInt(50); i < length; i++) {
+            s.append("ARNDCQEGHILKMFPSTWYV".charAt(random.nextInt(20)));
+        }
+        return new ProteinSequence(s.toString());
+    }
+
+}
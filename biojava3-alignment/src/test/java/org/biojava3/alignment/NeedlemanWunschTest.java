@@ -27,8 +27,13 @@ import static org.junit.Assert.*;
 
 import org.biojava3.alignment.template.GapPenalty;
 import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.BasicSequence;
 import org.biojava3.core.sequence.ProteinSequence;
 import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.biojava3.core.sequence.compound.AminoAcidCompoundSet;
+import org.biojava3.core.sequence.template.AbstractCompound;
+import org.biojava3.core.sequence.template.AbstractCompoundSet;
+import org.biojava3.core.sequence.template.Compound;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -158,4 +163,69 @@ public class NeedlemanWunschTest {
         assertEquals(self.getPair().toString(), String.format("ARND%nARND%n"));
     }
 
+    @Test
+    public void testLargeCompoundSet() {
+        // 200 compounds do not fit byte ordinals, so scores come from compound lookup; the same pattern of matches
+        // with amino acids must align the same way
+        LargeCompoundSet set = new LargeCompoundSet(200);
+        SimpleSubstitutionMatrix<LargeCompound> large = new SimpleSubstitutionMatrix<LargeCompound>(set, (short) 2,
+                (short) -1);
+        SimpleSubstitutionMatrix<AminoAcidCompound> small = new SimpleSubstitutionMatrix<AminoAcidCompound>(
+                AminoAcidCompoundSet.getAminoAcidCompoundSet(), (short) 2, (short) -1);
+        BasicSequence<LargeCompound> lq = new BasicSequence<LargeCompound>(set.getString(5, 150, 7, 199, 7), set),
+                lt = new BasicSequence<LargeCompound>(set.getString(150, 199, 3, 7), set);
+        ProteinSequence sq = new ProteinSequence("ARNDN"), st = new ProteinSequence("RDGN");
+        assertNull(large.getOrdinals(lq));
+        for (GapPenalty penalty : new GapPenalty[] { new SimpleGapPenalty(), new SimpleGapPenalty((short) 0,
+                (short) -1) }) {
+            assertEquals(new NeedlemanWunsch<BasicSequence<LargeCompound>, LargeCompound>(lq, lt, penalty, large)
+                    .getScore(), new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(sq, st, penalty, small)
+                    .getScore());
+            assertEquals(new NeedlemanWunschScorer<BasicSequence<LargeCompound>, LargeCompound>(lq, lt, penalty,
+                    large).getScore(), new NeedlemanWunschScorer<ProteinSequence, AminoAcidCompound>(sq, st, penalty,
+                    small).getScore());
+            assertEquals(new Hirschberg<BasicSequence<LargeCompound>, LargeCompound>(lq, lt, penalty, large)
+                    .getScore(), new Hirschberg<ProteinSequence, AminoAcidCompound>(sq, st, penalty, small)
+                    .getScore());
+            assertEquals(new SmithWaterman<BasicSequence<LargeCompound>, LargeCompound>(lq, lt, penalty, large)
+                    .getScore(), new SmithWaterman<ProteinSequence, AminoAcidCompound>(sq, st, penalty, small)
+                    .getScore());
+        }
+    }
+
+    // compounds of a set too large for byte ordinals
+    private static class LargeCompound extends AbstractCompound {
+
+        private LargeCompound(String base) {
+            super(base);
+        }
+
+        @Override
+        public boolean equalsIgnoreCase(Compound compound) {
+            return equals(compound);
+        }
+
+    }
+
+    // numbers its compounds by single characters from U+0100
+    private static class LargeCompoundSet extends AbstractCompoundSet<LargeCompound> {
+
+        private LargeCompoundSet(int size) {
+            for (int i = 0; i < size; i++) {
+                LargeCompound compound = new LargeCompound(String.valueOf((char) (0x100 + i)));
+                addCompound(compound);
+                addEquivalent(compound, compound);
+            }
+        }
+
+        private String getString(int... compounds) {
+            StringBuilder s = new StringBuilder();
+            for (int i : compounds) {
+                s.append((char) (0x100 + i));
+            }
+            return s.toString();
+        }
+
+    }
+
 }
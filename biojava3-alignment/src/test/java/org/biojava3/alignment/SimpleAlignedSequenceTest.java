@@ -162,6 +162,18 @@ public class SimpleAlignedSequenceTest {
         assertEquals(local.getSequenceIndexAt(8), 6);
     }
 
+    @Test
+    public void testGetSequenceIndexAtLocalAfterLongStart() {
+        // more compounds before the local alignment than alignment columns
+        AlignedSequence<AminoAcidCompound> late = new SimpleAlignedSequence<AminoAcidCompound>(lo, Arrays.asList(
+                new Step[] {Step.COMPOUND, Step.GAP, Step.COMPOUND, Step.COMPOUND}), 5, 1);
+        assertEquals(late.getSequenceIndexAt(1), 6);
+        assertEquals(late.getSequenceIndexAt(2), 6);
+        assertEquals(late.getSequenceIndexAt(3), 7);
+        assertEquals(late.getSequenceIndexAt(4), 8);
+        assertEquals(late.getCompoundAt(4), cs.getCompoundForString("K"));
+    }
+
     @Test(expected=IndexOutOfBoundsException.class)
     public void testGetSequenceIndexAtOutOfBounds() {
         global.getSequenceIndexAt(0);
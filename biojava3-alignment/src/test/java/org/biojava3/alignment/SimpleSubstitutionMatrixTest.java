@@ -29,6 +29,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 
 import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.ProteinSequence;
 import org.biojava3.core.sequence.compound.AminoAcidCompound;
 import org.biojava3.core.sequence.compound.AminoAcidCompoundSet;
 import org.biojava3.core.sequence.compound.DNACompoundSet;
@@ -80,6 +81,48 @@ public class SimpleSubstitutionMatrixTest {
         assertEquals(matrix.getName(), "IDENTITY_5_1");
     }
 
+    @Test
+    public void testSimpleSubstitutionMatrixSubstitutionMatrix() {
+        SubstitutionMatrix<AminoAcidCompound> blosum62 = new SimpleSubstitutionMatrix<AminoAcidCompound>(),
+                copy = new SimpleSubstitutionMatrix<AminoAcidCompound>(blosum62);
+        assertEquals(copy.getName(), "blosum62");
+        assertEquals(copy.getMaxValue(), 11);
+        assertEquals(copy.getMinValue(), -4);
+        for (AminoAcidCompound from : blosum62.getCompoundSet().getAllCompounds()) {
+            for (AminoAcidCompound to : blosum62.getCompoundSet().getAllCompounds()) {
+                assertEquals(copy.getValue(from, to), blosum62.getValue(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testGetOrdinals() {
+        SimpleSubstitutionMatrix<AminoAcidCompound> matrix = new SimpleSubstitutionMatrix<AminoAcidCompound>();
+        ProteinSequence seq = new ProteinSequence("ARNDA");
+        byte[] ordinals = matrix.getOrdinals(seq);
+        assertEquals(ordinals.length, 5);
+        assertEquals(ordinals[0], ordinals[4]);
+        assertEquals(ordinals[1], matrix.getOrdinal(seq.getCompoundAt(2)));
+        assertFalse(ordinals[0] == ordinals[1]);
+    }
+
+    @Test
+    public void testGetOrdinalMatrix() {
+        SimpleSubstitutionMatrix<AminoAcidCompound> matrix = new SimpleSubstitutionMatrix<AminoAcidCompound>();
+        short[][] ordinalMatrix = matrix.getOrdinalMatrix();
+        for (AminoAcidCompound from : matrix.getCompoundSet().getAllCompounds()) {
+            for (AminoAcidCompound to : matrix.getCompoundSet().getAllCompounds()) {
+                assertEquals(ordinalMatrix[matrix.getOrdinal(from)][matrix.getOrdinal(to)], matrix.getValue(from,
+                        to));
+            }
+        }
+        AminoAcidCompoundSet aacs = AminoAcidCompoundSet.getAminoAcidCompoundSet();
+        assertEquals(ordinalMatrix[matrix.getOrdinal(aacs.getCompoundForString("W"))]
+                [matrix.getOrdinal(aacs.getCompoundForString("W"))], 11);
+        assertEquals(ordinalMatrix[matrix.getOrdinal(aacs.getCompoundForString("A"))]
+                [matrix.getOrdinal(aacs.getCompoundForString("R"))], -1);
+    }
+
     @Test
     public void testSetDescription() {
         SubstitutionMatrix<AminoAcidCompound> matrix = new SimpleSubstitutionMatrix<AminoAcidCompound>();
@@ -0,0 +1,149 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.ProteinSequence;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SmithWatermanTest {
+
+    private ProteinSequence query, target;
+    private GapPenalty gaps;
+    private SubstitutionMatrix<AminoAcidCompound> blosum62;
+    private SmithWaterman<ProteinSequence, AminoAcidCompound> alignment, self;
+
+    @Before
+    public void setup() {
+        query = new ProteinSequence("AAAAWWCWWAAAA");
+        target = new ProteinSequence("GGGWWCWWGGG");
+        gaps = new SimpleGapPenalty();
+        blosum62 = new SimpleSubstitutionMatrix<AminoAcidCompound>();
+        alignment = new SmithWaterman<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+        self = new SmithWaterman<ProteinSequence, AminoAcidCompound>(query, query, gaps, blosum62);
+    }
+
+    @Test
+    public void testSmithWaterman() {
+        SmithWaterman<ProteinSequence, AminoAcidCompound> sw = new SmithWaterman<ProteinSequence, AminoAcidCompound>();
+        sw.setQuery(query);
+        sw.setTarget(target);
+        sw.setGapPenalty(gaps);
+        sw.setSubstitutionMatrix(blosum62);
+        assertEquals(sw.getScore(), alignment.getScore());
+    }
+
+    @Test
+    public void testGetMinScore() {
+        assertEquals(alignment.getMinScore(), 0);
+    }
+
+    @Test
+    public void testGetScore() {
+        assertEquals(alignment.getScore(), 53);
+        assertEquals(self.getScore(), 85);
+    }
+
+    @Test
+    public void testGetPair() {
+        assertEquals(alignment.getPair().toString(), String.format("WWCWW%nWWCWW%n"));
+        assertEquals(alignment.getPair().getIndexInQueryAt(1), 5);
+        assertEquals(alignment.getPair().getIndexInTargetAt(1), 4);
+        assertEquals(alignment.getPair().getNumIdenticals(), 5);
+        assertEquals(self.getPair().toString(), String.format("AAAAWWCWWAAAA%nAAAAWWCWWAAAA%n"));
+    }
+
+    @Test
+    public void testGetPairNoHit() {
+        SmithWaterman<ProteinSequence, AminoAcidCompound> sw = new SmithWaterman<ProteinSequence, AminoAcidCompound>(
+                new ProteinSequence("WWW"), new ProteinSequence("GDG"), gaps, blosum62);
+        assertEquals(sw.getScore(), 0);
+        assertEquals(sw.getPair().getLength(), 1);
+    }
+
+    @Test
+    public void testGetScoreMatrix() {
+        assertNotNull(alignment.getScoreMatrix());
+        assertFalse(alignment.isStoringScoreMatrix());
+        assertEquals(alignment.getScoreMatrixAt(9, 8), 53);
+        assertEquals(alignment.getScoreMatrixAt(1, 1), 0);
+    }
+
+    @Test
+    public void testStripedMatchesFull() {
+        Random random = new Random(3L);
+        for (int i = 0; i < 300; i++) {
+            // short queries leave most lanes padded, small alphabets cause many ties
+            String alphabet = "ARNDCQEGHILKMFPSTWYV".substring(0, 1 + random.nextInt(i % 2 == 0 ? 4 : 20));
+            ProteinSequence q = new ProteinSequence(getRandomString(random, alphabet, 1 + random.nextInt(70))),
+                    t = new ProteinSequence(getRandomString(random, alphabet, 1 + random.nextInt(70)));
+            GapPenalty g = new SimpleGapPenalty((short) random.nextInt(5), (short) random.nextInt(4));
+            SmithWaterman<ProteinSequence, AminoAcidCompound> striped =
+                    new SmithWaterman<ProteinSequence, AminoAcidCompound>(q, t, g, blosum62);
+            SmithWaterman<ProteinSequence, AminoAcidCompound> full =
+                    new SmithWaterman<ProteinSequence, AminoAcidCompound>(q, t, g, blosum62);
+            full.setStoringScoreMatrix(true);
+            // scores with the full matrix, since getScore() honors the storing mode
+            int fullScore = full.getScore();
+            assertEquals(striped.getScore(), fullScore);
+            assertEquals(striped.getPair().toString(), full.getPair().toString());
+            assertEquals(striped.getScore(), full.getScore());
+        }
+    }
+
+    @Test
+    public void testScanTargets() {
+        // one aligner keeps its query profile across targets, and rebuilds it for a new query or matrix
+        Random random = new Random(5L);
+        String alphabet = "ARNDCQEGHILKMFPSTWYV";
+        SubstitutionMatrix<AminoAcidCompound> identity = new SimpleSubstitutionMatrix<AminoAcidCompound>(
+                blosum62.getCompoundSet(), (short) 3, (short) -2);
+        SmithWaterman<ProteinSequence, AminoAcidCompound> scan = new SmithWaterman<ProteinSequence, AminoAcidCompound>(
+                query, target, gaps, blosum62);
+        for (int i = 0; i < 60; i++) {
+            if (i == 20) {
+                scan.setQuery(new ProteinSequence(getRandomString(random, alphabet, 50)));
+            } else if (i == 40) {
+                scan.setSubstitutionMatrix(identity);
+            }
+            ProteinSequence t = new ProteinSequence(getRandomString(random, alphabet, 1 + random.nextInt(80)));
+            scan.setTarget(t);
+            assertEquals(scan.getScore(), new SmithWaterman<ProteinSequence, AminoAcidCompound>(scan.getQuery(), t,
+                    gaps, scan.getSubstitutionMatrix()).getScore());
+        }
+    }
+
+    private static String getRandomString(Random random, String alphabet, int length) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+
+}
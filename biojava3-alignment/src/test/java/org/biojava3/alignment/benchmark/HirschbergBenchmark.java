@@ -0,0 +1,136 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+
+import org.biojava3.alignment.Hirschberg;
+import org.biojava3.alignment.NeedlemanWunsch;
+import org.biojava3.alignment.SimpleGapPenalty;
+import org.biojava3.alignment.SimpleSubstitutionMatrix;
+import org.biojava3.alignment.template.AbstractPairwiseSequenceAligner;
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.alignment.template.SubstitutionMatrix;
+import org.biojava3.core.sequence.DNASequence;
+import org.biojava3.core.sequence.compound.DNACompoundSet;
+import org.biojava3.core.sequence.compound.NucleotideCompound;
+
+/**
+ * Compares wall time and peak heap of {@link NeedlemanWunsch} and {@link Hirschberg} global alignments of random DNA
+ * sequences of increasing length.  Lengths are given as arguments.  Full matrix alignments which would not fit in the
+ * maximum heap are skipped.
+ */
+public class HirschbergBenchmark {
+
+    public static void main(String[] args) {
+        int[] lengths = {1000, 2000, 5000, 10000, 20000};
+        if (args.length > 0) {
+            lengths = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                lengths[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Random random = new Random(0L);
+        GapPenalty gaps = new SimpleGapPenalty((short) 10, (short) 1);
+        SubstitutionMatrix<NucleotideCompound> matrix = new SimpleSubstitutionMatrix<NucleotideCompound>(
+                DNACompoundSet.getDNACompoundSet(), String.format("  A  C  G  T%nA  5 -4 -4 -4%nC -4  5 -4 -4%n"
+                + "G -4 -4  5 -4%nT -4 -4 -4  5%n"), "DNA");
+        System.out.println("length\taligner\tscore\tmillis\tpeak MB");
+        for (int length : lengths) {
+            DNASequence query = new DNASequence(getRandomDNA(random, length)),
+                    target = new DNASequence(mutate(random, query.getSequenceAsString()));
+            // three short matrices per cell for affine gap penalties
+            if (6L * (length + 1) * (length + 1) < Runtime.getRuntime().maxMemory() / 2) {
+                run("NeedlemanWunsch", length, new NeedlemanWunsch<DNASequence, NucleotideCompound>(query, target,
+                        gaps, matrix));
+            } else {
+                System.out.println(length + "\tNeedlemanWunsch\tskipped, needs more heap");
+            }
+            run("Hirschberg", length, new Hirschberg<DNASequence, NucleotideCompound>(query, target, gaps, matrix));
+        }
+    }
+
+    private static void run(String name, int length,
+            AbstractPairwiseSequenceAligner<DNASequence, NucleotideCompound> aligner) {
+        System.gc();
+        long base = getHeapUsed();
+        resetPeakHeap();
+        long start = System.nanoTime();
+        int score = aligner.getPair() == null ? 0 : aligner.getScore();
+        long millis = (System.nanoTime() - start) / 1000000L;
+        System.out.printf("%d\t%s\t%d\t%d\t%.1f%n", length, name, score, millis,
+                (getPeakHeap() - base) / (1024.0 * 1024.0));
+    }
+
+    private static long getHeapUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    private static String getRandomDNA(Random random, int length) {
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            s.append("ACGT".charAt(random.nextInt(4)));
+        }
+        return s.toString();
+    }
+
+    // introduces roughly 10% substitutions and small insertions or deletions
+    private static String mutate(Random random, String dna) {
+        StringBuilder s = new StringBuilder(dna.length());
+        for (int i = 0; i < dna.length(); i++) {
+            int r = random.nextInt(100);
+            if (r < 6) {
+                s.append("ACGT".charAt(random.nextInt(4)));
+            } else if (r < 8) {
+                s.append(dna.charAt(i)).append("ACGT".charAt(random.nextInt(4)));
+            } else if (r >= 10) {
+                s.append(dna.charAt(i));
+            }
+        }
+        return s.toString();
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.alignment.benchmark;
+
+import java.util.Random;
+
+import org.biojava3.alignment.NeedlemanWunsch;
+import org.biojava3.alignment.SimpleGapPenalty;
+import org.biojava3.alignment.SimpleSubstitutionMatrix;
+import org.biojava3.alignment.template.GapPenalty;
+import org.biojava3.core.sequence.ProteinSequence;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+
+/**
+ * Measures alignment cells per second of the dynamic programming inner loop when substitution scores are looked up
+ * per {@link AminoAcidCompound} pair (as the aligners did before) and when both sequences are first translated to
+ * ordinals.  Both loops fill the same linear gap score rows; a full {@link NeedlemanWunsch} alignment is timed last.
+ * Arguments are the protein length and the number of repetitions.
+ */
+public class SubstitutionBenchmark {
+
+    public static void main(String[] args) {
+        int length = (args.length > 0) ? Integer.parseInt(args[0]) : 1000,
+                repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        Random random = new Random(0L);
+        ProteinSequence query = new ProteinSequence(getRandomProtein(random, length)),
+                target = new ProteinSequence(getRandomProtein(random, length));
+        SimpleSubstitutionMatrix<AminoAcidCompound> blosum62 = new SimpleSubstitutionMatrix<AminoAcidCompound>();
+        GapPenalty gaps = new SimpleGapPenalty((short) 10, (short) 1);
+        double cells = (double) length * length;
+        System.out.println("loop\tscore\tcells/s");
+        for (int r = 0; r < repeats; r++) {
+            long start = System.nanoTime();
+            int score = fillByCompound(query, target, blosum62, gaps.getExtensionPenalty());
+            report("compound", score, cells, start);
+            start = System.nanoTime();
+            score = fillByOrdinal(query, target, blosum62, gaps.getExtensionPenalty());
+            report("ordinal", score, cells, start);
+            start = System.nanoTime();
+            score = new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62)
+                    .getScore();
+            report("NeedlemanWunsch", score, cells, start);
+        }
+    }
+
+    private static int fillByCompound(ProteinSequence query, ProteinSequence target,
+            SimpleSubstitutionMatrix<AminoAcidCompound> matrix, int gep) {
+        int[] row = getFirstRow(target.getLength(), gep);
+        for (int x = 1; x <= query.getLength(); x++) {
+            int diagonal = row[0];
+            row[0] += gep;
+            for (int y = 1; y < row.length; y++) {
+                int previous = row[y];
+                row[y] = Math.max(Math.max(previous + gep, row[y - 1] + gep), diagonal
+                        + matrix.getValue(query.getCompoundAt(x), target.getCompoundAt(y)));
+                diagonal = previous;
+            }
+        }
+        return row[row.length - 1];
+    }
+
+    private static int fillByOrdinal(ProteinSequence query, ProteinSequence target,
+            SimpleSubstitutionMatrix<AminoAcidCompound> matrix, int gep) {
+        byte[] qo = matrix.getOrdinals(query), to = matrix.getOrdinals(target);
+        short[][] subs = matrix.getOrdinalMatrix();
+        int[] row = getFirstRow(to.length, gep);
+        for (byte q : qo) {
+            short[] sub = subs[q];
+            int diagonal = row[0];
+            row[0] += gep;
+            for (int y = 1; y < row.length; y++) {
+                int previous = row[y];
+                row[y] = Math.max(Math.max(previous + gep, row[y - 1] + gep), diagonal + sub[to[y - 1]]);
+                diagonal = previous;
+            }
+        }
+        return row[row.length - 1];
+    }
+
+    private static int[] getFirstRow(int length, int gep) {
+        int[] row = new int[length + 1];
+        for (int y = 1; y < row.length; y++) {
+            row[y] = row[y - 1] + gep;
+        }
+        return row;
+    }
+
+    private static void report(String loop, int score, double cells, long start) {
+        System.out.printf("%s\t%d\t%.3g%n", loop, score, cells * 1e9 / (System.nanoTime() - start));
+    }
+
+    private static String getRandomProtein(Random random, int length) {
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            s.append("ARNDCQEGHILKMFPSTWYV".charAt(random.nextInt(20)));
+        }
+        return s.toString();
+    }
+
+}
@@ -0,0 +1,426 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.core.sequence.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the sequences in a FASTA file, compatible with the {@code .fai} files written by {@code samtools faidx}.
+ * For each sequence the index stores its name, length, the byte offset of its first compound, and its line layout.
+ * Together these locate any compound of any sequence without reading the rest of the file.  As with
+ * {@code samtools}, all lines of a sequence except the last must be the same length, and the name of a sequence is
+ * its header up to the first white space.
+ */
+public class FastaIndex {
+
+    /**
+     * The location and line layout of a single sequence in a FASTA file.
+     */
+    public static class Entry {
+
+        private final String name;
+        private final int length, lineBases, lineBytes;
+        private final long offset;
+
+        /**
+         * Creates an index entry.
+         *
+         * @param name the name of the sequence
+         * @param length the number of compounds in the sequence
+         * @param offset the byte offset of the first compound of the sequence
+         * @param lineBases the number of compounds on each full line
+         * @param lineBytes the number of bytes on each full line, including the line terminator
+         */
+        public Entry(String name, int length, long offset, int lineBases, int lineBytes) {
+            if (length < 0 || offset < 0 || lineBases < 0 || lineBytes < lineBases || (length > 0 && lineBases == 0)) {
+                throw new IllegalArgumentException("Invalid index entry for " + name);
+            }
+            this.name = name;
+            this.length = length;
+            this.offset = offset;
+            this.lineBases = lineBases;
+            this.lineBytes = lineBytes;
+        }
+
+        /**
+         * Returns the name of the sequence.
+         *
+         * @return the name of the sequence
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the length of the sequence.
+         *
+         * @return the number of compounds in the sequence
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the byte offset of the first compound of the sequence.
+         *
+         * @return the byte offset of the first compound
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the byte offset of the compound at the given position.
+         *
+         * @param position position of the compound, indexed from 1
+         * @return the byte offset of the compound
+         * @throws IndexOutOfBoundsException if position is outside of the sequence
+         */
+        public long getOffset(int position) {
+            if (position < 1 || position > length) {
+                throw new IndexOutOfBoundsException("Position " + position + " outside of " + name + " of length "
+                        + length);
+            }
+            return offset + (long) ((position - 1) / lineBases) * lineBytes + (position - 1) % lineBases;
+        }
+
+        /**
+         * Returns the number of compounds on each full line.
+         *
+         * @return the number of compounds on each full line
+         */
+        public int getLineBases() {
+            return lineBases;
+        }
+
+        /**
+         * Returns the number of bytes on each full line, including the line terminator.
+         *
+         * @return the number of bytes on each full line
+         */
+        public int getLineBytes() {
+            return lineBytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + "\t" + length + "\t" + offset + "\t" + lineBases + "\t" + lineBytes;
+        }
+
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    /**
+     * Returns the file in which the index of the given FASTA file is stored by convention.
+     *
+     * @param fasta a FASTA file
+     * @return the FASTA file name with {@code .fai} appended
+     */
+    public static File getIndexFile(File fasta) {
+        return new File(fasta.getPath() + ".fai");
+    }
+
+    /**
+     * Indexes a FASTA file.  Only line lengths are measured, so this is much faster than parsing the sequences.
+     *
+     * @param fasta a FASTA file
+     * @return the index of the file
+     * @throws IOException if the file cannot be read, or its line lengths cannot be indexed
+     */
+    public static FastaIndex build(File fasta) throws IOException {
+        InputStream in = new FileInputStream(fasta);
+        try {
+            return build(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Indexes FASTA formatted data.  Offsets are counted from the first byte read from the stream.
+     *
+     * @param in a stream of FASTA formatted data
+     * @return the index of the data
+     * @throws IOException if the stream cannot be read, or its line lengths cannot be indexed
+     */
+    public static FastaIndex build(InputStream in) throws IOException {
+        FastaIndex index = new FastaIndex();
+        LineScanner lines = new LineScanner(in);
+        String name = null;
+        long offset = 0;
+        int length = 0, lineBases = 0, lineBytes = 0;
+        boolean ended = false;
+        while (lines.next()) {
+            if (lines.header != null) {
+                if (name != null) {
+                    index.addEntry(new Entry(name, length, offset, lineBases, lineBytes));
+                }
+                name = getName(lines.header);
+                if (name.length() == 0) {
+                    throw new IOException("Missing sequence name at byte " + lines.start);
+                }
+                if (index.getEntry(name) != null) {
+                    throw new IOException("Duplicate sequence name " + name + " at byte " + lines.start);
+                }
+                offset = lines.start + lines.bytes;
+                length = lineBases = lineBytes = 0;
+                ended = false;
+            } else if (lines.bases == 0) {
+                ended |= length > 0;
+            } else if (name == null) {
+                throw new IOException("Sequence found before first header at byte " + lines.start);
+            } else if (ended || (length > 0 && lines.bases > lineBases)) {
+                throw new IOException("Different line length in sequence " + name + " at byte " + lines.start);
+            } else {
+                if (length == 0) {
+                    offset = lines.start;
+                    lineBases = lines.bases;
+                    lineBytes = lines.bytes;
+                }
+                ended = lines.bases != lineBases || lines.bytes != lineBytes;
+                if (Integer.MAX_VALUE - length < lines.bases) {
+                    throw new IOException("Sequence " + name + " is too long to index");
+                }
+                length += lines.bases;
+            }
+        }
+        if (name != null) {
+            index.addEntry(new Entry(name, length, offset, lineBases, lineBytes));
+        }
+        return index;
+    }
+
+    /**
+     * Reads an index from a {@code .fai} file.
+     *
+     * @param fai an index file
+     * @return the index stored in the file
+     * @throws IOException if the file cannot be read or is not a valid index
+     */
+    public static FastaIndex read(File fai) throws IOException {
+        InputStream in = new FileInputStream(fai);
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads an index in {@code .fai} format.
+     *
+     * @param in a stream of index lines
+     * @return the index stored in the stream
+     * @throws IOException if the stream cannot be read or is not a valid index
+     */
+    public static FastaIndex read(InputStream in) throws IOException {
+        FastaIndex index = new FastaIndex();
+        BufferedReader br = new BufferedReader(new InputStreamReader(in, "ISO-8859-1"));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.length() == 0) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length < 5) {
+                throw new IOException("Index line has fewer than 5 fields: " + line);
+            }
+            try {
+                index.addEntry(new Entry(fields[0], Integer.parseInt(fields[1]), Long.parseLong(fields[2]),
+                        Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid index line: " + line);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds an entry to this index.
+     *
+     * @param entry the location of a sequence
+     * @throws IllegalArgumentException if the index already has an entry of the same name
+     */
+    public void addEntry(Entry entry) {
+        if (entries.containsKey(entry.getName())) {
+            throw new IllegalArgumentException("Duplicate sequence name " + entry.getName());
+        }
+        entries.put(entry.getName(), entry);
+    }
+
+    /**
+     * Returns the entry of the named sequence.
+     *
+     * @param name the name of a sequence
+     * @return the entry of the sequence, or null if no sequence has that name
+     */
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Returns all entries in file order.
+     *
+     * @return an unmodifiable list of entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<Entry>(entries.values()));
+    }
+
+    /**
+     * Returns the names of all sequences in file order.
+     *
+     * @return an unmodifiable set of sequence names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Returns the number of sequences in this index.
+     *
+     * @return the number of sequences
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes this index to a {@code .fai} file.
+     *
+     * @param fai the index file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File fai) throws IOException {
+        OutputStream out = new FileOutputStream(fai);
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes this index in {@code .fai} format.  The stream is flushed, but not closed.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "ISO-8859-1"));
+        for (Entry entry : entries.values()) {
+            writer.write(entry.toString());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (Entry entry : entries.values()) {
+            s.append(entry).append('\n');
+        }
+        return s.toString();
+    }
+
+    // helper method that returns the header up to the first white space
+    private static String getName(String header) {
+        int end = 0;
+        while (end < header.length() && !Character.isWhitespace(header.charAt(end))) {
+            end++;
+        }
+        return header.substring(0, end);
+    }
+
+    // measures each line of a stream without decoding characters; only header text is kept
+    private static class LineScanner {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private final StringBuilder text = new StringBuilder();
+        private int next, end;
+        private long position;
+
+        // fields describing the last line scanned
+        private long start;
+        private int bytes, bases;
+        private String header;
+
+        private LineScanner(InputStream in) {
+            this.in = in;
+        }
+
+        private boolean next() throws IOException {
+            start = position;
+            bytes = bases = 0;
+            header = null;
+            boolean isHeader = false;
+            text.setLength(0);
+            while (true) {
+                if (next == end) {
+                    end = in.read(buffer);
+                    next = 0;
+                    if (end <= 0) {
+                        end = 0;
+                        break;
+                    }
+                }
+                byte b = buffer[next++];
+                position++;
+                bytes++;
+                if (b == '\n') {
+                    break;
+                } else if (bytes == 1 && b == '>') {
+                    isHeader = true;
+                } else if (isHeader) {
+                    text.append((char) (b & 0xff));
+                } else if (b != '\r') {
+                    bases++;
+                }
+            }
+            if (isHeader) {
+                header = text.toString().trim();
+            }
+            return bytes > 0;
+        }
+
+    }
+
+}
@@ -7,9 +7,13 @@ package org.biojava3.core.sequence.io;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
 
+import org.biojava3.core.exceptions.ParserException;
 import org.biojava3.core.sequence.ProteinSequence;
 import org.biojava3.core.sequence.compound.AminoAcidCompound;
 import org.biojava3.core.sequence.compound.AminoAcidCompoundSet;
@@ -22,13 +26,18 @@ import org.biojava3.core.sequence.template.Sequence;
  *
  * @author Scooter Willis <willishf at gmail dot com>
  */
-public class FastaReader<S extends Sequence<?>, C extends Compound> {
+public class FastaReader<S extends Sequence<?>, C extends Compound> implements Iterable<S> {
 
     SequenceCreatorInterface<C> sequenceCreator;
     FastaHeaderParserInterface<S,C> headerParser;
     BufferedReaderBytesRead br;
     InputStreamReader isr;
     FileInputStream fi = null;
+    // parsing state kept between calls, so sequences can be read a few at a time
+    private final StringBuilder sb = new StringBuilder();
+    private String header;
+    private long sequenceIndex = 0;
+    private boolean closed = false;
 
     /**
      * If you are going to use FileProxyProteinSequenceCreator then do not use this constructor because we need details about
@@ -62,63 +71,129 @@ public class FastaReader<S extends Sequence<?>, C extends Compound> {
     }
 
     /**
-     * The parsing is done in this method
+     * The parsing is done in this method.  Reads all remaining sequences, then closes the input.
      * @return
      * @throws Exception
      */
-    @SuppressWarnings("unchecked")
     public LinkedHashMap<String,S> process() throws Exception {
-        LinkedHashMap<String,S> sequences = new LinkedHashMap<String,S>();
+        return process(-1);
+    }
 
+    /**
+     * Reads at most the given number of sequences, so a large file can be handled in batches of bounded size. The
+     * input is closed once the last sequence has been read.
+     * @param maxRecords the largest number of sequences to return, or a negative number to read all remaining
+     * @return the sequences read in file order, which is empty once the input is exhausted
+     * @throws Exception
+     */
+    public LinkedHashMap<String,S> process(int maxRecords) throws Exception {
+        LinkedHashMap<String,S> sequences = new LinkedHashMap<String,S>();
+        S sequence;
+        while (sequences.size() != maxRecords && (sequence = next()) != null) {
+            sequences.put(sequence.getAccession().getID(), sequence);
+        }
+        return sequences;
+    }
 
-        String line = "";
-        String header = "";
-        StringBuffer sb = new StringBuffer();
-        int maxSequenceLength = -1;
-        long fileIndex = 0;
-        long sequenceIndex = 0;
-        boolean keepGoing = true;
-        do {
-            line = line.trim(); // nice to have but probably not needed
-            if (line.length() != 0) {
-                if (line.startsWith(">")) {
-                    if (sb.length() > 0) {
-                    //    System.out.println("Sequence index=" + sequenceIndex);
-                        S sequence = (S)sequenceCreator.getSequence(sb.toString(), sequenceIndex);
-                        headerParser.parseHeader(header, sequence);
-                        sequences.put(sequence.getAccession().getID(),sequence);
-                        if (maxSequenceLength < sb.length()) {
-                            maxSequenceLength = sb.length();
-                        }
-                        sb = new StringBuffer(maxSequenceLength);
-                    }
-                    header = line.substring(1);
-                } else if (line.startsWith(";")) {
-                } else {
-                    //mark the start of the sequence with the fileIndex before the line was read
-                    if(sb.length() == 0){
-                        sequenceIndex = fileIndex;
+    /**
+     * Returns an iterator which parses each sequence only when it is requested, so a file of any size can be handled
+     * in a single pass with the memory of one sequence. The input can only be read once, so all iterators share the
+     * same position in the file. The input is closed once the last sequence has been read; if iteration stops early,
+     * call {@link #close()}.  Read errors are thrown as {@link ParserException}.
+     */
+    public Iterator<S> iterator() {
+        return new Iterator<S>() {
+            private S sequence;
+
+            public boolean hasNext() {
+                if (sequence == null) {
+                    try {
+                        sequence = FastaReader.this.next();
+                    } catch (IOException e) {
+                        throw new ParserException(e);
                     }
-                    sb.append(line);
                 }
+                return sequence != null;
+            }
+
+            public S next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                S next = sequence;
+                sequence = null;
+                return next;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Closes the input.  This is only needed if the input is not read to the end.
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            br.close();
+            isr.close();
+            //If stream was created from File object then we need to close it
+            if (fi != null) {
+                fi.close();
             }
-            fileIndex = br.getBytesRead();
-            line = br.readLine();
+        }
+    }
+
+    /**
+     * Parses the next sequence, reusing the same line buffer for every sequence.
+     * @return the next sequence, or null if there are no more
+     * @throws IOException
+     */
+    private S next() throws IOException {
+        if (closed) {
+            return null;
+        }
+        sb.setLength(0);
+        while (true) {
+            //mark the start of the sequence with the fileIndex before the line was read
+            long fileIndex = br.getBytesRead();
+            String line = br.readLine();
             if (line == null) {
-            //    System.out.println("Sequence index=" + sequenceIndex + " " + fileIndex );
-                S sequence = (S)sequenceCreator.getSequence(sb.toString(), sequenceIndex);
-                headerParser.parseHeader(header, sequence);
-                sequences.put(sequence.getAccession().getID(),sequence);
-                keepGoing = false;
+                S sequence = null;
+                if (header != null || sb.length() > 0) {
+                    sequence = createSequence();
+                }
+                header = null;
+                close();
+                return sequence;
+            }
+            line = line.trim(); // nice to have but probably not needed
+            if (line.length() == 0 || line.startsWith(";")) {
+                continue;
+            }
+            if (line.startsWith(">")) {
+                S sequence = (sb.length() > 0) ? createSequence() : null;
+                header = line.substring(1);
+                if (sequence != null) {
+                    return sequence;
+                }
+            } else {
+                if (sb.length() == 0) {
+                    sequenceIndex = fileIndex;
+                }
+                sb.append(line);
             }
-        } while (keepGoing);
-        br.close();
-        isr.close();
-        //If stream was created from File object then we need to close it
-        if (fi != null) {
-            fi.close();
         }
-        return sequences;
+    }
+
+    @SuppressWarnings("unchecked")
+    private S createSequence() {
+        S sequence = (S)sequenceCreator.getSequence(sb.toString(), sequenceIndex);
+        headerParser.parseHeader(header == null ? "" : header, sequence);
+        return sequence;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,207 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.core.sequence.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import org.biojava3.core.sequence.AccessionID;
+import org.biojava3.core.sequence.io.template.SequenceCreatorInterface;
+import org.biojava3.core.sequence.loader.MappedFastaProxySequenceReader;
+import org.biojava3.core.sequence.template.AbstractSequence;
+import org.biojava3.core.sequence.template.Compound;
+import org.biojava3.core.sequence.template.CompoundSet;
+import org.biojava3.core.sequence.template.Sequence;
+
+/**
+ * Gives random access to the sequences of a FASTA file by way of a {@link FastaIndex}.  Unlike {@link FastaReader},
+ * the file is never parsed as a whole: each requested sequence, or range of a sequence, is memory mapped and backed
+ * by a {@link MappedFastaProxySequenceReader}, so compounds are only read from the file as they are used and heap
+ * use does not grow with the size of the file.  This makes it practical to pull a few regions out of a whole genome.
+ *
+ * Mapped regions stay valid after {@link #close()} until their sequences are garbage collected.
+ *
+ * @param <S> each {@link Sequence} read is of type S
+ * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+ */
+public class IndexedFastaReader<S extends Sequence<?>, C extends Compound> {
+
+    private final File file;
+    private final FastaIndex index;
+    private final SequenceCreatorInterface<C> sequenceCreator;
+    private final CompoundSet<C> compoundSet;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+
+    /**
+     * Opens a FASTA file for random access.  The index is read from the {@code .fai} file next to the FASTA file if
+     * one exists; otherwise the FASTA file is indexed, and the index kept in memory only.
+     *
+     * @param file a FASTA file
+     * @param sequenceCreator creates each {@link Sequence} around its {@link MappedFastaProxySequenceReader}
+     * @param compoundSet the compounds which may occur in the file
+     * @throws IOException if the file cannot be opened or indexed
+     */
+    public IndexedFastaReader(File file, SequenceCreatorInterface<C> sequenceCreator, CompoundSet<C> compoundSet)
+            throws IOException {
+        this(file, getIndex(file), sequenceCreator, compoundSet);
+    }
+
+    /**
+     * Opens a FASTA file for random access with the given index.
+     *
+     * @param file a FASTA file
+     * @param index the index of the file
+     * @param sequenceCreator creates each {@link Sequence} around its {@link MappedFastaProxySequenceReader}
+     * @param compoundSet the compounds which may occur in the file
+     * @throws IOException if the file cannot be opened
+     */
+    public IndexedFastaReader(File file, FastaIndex index, SequenceCreatorInterface<C> sequenceCreator,
+            CompoundSet<C> compoundSet) throws IOException {
+        this.file = file;
+        this.index = index;
+        this.sequenceCreator = sequenceCreator;
+        this.compoundSet = compoundSet;
+        raf = new RandomAccessFile(file, "r");
+        channel = raf.getChannel();
+    }
+
+    /**
+     * Returns the FASTA file.
+     *
+     * @return the FASTA file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the index of the FASTA file.
+     *
+     * @return the index of the FASTA file
+     */
+    public FastaIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the accessions of all sequences in file order.
+     *
+     * @return the names of all sequences in the index
+     */
+    public Set<String> getAccessions() {
+        return index.getNames();
+    }
+
+    /**
+     * Returns a whole sequence.
+     *
+     * @param accession the name of the sequence in the index
+     * @return the sequence, or null if the index has no sequence of that name
+     * @throws IOException if the sequence cannot be mapped
+     */
+    public S getSequence(String accession) throws IOException {
+        FastaIndex.Entry entry = index.getEntry(accession);
+        return (entry == null) ? null : getSequence(entry, 1, entry.getLength());
+    }
+
+    /**
+     * Returns a range of a sequence as a sequence of its own, indexed from 1.
+     *
+     * @param accession the name of the sequence in the index
+     * @param bioBegin the position of the first compound of the range, indexed from 1
+     * @param bioEnd the position of the last compound of the range, inclusive
+     * @return the range, or null if the index has no sequence of that name
+     * @throws IOException if the range cannot be mapped
+     * @throws IndexOutOfBoundsException if the range is outside of the sequence
+     */
+    public S getSequence(String accession, int bioBegin, int bioEnd) throws IOException {
+        FastaIndex.Entry entry = index.getEntry(accession);
+        if (entry == null) {
+            return null;
+        }
+        if (bioBegin < 1 || bioEnd > entry.getLength() || bioBegin > bioEnd + 1) {
+            throw new IndexOutOfBoundsException("Range " + bioBegin + ".." + bioEnd + " outside of " + accession
+                    + " of length " + entry.getLength());
+        }
+        return getSequence(entry, bioBegin, bioEnd);
+    }
+
+    /**
+     * Returns all sequences in file order.  Each is backed by its own mapped region, so this does not read the
+     * sequences themselves.
+     *
+     * @return a map from accession to sequence
+     * @throws IOException if a sequence cannot be mapped
+     */
+    public LinkedHashMap<String, S> process() throws IOException {
+        LinkedHashMap<String, S> sequences = new LinkedHashMap<String, S>();
+        for (FastaIndex.Entry entry : index.getEntries()) {
+            sequences.put(entry.getName(), getSequence(entry, 1, entry.getLength()));
+        }
+        return sequences;
+    }
+
+    /**
+     * Closes the FASTA file.  Sequences already returned remain readable.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+        raf.close();
+    }
+
+    // helper method that reads the stored index of a file, or builds one
+    private static FastaIndex getIndex(File file) throws IOException {
+        File fai = FastaIndex.getIndexFile(file);
+        return fai.isFile() ? FastaIndex.read(fai) : FastaIndex.build(file);
+    }
+
+    // helper method that maps the bytes from bioBegin to bioEnd and wraps them in a sequence
+    @SuppressWarnings("unchecked")
+    private S getSequence(FastaIndex.Entry entry, int bioBegin, int bioEnd) throws IOException {
+        int length = bioEnd - bioBegin + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(0);
+        int firstColumn = 0;
+        if (length > 0) {
+            long start = entry.getOffset(bioBegin), size = entry.getOffset(bioEnd) - start + 1;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Range of " + entry.getName() + " is too long to map");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            firstColumn = (bioBegin - 1) % entry.getLineBases();
+        }
+        AccessionID accession = new AccessionID(entry.getName());
+        AbstractSequence<C> sequence = sequenceCreator.getSequence(new MappedFastaProxySequenceReader<C>(buffer,
+                length, firstColumn, entry.getLineBases(), entry.getLineBytes(), compoundSet, accession),
+                entry.getOffset());
+        sequence.setAccession(accession);
+        return (S) sequence;
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.core.sequence.loader;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.biojava3.core.exceptions.CompoundNotFoundError;
+import org.biojava3.core.sequence.AccessionID;
+import org.biojava3.core.sequence.Strand;
+import org.biojava3.core.sequence.template.Compound;
+import org.biojava3.core.sequence.template.CompoundSet;
+import org.biojava3.core.sequence.template.ProxySequenceReader;
+import org.biojava3.core.sequence.template.SequenceMixin;
+import org.biojava3.core.sequence.template.SequenceProxyView;
+import org.biojava3.core.sequence.template.SequenceView;
+
+/**
+ * Reads a sequence directly from a buffer of FASTA formatted lines, such as a memory mapped region of a file.  Each
+ * byte is one compound, so nothing is copied or parsed until a compound is requested, and every request is answered
+ * from the buffer.  Reads never change the state of the buffer, so a single instance may be shared between threads.
+ *
+ * @param <C> each element of the sequence is a {@link Compound} of type C
+ */
+public class MappedFastaProxySequenceReader<C extends Compound> implements ProxySequenceReader<C> {
+
+    private final ByteBuffer buffer;
+    private final int length, firstColumn, lineBases, lineBytes;
+    private final AccessionID accession;
+    private CompoundSet<C> compoundSet;
+    private Compound[] compounds;
+    private String[] strings;
+
+    /**
+     * Creates a reader of a sequence stored in lines of equal length.
+     *
+     * @param buffer holds the sequence, starting at its first compound at buffer index 0
+     * @param length the number of compounds in the sequence
+     * @param firstColumn the column of the first compound within its line, indexed from 0
+     * @param lineBases the number of compounds on each full line
+     * @param lineBytes the number of bytes on each full line, including the line terminator
+     * @param compoundSet the compounds which may occur in the sequence
+     * @param accession identifies the sequence, such as by the name of its FASTA index entry
+     */
+    public MappedFastaProxySequenceReader(ByteBuffer buffer, int length, int firstColumn, int lineBases,
+            int lineBytes, CompoundSet<C> compoundSet, AccessionID accession) {
+        if (length > 0 && (firstColumn < 0 || firstColumn >= lineBases || lineBytes < lineBases)) {
+            throw new IllegalArgumentException("Invalid line layout");
+        }
+        this.buffer = buffer;
+        this.length = length;
+        this.firstColumn = firstColumn;
+        this.lineBases = lineBases;
+        this.lineBytes = lineBytes;
+        this.accession = accession;
+        setCompoundSet(compoundSet);
+    }
+
+    // methods for SequenceReader
+
+    /**
+     * Sets the compounds which may occur in the sequence.  Each byte of the buffer is looked up as a single character
+     * {@link String}.
+     */
+    @Override
+    public void setCompoundSet(CompoundSet<C> compoundSet) {
+        this.compoundSet = compoundSet;
+        compounds = new Compound[256];
+        strings = new String[256];
+        for (int b = 0; b < 256; b++) {
+            C c = compoundSet.getCompoundForString(String.valueOf((char) b));
+            if (c != null) {
+                compounds[b] = c;
+                strings[b] = compoundSet.getStringForCompound(c);
+            }
+        }
+    }
+
+    /**
+     * Not supported, since the sequence is read from a fixed buffer.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setContents(String sequence) {
+        throw new UnsupportedOperationException("Sequence is read only");
+    }
+
+    // methods for Sequence
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public C getCompoundAt(int position) {
+        return getCompound(getByte(position));
+    }
+
+    @Override
+    public int getIndexOf(C compound) {
+        for (int position = 1; position <= length; position++) {
+            if (compound.equals(getCompoundAt(position))) {
+                return position;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int getLastIndexOf(C compound) {
+        for (int position = length; position >= 1; position--) {
+            if (compound.equals(getCompoundAt(position))) {
+                return position;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String getSequenceAsString() {
+        return getSequenceAsString(1, length, Strand.POSITIVE);
+    }
+
+    /**
+     * Returns the sequence between the given positions.  As for sequences held in memory, a begin after the end wraps
+     * around the end of a circular sequence, and the {@link Strand#NEGATIVE} strand is read in reverse.
+     */
+    @Override
+    public String getSequenceAsString(Integer bioBegin, Integer bioEnd, Strand strand) {
+        StringBuilder s = new StringBuilder();
+        if (length == 0) {
+            return "";
+        }
+        if (strand == Strand.NEGATIVE) {
+            if (bioBegin <= bioEnd) {
+                append(s, bioEnd, bioBegin);
+            } else {
+                append(s, bioBegin, 1);
+                append(s, length, bioEnd);
+            }
+        } else {
+            if (bioBegin <= bioEnd) {
+                append(s, bioBegin, bioEnd);
+            } else {
+                append(s, bioBegin, length);
+                append(s, 1, bioEnd);
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns a new list of all compounds.  Since this reads the whole sequence into memory, prefer
+     * {@link #iterator()} or {@link #getCompoundAt(int)} for long sequences.
+     */
+    @Override
+    public List<C> getAsList() {
+        List<C> list = new ArrayList<C>(length);
+        for (int position = 1; position <= length; position++) {
+            list.add(getCompoundAt(position));
+        }
+        return list;
+    }
+
+    @Override
+    public SequenceView<C> getSubSequence(Integer bioBegin, Integer bioEnd) {
+        return new SequenceProxyView<C>(this, bioBegin, bioEnd);
+    }
+
+    @Override
+    public CompoundSet<C> getCompoundSet() {
+        return compoundSet;
+    }
+
+    @Override
+    public int countCompounds(C... compounds) {
+        return SequenceMixin.countCompounds(this, compounds);
+    }
+
+    // methods for Iterable
+
+    @Override
+    public Iterator<C> iterator() {
+        return SequenceMixin.createIterator(this);
+    }
+
+    // methods for Accessioned
+
+    @Override
+    public AccessionID getAccession() {
+        return accession;
+    }
+
+    @Override
+    public String toString() {
+        return getSequenceAsString();
+    }
+
+    // helper method that appends the compounds from position first to last, in either direction
+    private void append(StringBuilder s, int first, int last) {
+        int step = (first <= last) ? 1 : -1;
+        s.ensureCapacity(s.length() + Math.abs(last - first) + 1);
+        for (int position = first; position != last + step; position += step) {
+            int b = getByte(position);
+            if (strings[b] == null) {
+                getCompound(b);
+            }
+            s.append(strings[b]);
+        }
+    }
+
+    // helper method that returns the byte stored for a position, indexed from 1
+    private int getByte(int position) {
+        if (position < 1 || position > length) {
+            throw new IndexOutOfBoundsException("Position " + position + " outside of sequence of length " + length);
+        }
+        long column = firstColumn + position - 1L;
+        return buffer.get((int) ((column / lineBases) * lineBytes + column % lineBases - firstColumn)) & 0xff;
+    }
+
+    // helper method that converts a byte to its compound
+    @SuppressWarnings("unchecked")
+    private C getCompound(int b) {
+        if (compounds[b] == null) {
+            throw new CompoundNotFoundError(String.valueOf((char) b));
+        }
+        return (C) compounds[b];
+    }
+
+}
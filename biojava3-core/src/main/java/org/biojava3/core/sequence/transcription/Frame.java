@@ -51,6 +51,21 @@ public enum Frame {
     return Frame.values();
   }
 
+  /**
+   * Returns the position of the first base of the frame, counted from 1 on
+   * its own strand
+   */
+  public int getStart() {
+    return start;
+  }
+
+  /**
+   * Returns true if the frame is on the reverse strand
+   */
+  public boolean isReverse() {
+    return reverse;
+  }
+
   /**
    * Optionally wraps a Sequence in a reverse complementing view (if the
    * frame is on the reverse strand) and creates a sub sequence view if
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.biojava3.core.exceptions.TranslationException;
 import org.biojava3.core.sequence.RNASequence;
 import org.biojava3.core.sequence.compound.AminoAcidCompound;
 import org.biojava3.core.sequence.compound.NucleotideCompound;
@@ -23,6 +24,11 @@ import org.biojava3.core.sequence.views.WindowedSequence;
  * translator can also trim stop codons as well as changing any valid
  * start codon to an initiating met.
  *
+ * Codons are translated with a single array look up. Each base is coded as a
+ * 4 bit mask of the unambiguous bases it may stand for (A, C, G and U or T)
+ * so the three masks of a codon index a table of 4096 amino acids, which
+ * also resolves ambiguity codes whose codons all give the same amino acid.
+ *
  * @author ayates
  */
 public class RNAToAminoAcidTranslator extends AbstractCompoundTranslator<NucleotideCompound, AminoAcidCompound> {
@@ -34,6 +40,18 @@ public class RNAToAminoAcidTranslator extends AbstractCompoundTranslator<Nucleot
     private final NucleotideCompound nCompound;
     private final AminoAcidCompound unknownAminoAcidCompound;
     private final boolean translateNCodons;
+    private final AminoAcidCompound[] codonTable;
+
+    // masks of the bases each character may stand for: A = 1, C = 2, G = 4, U or T = 8; 0 for any other character
+    private static final byte[] BASE_MASKS = new byte[128];
+    static {
+        String codes = "ACGTURYSWKMBDHVN";
+        byte[] masks = {1, 2, 4, 8, 8, 5, 10, 6, 9, 12, 3, 14, 13, 11, 7, 15};
+        for (int i = 0; i < masks.length; i++) {
+            BASE_MASKS[codes.charAt(i)] = masks[i];
+            BASE_MASKS[Character.toLowerCase(codes.charAt(i))] = masks[i];
+        }
+    }
 
     public RNAToAminoAcidTranslator(
             SequenceCreatorInterface<AminoAcidCompound> creator,
@@ -64,6 +82,94 @@ public class RNAToAminoAcidTranslator extends AbstractCompoundTranslator<Nucleot
 
         nCompound = nucleotides.getCompoundForString("N");
         unknownAminoAcidCompound = aminoAcids.getCompoundForString("X");
+        codonTable = createCodonTable(codonList);
+    }
+
+    /**
+     * Fills a table of amino acids for every codon of base masks. A codon
+     * with an N is an X if N codons are translated; any other ambiguous codon
+     * is the amino acid all of its unambiguous codons share, or else an X.
+     */
+    private AminoAcidCompound[] createCodonTable(List<Codon> codonList) {
+        AminoAcidCompound[] unambiguous = new AminoAcidCompound[64];
+        for (Codon codon : codonList) {
+            int one = getBaseIndex(codon.getOne()), two = getBaseIndex(codon.getTwo()),
+                    three = getBaseIndex(codon.getThree());
+            if (one >= 0 && two >= 0 && three >= 0) {
+                unambiguous[(one << 4) | (two << 2) | three] = codon.getAminoAcid();
+            }
+        }
+
+        AminoAcidCompound[] table = new AminoAcidCompound[4096];
+        for (int i = 0; i < table.length; i++) {
+            int one = i >> 8, two = (i >> 4) & 15, three = i & 15;
+            if (one == 0 || two == 0 || three == 0) {
+                continue;
+            }
+            if (translateNCodons() && (one == 15 || two == 15 || three == 15)) {
+                table[i] = unknownAminoAcidCompound;
+                continue;
+            }
+            AminoAcidCompound aminoAcid = null;
+            boolean unanimous = true;
+            for (int b1 = 0; b1 < 4; b1++) {
+                for (int b2 = 0; b2 < 4; b2++) {
+                    for (int b3 = 0; b3 < 4; b3++) {
+                        if ((one & (1 << b1)) != 0 && (two & (1 << b2)) != 0 && (three & (1 << b3)) != 0) {
+                            AminoAcidCompound next = unambiguous[(b1 << 4) | (b2 << 2) | b3];
+                            if (next == null || (aminoAcid != null && !aminoAcid.equals(next))) {
+                                unanimous = false;
+                            }
+                            aminoAcid = next;
+                        }
+                    }
+                }
+            }
+            table[i] = unanimous ? aminoAcid : unknownAminoAcidCompound;
+        }
+        return table;
+    }
+
+    // returns 0 to 3 for an unambiguous base, otherwise -1
+    private static int getBaseIndex(NucleotideCompound compound) {
+        String base = compound.getBase();
+        int mask = (base.length() == 1 && base.charAt(0) < 128) ? BASE_MASKS[base.charAt(0)] : 0;
+        switch (mask) {
+            case 1: return 0;
+            case 2: return 1;
+            case 4: return 2;
+            case 8: return 3;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Returns the base mask of each character, or null if any character is
+     * not a single letter nucleotide code.
+     */
+    static byte[] getBaseMasks(String bases) {
+        byte[] masks = new byte[bases.length()];
+        for (int i = 0; i < masks.length; i++) {
+            char c = bases.charAt(i);
+            if (c >= 128 || BASE_MASKS[c] == 0) {
+                return null;
+            }
+            masks[i] = BASE_MASKS[c];
+        }
+        return masks;
+    }
+
+    /**
+     * Returns the base masks of the reverse complement, which swaps the A and
+     * U bits and the C and G bits of each mask in reverse order.
+     */
+    static byte[] getReverseComplementMasks(byte[] masks) {
+        byte[] reverse = new byte[masks.length];
+        for (int i = 0, j = masks.length - 1; i < masks.length; i++, j--) {
+            int m = masks[j];
+            reverse[i] = (byte) (((m & 1) << 3) | ((m & 8) >> 3) | ((m & 2) << 1) | ((m & 4) >> 1));
+        }
+        return reverse;
     }
 
     /**
@@ -80,14 +186,22 @@ public class RNAToAminoAcidTranslator extends AbstractCompoundTranslator<Nucleot
     }
 
     /**
-     * Performs the core conversion of RNA to Peptide. It does this by walking
-     * a windowed version of the given sequence. Any trailing DNA base pairs
-     * are ignored according to the specification of {@link WindowedSequence}.
+     * Performs the core conversion of RNA to Peptide. Sequences made of
+     * single letter nucleotide codes are translated codon by codon from the
+     * codon table; others are walked as a windowed version of the given
+     * sequence. Any trailing DNA base pairs are ignored according to the
+     * specification of {@link WindowedSequence}.
      */
     @Override
     public List<Sequence<AminoAcidCompound>> createSequences(
             Sequence<NucleotideCompound> originalSequence) {
 
+        String bases = originalSequence.getSequenceAsString();
+        byte[] masks = (bases.length() == originalSequence.getLength()) ? getBaseMasks(bases) : null;
+        if (masks != null) {
+            return createSequences(masks, 0);
+        }
+
         List<List<AminoAcidCompound>> workingList = new ArrayList<List<AminoAcidCompound>>();
         Iterable<List<NucleotideCompound>> iter = new WindowedSequence<NucleotideCompound>(
                 originalSequence, 3);
@@ -106,6 +220,38 @@ public class RNAToAminoAcidTranslator extends AbstractCompoundTranslator<Nucleot
         return workingListToSequences(workingList);
     }
 
+    /**
+     * Translates base masks, as given by {@link #getBaseMasks(String)}, from
+     * the given offset straight into a single list of amino acids. Stops are
+     * left out in the same way as {@link #addCompoundToLists(List,
+     * AminoAcidCompound)} does.
+     */
+    List<Sequence<AminoAcidCompound>> createSequences(byte[] masks, int offset) {
+        List<AminoAcidCompound> compounds = new ArrayList<AminoAcidCompound>(Math.max(0, (masks.length - offset) / 3));
+        for (int i = offset; i + 2 < masks.length; i += 3) {
+            AminoAcidCompound aminoAcid = codonTable[(masks[i] << 8) | (masks[i + 1] << 4) | masks[i + 2]];
+            if (!(trimStops && aminoAcid.getShortName().equals("*"))) {
+                compounds.add(aminoAcid);
+            }
+        }
+        List<List<AminoAcidCompound>> workingList = new ArrayList<List<AminoAcidCompound>>();
+        if (!compounds.isEmpty()) {
+            workingList.add(compounds);
+        }
+        return workingListToSequences(workingList);
+    }
+
+    /**
+     * Translates base masks from the given offset to a single sequence.
+     */
+    Sequence<AminoAcidCompound> createSequence(byte[] masks, int offset) {
+        List<Sequence<AminoAcidCompound>> sequences = createSequences(masks, offset);
+        if (sequences.isEmpty()) {
+            throw new TranslationException("No sequences created");
+        }
+        return sequences.get(0);
+    }
+
     protected boolean hasN(List<NucleotideCompound> compounds) {
         if(! translateNCodons()) {
             return false;
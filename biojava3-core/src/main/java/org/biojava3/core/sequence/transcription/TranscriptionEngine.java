@@ -85,16 +85,40 @@ public class TranscriptionEngine {
             Sequence<NucleotideCompound> dna, Frame... frames) {
         Map<Frame, Sequence<AminoAcidCompound>> results =
                 new EnumMap<Frame, Sequence<AminoAcidCompound>>(Frame.class);
+        byte[] forward = null, reverse = null;
+        if (isDefaultTranslators()) {
+            String bases = dna.getSequenceAsString();
+            forward = (bases.length() == dna.getLength()) ? RNAToAminoAcidTranslator.getBaseMasks(bases) : null;
+        }
         for (Frame frame : frames) {
-            Sequence<NucleotideCompound> rna =
-                    getDnaRnaTranslator().createSequence(dna, frame);
-            Sequence<AminoAcidCompound> peptide =
-                    getRnaAminoAcidTranslator().createSequence(rna);
+            Sequence<AminoAcidCompound> peptide;
+            if (forward == null) {
+                Sequence<NucleotideCompound> rna =
+                        getDnaRnaTranslator().createSequence(dna, frame);
+                peptide = getRnaAminoAcidTranslator().createSequence(rna);
+            } else if (frame.isReverse()) {
+                if (reverse == null) {
+                    reverse = RNAToAminoAcidTranslator.getReverseComplementMasks(forward);
+                }
+                peptide = getRnaAminoAcidTranslator().createSequence(reverse, frame.getStart() - 1);
+            } else {
+                peptide = getRnaAminoAcidTranslator().createSequence(forward, frame.getStart() - 1);
+            }
             results.put(frame, peptide);
         }
         return results;
     }
 
+    /**
+     * Frames are translated straight from the DNA bases, each strand coded
+     * once, unless the translators have been replaced by subclasses, which
+     * may translate differently.
+     */
+    private boolean isDefaultTranslators() {
+        return getDnaRnaTranslator().getClass() == DNAToRNATranslator.class
+                && getRnaAminoAcidTranslator().getClass() == RNAToAminoAcidTranslator.class;
+    }
+
     public Table getTable() {
         return table;
     }
@@ -23,23 +23,34 @@
 
 package org.biojava3.core.util;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Static utility to easily share a thread pool for concurrent/parallel/lazy execution.  To exit cleanly,
  * {@link #shutdown()} or {@link #shutdownAndAwaitTermination()} must be called after all tasks have been submitted.
  *
+ * The shared pool is always wrapped in an {@link InstrumentedExecutorService}, which counts queued, running, completed
+ * and failed tasks and keeps histograms of queue wait and run times.  These help to size the pool and to spot
+ * stragglers.
+ *
  * @author Mark Chapman
  */
 public class ConcurrencyTools {
 
-    private static ExecutorService pool;
+    private static final Logger log = Logger.getLogger(ConcurrencyTools.class.getName());
 
-    // TODO additional logging and listening services
+    private static InstrumentedExecutorService pool;
+    private static final AtomicLong tasks = new AtomicLong();
 
     // prevents instantiation
     private ConcurrencyTools() { }
@@ -50,6 +61,16 @@ public class ConcurrencyTools {
      * @return shared thread pool
      */
     public static ExecutorService getThreadPool() {
+        return getInstrumentedThreadPool();
+    }
+
+    /**
+     * Returns current shared thread pool with access to its task counts and times.  Starts up a new pool, if
+     * necessary.
+     *
+     * @return shared thread pool, which also reports task counts and times
+     */
+    public static InstrumentedExecutorService getInstrumentedThreadPool() {
         if (pool == null || pool.isShutdown()) {
             setThreadPoolDefault();
         }
@@ -60,7 +81,7 @@ public class ConcurrencyTools {
      * Sets to default thread pool of 2 background threads for each processor core.
      */
     public static void setThreadPoolDefault() {
-        setThreadPool(Executors.newFixedThreadPool(2 * Runtime.getRuntime().availableProcessors()));
+        setThreadPoolSize(2 * Runtime.getRuntime().availableProcessors());
     }
 
     /**
@@ -70,15 +91,50 @@ public class ConcurrencyTools {
         setThreadPool(Executors.newSingleThreadExecutor());
     }
 
+    /**
+     * Sets thread pool to a fixed number of background threads.
+     *
+     * @param threads number of background threads
+     * @throws IllegalArgumentException if threads < 1
+     */
+    public static void setThreadPoolSize(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread pool needs at least one thread: " + threads);
+        }
+        setThreadPool(Executors.newFixedThreadPool(threads));
+    }
+
+    /**
+     * Sets thread pool to a work stealing pool using all processor cores, which suits many small or uneven tasks.
+     * Requires a Java 8 or later runtime.
+     *
+     * @throws UnsupportedOperationException if the running Java platform has no work stealing pool
+     */
+    public static void setThreadPoolWorkStealing() {
+        setThreadPool(getPlatformExecutor("newWorkStealingPool"));
+    }
+
+    /**
+     * Sets thread pool to start a new virtual thread for each task, which suits tasks that mostly wait on input or
+     * output.  Requires a Java 21 or later runtime.
+     *
+     * @throws UnsupportedOperationException if the running Java platform has no virtual threads
+     */
+    public static void setThreadPoolVirtual() {
+        setThreadPool(getPlatformExecutor("newVirtualThreadPerTaskExecutor"));
+    }
+
     /**
      * Sets thread pool to any given {@link ExecutorService} to allow end user to use an alternative execution style.
      *
      * @param pool thread pool to share
      */
     public static void setThreadPool(ExecutorService pool) {
-        if (ConcurrencyTools.pool != pool) {
+        if (ConcurrencyTools.pool != pool && (ConcurrencyTools.pool == null
+                || ConcurrencyTools.pool.getExecutor() != pool)) {
             shutdown();
-            ConcurrencyTools.pool = pool;
+            ConcurrencyTools.pool = (pool instanceof InstrumentedExecutorService) ?
+                    (InstrumentedExecutorService) pool : new InstrumentedExecutorService(pool);
         }
     }
 
@@ -122,7 +178,10 @@ public class ConcurrencyTools {
      * @return future on which the desired value is retrieved by calling get()
      */
     public static<T> Future<T> submit(Callable<T> task, String message) {
-        // TODO log("Task " + (tasks++) + " submitted to shared thread pool. " + message);
+        long n = tasks.incrementAndGet();
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Task " + n + " submitted to shared thread pool. " + message);
+        }
         return getThreadPool().submit(task);
     }
 
@@ -137,4 +196,48 @@ public class ConcurrencyTools {
         return submit(task, "");
     }
 
+    /**
+     * Waits for a task to finish and returns its result.  A failure of the task is passed on to the caller instead of
+     * being lost: unchecked exceptions and errors are rethrown as they are, any other cause is wrapped in an
+     * {@link IllegalStateException}.  If the waiting thread is interrupted, the task is cancelled, the interrupt
+     * status is kept, and an {@link IllegalStateException} is thrown.
+     *
+     * @param <T> type returned from the task
+     * @param future the pending result of a submitted task
+     * @return the result of the task
+     * @throws IllegalStateException if the task threw a checked exception, was cancelled or was interrupted
+     */
+    public static<T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a task", e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Task was cancelled", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Task failed", cause);
+        }
+    }
+
+    // helper method that creates an executor from a factory method of Executors, if the running platform has it
+    private static ExecutorService getPlatformExecutor(String factory) {
+        try {
+            Method method = Executors.class.getMethod(factory);
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Java " + System.getProperty("java.version") + " has no Executors."
+                    + factory + "()", e);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Could not create executor with Executors." + factory + "()", e);
+        }
+    }
+
 }
@@ -0,0 +1,294 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.core.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps an {@link ExecutorService} to count tasks as they pass through it.  Every task submitted or executed is
+ * counted as queued until it starts, then as running, and finally as completed or failed.  The time each task waits in
+ * the queue and the time it runs are kept in a {@link TimeHistogram}.  A task fails if it throws or is cancelled while
+ * running; a task cancelled before it starts, or returned unstarted by {@link #shutdownNow()}, is dropped from the
+ * counts.
+ */
+public class InstrumentedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService executor;
+    private final AtomicLong queued = new AtomicLong(), running = new AtomicLong(), completed = new AtomicLong(),
+            failed = new AtomicLong();
+    private final TimeHistogram queueWait = new TimeHistogram(), runTime = new TimeHistogram();
+
+    /**
+     * Creates an instrumented view of the given {@link ExecutorService}.
+     *
+     * @param executor the {@link ExecutorService} which runs all tasks
+     */
+    public InstrumentedExecutorService(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the wrapped {@link ExecutorService}.
+     *
+     * @return the {@link ExecutorService} which runs all tasks
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the number of tasks waiting to start.
+     *
+     * @return the number of queued tasks
+     */
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the number of tasks currently running.
+     *
+     * @return the number of running tasks
+     */
+    public long getRunningCount() {
+        return running.get();
+    }
+
+    /**
+     * Returns the number of tasks which finished normally.
+     *
+     * @return the number of completed tasks
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Returns the number of tasks which threw an exception or were cancelled while running.
+     *
+     * @return the number of failed tasks
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the times tasks waited in the queue before starting.
+     *
+     * @return histogram of queue wait times
+     */
+    public TimeHistogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    /**
+     * Returns the times tasks took to run, whether they completed or failed.
+     *
+     * @return histogram of run times
+     */
+    public TimeHistogram getRunTimeHistogram() {
+        return runTime;
+    }
+
+    /**
+     * Returns a summary of the task counts and times.
+     */
+    @Override
+    public String toString() {
+        return String.format("queued=%d running=%d completed=%d failed=%d%nqueue wait: %s%nrun time: %s",
+                getQueuedCount(), getRunningCount(), getCompletedCount(), getFailedCount(), queueWait, runTime);
+    }
+
+    // methods for Executor
+
+    @Override
+    public void execute(Runnable command) {
+        Runnable task = (command instanceof InstrumentedFuture<?>) ? command : new InstrumentedRunnable(command);
+        queued.incrementAndGet();
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    // methods for ExecutorService
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = executor.shutdownNow();
+        for (Runnable task : tasks) {
+            if (task instanceof InstrumentedFuture<?>) {
+                ((InstrumentedFuture<?>) task).dequeue();
+            } else if (task instanceof InstrumentedRunnable) {
+                ((InstrumentedRunnable) task).dequeue();
+            }
+        }
+        return tasks;
+    }
+
+    // methods for AbstractExecutorService
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new InstrumentedFuture<T>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new InstrumentedFuture<T>(runnable, value);
+    }
+
+    // helper methods
+
+    // records the start of a task submitted at the given time, returns the start time
+    private long start(long submitted) {
+        long started = System.nanoTime();
+        queued.decrementAndGet();
+        running.incrementAndGet();
+        queueWait.record(started - submitted);
+        return started;
+    }
+
+    // records the end of a task started at the given time
+    private void finish(long started, boolean success) {
+        runTime.record(System.nanoTime() - started);
+        running.decrementAndGet();
+        (success ? completed : failed).incrementAndGet();
+    }
+
+    // helper class that counts a task submitted for a result
+    private class InstrumentedFuture<T> extends FutureTask<T> {
+
+        private final long submitted = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile boolean threw;
+
+        private InstrumentedFuture(Callable<T> callable) {
+            super(callable);
+        }
+
+        private InstrumentedFuture(Runnable runnable, T value) {
+            super(runnable, value);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            dequeue();
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                super.run(); // cancelled or drained before it started, so no longer counted
+                return;
+            }
+            long started = start(submitted);
+            try {
+                super.run();
+            } finally {
+                finish(started, !threw && !isCancelled());
+            }
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            threw = true;
+            super.setException(t);
+        }
+
+        // drops the task from the queued count unless it has already started or been dropped
+        private void dequeue() {
+            if (claimed.compareAndSet(false, true)) {
+                queued.decrementAndGet();
+            }
+        }
+
+    }
+
+    // helper class that counts a task executed without a result
+    private class InstrumentedRunnable implements Runnable {
+
+        private final long submitted = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final Runnable command;
+
+        private InstrumentedRunnable(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                command.run(); // drained before it started, so no longer counted
+                return;
+            }
+            long started = start(submitted);
+            boolean success = false;
+            try {
+                command.run();
+                success = true;
+            } finally {
+                finish(started, success);
+            }
+        }
+
+        // drops the task from the queued count unless it has already started or been dropped
+        private void dequeue() {
+            if (claimed.compareAndSet(false, true)) {
+                queued.decrementAndGet();
+            }
+        }
+
+    }
+
+}
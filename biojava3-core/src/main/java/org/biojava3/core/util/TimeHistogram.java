@@ -0,0 +1,118 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of durations.  Each duration is counted in a bucket spanning a power of two nanoseconds, so
+ * recording is cheap and memory use is fixed, while percentiles are known to within a factor of two.
+ */
+public class TimeHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong(), total = new AtomicLong(), max = new AtomicLong();
+
+    /**
+     * Counts one duration.  Negative durations are counted as 0.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0L);
+        buckets.incrementAndGet(getBucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of durations counted.
+     *
+     * @return the number of durations counted
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the longest duration counted.
+     *
+     * @return the longest duration in nanoseconds, or 0 if none were counted
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Returns the average duration counted.
+     *
+     * @return the average duration in nanoseconds, or 0 if none were counted
+     */
+    public double getMeanNanos() {
+        long n = count.get();
+        return (n == 0) ? 0.0 : (double) total.get() / n;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of durations counted.  The bound is the end of the bucket in
+     * which the percentile falls, but never more than {@link #getMaxNanos()}.
+     *
+     * @param percentile a value from 0 to 100
+     * @return upper bound of the percentile in nanoseconds, or 0 if none were counted
+     * @throws IllegalArgumentException if percentile is outside of 0 to 100
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile outside of 0 to 100: " + percentile);
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * count.get()), seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min((1L << i) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns a summary of the durations counted in milliseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.3fms p50<=%.3fms p90<=%.3fms p99<=%.3fms max=%.3fms", getCount(),
+                getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6, getPercentileNanos(90) / 1e6,
+                getPercentileNanos(99) / 1e6, getMaxNanos() / 1e6);
+    }
+
+    // helper method that returns the bucket of a duration: bucket i holds durations below 2^i (and at least 2^(i-1))
+    private static int getBucket(long nanos) {
+        return Math.min(BUCKETS - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+    }
+
+}
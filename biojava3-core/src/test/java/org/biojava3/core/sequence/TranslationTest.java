@@ -6,6 +6,7 @@ import static org.junit.Assert.assertThat;
 
 import java.io.InputStream;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -22,6 +23,7 @@ import org.biojava3.core.sequence.io.util.ClasspathResource;
 import org.biojava3.core.sequence.template.Sequence;
 import org.biojava3.core.sequence.transcription.Frame;
 import org.biojava3.core.sequence.transcription.RNAToAminoAcidTranslator;
+import org.biojava3.core.sequence.transcription.Table.Codon;
 import org.biojava3.core.sequence.transcription.TranscriptionEngine;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -125,4 +127,44 @@ public class TranslationTest {
     }
   }
 
+  @Test
+  public void ambiguousCodons() {
+    TranscriptionEngine e = TranscriptionEngine.getDefault();
+    String x = aaCs.getCompoundForString("X").toString();
+    assertThat("N codons should be X", new RNASequence("NNNAUGGCNUUN").getProteinSequence(e)
+        .getSequenceAsString(), is(x + "M" + x + x));
+    TranscriptionEngine exact = new TranscriptionEngine.Builder().translateNCodons(false).build();
+    assertThat("Fourfold degenerate codon", new RNASequence("GCNGGNUUN").getProteinSequence(exact)
+        .getSequenceAsString(), is("AG" + x));
+  }
+
+  @Test
+  public void multiFrameTranslationMatchesFrames() {
+    // without start and stop processing each frame is a plain codon by codon lookup in the table
+    TranscriptionEngine e = new TranscriptionEngine.Builder().initMet(false).trimStop(false).build();
+    Map<Frame, Sequence<AminoAcidCompound>> translations =
+      e.multipleFrameTranslation(brca2Dna, Frame.getAllFrames());
+    for (Frame frame : Frame.getAllFrames()) {
+      Sequence<NucleotideCompound> rna = e.getDnaRnaTranslator().createSequence(brca2Dna, frame);
+      assertThat("Frame " + frame, translations.get(frame).getSequenceAsString(),
+          is(translateCodons(e, rna.getSequenceAsString())));
+    }
+    translations = TranscriptionEngine.getDefault().multipleFrameTranslation(brca2Dna, Frame.ONE);
+    assertThat("BRCA2 does not translate", translations.get(Frame.ONE).getSequenceAsString(),
+        is(brca2Pep.getSequenceAsString()));
+  }
+
+  private static String translateCodons(TranscriptionEngine e, String rna) {
+    Map<String, String> aminoAcids = new HashMap<String, String>();
+    for (Codon codon : e.getTable().getCodons(e.getRnaCompounds(), e.getAminoAcidCompounds())) {
+      aminoAcids.put(codon.getOne().toString() + codon.getTwo() + codon.getThree(),
+          codon.getAminoAcid().toString());
+    }
+    StringBuilder protein = new StringBuilder();
+    for (int i = 0; i + 3 <= rna.length(); i += 3) {
+      protein.append(aminoAcids.get(rna.substring(i, i + 3)));
+    }
+    return protein.toString();
+  }
+
 }
@@ -0,0 +1,62 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.core.sequence.benchmark;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.biojava3.core.sequence.DNASequence;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.biojava3.core.sequence.template.Sequence;
+import org.biojava3.core.sequence.transcription.Frame;
+import org.biojava3.core.sequence.transcription.TranscriptionEngine;
+
+/**
+ * Times six frame translation of a random DNA sequence the size of a bacterial genome.  The length in bases is given
+ * as the first argument and defaults to 5 million.
+ */
+public class TranslationBenchmark {
+
+    public static void main(String[] args) {
+        int length = (args.length > 0) ? Integer.parseInt(args[0]) : 5000000;
+        Random random = new Random(0L);
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            s.append("ACGT".charAt(random.nextInt(4)));
+        }
+        DNASequence dna = new DNASequence(s.toString());
+        TranscriptionEngine engine = TranscriptionEngine.getDefault();
+        System.out.println("run\tmillis\tamino acids");
+        for (int run = 1; run <= 5; run++) {
+            long start = System.nanoTime();
+            Map<Frame, Sequence<AminoAcidCompound>> frames = engine.multipleFrameTranslation(dna,
+                    Frame.getAllFrames());
+            long millis = (System.nanoTime() - start) / 1000000L;
+            int total = 0;
+            for (Sequence<AminoAcidCompound> peptide : frames.values()) {
+                total += peptide.getLength();
+            }
+            System.out.printf("%d\t%d\t%d%n", run, millis, total);
+        }
+    }
+
+}
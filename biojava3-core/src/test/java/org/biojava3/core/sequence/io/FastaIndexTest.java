@@ -0,0 +1,89 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.core.sequence.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class FastaIndexTest {
+
+    @Test
+    public void testBuild() throws Exception {
+        FastaIndex index = FastaIndex.build(new File(getClass().getResource("/PF00104_small.fasta").toURI()));
+        assertEquals(index.size(), 283);
+        assertEquals(index.getEntries().get(0).toString(), "A2D504_ATEGE/1-46\t577\t19\t60\t61");
+        assertEquals(index.getEntry("Q9N0K2_PIG/1-87").toString(), "Q9N0K2_PIG/1-87\t577\t623\t60\t61");
+        assertEquals(index.getEntry("Q98SJ1_CHICK/15-61").getOffset(), 171531L);
+        assertNull(index.getEntry("missing"));
+    }
+
+    @Test
+    public void testBuildLayouts() throws IOException {
+        FastaIndex index = build(">one desc\r\nACGT\r\nAC\r\n>two\nACG\nACG\nA\n\n>empty\n>three\nAC");
+        assertEquals(index.toString(), "one\t6\t11\t4\t6\ntwo\t7\t26\t3\t4\nempty\t0\t44\t0\t0\n"
+                + "three\t2\t51\t2\t2\n");
+        FastaIndex.Entry two = index.getEntry("two");
+        assertEquals(two.getOffset(1), 26L);
+        assertEquals(two.getOffset(4), 30L);
+        assertEquals(two.getOffset(7), 34L);
+    }
+
+    @Test(expected = IOException.class)
+    public void testBuildLongerLine() throws IOException {
+        build(">one\nACG\nACGT\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void testBuildShorterLine() throws IOException {
+        build(">one\nACG\nA\nACG\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void testBuildDuplicateName() throws IOException {
+        build(">one\nACG\n>one x\nACG\n");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOffsetOutOfBounds() throws IOException {
+        build(">one\nACG\n").getEntry("one").getOffset(4);
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        FastaIndex index = build(">one\nACGT\nAC\n>two\nAC\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        assertEquals(out.toString("ISO-8859-1"), "one\t6\t5\t4\t5\ntwo\t2\t18\t2\t3\n");
+        assertEquals(FastaIndex.read(new ByteArrayInputStream(out.toByteArray())).toString(), index.toString());
+    }
+
+    private static FastaIndex build(String fasta) throws IOException {
+        return FastaIndex.build(new ByteArrayInputStream(fasta.getBytes("ISO-8859-1")));
+    }
+
+}
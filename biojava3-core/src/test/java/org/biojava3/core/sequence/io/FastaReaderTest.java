@@ -5,9 +5,12 @@
 package org.biojava3.core.sequence.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 
 import org.biojava3.core.sequence.ProteinSequence;
@@ -85,5 +88,45 @@ public class FastaReaderTest {
 		}
 		assertEquals(seqNum,283);
 	}
-	
+
+	/**
+	 * Test of process method with a batch size, of class FastaReader.
+	 */
+	@Test
+	public void testProcessBatches() throws Exception {
+		InputStream inStream = this.getClass().getResourceAsStream("/PF00104_small.fasta");
+		FastaReader<ProteinSequence,AminoAcidCompound> fastaReader = new FastaReader<ProteinSequence,AminoAcidCompound>(inStream, new GenericFastaHeaderParser<ProteinSequence,AminoAcidCompound>(), new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+		assertEquals(fastaReader.process(0).size(), 0);
+		LinkedHashMap<String,ProteinSequence> batch = fastaReader.process(100);
+		assertEquals(batch.size(), 100);
+		assertEquals(batch.keySet().iterator().next(), "A2D504_ATEGE/1-46");
+		assertEquals(fastaReader.process(100).size(), 100);
+		batch = fastaReader.process(100);
+		assertEquals(batch.size(), 83);
+		assertTrue(batch.containsKey("Q98SJ1_CHICK/15-61"));
+		assertEquals(fastaReader.process(100).size(), 0);
+		assertEquals(fastaReader.process().size(), 0);
+	}
+
+	/**
+	 * Test of iterator method, of class FastaReader.
+	 */
+	@Test
+	public void testIterator() throws Exception {
+		InputStream inStream = this.getClass().getResourceAsStream("/PF00104_small.fasta");
+		LinkedHashMap<String,ProteinSequence> proteinSequences = new FastaReader<ProteinSequence,AminoAcidCompound>(inStream, new GenericFastaHeaderParser<ProteinSequence,AminoAcidCompound>(), new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet())).process();
+		inStream.close();
+
+		inStream = this.getClass().getResourceAsStream("/PF00104_small.fasta");
+		FastaReader<ProteinSequence,AminoAcidCompound> fastaReader = new FastaReader<ProteinSequence,AminoAcidCompound>(inStream, new GenericFastaHeaderParser<ProteinSequence,AminoAcidCompound>(), new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+		Iterator<String> ids = proteinSequences.keySet().iterator();
+		for (ProteinSequence proteinSequence : fastaReader) {
+			String id = ids.next();
+			assertEquals(proteinSequence.getAccession().getID(), id);
+			assertEquals(proteinSequence.getSequenceAsString(), proteinSequences.get(id).getSequenceAsString());
+		}
+		assertFalse(ids.hasNext());
+		assertFalse(fastaReader.iterator().hasNext());
+	}
+
 }
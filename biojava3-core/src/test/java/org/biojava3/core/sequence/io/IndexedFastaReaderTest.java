@@ -0,0 +1,142 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.core.sequence.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import org.biojava3.core.sequence.AccessionID;
+import org.biojava3.core.sequence.DNASequence;
+import org.biojava3.core.sequence.ProteinSequence;
+import org.biojava3.core.sequence.Strand;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.biojava3.core.sequence.compound.AminoAcidCompoundSet;
+import org.biojava3.core.sequence.compound.DNACompoundSet;
+import org.biojava3.core.sequence.compound.NucleotideCompound;
+import org.biojava3.core.sequence.loader.MappedFastaProxySequenceReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexedFastaReaderTest {
+
+    private File dna;
+    private IndexedFastaReader<DNASequence, NucleotideCompound> reader;
+
+    @Before
+    public void setup() throws Exception {
+        dna = File.createTempFile("IndexedFastaReaderTest", ".fasta");
+        dna.deleteOnExit();
+        OutputStream out = new FileOutputStream(dna);
+        out.write(">chr1 first\r\nACGTA\r\nCCGGT\r\nTT\r\n>chr2\nacgt\nAC\n>chr3\n".getBytes("ISO-8859-1"));
+        out.close();
+        reader = new IndexedFastaReader<DNASequence, NucleotideCompound>(dna, new DNASequenceCreator(
+                DNACompoundSet.getDNACompoundSet()), DNACompoundSet.getDNACompoundSet());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+    }
+
+    @Test
+    public void testGetSequence() throws Exception {
+        DNASequence chr1 = reader.getSequence("chr1");
+        assertEquals(chr1.getAccession().getID(), "chr1");
+        assertEquals(chr1.getLength(), 12);
+        assertEquals(chr1.getSequenceAsString(), "ACGTACCGGTTT");
+        assertEquals(chr1.getCompoundAt(6).toString(), "C");
+        assertEquals(chr1.getIndexOf(DNACompoundSet.getDNACompoundSet().getCompoundForString("G")), 3);
+        assertEquals(chr1.getLastIndexOf(DNACompoundSet.getDNACompoundSet().getCompoundForString("G")), 9);
+        assertEquals(chr1.getSequenceAsString(3, 7, Strand.NEGATIVE), "CCATG");
+        assertEquals(reader.getSequence("chr2").getSequenceAsString(), "acgtAC");
+        assertEquals(reader.getSequence("chr3").getLength(), 0);
+        assertNull(reader.getSequence("chr4"));
+    }
+
+    @Test
+    public void testGetSequenceRange() throws Exception {
+        assertEquals(reader.getSequence("chr1", 4, 11).getSequenceAsString(), "TACCGGTT");
+        assertEquals(reader.getSequence("chr1", 6, 6).getSequenceAsString(), "C");
+        assertEquals(reader.getSequence("chr1", 5, 4).getLength(), 0);
+        assertEquals(reader.getSequence("chr2", 2, 5).getSequenceAsString(), "cgtA");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetSequenceRangeOutOfBounds() throws Exception {
+        reader.getSequence("chr1", 4, 13);
+    }
+
+    @Test
+    public void testProxyAccession() {
+        MappedFastaProxySequenceReader<NucleotideCompound> proxy = new MappedFastaProxySequenceReader<NucleotideCompound>(
+                ByteBuffer.wrap("ACGT\nAC".getBytes()), 6, 0, 4, 5, DNACompoundSet.getDNACompoundSet(),
+                new AccessionID("chr2"));
+        assertEquals(proxy.getAccession().getID(), "chr2");
+        assertEquals(proxy.getSequenceAsString(), "ACGTAC");
+    }
+
+    @Test
+    public void testStoredIndex() throws Exception {
+        File fai = FastaIndex.getIndexFile(dna);
+        fai.deleteOnExit();
+        reader.getIndex().write(fai);
+        IndexedFastaReader<DNASequence, NucleotideCompound> stored =
+                new IndexedFastaReader<DNASequence, NucleotideCompound>(dna, new DNASequenceCreator(
+                DNACompoundSet.getDNACompoundSet()), DNACompoundSet.getDNACompoundSet());
+        assertEquals(stored.getIndex().toString(), reader.getIndex().toString());
+        assertEquals(stored.getSequence("chr2").getSequenceAsString(), "acgtAC");
+        stored.close();
+        fai.delete();
+    }
+
+    @Test
+    public void testMatchesFastaReader() throws Exception {
+        InputStream inStream = getClass().getResourceAsStream("/PF00104_small.fasta");
+        LinkedHashMap<String, ProteinSequence> expected = new FastaReader<ProteinSequence, AminoAcidCompound>(
+                inStream, new GenericFastaHeaderParser<ProteinSequence, AminoAcidCompound>(),
+                new ProteinSequenceCreator(AminoAcidCompoundSet.getAminoAcidCompoundSet())).process();
+        inStream.close();
+        IndexedFastaReader<ProteinSequence, AminoAcidCompound> proteins =
+                new IndexedFastaReader<ProteinSequence, AminoAcidCompound>(new File(getClass().getResource(
+                "/PF00104_small.fasta").toURI()), new ProteinSequenceCreator(
+                AminoAcidCompoundSet.getAminoAcidCompoundSet()), AminoAcidCompoundSet.getAminoAcidCompoundSet());
+        LinkedHashMap<String, ProteinSequence> actual = proteins.process();
+        assertEquals(actual.keySet().toString(), expected.keySet().toString());
+        Random random = new Random(0L);
+        for (String id : expected.keySet()) {
+            String s = expected.get(id).getSequenceAsString();
+            assertEquals(actual.get(id).getSequenceAsString(), s);
+            int begin = 1 + random.nextInt(s.length()), end = begin + random.nextInt(s.length() - begin + 1);
+            assertEquals(proteins.getSequence(id, begin, end).getSequenceAsString(), s.substring(begin - 1, end));
+        }
+        proteins.close();
+    }
+
+}
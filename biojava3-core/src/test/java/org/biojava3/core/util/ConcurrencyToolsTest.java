@@ -0,0 +1,188 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava3.core.util;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ConcurrencyToolsTest {
+
+    @After
+    public void teardown() {
+        ConcurrencyTools.setThreadPoolDefault();
+        ConcurrencyTools.shutdown();
+    }
+
+    @Test
+    public void testSetThreadPool() {
+        ConcurrencyTools.setThreadPoolSize(3);
+        InstrumentedExecutorService pool = ConcurrencyTools.getInstrumentedThreadPool();
+        assertSame(ConcurrencyTools.getThreadPool(), pool);
+        ConcurrencyTools.setThreadPool(pool.getExecutor());
+        assertSame(ConcurrencyTools.getThreadPool(), pool);
+        ConcurrencyTools.setThreadPool(Executors.newCachedThreadPool());
+        assertNotSame(ConcurrencyTools.getThreadPool(), pool);
+        assertTrue(pool.isShutdown());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSetThreadPoolSize() {
+        ConcurrencyTools.setThreadPoolSize(0);
+    }
+
+    @Test
+    public void testGet() {
+        assertEquals(ConcurrencyTools.get(ConcurrencyTools.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 7;
+            }
+        })), Integer.valueOf(7));
+    }
+
+    @Test(expected=ArithmeticException.class)
+    public void testGetFailure() {
+        ConcurrencyTools.get(ConcurrencyTools.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new ArithmeticException();
+            }
+        }));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testGetCheckedFailure() {
+        ConcurrencyTools.get(ConcurrencyTools.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new Exception();
+            }
+        }));
+    }
+
+    @Test
+    public void testMetrics() throws InterruptedException {
+        InstrumentedExecutorService pool = new InstrumentedExecutorService(Executors.newSingleThreadExecutor());
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        Future<Integer> blocker = pool.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                started.countDown();
+                release.await();
+                return 1;
+            }
+        });
+        Future<Integer> failing = pool.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalArgumentException();
+            }
+        });
+        Future<?> cancelled = pool.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        started.await();
+        assertEquals(pool.getRunningCount(), 1);
+        assertEquals(pool.getQueuedCount(), 2);
+        assertTrue(cancelled.cancel(false));
+        assertEquals(pool.getQueuedCount(), 1);
+        release.countDown();
+        assertEquals(ConcurrencyTools.get(blocker), Integer.valueOf(1));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(failing.isDone());
+        assertEquals(pool.getQueuedCount(), 0);
+        assertEquals(pool.getRunningCount(), 0);
+        assertEquals(pool.getCompletedCount(), 1);
+        assertEquals(pool.getFailedCount(), 1);
+        assertEquals(pool.getQueueWaitHistogram().getCount(), 2);
+        assertEquals(pool.getRunTimeHistogram().getCount(), 2);
+    }
+
+    @Test
+    public void testShutdownNow() throws InterruptedException {
+        InstrumentedExecutorService pool = new InstrumentedExecutorService(Executors.newSingleThreadExecutor());
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // shut down
+                }
+            }
+        });
+        Runnable drained = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        pool.execute(drained);
+        pool.submit(drained);
+        started.await();
+        assertEquals(pool.getQueuedCount(), 2);
+        List<Runnable> tasks = pool.shutdownNow();
+        assertEquals(tasks.size(), 2);
+        assertEquals(pool.getQueuedCount(), 0);
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(pool.getRunningCount(), 0);
+        assertEquals(pool.getCompletedCount(), 1);
+
+        // drained tasks still run when asked, but are no longer counted
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        assertEquals(runs.get(), 2);
+        assertEquals(pool.getQueuedCount(), 0);
+        assertEquals(pool.getCompletedCount(), 1);
+    }
+
+    @Test
+    public void testTimeHistogram() {
+        TimeHistogram histogram = new TimeHistogram();
+        assertEquals(histogram.getPercentileNanos(50), 0);
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(histogram.getCount(), 1000);
+        assertEquals(histogram.getMaxNanos(), 1000);
+        assertEquals(histogram.getMeanNanos(), 500.5, 1e-9);
+        assertEquals(histogram.getPercentileNanos(50), 511);
+        assertEquals(histogram.getPercentileNanos(100), 1000);
+    }
+
+}
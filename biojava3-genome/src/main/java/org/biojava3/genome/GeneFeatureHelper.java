@@ -21,6 +21,7 @@ import org.biojava3.genome.parsers.gff.Feature;
 import org.biojava3.genome.parsers.gff.FeatureI;
 import org.biojava3.genome.parsers.gff.FeatureList;
 import org.biojava3.genome.parsers.gff.GFF3;
+import org.biojava3.genome.parsers.gff.GFFIndex;
 import org.biojava3.genome.parsers.gff.GeneMarkGTF;
 
 /**
@@ -38,6 +39,26 @@ public class GeneFeatureHelper {
         return dnaSequenceList;
     }
 
+    /**
+     * Adds the genes of a GFF3 file one sequence at a time, reading only the features of each sequence in
+     * dnaSequenceList through a {@link GFFIndex} of the file. The index is built on first use.
+     *
+     * @param dnaSequenceList sequences to annotate, keyed by sequence name
+     * @param gffFile indexed GFF3 file
+     * @return the annotated sequences
+     * @throws Exception
+     */
+    static public LinkedHashMap<String, DNASequence> addGFF3GeneFeatures(LinkedHashMap<String, DNASequence> dnaSequenceList, File gffFile) throws Exception {
+        GFFIndex index = GFFIndex.open(gffFile);
+        for (String seqname : dnaSequenceList.keySet()) {
+            FeatureList listGenes = index.getFeatures(seqname);
+            if (!listGenes.isEmpty()) {
+                addGFF3GeneFeatures(dnaSequenceList, listGenes);
+            }
+        }
+        return dnaSequenceList;
+    }
+
     static public LinkedHashMap<String, DNASequence> addGFF3GeneFeatures(LinkedHashMap<String, DNASequence> dnaSequenceList, FeatureList listGenes) throws Exception {
         FeatureList mRNAFeatures = listGenes.selectByType("mRNA");
         for (FeatureI f : mRNAFeatures) {
@@ -161,6 +182,26 @@ public class GeneFeatureHelper {
         return dnaSequenceList;
     }
 
+    /**
+     * Adds the genes of a GTF file one sequence at a time, reading only the features of each sequence in
+     * dnaSequenceList through a {@link GFFIndex} of the file. The index is built on first use.
+     *
+     * @param dnaSequenceList sequences to annotate, keyed by sequence name
+     * @param gffFile indexed GTF file
+     * @return the annotated sequences
+     * @throws Exception
+     */
+    static public LinkedHashMap<String, DNASequence> addGTFGeneFeatures(LinkedHashMap<String, DNASequence> dnaSequenceList, File gffFile) throws Exception {
+        GFFIndex index = GFFIndex.open(gffFile);
+        for (String seqname : dnaSequenceList.keySet()) {
+            FeatureList listGenes = index.getFeatures(seqname);
+            if (!listGenes.isEmpty()) {
+                addGTFGeneFeatures(dnaSequenceList, listGenes);
+            }
+        }
+        return dnaSequenceList;
+    }
+
     static public LinkedHashMap<String, DNASequence> addGTFGeneFeatures(LinkedHashMap<String, DNASequence> dnaSequenceList, FeatureList listGenes) throws Exception {
         Collection<String> geneIds = listGenes.attributeValues("gene_id");
         for (String geneid : geneIds) {
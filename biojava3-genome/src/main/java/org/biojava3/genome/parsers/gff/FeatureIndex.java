@@ -0,0 +1,439 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.genome.parsers.gff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An index of a list of features for overlap, containment and nearest feature queries. Features are grouped by
+ * sequence name and strand, and each group is sorted by start and searched as a balanced interval tree: each node
+ * of the tree records the greatest end in its subtree, so whole subtrees that cannot hold a match are skipped. A
+ * query takes time logarithmic in the size of the group plus the number of features found.
+ * <br><br>
+ * The index is a snapshot; features added to or removed from the list later are not seen. {@link FeatureList#index()}
+ * keeps an index up to date for its list. Features with a null location are never found.
+ * <br><br>
+ * Queries follow the strand rules of {@link FeatureList#selectOverlapping(String, Location, boolean)}: features on
+ * the strand of the query location are compared with it, and if both strands are used, features on the opposite
+ * strand are compared with its opposite image. Found features are listed in their original order.
+ */
+public class FeatureIndex {
+
+    /**
+     * Receives the overlapping pairs found by {@link FeatureIndex#join(Iterator, Iterator, OverlapListener)}.
+     */
+    public interface OverlapListener {
+
+        /**
+         * Called for each pair of overlapping features.
+         *
+         * @param a The feature from the first input.
+         * @param b The feature from the second input.
+         */
+        public void overlap(FeatureI a, FeatureI b);
+    }
+
+    private final List<FeatureI> mFeatures;
+    private final HashMap<String, Group[]> mGroups = new HashMap<String, Group[]>();
+
+    /**
+     * Build an index of the specified features.
+     *
+     * @param features The features to index.
+     */
+    public FeatureIndex(List<FeatureI> features) {
+        mFeatures = features;
+        HashMap<String, List<List<Integer>>> positions = new HashMap<String, List<List<Integer>>>();
+        for (int i = 0; i < features.size(); i++) {
+            FeatureI f = features.get(i);
+            if (f.location() == null) {
+                continue;
+            }
+            List<List<Integer>> strands = positions.get(f.seqname());
+            if (strands == null) {
+                strands = new ArrayList<List<Integer>>();
+                strands.add(new ArrayList<Integer>());
+                strands.add(new ArrayList<Integer>());
+                positions.put(f.seqname(), strands);
+            }
+            strands.get(f.location().isNegative() ? 1 : 0).add(i);
+        }
+        for (String seqname : positions.keySet()) {
+            List<List<Integer>> strands = positions.get(seqname);
+            mGroups.put(seqname, new Group[] {new Group(features, strands.get(0)),
+                    new Group(features, strands.get(1))});
+        }
+    }
+
+    /**
+     * Get the number of features in the index.
+     *
+     * @return The number of indexed features, which excludes those with a null location.
+     */
+    public int size() {
+        int size = 0;
+        for (Group[] strands : mGroups.values()) {
+            size += strands[0].size() + strands[1].size();
+        }
+        return size;
+    }
+
+    /**
+     * Create a list of all features that overlap the specified location on the specified sequence.
+     *
+     * @param seqname The sequence name.
+     * @param location The location to check.
+     * @param useBothStrands If true, features on the opposite strand are checked against the opposite image of the
+     * location.
+     * @return The features that overlap the location.
+     */
+    public FeatureList selectOverlapping(String seqname, Location location, boolean useBothStrands) {
+        return toList(overlapping(seqname, location, useBothStrands));
+    }
+
+    /**
+     * Create a list of all features that lie entirely within the specified location on the specified sequence.
+     *
+     * @param seqname The sequence name.
+     * @param location The location to check.
+     * @param useBothStrands If true, features on the opposite strand are checked against the opposite image of the
+     * location.
+     * @return The features contained by the location.
+     */
+    public FeatureList selectContainedBy(String seqname, Location location, boolean useBothStrands) {
+        return toList(search(seqname, location, useBothStrands, Group.CONTAINED_BY));
+    }
+
+    /**
+     * Create a list of all features that entirely contain the specified location on the specified sequence.
+     *
+     * @param seqname The sequence name.
+     * @param location The location to check.
+     * @param useBothStrands If true, features on the opposite strand are checked against the opposite image of the
+     * location.
+     * @return The features containing the location.
+     */
+    public FeatureList selectContaining(String seqname, Location location, boolean useBothStrands) {
+        return toList(search(seqname, location, useBothStrands, Group.CONTAINING));
+    }
+
+    /**
+     * Find the feature nearest to the specified location on the specified sequence, as measured by
+     * {@link Location#distance(Location)}. An overlapping feature is nearest of all. Of several features at the same
+     * distance, the first in the list is returned.
+     *
+     * @param seqname The sequence name.
+     * @param location The location to check.
+     * @param useBothStrands If true, features on the opposite strand are measured against the opposite image of the
+     * location.
+     * @return The nearest feature, or null if there are no features on the sequence and strands checked.
+     */
+    public FeatureI nearest(String seqname, Location location, boolean useBothStrands) {
+        int[] overlaps = overlapping(seqname, location, useBothStrands);
+        if (overlaps.length > 0) {
+            return mFeatures.get(overlaps[0]);
+        }
+        Group[] strands = mGroups.get(seqname);
+        if (strands == null) {
+            return null;
+        }
+        int side = location.isNegative() ? 1 : 0;
+        long best = strands[side].nearest(location);
+        if (useBothStrands) {
+            long other = strands[1 - side].nearest(location.opposite());
+            if (other < best) {
+                best = other;
+            }
+        }
+        return (best == Long.MAX_VALUE) ? null : mFeatures.get((int) best);
+    }
+
+    /**
+     * Find the overlapping pairs of two streams of features in a single pass. Both streams must be sorted by sequence
+     * name, in the order of {@link String#compareTo(String)}, and then by {@link Location#bioStart()}, so features of
+     * both strands are interleaved by position as in a sorted GFF file. Only features on the same strand overlap. Only the features of the second stream which may still overlap later
+     * features of the first stream are held in memory.
+     *
+     * @param a The first sorted stream.
+     * @param b The second sorted stream.
+     * @param listener Receives each overlapping pair, in the order of the first stream.
+     * @throws IllegalArgumentException A stream is not sorted.
+     */
+    public static void join(Iterator<? extends FeatureI> a, Iterator<? extends FeatureI> b,
+            OverlapListener listener) {
+        List<FeatureI> active = new ArrayList<FeatureI>();
+        FeatureI nextB = nextLocated(b), lastA = null, lastB = null;
+        while (a.hasNext()) {
+            FeatureI fa = a.next();
+            if (fa.location() == null) {
+                continue;
+            }
+            if (lastA == null || !fa.seqname().equals(lastA.seqname())) {
+                active.clear();
+                // skip features of the second stream on sequences before this one
+                while (nextB != null && nextB.seqname().compareTo(fa.seqname()) < 0) {
+                    checkOrder(lastB, nextB);
+                    lastB = nextB;
+                    nextB = nextLocated(b);
+                }
+            }
+            checkOrder(lastA, fa);
+            lastA = fa;
+            while (nextB != null && nextB.seqname().equals(fa.seqname())
+                    && nextB.location().bioStart() <= fa.location().bioEnd()) {
+                checkOrder(lastB, nextB);
+                lastB = nextB;
+                active.add(nextB);
+                nextB = nextLocated(b);
+            }
+            int kept = 0;
+            for (FeatureI fb : active) {
+                if (fb.location().bioEnd() >= fa.location().bioStart()) {
+                    active.set(kept++, fb);
+                    if (fb.location().isSameStrand(fa.location()) && fb.location().overlaps(fa.location())) {
+                        listener.overlap(fa, fb);
+                    }
+                }
+            }
+            active.subList(kept, active.size()).clear();
+        }
+    }
+
+    // helper method that skips features with a null location
+    private static FeatureI nextLocated(Iterator<? extends FeatureI> features) {
+        while (features.hasNext()) {
+            FeatureI f = features.next();
+            if (f.location() != null) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    // helper method that checks features of a stream are sorted
+    private static void checkOrder(FeatureI last, FeatureI next) {
+        if (last != null) {
+            int order = last.seqname().compareTo(next.seqname());
+            if (order > 0 || (order == 0 && last.location().bioStart() > next.location().bioStart())) {
+                throw new IllegalArgumentException("Features are not sorted by seqname and bioStart: " + last
+                        + " comes before " + next);
+            }
+        }
+    }
+
+    /**
+     * Returns the list positions of all features that overlap the location, in list order.
+     */
+    int[] overlapping(String seqname, Location location, boolean useBothStrands) {
+        return search(seqname, location, useBothStrands, Group.OVERLAPPING);
+    }
+
+    // helper method that searches the strands used and merges the found positions into list order
+    private int[] search(String seqname, Location location, boolean useBothStrands, int mode) {
+        Group[] strands = mGroups.get(seqname);
+        if (strands == null) {
+            return new int[0];
+        }
+        int side = location.isNegative() ? 1 : 0;
+        IntList found = new IntList();
+        strands[side].search(location.start(), location.end(), mode, found);
+        if (useBothStrands) {
+            Location opposite = location.opposite();
+            strands[1 - side].search(opposite.start(), opposite.end(), mode, found);
+        }
+        int[] positions = found.toArray();
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    // helper method that lists the features at the given positions
+    private FeatureList toList(int[] positions) {
+        FeatureList list = new FeatureList();
+        for (int position : positions) {
+            list.add(mFeatures.get(position));
+        }
+        return list;
+    }
+
+    // growable array of positions
+    private static class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * The features of one strand of one sequence, sorted by start. The sorted array is read as a balanced binary tree
+     * in which the root of the range [lo, hi) is its middle element; the greatest end of each subtree is stored at
+     * its root.
+     */
+    private static class Group {
+
+        private static final int OVERLAPPING = 0, CONTAINED_BY = 1, CONTAINING = 2;
+
+        private final int[] mPositions, mStarts, mEnds, mMaxEnds;
+        // position in the sorted array of the feature with the greatest end among those up to each element, the one
+        // first in the list if several share that end
+        private final int[] mPrefixMax;
+
+        private Group(final List<FeatureI> features, List<Integer> positions) {
+            Integer[] sorted = positions.toArray(new Integer[positions.size()]);
+            Arrays.sort(sorted, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    int sa = features.get(a).location().start(), sb = features.get(b).location().start();
+                    return (sa < sb) ? -1 : ((sa > sb) ? 1 : a.compareTo(b));
+                }
+            });
+            int n = sorted.length;
+            mPositions = new int[n];
+            mStarts = new int[n];
+            mEnds = new int[n];
+            mMaxEnds = new int[n];
+            mPrefixMax = new int[n];
+            for (int i = 0; i < n; i++) {
+                Location location = features.get(sorted[i]).location();
+                mPositions[i] = sorted[i];
+                mStarts[i] = location.start();
+                mEnds[i] = location.end();
+                mPrefixMax[i] = i;
+                if (i > 0) {
+                    int max = mPrefixMax[i - 1];
+                    if (mEnds[max] > mEnds[i] || (mEnds[max] == mEnds[i] && mPositions[max] < mPositions[i])) {
+                        mPrefixMax[i] = max;
+                    }
+                }
+            }
+            fillMaxEnds(0, n);
+        }
+
+        private int size() {
+            return mPositions.length;
+        }
+
+        // helper method that fills the greatest end of each subtree and returns that of the whole range
+        private int fillMaxEnds(int lo, int hi) {
+            if (lo >= hi) {
+                return Integer.MIN_VALUE;
+            }
+            int mid = (lo + hi) >>> 1;
+            mMaxEnds[mid] = Math.max(mEnds[mid], Math.max(fillMaxEnds(lo, mid), fillMaxEnds(mid + 1, hi)));
+            return mMaxEnds[mid];
+        }
+
+        private void search(int start, int end, int mode, IntList found) {
+            if (mode == CONTAINED_BY) {
+                // contained features start within the location, so only that range of the sorted array is read
+                for (int i = lowerBound(start); i < mStarts.length && mStarts[i] <= end; i++) {
+                    if (mEnds[i] <= end) {
+                        found.add(mPositions[i]);
+                    }
+                }
+            } else {
+                search(0, mStarts.length, start, end, mode, found);
+            }
+        }
+
+        private void search(int lo, int hi, int start, int end, int mode, IntList found) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if (mode == OVERLAPPING) {
+                if (mMaxEnds[mid] <= start) {
+                    return; // nothing in this subtree reaches the location
+                }
+                search(lo, mid, start, end, mode, found);
+                if (mStarts[mid] >= end) {
+                    return; // this and all later features start after the location
+                }
+                if (mEnds[mid] > start) {
+                    found.add(mPositions[mid]);
+                }
+            } else {
+                if (mMaxEnds[mid] < end) {
+                    return;
+                }
+                search(lo, mid, start, end, mode, found);
+                if (mStarts[mid] > start) {
+                    return;
+                }
+                if (mEnds[mid] >= end) {
+                    found.add(mPositions[mid]);
+                }
+            }
+            search(mid + 1, hi, start, end, mode, found);
+        }
+
+        // returns the distance to the feature nearest the location packed above its list position, or Long.MAX_VALUE
+        private long nearest(Location location) {
+            long best = Long.MAX_VALUE;
+            // the feature ending last among those starting before the location
+            int before = lowerBound(location.start()) - 1;
+            if (before >= 0) {
+                int i = mPrefixMax[before];
+                best = pack(location.start() - mEnds[i], mPositions[i]);
+            }
+            // the feature starting first at or after the end of the location
+            int after = lowerBound(location.end());
+            if (after < mStarts.length) {
+                best = Math.min(best, pack(mStarts[after] - location.end(), mPositions[after]));
+            }
+            return best;
+        }
+
+        // helper method that orders candidates by distance and then list position
+        private static long pack(int distance, int position) {
+            return ((long) distance << 32) | position;
+        }
+
+        // helper method that returns the first element starting at or after the given index
+        private int lowerBound(int start) {
+            int lo = 0, hi = mStarts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (mStarts[mid] < start) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+}
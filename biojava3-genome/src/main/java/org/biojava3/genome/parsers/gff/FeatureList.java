@@ -15,6 +15,8 @@ import org.biojava3.core.sequence.DNASequence;
 public class FeatureList extends ArrayList<FeatureI> {
 
     Location mLocation;			//genomic location (union of feature locations)
+    private FeatureIndex mIndex;	//overlap index, built on demand
+    private int mIndexModCount;		//modCount when index was built
 
     /**
      * Construct an empty list.
@@ -52,6 +54,18 @@ public class FeatureList extends ArrayList<FeatureI> {
         return super.add(feature);
     }
 
+    /**
+     * Replace the feature at the specified position in the list.
+     *
+     * @param index The position to set.
+     * @param feature The new FeatureI object.
+     * @return The feature previously at the position.
+     */
+    public FeatureI set(int index, FeatureI feature) {
+        mIndex = null;
+        return super.set(index, feature);
+    }
+
     /**
      * Add all features in the specified list or collection to this list.
      *
@@ -276,9 +290,24 @@ public class FeatureList extends ArrayList<FeatureI> {
         return list;
     }
 
+    /**
+     * Get an index of the features in this list for fast overlap, containment and
+     * nearest feature queries. The index is built on first use and rebuilt after
+     * the list changes.
+     *
+     * @return The index of this list.
+     */
+    public FeatureIndex index() {
+        if (mIndex == null || mIndexModCount != modCount) {
+            mIndex = new FeatureIndex(this);
+            mIndexModCount = modCount;
+        }
+        return mIndex;
+    }
+
     /**
      * Create a list of all features that overlap the specified location on the specified
-     * sequence.
+     * sequence. Uses the {@link #index()} of this list.
      *
      * @param seqname The sequence name. Only features with this sequence name will be checked for overlap.
      * @param location The location to check.
@@ -289,28 +318,12 @@ public class FeatureList extends ArrayList<FeatureI> {
      */
     public FeatureList selectOverlapping(String seqname, Location location, boolean useBothStrands)
             throws Exception {
-        FeatureList list = new FeatureList();
-
-        for (FeatureI feature : this) {
-            boolean overlaps = false;
-            if (feature.seqname().equals(seqname)) {
-                if (location.isSameStrand(feature.location())) {
-                    overlaps = feature.location().overlaps(location);
-                } else if (useBothStrands) {
-                    overlaps = feature.location().overlaps(location.opposite());
-                }
-            }
-
-            if (overlaps) {
-                list.add(feature);
-            }
-        }
-
-        return list;
+        return index().selectOverlapping(seqname, location, useBothStrands);
     }
 
     /**
      * Create a list of all features that do not overlap the specified location on the specified sequence.
+     * Uses the {@link #index()} of this list.
      *
      * @param seqname The sequence name. Only features with this sequence name will be checked for overlap.
      * @param location The location to check.
@@ -321,19 +334,13 @@ public class FeatureList extends ArrayList<FeatureI> {
      */
     public FeatureList omitOverlapping(String seqname, Location location, boolean useBothStrands) {
         FeatureList list = new FeatureList();
+        int[] overlapping = index().overlapping(seqname, location, useBothStrands);
 
-        for (FeatureI feature : this) {
-            boolean overlaps = false;
-            if (feature.seqname().equals(seqname)) {
-                if (location.isSameStrand(feature.location())) {
-                    overlaps = feature.location().overlaps(location);
-                } else if (useBothStrands) {
-                    overlaps = feature.location().overlaps(location.opposite());
-                }
-            }
-
-            if (!overlaps) {
-                list.add(feature);
+        for (int i = 0, next = 0; i < size(); i++) {
+            if (next < overlapping.length && overlapping[next] == i) {
+                next++;
+            } else {
+                list.add(get(i));
             }
         }
 
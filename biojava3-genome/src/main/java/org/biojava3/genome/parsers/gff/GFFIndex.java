@@ -0,0 +1,311 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava3.genome.parsers.gff;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * An on-disk index of a GFF or GTF file, so the features of one sequence (or of one region of a sequence) are read
+ * without parsing the whole annotation. The lines of the file are grouped into chunks of consecutive features on the
+ * same sequence, and for each chunk the index records its byte range and the span of its features. A query reads and
+ * parses only the chunks of the named sequence whose span overlaps the region.
+ * <br><br>
+ * The index is kept next to the file it indexes, with the extension {@value #EXTENSION} appended, as plain
+ * tab-delimited text. It records the length and modification time of the file, and {@link #open(File)} rebuilds it
+ * when they no longer match. The file need not be sorted, although chunks are smaller and queries faster when
+ * features of each sequence are together and sorted by start.
+ */
+public class GFFIndex {
+
+    private static final Logger log = Logger.getLogger(GFFIndex.class.getName());
+
+    /**
+     * Extension appended to the path of an indexed file to name its index.
+     */
+    public static final String EXTENSION = ".gfi";
+
+    private static final String HEADER = "#gff-index";
+    private static final int CHUNK_FEATURES = 1024;
+
+    private File file;
+    private long length, modified;
+    private Map<String, List<Chunk>> chunks = new LinkedHashMap<String, List<Chunk>>();
+    private Map<String, String> names = new HashMap<String, String>();
+
+    // byte range of consecutive lines holding features on one sequence
+    private static class Chunk {
+        private long offset;
+        private int length, minStart, maxEnd, features;
+    }
+
+    private GFFIndex(File file) {
+        this.file = file;
+        length = file.length();
+        modified = file.lastModified();
+    }
+
+    /**
+     * Open the index of a file. The index is read if it is up to date, otherwise it is built and written. If it
+     * cannot be written, the index is kept in memory only.
+     *
+     * @param file The GFF or GTF file.
+     * @return The index of the file.
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public static GFFIndex open(File file) throws IOException {
+        GFFIndex index = new GFFIndex(file);
+        File indexFile = getIndexFile(file);
+        if (indexFile.isFile() && index.load(indexFile)) {
+            return index;
+        }
+        index.build();
+        try {
+            index.write(indexFile);
+        } catch (IOException e) {
+            log.warning("Could not write index " + indexFile + ": " + e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * Build the index of a file and write it, replacing any earlier index.
+     *
+     * @param file The GFF or GTF file.
+     * @return The index of the file.
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public static GFFIndex create(File file) throws IOException {
+        GFFIndex index = new GFFIndex(file);
+        index.build();
+        index.write(getIndexFile(file));
+        return index;
+    }
+
+    /**
+     * Get the file which holds the index of a file.
+     *
+     * @param file The GFF or GTF file.
+     * @return The index file.
+     */
+    public static File getIndexFile(File file) {
+        return new File(file.getPath() + EXTENSION);
+    }
+
+    /**
+     * Get the indexed file.
+     *
+     * @return The GFF or GTF file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the names of the sequences with features, in the order they first appear in the file.
+     *
+     * @return The sequence names.
+     */
+    public Set<String> getSeqnames() {
+        return Collections.unmodifiableSet(chunks.keySet());
+    }
+
+    /**
+     * Get the number of features on a sequence.
+     *
+     * @param seqname The sequence name.
+     * @return The number of features.
+     */
+    public int size(String seqname) {
+        int size = 0;
+        List<Chunk> list = chunks.get(seqname);
+        if (list != null) {
+            for (Chunk chunk : list) {
+                size += chunk.features;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Read all features on a sequence, in file order.
+     *
+     * @param seqname The sequence name.
+     * @return A FeatureList, empty if the sequence has no features.
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public FeatureList getFeatures(String seqname) throws IOException {
+        return getFeatures(seqname, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read the features on a sequence which overlap a region on either strand, in file order.
+     *
+     * @param seqname The sequence name.
+     * @param bioStart The origin 1 index of the first base of the region.
+     * @param bioEnd The origin 1 index of the last base of the region.
+     * @return A FeatureList, empty if no features overlap the region.
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public FeatureList getFeatures(String seqname, int bioStart, int bioEnd) throws IOException {
+        FeatureList features = new FeatureList();
+        List<Chunk> list = chunks.get(seqname);
+        if (list == null) {
+            return features;
+        }
+        if (file.length() != length || file.lastModified() != modified) {
+            throw new IOException("File " + file + " changed since it was indexed");
+        }
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[0];
+            for (Chunk chunk : list) {
+                if (chunk.minStart > bioEnd || chunk.maxEnd < bioStart) {
+                    continue;
+                }
+                if (bytes.length < chunk.length) {
+                    bytes = new byte[chunk.length];
+                }
+                in.seek(chunk.offset);
+                in.readFully(bytes, 0, chunk.length);
+                GFFReader reader = new GFFReader(new ByteArrayInputStream(bytes, 0, chunk.length), chunk.offset,
+                        names);
+                Feature f;
+                while ((f = reader.read()) != null) {
+                    if (f.seqname().equals(seqname) && f.location().bioStart() <= bioEnd
+                            && f.location().bioEnd() >= bioStart) {
+                        features.add(f);
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return features;
+    }
+
+    // helper method that reads the file and records its chunks
+    private void build() throws IOException {
+        log.info("Indexing " + file);
+        GFFReader reader = new GFFReader(file);
+        try {
+            Chunk chunk = null;
+            String seqname = null;
+            Feature f;
+            while ((f = reader.read()) != null) {
+                if (chunk == null || chunk.features == CHUNK_FEATURES || !f.seqname().equals(seqname)) {
+                    seqname = f.seqname();
+                    chunk = new Chunk();
+                    chunk.offset = reader.getLineOffset();
+                    chunk.minStart = Integer.MAX_VALUE;
+                    chunk.maxEnd = Integer.MIN_VALUE;
+                    getChunks(seqname).add(chunk);
+                }
+                chunk.length = (int) (reader.getOffset() - chunk.offset);
+                chunk.minStart = Math.min(chunk.minStart, f.location().bioStart());
+                chunk.maxEnd = Math.max(chunk.maxEnd, f.location().bioEnd());
+                chunk.features++;
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    // helper method that reads an index file; returns false if it is stale or not an index
+    private boolean load(File indexFile) throws IOException {
+        BufferedReader br = new BufferedReader(new FileReader(indexFile));
+        try {
+            String[] header = split(br.readLine());
+            if (header.length != 4 || !header[0].equals(HEADER) || !header[1].equals("1")
+                    || Long.parseLong(header[2]) != length || Long.parseLong(header[3]) != modified) {
+                return false;
+            }
+            String s;
+            for (s = br.readLine(); null != s; s = br.readLine()) {
+                String[] fields = split(s);
+                Chunk chunk = new Chunk();
+                chunk.offset = Long.parseLong(fields[1]);
+                chunk.length = Integer.parseInt(fields[2]);
+                chunk.minStart = Integer.parseInt(fields[3]);
+                chunk.maxEnd = Integer.parseInt(fields[4]);
+                chunk.features = Integer.parseInt(fields[5]);
+                getChunks(fields[0]).add(chunk);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.warning("Ignoring unreadable index " + indexFile + ": " + e);
+            chunks.clear();
+            return false;
+        } finally {
+            br.close();
+        }
+    }
+
+    // helper method that writes an index file
+    private void write(File indexFile) throws IOException {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(indexFile));
+        try {
+            bw.write(HEADER + "\t1\t" + length + "\t" + modified);
+            bw.newLine();
+            for (Map.Entry<String, List<Chunk>> entry : chunks.entrySet()) {
+                for (Chunk chunk : entry.getValue()) {
+                    bw.write(entry.getKey() + "\t" + chunk.offset + "\t" + chunk.length + "\t" + chunk.minStart
+                            + "\t" + chunk.maxEnd + "\t" + chunk.features);
+                    bw.newLine();
+                }
+            }
+        } finally {
+            bw.close();
+        }
+    }
+
+    // helper method that returns the chunks of a sequence
+    private List<Chunk> getChunks(String seqname) {
+        List<Chunk> list = chunks.get(seqname);
+        if (list == null) {
+            list = new ArrayList<Chunk>();
+            chunks.put(seqname, list);
+        }
+        return list;
+    }
+
+    // helper method that splits a line of the index file on tabs
+    private static String[] split(String s) {
+        return (s == null) ? new String[0] : s.split("\t");
+    }
+
+}
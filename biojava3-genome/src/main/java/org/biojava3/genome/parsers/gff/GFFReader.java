@@ -0,0 +1,263 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava3.genome.parsers.gff;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads GFF and GTF formatted files one feature at a time, so an annotation can be processed without holding all of
+ * it in memory. Lines are parsed as in {@link GFF3#read(String)}: blank lines and comment lines are skipped, and
+ * reading stops at the end of the input or at a <code>##FASTA</code> directive.
+ * <br><br>
+ * Sequence names, sources and types repeat on nearly every line of an annotation, so each distinct value is kept
+ * once and shared by all the features read. The byte offsets of each line are tracked, which lets
+ * {@link GFFIndex} record where the features of each sequence are found in the file.
+ */
+public class GFFReader {
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 65536;
+
+    private InputStream in;
+    private Map<String, String> names;
+
+    private byte[] buffer = new byte[BUFFER_SIZE], line = new byte[256];
+    private int position, limit;
+    private long bufferOffset, lineOffset, offset;
+    private boolean done;
+
+    /**
+     * Opens a file for reading.
+     *
+     * @param file The GFF or GTF file.
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public GFFReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Prepares to read from a stream. The stream is closed by {@link #close()}.
+     *
+     * @param in The stream of GFF or GTF formatted lines.
+     */
+    public GFFReader(InputStream in) {
+        this(in, 0L, new HashMap<String, String>());
+    }
+
+    /**
+     * Prepares to read from a stream which starts at the given offset of a file, sharing names with other readers.
+     */
+    GFFReader(InputStream in, long offset, Map<String, String> names) {
+        this.in = in;
+        this.names = names;
+        bufferOffset = lineOffset = this.offset = offset;
+    }
+
+    /**
+     * Read the next feature.
+     *
+     * @return The next feature, or null at the end of the input.
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public Feature read() throws IOException {
+        String s;
+        while ((s = readLine()) != null) {
+            s = s.trim();
+            if (s.length() > 0) {
+                if (s.charAt(0) != '#') {
+                    return parseLine(s);
+                } else if (s.startsWith("##FASTA")) {
+                    //sequences follow, no more features
+                    done = true;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read all remaining features into a FeatureList.
+     *
+     * @return A FeatureList.
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public FeatureList readAll() throws IOException {
+        FeatureList features = new FeatureList();
+        Feature f;
+        while ((f = read()) != null) {
+            features.add(f);
+        }
+        return features;
+    }
+
+    /**
+     * Get the byte offset at which the line of the last feature read begins.
+     *
+     * @return The offset of the line.
+     */
+    public long getLineOffset() {
+        return lineOffset;
+    }
+
+    /**
+     * Get the byte offset just past the last line read.
+     *
+     * @return The offset of the next line.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Close the underlying stream.
+     *
+     * @throws IOException Something went wrong -- check exception detail message.
+     */
+    public void close() throws IOException {
+        done = true;
+        in.close();
+    }
+
+    // helper method that reads the next line without its terminator, or null at the end of the input
+    private String readLine() throws IOException {
+        if (done) {
+            return null;
+        }
+        lineOffset = offset;
+        int length = 0;
+        while (true) {
+            if (position == limit) {
+                bufferOffset += limit;
+                position = limit = 0;
+                int n = in.read(buffer);
+                if (n < 0) {
+                    done = true;
+                    if (length == 0) {
+                        return null;
+                    }
+                    break;
+                }
+                limit = n;
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int n = position - start;
+            if (length + n > line.length) {
+                byte[] longer = new byte[Math.max(2 * line.length, length + n)];
+                System.arraycopy(line, 0, longer, 0, length);
+                line = longer;
+            }
+            System.arraycopy(buffer, start, line, length, n);
+            length += n;
+            if (position < limit) {
+                position++; //skip newline
+                break;
+            }
+        }
+        offset = bufferOffset + position;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, CHARSET);
+    }
+
+    // helper method that shares one copy of each name
+    private String intern(String s) {
+        String name = names.get(s);
+        if (name == null) {
+            name = new String(s); //don't keep the whole line
+            names.put(name, name);
+        }
+        return name;
+    }
+
+    /**
+     * create Feature from line of GFF file
+     */
+    private Feature parseLine(String s) {
+        //FIXME better errors on parse failures
+
+        int start = 0;
+        int end = s.indexOf('\t', start);
+        String seqname = intern(s.substring(start, end).trim());
+
+        start = end + 1;
+        end = s.indexOf('\t', start);
+        String source = intern(s.substring(start, end).trim());
+
+        start = end + 1;
+        end = s.indexOf('\t', start);
+        String type = intern(s.substring(start, end));
+
+        start = end + 1;
+        end = s.indexOf('\t', start);
+        int locStart = Integer.parseInt(s.substring(start, end));
+
+        start = end + 1;
+        end = s.indexOf('\t', start);
+        int locEnd = Integer.parseInt(s.substring(start, end));
+
+        Double score;
+        start = end + 1;
+        end = s.indexOf('\t', start);
+        try {
+            score = Double.parseDouble(s.substring(start, end));
+        } catch (Exception e) {
+            score = 0.0;
+        }
+
+        start = end + 1;
+        end = s.indexOf('\t', start);
+        char strand = s.charAt(end - 1);
+
+        Location location = Location.fromBio(locStart, locEnd, strand);
+
+        assert (strand == '-') == location.isNegative();
+
+        int frame;
+        start = end + 1;
+        end = s.indexOf('\t', start);
+        try {
+            frame = Integer.parseInt(s.substring(start, end));
+        } catch (Exception e) {
+            frame = -1;
+        }
+
+        //grab everything until end of line (or # comment)
+        start = end + 1;
+        end = s.indexOf('#', start);
+        String attributes = new String((end < 0) ? s.substring(start) : s.substring(start, end));
+
+        return new Feature(seqname, source, type, location, score, frame, attributes);
+    }
+
+}
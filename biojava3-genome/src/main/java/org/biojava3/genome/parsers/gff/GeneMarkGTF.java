@@ -32,6 +32,8 @@ public class GeneMarkGTF {
 
     /**
      * Read a file into a FeatureList. Each line of the file becomes one Feature object.
+     * Use {@link GFFReader} to process a large file one feature at a time, or {@link GFFIndex}
+     * to read the features of a single sequence.
      *
      * @param filename The path to the GFF file.
      * @return A FeatureList.
@@ -40,99 +42,12 @@ public class GeneMarkGTF {
     public static FeatureList read(String filename) throws IOException {
         log.info("Gff.read(): Reading " + filename);
 
-        FeatureList features = new FeatureList();
-        BufferedReader br = new BufferedReader(new FileReader(filename));
-
-        String s;
-        for (s = br.readLine(); null != s; s = br.readLine()) {
-            s = s.trim();
-
-            if (s.length() > 0) {
-                if (s.charAt(0) == '#') {
-                    //ignore comment lines
-                } else {
-
-                    FeatureI f = parseLine(s);
-                    if (f != null) {
-                        features.add(f);
-                    }
-                }
-            }
-
-        }
-
-        br.close();
-        return features;
-    }
-
-    /**
-     * create Feature from line of GFF file
-     */
-    private static Feature parseLine(String s) {
-        //FIXME update to use regex split on tabs
-        //FIXME better errors on parse failures
-
-        int start = 0;
-        int end = 0;
-
-        start = end;
-        end = s.indexOf('\t', start);
-        String seqname = s.substring(start, end).trim();
-
-        start = end + 1;
-        end = s.indexOf('\t', start);
-        String source = s.substring(start, end).trim();
-
-        start = end + 1;
-        end = s.indexOf('\t', start);
-        String type = s.substring(start, end);
-
-        start = end + 1;
-        end = s.indexOf('\t', start);
-        String locStart = s.substring(start, end);
-
-        start = end + 1;
-        end = s.indexOf('\t', start);
-        String locEnd = s.substring(start, end);
-
-        Double score;
-        start = end + 1;
-        end = s.indexOf('\t', start);
-        try {
-            score = Double.parseDouble(s.substring(start, end));
-        } catch (Exception e) {
-            score = 0.0;
-        }
-
-        start = end + 1;
-        end = s.indexOf('\t', start);
-        char strand = s.charAt(end - 1);
-
-        Location location = Location.fromBio(Integer.parseInt(locStart), Integer.parseInt(locEnd), strand);
-
-        assert (strand == '-') == location.isNegative();
-
-        int frame;
-        start = end + 1;
-        end = s.indexOf('\t', start);
+        GFFReader reader = new GFFReader(new File(filename));
         try {
-            frame = Integer.parseInt(s.substring(start, end));
-        } catch (Exception e) {
-            frame = -1;
+            return reader.readAll();
+        } finally {
+            reader.close();
         }
-
-        //grab everything until end of line (or # comment)
-        start = end + 1;
-        end = s.indexOf('#', start);
-        String attributes = null;
-        if (end < 0) {
-            attributes = new String(s.substring(start));
-        } else {
-            attributes = new String(s.substring(start, end));
-        }
-
-        return new Feature(seqname, source, type, location, score, frame, attributes);
-
     }
 
     /**
@@ -5,60 +5,150 @@
 package org.biojava3.genome.query;
 
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Logger;
-import org.biojava3.core.util.XMLHelper;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 /**
+ * Queries a BLAST XML report. The report is streamed once per query instead of being loaded
+ * into memory, so reports of any size are read in constant memory.
  *
  * @author Scooter Willis <willishf at gmail dot com>
  */
 public class BlastXMLQuery {
     private static final Logger log = Logger.getLogger(BlastXMLQuery.class.getName());
-    Document blastDoc = null;
+    File blastFile = null;
+
+    /**
+     * Receives the HSPs of a report as it is read.
+     */
+    public interface HspListener {
+
+        /**
+         * Called for each HSP that passes the query filter. The maps hold the text of the simple
+         * elements of the enclosing Hit (such as Hit_id, Hit_def, Hit_accession and Hit_len) and of the
+         * Hsp (such as Hsp_bit-score, Hsp_evalue, Hsp_query-from and Hsp_hit-to), keyed by element name.
+         * The maps are reused and only valid during the call.
+         *
+         * @param querydef the Iteration_query-def of the enclosing iteration, or the
+         * BlastOutput_query-def of reports without one
+         * @param hit elements of the hit
+         * @param hsp elements of the HSP
+         * @throws Exception to stop reading the report
+         */
+        void hsp(String querydef, Map<String, String> hit, Map<String, String> hsp) throws Exception;
+    }
 
     public BlastXMLQuery(String blastFile) throws Exception {
-        log.info("Start read of " + blastFile);
-        blastDoc = XMLHelper.loadXML(blastFile);
-        log.info("Read finished");
+        this.blastFile = new File(blastFile);
+        if (!this.blastFile.isFile()) {
+            throw new FileNotFoundException(blastFile);
+        }
     }
 
     public LinkedHashMap<String, ArrayList<String>> getHitsQueryDef(double maxEScore) throws Exception {
-        LinkedHashMap<String, ArrayList<String>> hitsHashMap = new LinkedHashMap<String, ArrayList<String>>();
+        final LinkedHashMap<String, ArrayList<String>> hitsHashMap = new LinkedHashMap<String, ArrayList<String>>();
         log.info("Query for hits");
-        ArrayList<Element> elementList = XMLHelper.selectElements(blastDoc.getDocumentElement(), "BlastOutput_iterations/Iteration[Iteration_hits]");
-        log.info(elementList.size() + " hits");
+        query(maxEScore, new HspListener() {
+            @Override
+            public void hsp(String querydef, Map<String, String> hit, Map<String, String> hsp) {
+                ArrayList<String> hits = hitsHashMap.get(querydef);
+                if (hits == null) {
+                    hits = new ArrayList<String>();
+                    hitsHashMap.put(querydef, hits);
+                }
+                hits.add(hit.get("Hit_accession"));
+            }
+        });
+        log.info(hitsHashMap.size() + " queries with hits");
+        return hitsHashMap;
+    }
+
+    /**
+     * Reads the report and passes each HSP with an e-value of at most maxEScore to the listener.
+     * Iterations, hits and HSPs are discarded once read.
+     *
+     * @param maxEScore the greatest e-value passed on
+     * @param listener receives the HSPs
+     * @return the number of HSPs passed on
+     * @throws Exception
+     */
+    public int query(double maxEScore, HspListener listener) throws Exception {
+        log.info("Start read of " + blastFile);
+        long time = System.nanoTime();
+        int iterations = 0, hits = 0, hsps = 0, passed = 0;
 
-        for (Element element : elementList) {
-            Element iterationquerydefElement = XMLHelper.selectSingleElement(element, "Iteration_query-def");
-            String querydef = iterationquerydefElement.getTextContent();
-            Element iterationHitsElement = XMLHelper.selectSingleElement(element, "Iteration_hits");
-            ArrayList<Element> hitList = XMLHelper.selectElements(iterationHitsElement, "Hit");
-            for (Element hitElement : hitList) {
-                Element hitaccessionElement = XMLHelper.selectSingleElement(hitElement, "Hit_accession");
-                String hitaccession = hitaccessionElement.getTextContent();
-                Element hithspsElement = XMLHelper.selectSingleElement(hitElement, "Hit_hsps");
-                ArrayList<Element> hspList = XMLHelper.selectElements(hithspsElement, "Hsp");
-                for (Element hspElement : hspList) {
-                    Element evalueElement = XMLHelper.selectSingleElement(hspElement, "Hsp_evalue");
-                    String value = evalueElement.getTextContent();
-                    double evalue = Double.parseDouble(value);
-                    if (evalue <= maxEScore) {
-                        ArrayList<String> hits = hitsHashMap.get(querydef);
-                        if (hits == null) {
-                            hits = new ArrayList<String>();
-                            hitsHashMap.put(querydef, hits);
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        InputStream is = new BufferedInputStream(new FileInputStream(blastFile), 65536);
+        XMLStreamReader reader = factory.createXMLStreamReader(is);
+        try {
+            Map<String, String> hit = new HashMap<String, String>(), hsp = new HashMap<String, String>();
+            StringBuilder text = new StringBuilder();
+            String outputquerydef = null, querydef = null;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        text.setLength(0);
+                        String start = reader.getLocalName();
+                        if (start.equals("Iteration")) {
+                            iterations++;
+                            querydef = outputquerydef;
+                        } else if (start.equals("Hit")) {
+                            hits++;
+                            hit.clear();
+                        } else if (start.equals("Hsp")) {
+                            hsps++;
+                            hsp.clear();
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        String end = reader.getLocalName();
+                        if (end.equals("Hsp")) {
+                            String value = hsp.get("Hsp_evalue");
+                            if (value != null && Double.parseDouble(value) <= maxEScore) {
+                                passed++;
+                                listener.hsp(querydef, hit, hsp);
+                            }
+                        } else if (end.startsWith("Hsp_")) {
+                            hsp.put(end, text.toString());
+                        } else if (end.startsWith("Hit_")) {
+                            if (!end.equals("Hit_hsps")) {
+                                hit.put(end, text.toString());
+                            }
+                        } else if (end.equals("Iteration_query-def")) {
+                            querydef = text.toString();
+                        } else if (end.equals("BlastOutput_query-def")) {
+                            outputquerydef = text.toString();
                         }
-                        hits.add(hitaccession);
-                    }
+                        text.setLength(0);
+                        break;
                 }
             }
+        } finally {
+            reader.close();
+            is.close();
         }
 
-        return hitsHashMap;
+        double seconds = (System.nanoTime() - time) / 1e9;
+        log.info(String.format("Read %d iterations, %d hits and %d HSPs (%d passed) in %.2f s, %.1f MB/s",
+                iterations, hits, hsps, passed, seconds, blastFile.length() / 1048576.0 / Math.max(seconds, 1e-9)));
+        return passed;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,220 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.genome.parsers.gff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class FeatureIndexTest extends TestCase {
+
+    private static final String[] SEQNAMES = {"chr1", "chr2", "chr3"};
+
+    private Random random;
+    private FeatureList features;
+
+    protected void setUp() {
+        random = new Random(6L);
+        features = new FeatureList();
+        for (int i = 0; i < 2000; i++) {
+            features.add(randomFeature());
+        }
+    }
+
+    public void testSelectOverlapping() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            String seqname = SEQNAMES[random.nextInt(SEQNAMES.length)];
+            Location location = randomLocation();
+            for (boolean both : new boolean[] {false, true}) {
+                FeatureList expected = new FeatureList();
+                for (FeatureI f : features) {
+                    if (f.seqname().equals(seqname) && (location.isSameStrand(f.location())
+                            ? f.location().overlaps(location)
+                            : both && f.location().overlaps(location.opposite()))) {
+                        expected.add(f);
+                    }
+                }
+                assertEquals(expected, features.selectOverlapping(seqname, location, both));
+                FeatureList omitted = features.omitOverlapping(seqname, location, both);
+                assertEquals(features.size(), expected.size() + omitted.size());
+                for (FeatureI f : expected) {
+                    assertFalse(omitted.contains(f));
+                }
+            }
+        }
+    }
+
+    public void testContainment() {
+        FeatureIndex index = features.index();
+        for (int i = 0; i < 200; i++) {
+            String seqname = SEQNAMES[random.nextInt(SEQNAMES.length)];
+            Location location = randomLocation();
+            FeatureList containedBy = new FeatureList(), containing = new FeatureList();
+            for (FeatureI f : features) {
+                if (f.seqname().equals(seqname) && location.isSameStrand(f.location())) {
+                    if (location.contains(f.location())) {
+                        containedBy.add(f);
+                    }
+                    if (f.location().contains(location)) {
+                        containing.add(f);
+                    }
+                }
+            }
+            assertEquals(containedBy, index.selectContainedBy(seqname, location, false));
+            assertEquals(containing, index.selectContaining(seqname, location, false));
+        }
+    }
+
+    public void testNearest() {
+        FeatureIndex index = features.index();
+        for (int i = 0; i < 200; i++) {
+            String seqname = SEQNAMES[random.nextInt(SEQNAMES.length)];
+            Location location = randomLocation();
+            int best = Integer.MAX_VALUE;
+            for (FeatureI f : features) {
+                if (f.seqname().equals(seqname) && location.isSameStrand(f.location())) {
+                    best = Math.min(best, location.distance(f.location()));
+                }
+            }
+            FeatureI nearest = index.nearest(seqname, location, false);
+            assertEquals(best, location.distance(nearest.location()));
+        }
+        assertNull(index.nearest("chrX", new Location(10, 20), true));
+    }
+
+    public void testNearestEqualEnds() {
+        FeatureList list = new FeatureList();
+        list.add(new Feature("chr1", "test", "exon", new Location(80, 100), 0.0, 0, "ID=a"));
+        list.add(new Feature("chr1", "test", "exon", new Location(50, 100), 0.0, 0, "ID=b"));
+        list.add(new Feature("chr1", "test", "exon", new Location(60, 100), 0.0, 0, "ID=c"));
+        list.add(new Feature("chr1", "test", "exon", new Location(200, 300), 0.0, 0, "ID=d"));
+        list.add(new Feature("chr1", "test", "exon", new Location(200, 250), 0.0, 0, "ID=e"));
+        FeatureIndex index = list.index();
+        // all three end at the same distance before the location
+        assertSame(list.get(0), index.nearest("chr1", new Location(120, 130), false));
+        // the features starting at the same distance after the location
+        assertSame(list.get(3), index.nearest("chr1", new Location(170, 180), false));
+        // a tie between a feature before and one after the location
+        assertSame(list.get(0), index.nearest("chr1", new Location(150, 150), false));
+    }
+
+    public void testIndexRebuilt() throws Exception {
+        FeatureIndex index = features.index();
+        assertSame(index, features.index());
+        assertEquals(features.size(), index.size());
+        Feature f = new Feature("chr4", "test", "exon", new Location(5, 10), 0.0, 0, "ID=new");
+        features.add(f);
+        assertNotSame(index, features.index());
+        assertEquals(1, features.selectOverlapping("chr4", new Location(0, 6), false).size());
+        features.set(features.size() - 1, randomFeature());
+        assertEquals(0, features.selectOverlapping("chr4", new Location(0, 6), false).size());
+    }
+
+    public void testJoin() {
+        FeatureList other = new FeatureList();
+        for (int i = 0; i < 500; i++) {
+            other.add(randomFeature());
+        }
+        List<String> expected = new ArrayList<String>(), found = new ArrayList<String>();
+        for (FeatureI a : features) {
+            for (FeatureI b : other) {
+                if (a.seqname().equals(b.seqname()) && a.location().isSameStrand(b.location())
+                        && a.location().overlaps(b.location())) {
+                    expected.add(a + "|" + b);
+                }
+            }
+        }
+        final List<String> pairs = found;
+        FeatureIndex.join(sorted(features).iterator(), sorted(other).iterator(), new FeatureIndex.OverlapListener() {
+            public void overlap(FeatureI a, FeatureI b) {
+                pairs.add(a + "|" + b);
+            }
+        });
+        Collections.sort(expected);
+        Collections.sort(found);
+        assertEquals(expected, found);
+    }
+
+    public void testJoinInterleavedStrands() {
+        // sorted by position as in a GFF file, so the signed starts of the minus strand features decrease
+        List<FeatureI> a = new ArrayList<FeatureI>(), b = new ArrayList<FeatureI>();
+        a.add(feature("chr1", Location.fromBio(100, 200, '+')));
+        a.add(feature("chr1", Location.fromBio(150, 300, '-')));
+        a.add(feature("chr1", Location.fromBio(400, 500, '-')));
+        b.add(feature("chr1", Location.fromBio(120, 160, '-')));
+        b.add(feature("chr1", Location.fromBio(180, 190, '+')));
+        b.add(feature("chr1", Location.fromBio(250, 450, '-')));
+        b.add(feature("chr1", Location.fromBio(480, 600, '+')));
+        final List<String> pairs = new ArrayList<String>();
+        FeatureIndex.join(a.iterator(), b.iterator(), new FeatureIndex.OverlapListener() {
+            public void overlap(FeatureI fa, FeatureI fb) {
+                pairs.add(fa.location().bioStart() + "|" + fb.location().bioStart());
+            }
+        });
+        assertEquals(Arrays.asList("100|180", "150|120", "150|250", "400|250"), pairs);
+    }
+
+    public void testJoinUnsorted() {
+        List<FeatureI> a = new ArrayList<FeatureI>(features);
+        try {
+            FeatureIndex.join(a.iterator(), sorted(features).iterator(), new FeatureIndex.OverlapListener() {
+                public void overlap(FeatureI a, FeatureI b) {
+                }
+            });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private List<FeatureI> sorted(List<FeatureI> list) {
+        List<FeatureI> sorted = new ArrayList<FeatureI>(list);
+        Collections.sort(sorted, new Comparator<FeatureI>() {
+            public int compare(FeatureI a, FeatureI b) {
+                int order = a.seqname().compareTo(b.seqname());
+                return (order != 0) ? order : a.location().bioStart() - b.location().bioStart();
+            }
+        });
+        return sorted;
+    }
+
+    private Feature feature(String seqname, Location location) {
+        return new Feature(seqname, "test", "exon", location, 0.0, 0, "ID=f" + location.bioStart());
+    }
+
+    private Feature randomFeature() {
+        return new Feature(SEQNAMES[random.nextInt(SEQNAMES.length)], "test", "exon", randomLocation(), 0.0, 0,
+                "ID=f" + random.nextInt());
+    }
+
+    private Location randomLocation() {
+        int start = random.nextInt(100000), length = 1 + random.nextInt(random.nextInt(10) == 0 ? 5000 : 300);
+        Location location = new Location(start, start + length);
+        return random.nextBoolean() ? location : location.opposite();
+    }
+
+}
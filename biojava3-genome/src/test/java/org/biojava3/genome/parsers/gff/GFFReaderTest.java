@@ -0,0 +1,137 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava3.genome.parsers.gff;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class GFFReaderTest extends TestCase {
+
+    private static final String[] SEQNAMES = {"chr1", "chr2", "chr3"};
+
+    private File file;
+    private FeatureList features;
+
+    protected void setUp() throws IOException {
+        Random random = new Random(15L);
+        file = File.createTempFile("GFFReaderTest", ".gff");
+        features = new FeatureList();
+        Writer out = new FileWriter(file);
+        out.write("##gff-version 3\n");
+        for (int i = 0; i < 5000; i++) {
+            // mostly grouped by sequence, with a few strays
+            String seqname = SEQNAMES[random.nextInt(20) == 0 ? random.nextInt(3) : 3 * i / 5000];
+            int start = 1 + random.nextInt(100000), end = start + random.nextInt(2000);
+            char strand = random.nextBoolean() ? '+' : '-';
+            String attributes = "ID=f" + i + ";Parent=g" + (i / 4);
+            features.add(new Feature(seqname, "test", "exon", Location.fromBio(start, end, strand), 0.0, 0,
+                    attributes));
+            out.write(seqname + "\ttest\texon\t" + start + "\t" + end + "\t.\t" + strand + "\t0\t" + attributes
+                    + ((i % 7 == 0) ? "\r\n" : "\n"));
+            if (i % 1000 == 0) {
+                out.write("# comment\n\n");
+            }
+        }
+        out.write("##FASTA\n>chr1\nACGT\n");
+        out.close();
+    }
+
+    protected void tearDown() {
+        GFFIndex.getIndexFile(file).delete();
+        file.delete();
+    }
+
+    public void testRead() throws IOException {
+        FeatureList read = GFF3.read(file.getPath());
+        assertEquals(features.toString(), read.toString());
+        FeatureI first = read.get(0);
+        for (FeatureI f : read) {
+            if (f.seqname().equals(first.seqname())) {
+                assertSame(first.seqname(), f.seqname());
+            }
+            assertSame(first.type(), f.type());
+            assertSame(((Feature) first).source(), ((Feature) f).source());
+        }
+        assertEquals("g1", ((Feature) read.get(5)).getAttribute("Parent"));
+    }
+
+    public void testOffsets() throws IOException {
+        String text = "a\tb\tc\t1\t2\t.\t+\t.\tID=x\r\n#\nd\te\tf\t3\t4\t.\t-\t.\tID=y";
+        GFFReader reader = new GFFReader(new ByteArrayInputStream(text.getBytes("UTF-8")));
+        assertEquals("a", reader.read().seqname());
+        assertEquals(0L, reader.getLineOffset());
+        assertEquals(22L, reader.getOffset());
+        Feature f = reader.read();
+        assertEquals("d", f.seqname());
+        assertTrue(f.location().isNegative());
+        assertEquals(24L, reader.getLineOffset());
+        assertEquals(text.length(), reader.getOffset());
+        assertNull(reader.read());
+        reader.close();
+    }
+
+    public void testIndex() throws IOException {
+        GFFIndex index = GFFIndex.open(file);
+        assertTrue(GFFIndex.getIndexFile(file).isFile());
+        assertEquals(3, index.getSeqnames().size());
+        checkIndex(index);
+        checkIndex(GFFIndex.open(file));
+        assertEquals(0, index.getFeatures("chrX").size());
+    }
+
+    public void testStaleIndex() throws IOException {
+        GFFIndex.create(file);
+        Writer out = new FileWriter(file);
+        out.write("chr4\ttest\texon\t1\t2\t.\t+\t0\tID=z\n");
+        out.close();
+        assertTrue(file.setLastModified(file.lastModified() + 2000L));
+        GFFIndex index = GFFIndex.open(file);
+        assertEquals(1, index.getSeqnames().size());
+        assertEquals(1, index.getFeatures("chr4").size());
+    }
+
+    // checks the indexed features against a scan of the whole list
+    private void checkIndex(GFFIndex index) throws IOException {
+        int[][] regions = {{Integer.MIN_VALUE, Integer.MAX_VALUE}, {500, 600}, {50000, 50000}, {1, 1}};
+        for (String seqname : SEQNAMES) {
+            for (int[] region : regions) {
+                FeatureList expected = new FeatureList();
+                for (FeatureI f : features) {
+                    if (f.seqname().equals(seqname) && f.location().bioStart() <= region[1]
+                            && f.location().bioEnd() >= region[0]) {
+                        expected.add(f);
+                    }
+                }
+                assertEquals(expected.toString(), index.getFeatures(seqname, region[0], region[1]).toString());
+            }
+            assertEquals(index.getFeatures(seqname).size(), index.size(seqname));
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava3.genome.query;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class BlastXMLQueryTest extends TestCase {
+
+    private File file;
+    private LinkedHashMap<String, ArrayList<String>> expected;
+
+    protected void setUp() throws IOException {
+        file = File.createTempFile("BlastXMLQueryTest", ".xml");
+        expected = new LinkedHashMap<String, ArrayList<String>>();
+        Writer out = new FileWriter(file);
+        out.write("<?xml version=\"1.0\"?>\n");
+        out.write("<!DOCTYPE BlastOutput PUBLIC \"-//NCBI//NCBI BlastOutput/EN\" \"NCBI_BlastOutput.dtd\">\n");
+        out.write("<BlastOutput>\n  <BlastOutput_query-def>first</BlastOutput_query-def>\n");
+        out.write("  <BlastOutput_iterations>\n");
+        for (int i = 0; i < 50; i++) {
+            String querydef = "gene" + i + " &amp; more";
+            out.write("    <Iteration>\n      <Iteration_iter-num>" + (i + 1) + "</Iteration_iter-num>\n");
+            out.write("      <Iteration_query-def>" + querydef + "</Iteration_query-def>\n");
+            if (i % 5 != 0) {
+                out.write("      <Iteration_hits>\n");
+                for (int j = 0; j < i % 4; j++) {
+                    String accession = "P" + i + "_" + j;
+                    out.write("        <Hit>\n          <Hit_accession>" + accession + "</Hit_accession>\n");
+                    out.write("          <Hit_hsps>\n");
+                    for (int k = 0; k < 3; k++) {
+                        int exponent = -((i + j + k) % 20);
+                        out.write("            <Hsp>\n              <Hsp_num>" + (k + 1) + "</Hsp_num>\n");
+                        out.write("              <Hsp_evalue>1e" + exponent + "</Hsp_evalue>\n");
+                        out.write("            </Hsp>\n");
+                        if (exponent <= -10) {
+                            String key = "gene" + i + " & more";
+                            if (!expected.containsKey(key)) {
+                                expected.put(key, new ArrayList<String>());
+                            }
+                            expected.get(key).add(accession);
+                        }
+                    }
+                    out.write("          </Hit_hsps>\n        </Hit>\n");
+                }
+                out.write("      </Iteration_hits>\n");
+            }
+            out.write("      <Iteration_stat>\n        <Statistics>\n          <Statistics_db-num>1</Statistics_db-num>\n");
+            out.write("        </Statistics>\n      </Iteration_stat>\n    </Iteration>\n");
+        }
+        out.write("  </BlastOutput_iterations>\n</BlastOutput>\n");
+        out.close();
+    }
+
+    protected void tearDown() {
+        file.delete();
+    }
+
+    public void testGetHitsQueryDef() throws Exception {
+        BlastXMLQuery query = new BlastXMLQuery(file.getPath());
+        assertEquals(expected, query.getHitsQueryDef(1e-10));
+        assertEquals(0, query.getHitsQueryDef(-1.0).size());
+    }
+
+    public void testQuery() throws Exception {
+        final StringBuilder seen = new StringBuilder();
+        int passed = new BlastXMLQuery(file.getPath()).query(1.0, new BlastXMLQuery.HspListener() {
+            public void hsp(String querydef, Map<String, String> hit, Map<String, String> hsp) {
+                if (querydef.startsWith("gene1 ")) {
+                    seen.append(hit.get("Hit_accession")).append(':').append(hsp.get("Hsp_num")).append(' ');
+                }
+            }
+        });
+        assertEquals("P1_0:1 P1_0:2 P1_0:3 ", seen.toString());
+        int hsps = 0;
+        for (int i = 0; i < 50; i++) {
+            hsps += (i % 5 != 0) ? 3 * (i % 4) : 0;
+        }
+        assertEquals(hsps, passed);
+    }
+
+}
@@ -0,0 +1,757 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.phylo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.biojava3.core.util.ConcurrencyTools;
+import org.forester.phylogeny.Phylogeny;
+import org.forester.phylogeny.PhylogenyNode;
+import org.forester.phylogenyinference.DistanceMatrix;
+
+/**
+ * Builds a neighbor joining tree from a symmetric distance matrix stored as a packed upper triangle of doubles.  Row
+ * i of the triangle holds the distances from i to i + 1 through n - 1, so the matrix takes half the memory of
+ * {@link DistanceMatrix}.  The triangle is updated in place: each joined pair is replaced by its new node in the slot
+ * of the first of the pair.
+ *
+ * The pair to join is found with the bounds of RapidNJ (Simonsen, Mailund and Pedersen, 2008).  Each row of
+ * distances is sorted once, and a row is only scanned until no later pair in it can beat the best one found so far.
+ * The result is the same as that of a full search of every pair, which can be chosen with {@link #setHeuristic}.
+ * Searches of large matrices can also be spread across the shared thread pool of {@link ConcurrencyTools}.
+ *
+ * The sum of the distances of each node is updated at each join, with Kahan compensation, rather than added up
+ * again.  The forester {@link org.forester.phylogenyinference.NeighborJoining} adds them up again, so its sums can
+ * differ from the updated ones in the last bits.  To build the same tree, the pairs whose Q values from the updated
+ * sums are within rounding of the least one are compared again with sums added up as forester does, and ties are
+ * broken in favor of the same pair.  Distances and branch lengths are computed in the same order and precision as
+ * by forester, so the tree and its branch lengths are identical to the ones it builds.
+ *
+ * When two nodes remain they are joined at a root halfway between them, and the resulting tree is returned either as
+ * a {@link Phylogeny} or written directly in Newick format.
+ */
+public class FastNeighborJoining {
+
+    // fewest remaining nodes for which a parallel search is worth the cost of scheduling it
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    // rows of remaining nodes searched by a single task
+    private static final int ROWS_PER_TASK = 256;
+
+    // input fields
+    private final String[] identifiers;
+    private final double[] distances;
+    private final int size;
+    private boolean heuristic = true, parallel, verbose;
+    private NJTreeProgressListener listener;
+
+    // working fields
+    private boolean[] alive;
+    private int[] slotNodes, born, built;
+    private int[][] rows;
+    private double[] sums, compensations, exactSums;
+    private int[] exactSteps;
+    private int remaining, step;
+
+    // output fields: leaves are nodes 0 to n - 1, each join adds the next node and the last node is the root
+    private int[] left, right;
+    private double[] lengths;
+    private int root = -1;
+
+    /**
+     * Prepares to build a tree.  The given distances are overwritten while the tree is built.
+     *
+     * @param identifiers names of the leaves
+     * @param distances packed upper triangle of the distance matrix, as returned by {@link #pack(double[][])}
+     * @throws IllegalArgumentException if the number of distances does not match the number of identifiers
+     */
+    public FastNeighborJoining(String[] identifiers, double[] distances) {
+        if (distances.length != getPackedLength(identifiers.length)) {
+            throw new IllegalArgumentException(String.format("%d leaves need %d distances, not %d",
+                    identifiers.length, getPackedLength(identifiers.length), distances.length));
+        }
+        this.identifiers = identifiers;
+        this.distances = distances;
+        size = identifiers.length;
+    }
+
+    /**
+     * Prepares to build a tree from a square distance matrix.
+     *
+     * @param identifiers names of the leaves
+     * @param matrix distance matrix of which only the upper triangle is read
+     */
+    public FastNeighborJoining(String[] identifiers, double[][] matrix) {
+        this(identifiers, pack(matrix));
+    }
+
+    /**
+     * Prepares to build a tree from a forester {@link DistanceMatrix}.
+     *
+     * @param matrix distance matrix of which only the upper triangle is read
+     */
+    public FastNeighborJoining(DistanceMatrix matrix) {
+        this(getIdentifiers(matrix), pack(matrix));
+    }
+
+    /**
+     * Returns the number of doubles in the packed upper triangle of a distance matrix.
+     *
+     * @param size number of rows of the matrix
+     * @return size * (size - 1) / 2
+     * @throws IllegalArgumentException if the triangle would not fit in a single array
+     */
+    public static int getPackedLength(int size) {
+        long length = (long) size * (size - 1) / 2;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Distance matrix of " + size + " rows is too large to pack");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Returns the position of a distance in the packed upper triangle of a distance matrix.
+     *
+     * @param size number of rows of the matrix
+     * @param i row or column of the distance
+     * @param j column or row of the distance, not equal to i
+     * @return position in the packed array
+     */
+    public static int getPackedIndex(int size, int i, int j) {
+        if (i > j) {
+            return getPackedIndex(size, j, i);
+        }
+        return getRowStart(size, i) + j - i - 1;
+    }
+
+    /**
+     * Packs the upper triangle of a square distance matrix.
+     *
+     * @param matrix square distance matrix
+     * @return packed upper triangle
+     */
+    public static double[] pack(double[][] matrix) {
+        double[] packed = new double[getPackedLength(matrix.length)];
+        for (int i = 0, index = 0; i < matrix.length; i++) {
+            for (int j = i + 1; j < matrix.length; j++) {
+                packed[index++] = matrix[i][j];
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Packs the upper triangle of a forester {@link DistanceMatrix}.
+     *
+     * @param matrix distance matrix
+     * @return packed upper triangle
+     */
+    public static double[] pack(DistanceMatrix matrix) {
+        int n = matrix.getSize();
+        double[] packed = new double[getPackedLength(n)];
+        for (int i = 0, index = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                packed[index++] = matrix.getValue(j, i);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Returns whether the bounded search is used to find each pair to join.
+     *
+     * @return true by default
+     */
+    public boolean isHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Sets whether the bounded search is used to find each pair to join.  Without it, every pair is checked.  Either
+     * way gives the same tree.
+     *
+     * @param heuristic true to use the bounded search
+     */
+    public void setHeuristic(boolean heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Returns whether large searches are spread across the shared thread pool.
+     *
+     * @return false by default
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets whether large searches are spread across the shared thread pool of {@link ConcurrencyTools}.
+     *
+     * @param parallel true to search in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns whether each join is printed to standard output.
+     *
+     * @return false by default
+     */
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    /**
+     * Sets whether each join is printed to standard output.
+     *
+     * @param verbose true to print each join
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Sets a listener told of each join.
+     *
+     * @param listener listener of progress, or null for none
+     */
+    public void setProgressListener(NJTreeProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Builds the tree.  Does nothing if the tree is already built.
+     */
+    public void process() {
+        if (root >= 0 || size == 0) {
+            return;
+        }
+        left = new int[2 * size - 1];
+        right = new int[2 * size - 1];
+        lengths = new double[2 * size - 1];
+        Arrays.fill(left, -1);
+        Arrays.fill(right, -1);
+        if (size == 1) {
+            root = 0;
+            return;
+        }
+
+        alive = new boolean[size];
+        slotNodes = new int[size];
+        born = new int[size];
+        built = new int[size];
+        sums = new double[size];
+        compensations = new double[size];
+        exactSums = new double[size];
+        exactSteps = new int[size];
+        Arrays.fill(alive, true);
+        for (int i = 0; i < size; i++) {
+            slotNodes[i] = i;
+        }
+        if (heuristic) {
+            sortRows();
+        }
+
+        int next = size;
+        remaining = size;
+        sumRows();
+        for (step = 1; remaining > 2; remaining--, step++) {
+            Candidate best = findPair();
+            join(best.a, best.b, next++);
+            if (listener != null) {
+                listener.progress(this, "Joining Nodes", step, size - 2);
+            }
+        }
+
+        // joins the last two nodes at a root halfway between them
+        int a = -1, b = -1;
+        for (int i = 0; i < size; i++) {
+            if (alive[i]) {
+                if (a < 0) {
+                    a = i;
+                } else {
+                    b = i;
+                }
+            }
+        }
+        double d = distances[getPackedIndex(size, a, b)];
+        root = next;
+        left[root] = slotNodes[a];
+        right[root] = slotNodes[b];
+        lengths[slotNodes[a]] = lengths[slotNodes[b]] = d / 2;
+
+        // release working memory
+        alive = null;
+        slotNodes = born = built = null;
+        rows = null;
+        sums = compensations = exactSums = null;
+        exactSteps = null;
+    }
+
+    /**
+     * Returns the tree as a forester {@link Phylogeny}, which is written by
+     * {@link org.forester.io.writers.PhylogenyWriter} as before.  Builds the tree first, if necessary.
+     *
+     * @return the tree, or null if there are no leaves
+     */
+    public Phylogeny getPhylogeny() {
+        process();
+        if (root < 0) {
+            return null;
+        }
+        PhylogenyNode[] nodes = new PhylogenyNode[root + 1];
+        for (int i = 0; i <= root; i++) {
+            nodes[i] = new PhylogenyNode();
+            if (i < size) {
+                nodes[i].setName(identifiers[i]);
+            }
+        }
+        for (int i = size; i <= root; i++) {
+            nodes[i].addAsChild(nodes[left[i]]);
+            nodes[i].addAsChild(nodes[right[i]]);
+        }
+        for (int i = 0; i < root; i++) {
+            nodes[i].setDistanceToParent(lengths[i]);
+        }
+        Phylogeny phylogeny = new Phylogeny();
+        phylogeny.setRoot(nodes[root]);
+        phylogeny.setRooted(false);
+        return phylogeny;
+    }
+
+    /**
+     * Returns the tree in Newick format.  Builds the tree first, if necessary.
+     *
+     * @param writeDistanceToParent whether to write the length of each branch
+     * @return the tree in Newick format, or an empty String if there are no leaves
+     */
+    public String getNewickString(boolean writeDistanceToParent) {
+        process();
+        StringBuilder s = new StringBuilder();
+        if (root < 0) {
+            return s.toString();
+        }
+        // writes without recursion, since trees of many leaves can be very deep
+        int[] stack = new int[2 * (root + 1)];
+        int top = 0, separator = -(root + 2);
+        stack[top++] = root;
+        while (top > 0) {
+            int entry = stack[--top];
+            if (entry < 0) {
+                // a node whose children have been written
+                int node = ~entry;
+                s.append(')');
+                appendLength(s, node, writeDistanceToParent);
+            } else if (entry < size) {
+                s.append(identifiers[entry]);
+                appendLength(s, entry, writeDistanceToParent);
+            } else {
+                s.append('(');
+                stack[top++] = ~entry;
+                stack[top++] = right[entry];
+                stack[top++] = separator;
+                stack[top++] = left[entry];
+            }
+            if (top > 0 && stack[top - 1] == separator) {
+                top--;
+                s.append(',');
+            }
+        }
+        return s.append(';').toString();
+    }
+
+    // helper method that appends the length of the branch to the parent of a node
+    private void appendLength(StringBuilder s, int node, boolean writeDistanceToParent) {
+        if (writeDistanceToParent && node != root) {
+            s.append(':').append(lengths[node]);
+        }
+    }
+
+    // helper method that returns the position in the packed triangle of the distance from row i to column i + 1
+    private static int getRowStart(int size, int i) {
+        return (int) ((long) i * (2 * size - i - 1) / 2);
+    }
+
+    // helper method that returns the names of the rows of a forester distance matrix
+    private static String[] getIdentifiers(DistanceMatrix matrix) {
+        String[] identifiers = new String[matrix.getSize()];
+        for (int i = 0; i < identifiers.length; i++) {
+            identifiers[i] = matrix.getIdentifier(i);
+        }
+        return identifiers;
+    }
+
+    // adds up the distances from each live slot to all others, in the order of the slots
+    private void sumRows() {
+        if (parallel && remaining >= PARALLEL_THRESHOLD) {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int start = 0; start < size; start += ROWS_PER_TASK) {
+                final int from = start, to = Math.min(start + ROWS_PER_TASK, size);
+                futures.add(ConcurrencyTools.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        sumRows(from, to);
+                        return null;
+                    }
+                }, "Summing distances"));
+            }
+            getAll(futures);
+        } else {
+            sumRows(0, size);
+        }
+    }
+
+    // adds up the distances from each live slot in the given rows
+    private void sumRows(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (alive[i]) {
+                sums[i] = addRow(i);
+                compensations[i] = 0;
+            }
+        }
+    }
+
+    // adds up the distances from a live slot to all others in the order of the slots, as forester does
+    private double addRow(int i) {
+        double sum = 0;
+        for (int k = 0; k < i; k++) {
+            if (alive[k]) {
+                sum += distances[getPackedIndex(size, k, i)];
+            }
+        }
+        for (int k = i + 1, index = getRowStart(size, i); k < size; k++, index++) {
+            if (alive[k]) {
+                sum += distances[index];
+            }
+        }
+        return sum;
+    }
+
+    // returns the sum of the distances of a slot as forester adds it up, which also replaces the updated sum
+    private double getExactSum(int i) {
+        if (exactSteps[i] != step) {
+            exactSums[i] = sums[i] = addRow(i);
+            compensations[i] = 0;
+            exactSteps[i] = step;
+        }
+        return exactSums[i];
+    }
+
+    // adds a value to the sum of the distances of a slot, compensating for the rounding of earlier additions
+    private void addToSum(int i, double value) {
+        double y = value - compensations[i];
+        double t = sums[i] + y;
+        compensations[i] = (t - sums[i]) - y;
+        sums[i] = t;
+    }
+
+    // sorts each initial row of distances: row i lists the slots after i in increasing order of distance
+    private void sortRows() {
+        rows = new int[size][];
+        if (parallel && size >= PARALLEL_THRESHOLD) {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int start = 0; start < size; start += ROWS_PER_TASK) {
+                final int from = start, to = Math.min(start + ROWS_PER_TASK, size);
+                futures.add(ConcurrencyTools.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = from; i < to; i++) {
+                            rows[i] = sortRow(i, i + 1);
+                        }
+                        return null;
+                    }
+                }, "Sorting distances"));
+            }
+            getAll(futures);
+        } else {
+            for (int i = 0; i < size; i++) {
+                rows[i] = sortRow(i, i + 1);
+            }
+        }
+    }
+
+    // returns the live slots from the given one onwards, other than i, in increasing order of distance from slot i
+    private int[] sortRow(int i, int from) {
+        int count = 0;
+        for (int j = from; j < size; j++) {
+            if (j != i && alive[j]) {
+                count++;
+            }
+        }
+        // sorts distance, rounded down to a float, and slot together as a single key; floats are made to compare
+        // correctly as ints
+        long[] keys = new long[count];
+        for (int j = from, k = 0; j < size; j++) {
+            if (j != i && alive[j]) {
+                int bits = Float.floatToIntBits(getLowerBound(distances[getPackedIndex(size, i, j)]));
+                bits ^= (bits >> 31) & 0x7fffffff;
+                keys[k++] = ((long) bits << 32) | j;
+            }
+        }
+        Arrays.sort(keys);
+        int[] row = new int[count];
+        for (int k = 0; k < count; k++) {
+            row[k] = (int) keys[k];
+        }
+        return row;
+    }
+
+    // helper method that returns the greatest float not above the given distance
+    private static float getLowerBound(double d) {
+        float f = (float) d;
+        return (f > d) ? Math.nextAfter(f, Double.NEGATIVE_INFINITY) : f;
+    }
+
+    // helper method that returns the Q value of a pair as forester computes it: their distance less the sums of
+    // their distances to all others divided by n - 2
+    private double getQ(double d, int a, int b) {
+        return d - (sums[a] + sums[b]) / (remaining - 2);
+    }
+
+    // finds the pair with the least Q value
+    private Candidate findPair() {
+        double maxSum = Double.NEGATIVE_INFINITY, scale = 0;
+        for (int i = 0; i < size; i++) {
+            if (alive[i]) {
+                maxSum = Math.max(maxSum, sums[i]);
+                scale = Math.max(scale, Math.abs(sums[i]));
+            }
+        }
+        // pairs within this much of the least Q value may be the least one with the sums of forester
+        double tolerance = 1e-9 * (1 + 2 * scale / (remaining - 2));
+        // starts from the closest pair in each row, which bounds the search of every row from the outset
+        final Candidates seed = new Candidates(tolerance);
+        if (heuristic) {
+            for (int i = 0; i < size; i++) {
+                if (alive[i]) {
+                    for (int j : rows[i]) {
+                        if (alive[j] && born[j] <= built[i]) {
+                            int a = Math.min(i, j), b = Math.max(i, j);
+                            seed.offer(getQ(distances[getPackedIndex(size, a, b)], a, b), a, b);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        Candidates found;
+        if (!parallel || remaining < PARALLEL_THRESHOLD) {
+            found = search(0, size, maxSum, seed);
+        } else {
+            List<Future<Candidates>> futures = new ArrayList<Future<Candidates>>();
+            for (int start = 0; start < size; start += ROWS_PER_TASK) {
+                final int from = start, to = Math.min(start + ROWS_PER_TASK, size);
+                final double max = maxSum;
+                futures.add(ConcurrencyTools.submit(new Callable<Candidates>() {
+                    @Override
+                    public Candidates call() {
+                        return search(from, to, max, seed);
+                    }
+                }, "Searching for pair to join"));
+            }
+            found = seed.copy();
+            for (Candidates candidates : getAll(futures)) {
+                found.addAll(candidates);
+            }
+        }
+
+        // compares the pairs which may have the least Q value with the sums of forester
+        Candidate best = new Candidate();
+        int n2 = remaining - 2;
+        for (int k = 0; k < found.count; k++) {
+            if (found.qs[k] <= found.q + tolerance) {
+                int a = found.as[k], b = found.bs[k];
+                double d = distances[getPackedIndex(size, a, b)];
+                best.offer(d - (getExactSum(a) + getExactSum(b)) / n2, a, b);
+            }
+        }
+        return best;
+    }
+
+    // searches the pairs which start from the given rows
+    private Candidates search(int from, int to, double maxSum, Candidates seed) {
+        Candidates best = seed.copy();
+        int n2 = remaining - 2;
+        for (int i = from; i < to; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            if (heuristic) {
+                double bound = (sums[i] + maxSum) / n2;
+                for (int j : rows[i]) {
+                    if (!alive[j] || born[j] > built[i]) {
+                        continue; // joined since, or its own row holds this pair
+                    }
+                    double d = distances[getPackedIndex(size, i, j)], low = getLowerBound(d);
+                    // slack keeps pairs which differ from the best only by rounding, so ties resolve as in a full search
+                    if (low - bound > best.q + best.tolerance + 1e-9 * (1 + Math.abs(low) + Math.abs(bound))) {
+                        break;
+                    }
+                    int a = Math.min(i, j), b = Math.max(i, j);
+                    best.offer(getQ(d, a, b), a, b);
+                }
+            } else {
+                for (int j = i + 1, index = getRowStart(size, i); j < size; j++, index++) {
+                    if (alive[j]) {
+                        best.offer(getQ(distances[index], i, j), i, j);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // joins the nodes in slots a and b into a new node, which takes slot a
+    private void join(int a, int b, int node) {
+        double d = distances[getPackedIndex(size, a, b)];
+        double la = d / 2 + (getExactSum(a) - getExactSum(b)) / (2 * (remaining - 2));
+        left[node] = slotNodes[a];
+        right[node] = slotNodes[b];
+        lengths[slotNodes[a]] = la;
+        lengths[slotNodes[b]] = d - la;
+        if (verbose) {
+            System.out.println("Node " + getName(slotNodes[a]) + " joins " + getName(slotNodes[b]));
+        }
+
+        alive[b] = false;
+        for (int k = 0; k < size; k++) {
+            if (alive[k] && k != a) {
+                int ak = getPackedIndex(size, a, k);
+                double da = distances[ak], db = distances[getPackedIndex(size, b, k)];
+                distances[ak] = (da + db - d) / 2;
+                addToSum(k, -da);
+                addToSum(k, -db);
+                addToSum(k, distances[ak]);
+            }
+        }
+        sums[a] = addRow(a);
+        compensations[a] = 0;
+        slotNodes[a] = node;
+        born[a] = built[a] = step;
+        if (heuristic) {
+            rows[b] = null;
+            rows[a] = sortRow(a, 0);
+        }
+    }
+
+    // helper method that returns the name of a leaf or the number of a joined node
+    private String getName(int node) {
+        return (node < size) ? identifiers[node] : Integer.toString(node);
+    }
+
+    // helper method that waits for all tasks, cancelling the rest if one fails
+    private static <T> List<T> getAll(List<Future<T>> futures) {
+        List<T> results = new ArrayList<T>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(ConcurrencyTools.get(future));
+            }
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    // best pair found by a search
+    private static class Candidate {
+
+        private double q = Double.POSITIVE_INFINITY;
+        private int a = -1, b = -1;
+
+        // keeps the given pair if it has a lower Q value, or an equal one and is found first by forester, which scans
+        // the second slot in the outer loop
+        private void offer(double q, int a, int b) {
+            if (q < this.q || (q == this.q && (this.a < 0 || b < this.b || (b == this.b && a < this.a)))) {
+                this.q = q;
+                this.a = a;
+                this.b = b;
+            }
+        }
+
+    }
+
+    // pairs found by a search whose Q values are within a tolerance of the least one found
+    private static class Candidates {
+
+        private final double tolerance;
+        private double q = Double.POSITIVE_INFINITY;
+        private double[] qs = new double[4];
+        private int[] as = new int[4], bs = new int[4];
+        private int count;
+
+        private Candidates(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        private Candidates copy() {
+            Candidates copy = new Candidates(tolerance);
+            copy.addAll(this);
+            return copy;
+        }
+
+        private void addAll(Candidates candidates) {
+            for (int k = 0; k < candidates.count; k++) {
+                offer(candidates.qs[k], candidates.as[k], candidates.bs[k]);
+            }
+        }
+
+        // keeps the given pair if it is within the tolerance of the least Q value, dropping the pairs which no
+        // longer are
+        private void offer(double q, int a, int b) {
+            if (q > this.q + tolerance) {
+                return;
+            }
+            if (q < this.q) {
+                this.q = q;
+                int kept = 0;
+                for (int k = 0; k < count; k++) {
+                    if (qs[k] <= q + tolerance) {
+                        qs[kept] = qs[k];
+                        as[kept] = as[k];
+                        bs[kept] = bs[k];
+                        kept++;
+                    }
+                }
+                count = kept;
+            }
+            if (count == qs.length) {
+                qs = Arrays.copyOf(qs, 2 * count);
+                as = Arrays.copyOf(as, 2 * count);
+                bs = Arrays.copyOf(bs, 2 * count);
+            }
+            qs[count] = q;
+            as[count] = a;
+            bs[count] = b;
+            count++;
+        }
+
+    }
+
+}
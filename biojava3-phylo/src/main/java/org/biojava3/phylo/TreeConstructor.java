@@ -10,9 +10,15 @@ import java.io.InputStream;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 import org.biojava3.core.sequence.MultipleSequenceAlignment;
 import org.biojava3.core.sequence.ProteinSequence;
 import org.biojava3.core.sequence.compound.AminoAcidCompound;
@@ -22,17 +28,17 @@ import org.biojava3.core.sequence.io.GenericFastaHeaderParser;
 import org.biojava3.core.sequence.io.ProteinSequenceCreator;
 import org.biojava3.core.sequence.template.AbstractSequence;
 import org.biojava3.core.sequence.template.Compound;
+import org.biojava3.core.util.ConcurrencyTools;
 
 
 import org.forester.io.writers.PhylogenyWriter;
 import org.forester.phylogeny.Phylogeny;
 import org.forester.phylogenyinference.BasicSymmetricalDistanceMatrix;
 import org.forester.phylogenyinference.DistanceMatrix;
-import org.forester.phylogenyinference.NeighborJoining;
 
 /**
- * Tree constructor uses the forrester tree library to build phylogenetic trees using neighbor joining algorithm. The distance matrix
- * is calculated using code from JalView.
+ * Tree constructor builds phylogenetic trees using the neighbor joining algorithm of {@link FastNeighborJoining} and writes them
+ * with the forrester tree library. The distance matrix is calculated using code from JalView.
  *
  * @author Scooter Willis
  */
@@ -82,6 +88,13 @@ public class TreeConstructor<C extends AbstractSequence<D>, D extends Compound>
         fo.close();
     }
 
+    // number of sequences along each side of a block of the distance matrix computed by a single task
+    private static final int BLOCK_SIZE = 64;
+
+    // code of a gap in the identity encoding, and of the padding past the end of a shorter sequence in the score
+    // encoding
+    private static final byte NONE = 0;
+
     private double[][] calculateDistanceMatrix(MultipleSequenceAlignment<C, D> multipleSequenceAlignment, TreeConstructionAlgorithm tca) {
         updateProgress("Determing Distances", 0);
         int numberOfSequences = multipleSequenceAlignment.getNumberOfSequences();
@@ -94,53 +107,26 @@ public class TreeConstructor<C extends AbstractSequence<D>, D extends Compound>
 
         double[][] distance = new double[numberOfSequences][numberOfSequences];
 
-        int totalloopcount = (numberOfSequences / 2) * (numberOfSequences + 1);
-
         if (tca == TreeConstructionAlgorithm.PID) {
-            int loopcount = 0;
-            for (int i = 0; i < (numberOfSequences - 1); i++) {
-                updateProgress("Determining Distances", (loopcount * 100) / totalloopcount);
-                for (int j = i; j < numberOfSequences; j++) {
-                    loopcount++;
-                    if (j == i) {
-                        distance[i][i] = 0;
-                    } else {
-                        distance[i][j] = 100 - Comparison.PID(sequenceString[i], sequenceString[j]);
-
-                        distance[j][i] = distance[i][j];
-                    }
-                }
-            }
+            byte[][] codes = encodeIdentity(sequenceString);
+            calculateBlocks(codes, null, 0, distance);
         } else {
             // Pairwise substitution score (with no gap penalties)
             ScoreMatrix pwmatrix = ResidueProperties.getScoreMatrix(treeConstructionAlgorithm.name());
             if (pwmatrix == null) {
                 pwmatrix = ResidueProperties.getScoreMatrix(treeConstructionAlgorithm.BLOSUM62.name());
             }
-            int maxscore = 0;
             int end = sequenceString[0].length();
-            int loopcount = 0;
-            for (int i = 0; i < (numberOfSequences - 1); i++) {
-                updateProgress("Determining Distances", (loopcount * 100) / totalloopcount);
-                for (int j = i; j < numberOfSequences; j++) {
-                    int score = 0;
-                    loopcount++;
-                    for (int k = 0; k < end; k++) {
-                        try {
-                            score += pwmatrix.getPairwiseScore(sequenceString[i].charAt(k), sequenceString[j].charAt(k));
-                        } catch (Exception ex) {
-                            System.err.println("err creating BLOSUM62 tree");
-                            ex.printStackTrace();
-                        }
-                    }
-
-                    distance[i][j] = (float) score;
-
-                    if (score > maxscore) {
-                        maxscore = score;
-                    }
+            List<Character> symbols = new ArrayList<Character>();
+            byte[][] codes = encodeScore(sequenceString, end, symbols);
+            int[] scores = new int[(symbols.size() + 1) * (symbols.size() + 1)];
+            for (int a = 1; a <= symbols.size(); a++) {
+                for (int b = 1; b <= symbols.size(); b++) {
+                    scores[a * (symbols.size() + 1) + b] = pwmatrix.getPairwiseScore(symbols.get(a - 1),
+                            symbols.get(b - 1));
                 }
             }
+            int maxscore = calculateBlocks(codes, scores, symbols.size() + 1, distance);
 
             for (int i = 0; i < (numberOfSequences - 1); i++) {
                 for (int j = i; j < numberOfSequences; j++) {
@@ -155,7 +141,167 @@ public class TreeConstructor<C extends AbstractSequence<D>, D extends Compound>
         return distance;
     }
 
+    // encodes each sequence once for percent identity: lower case letters are folded to upper case and all gap
+    // characters share a single code, as in Comparison.PID
+    private static byte[][] encodeIdentity(String[] sequences) {
+        Map<Character, Byte> codeMap = new HashMap<Character, Byte>();
+        List<Character> symbols = new ArrayList<Character>();
+        byte[][] codes = new byte[sequences.length][];
+        for (int i = 0; i < sequences.length; i++) {
+            codes[i] = new byte[sequences[i].length()];
+            for (int k = 0; k < codes[i].length; k++) {
+                char c = sequences[i].charAt(k);
+                if ('a' <= c && c <= 'z') {
+                    c -= Comparison.caseShift;
+                }
+                codes[i][k] = Comparison.isGap(c) ? NONE : getCode(codeMap, symbols, c);
+            }
+        }
+        return codes;
+    }
+
+    // encodes each sequence once for pairwise scores: all sequences are cut or padded to the given length and the
+    // distinct characters are listed so that code c stands for symbols.get(c - 1)
+    private static byte[][] encodeScore(String[] sequences, int end, List<Character> symbols) {
+        Map<Character, Byte> codeMap = new HashMap<Character, Byte>();
+        byte[][] codes = new byte[sequences.length][end];
+        for (int i = 0; i < sequences.length; i++) {
+            for (int k = 0; k < Math.min(end, sequences[i].length()); k++) {
+                codes[i][k] = getCode(codeMap, symbols, sequences[i].charAt(k));
+            }
+        }
+        return codes;
+    }
+
+    // helper method that returns the code of a character, assigning the next free code if it is new
+    private static byte getCode(Map<Character, Byte> codeMap, List<Character> symbols, char c) {
+        Byte code = codeMap.get(c);
+        if (code == null) {
+            if (symbols.size() == 255) {
+                throw new IllegalArgumentException("Alignment has more than 255 distinct characters");
+            }
+            symbols.add(c);
+            code = (byte) symbols.size();
+            codeMap.put(c, code);
+        }
+        return code;
+    }
+
+    // fills the upper triangle of the distance matrix by computing blocks of it on the shared thread pool; returns
+    // the greatest score found, or 0 if computing percent identity
+    private int calculateBlocks(byte[][] codes, int[] scores, int width, double[][] distance) {
+        int blocks = (codes.length + BLOCK_SIZE - 1) / BLOCK_SIZE, tasks = 0;
+        CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(
+                ConcurrencyTools.getThreadPool());
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int bi = 0; bi < blocks; bi++) {
+            for (int bj = bi; bj < blocks; bj++) {
+                futures.add(completion.submit(new DistanceBlock(codes, scores, width, distance, bi * BLOCK_SIZE,
+                        bj * BLOCK_SIZE)));
+                tasks++;
+            }
+        }
+        int maxscore = 0;
+        try {
+            for (int done = 1; done <= tasks; done++) {
+                Future<Integer> future;
+                try {
+                    future = completion.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while determining distances", e);
+                }
+                maxscore = Math.max(maxscore, ConcurrencyTools.get(future));
+                updateProgress("Determining Distances", (done * 100) / tasks);
+            }
+        } finally {
+            for (Future<Integer> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return maxscore;
+    }
+
+    /**
+     * Computes the distances between one block of sequences and another.  Percent identity distances are stored
+     * directly.  Pairwise scores are stored as they are, including those of each sequence with itself, to be turned
+     * into distances once the greatest score of the whole matrix is known.
+     */
+    private static class DistanceBlock implements Callable<Integer> {
+
+        private final byte[][] codes;
+        private final int[] scores;
+        private final int width;
+        private final double[][] distance;
+        private final int rowStart, colStart;
+
+        private DistanceBlock(byte[][] codes, int[] scores, int width, double[][] distance, int rowStart,
+                int colStart) {
+            this.codes = codes;
+            this.scores = scores;
+            this.width = width;
+            this.distance = distance;
+            this.rowStart = rowStart;
+            this.colStart = colStart;
+        }
+
+        @Override
+        public Integer call() {
+            int n = codes.length, maxscore = 0;
+            for (int i = rowStart; i < Math.min(rowStart + BLOCK_SIZE, n - 1); i++) {
+                for (int j = Math.max(colStart, i); j < Math.min(colStart + BLOCK_SIZE, n); j++) {
+                    if (scores == null) {
+                        if (j != i) {
+                            distance[i][j] = distance[j][i] = 100 - getPID(codes[i], codes[j]);
+                        }
+                    } else {
+                        int score = getScore(codes[i], codes[j]);
+                        distance[i][j] = (float) score;
+                        if (score > maxscore) {
+                            maxscore = score;
+                        }
+                    }
+                }
+            }
+            return maxscore;
+        }
+
+        // same arithmetic as Comparison.PID over the shorter of the two sequences
+        private static float getPID(byte[] s1, byte[] s2) {
+            int len = Math.min(s1.length, s2.length), bad = 0;
+            for (int k = 0; k < len; k++) {
+                if (s1[k] != s2[k] && s1[k] != NONE && s2[k] != NONE) {
+                    bad++;
+                }
+            }
+            return ((float) 100 * (len - bad)) / len;
+        }
+
+        private int getScore(byte[] s1, byte[] s2) {
+            int score = 0;
+            for (int k = 0; k < s1.length; k++) {
+                score += scores[(s1[k] & 0xff) * width + (s2[k] & 0xff)];
+            }
+            return score;
+        }
+
+    }
+
     public DistanceMatrix getDistanceMatrix() {
+        if (copyDistanceMatrix == null && packedDistances != null) {
+            copyDistanceMatrix = new BasicSymmetricalDistanceMatrix(identifiers.length);
+            for (int i = 0; i < identifiers.length; i++) {
+                copyDistanceMatrix.setIdentifier(i, identifiers[i]);
+            }
+            for (int col = 0; col < identifiers.length; col++) {
+                for (int row = 0; row < identifiers.length; row++) {
+                    if (col != row) {
+                        copyDistanceMatrix.setValue(col, row,
+                                packedDistances[FastNeighborJoining.getPackedIndex(identifiers.length, col, row)]);
+                    }
+                }
+            }
+        }
         return copyDistanceMatrix;
     }
 
@@ -168,31 +314,50 @@ public class TreeConstructor<C extends AbstractSequence<D>, D extends Compound>
     Phylogeny p = null;
     DistanceMatrix matrix = null;
     DistanceMatrix copyDistanceMatrix = null;
+    String[] identifiers = null;
+    double[] packedDistances = null;
 
     public void process() throws Exception {
 
 
-        if (matrix == null) {
-            double[][] distances = calculateDistanceMatrix(multipleSequenceAlignment, treeConstructionAlgorithm);
-            matrix = new BasicSymmetricalDistanceMatrix(multipleSequenceAlignment.getNumberOfSequences());
-            for (int i = 0; i < matrix.getSize(); i++) {
-                matrix.setIdentifier(i, multipleSequenceAlignment.getSequence(i).getAccession().getID());
-            }
-            for (int col = 0; col < matrix.getSize(); col++) {
-                for (int row = 0; row < matrix.getSize(); row++) {
-                    matrix.setValue(col, row, distances[col][row]);
-
+        if (packedDistances == null) {
+            if (matrix == null) {
+                double[][] distances = calculateDistanceMatrix(multipleSequenceAlignment, treeConstructionAlgorithm);
+                identifiers = new String[multipleSequenceAlignment.getNumberOfSequences()];
+                for (int i = 0; i < identifiers.length; i++) {
+                    identifiers[i] = multipleSequenceAlignment.getSequence(i).getAccession().getID();
+                }
+                packedDistances = FastNeighborJoining.pack(distances);
+            } else {
+                identifiers = new String[matrix.getSize()];
+                for (int i = 0; i < identifiers.length; i++) {
+                    identifiers[i] = matrix.getIdentifier(i);
                 }
+                packedDistances = FastNeighborJoining.pack(matrix);
             }
-            copyDistanceMatrix = CheckTreeAccuracy.copyMatrix(matrix);
         }
 
-        final List<Phylogeny> ps = new ArrayList<Phylogeny>();
-        final NeighborJoining nj = NeighborJoining.createInstance();
+        // the tree is built on a copy, since joining overwrites the distances
+        final FastNeighborJoining nj = new FastNeighborJoining(identifiers, packedDistances.clone());
+        nj.setParallel(true);
         nj.setVerbose(verbose);
+        nj.setProgressListener(new NJTreeProgressListener() {
 
-        ps.add(nj.execute(matrix));
-        p = ps.get(0);
+            public void progress(Object njtree, String state, int percentageComplete) {
+                updateProgress(state, percentageComplete);
+            }
+
+            public void progress(Object njtree, String state, int currentCount, int totalCount) {
+                updateProgress(state, currentCount, totalCount);
+            }
+
+            public void complete(Object njtree) {
+            }
+
+            public void canceled(Object njtree) {
+            }
+        });
+        p = nj.getPhylogeny();
 
     }
 
@@ -0,0 +1,145 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.phylo;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.forester.io.writers.PhylogenyWriter;
+import org.forester.phylogenyinference.BasicSymmetricalDistanceMatrix;
+import org.forester.phylogenyinference.NeighborJoining;
+import org.junit.Test;
+
+public class FastNeighborJoiningTest {
+
+    // example of Saitou and Nei's method with a tie in the second join
+    private static final String[] NAMES = {"a", "b", "c", "d", "e"};
+    private static final double[][] EXAMPLE = {
+        {0, 5, 9, 9, 8},
+        {5, 0, 10, 10, 9},
+        {9, 10, 0, 8, 7},
+        {9, 10, 8, 0, 3},
+        {8, 9, 7, 3, 0}
+    };
+
+    @Test
+    public void testGetPackedIndex() {
+        int n = 7, index = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                assertEquals(FastNeighborJoining.getPackedIndex(n, i, j), index);
+                assertEquals(FastNeighborJoining.getPackedIndex(n, j, i), index++);
+            }
+        }
+        assertEquals(FastNeighborJoining.getPackedLength(n), index);
+    }
+
+    @Test
+    public void testPack() {
+        double[] packed = FastNeighborJoining.pack(EXAMPLE);
+        assertEquals(packed.length, 10);
+        assertEquals(packed[FastNeighborJoining.getPackedIndex(5, 3, 2)], 8.0, 0.0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testWrongLength() {
+        new FastNeighborJoining(NAMES, new double[9]);
+    }
+
+    @Test
+    public void testGetNewickString() {
+        String expected = "((((a:2.0,b:3.0):3.0,c:4.0):2.0,d:2.0):0.5,e:0.5);";
+        assertEquals(new FastNeighborJoining(NAMES, EXAMPLE).getNewickString(true), expected);
+        FastNeighborJoining full = new FastNeighborJoining(NAMES, EXAMPLE);
+        full.setHeuristic(false);
+        assertEquals(full.getNewickString(true), expected);
+        assertEquals(full.getNewickString(false), "((((a,b),c),d),e);");
+    }
+
+    @Test
+    public void testSmallTrees() {
+        assertEquals(new FastNeighborJoining(new String[0], new double[0]).getNewickString(true), "");
+        assertEquals(new FastNeighborJoining(new String[] {"a"}, new double[0]).getNewickString(true), "a;");
+        assertEquals(new FastNeighborJoining(new String[] {"a", "b"}, new double[] {3}).getNewickString(true),
+                "(a:1.5,b:1.5);");
+    }
+
+    @Test
+    public void testHeuristicMatchesFullSearch() {
+        Random random = new Random(4L);
+        for (int n : new int[] {3, 10, 100, 400}) {
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = "s" + i;
+            }
+            // a few distinct values cause many ties in Q
+            double[] distances = new double[FastNeighborJoining.getPackedLength(n)];
+            for (int i = 0; i < distances.length; i++) {
+                distances[i] = (n == 100) ? random.nextInt(5) : random.nextDouble();
+            }
+            FastNeighborJoining full = new FastNeighborJoining(names, distances.clone());
+            full.setHeuristic(false);
+            FastNeighborJoining fast = new FastNeighborJoining(names, distances.clone());
+            assertEquals(fast.getNewickString(true), full.getNewickString(true));
+        }
+    }
+
+    @Test
+    public void testMatchesForester() throws Exception {
+        Random random = new Random(6L);
+        PhylogenyWriter writer = new PhylogenyWriter();
+        for (int n : new int[] {3, 10, 50, 200}) {
+            // fractions like those of percent identity, with few distinct values so that Q values tie
+            BasicSymmetricalDistanceMatrix matrix = new BasicSymmetricalDistanceMatrix(n);
+            for (int i = 0; i < n; i++) {
+                matrix.setIdentifier(i, "s" + i);
+                for (int j = i + 1; j < n; j++) {
+                    matrix.setValue(i, j, (n == 50) ? random.nextInt(5) / 10.0 : random.nextInt(100) / 100.0);
+                }
+            }
+            FastNeighborJoining fast = new FastNeighborJoining(matrix);
+            String expected = writer.toNewHampshire(NeighborJoining.createInstance().execute(matrix), true,
+                    true).toString();
+            assertEquals(writer.toNewHampshire(fast.getPhylogeny(), true, true).toString(), expected);
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        Random random = new Random(5L);
+        int n = 1500;
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = "s" + i;
+        }
+        double[] distances = new double[FastNeighborJoining.getPackedLength(n)];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = random.nextDouble();
+        }
+        FastNeighborJoining serial = new FastNeighborJoining(names, distances.clone());
+        FastNeighborJoining parallel = new FastNeighborJoining(names, distances.clone());
+        parallel.setParallel(true);
+        assertEquals(parallel.getNewickString(true), serial.getNewickString(true));
+    }
+
+}
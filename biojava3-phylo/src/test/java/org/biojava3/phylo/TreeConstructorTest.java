@@ -0,0 +1,153 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava3.phylo;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.biojava3.core.sequence.AccessionID;
+import org.biojava3.core.sequence.MultipleSequenceAlignment;
+import org.biojava3.core.sequence.ProteinSequence;
+import org.biojava3.core.sequence.compound.AminoAcidCompound;
+import org.forester.phylogenyinference.DistanceMatrix;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TreeConstructorTest {
+
+    private MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound> msa;
+    private String[] sequences;
+    private List<Integer> progress;
+    private NJTreeProgressListener listener;
+
+    @Before
+    public void setup() {
+        // enough sequences to span several blocks of the distance matrix
+        Random random = new Random(3L);
+        msa = new MultipleSequenceAlignment<ProteinSequence, AminoAcidCompound>();
+        sequences = new String[150];
+        for (int i = 0; i < sequences.length; i++) {
+            StringBuilder s = new StringBuilder();
+            for (int k = 0; k < 60; k++) {
+                s.append("ARNDCQEGHILKMFPSTWYV--".charAt(random.nextInt(i % 3 == 0 ? 4 : 22)));
+            }
+            ProteinSequence sequence = new ProteinSequence(s.toString());
+            sequence.setAccession(new AccessionID("s" + i));
+            msa.addAlignedSequence(sequence);
+            sequences[i] = sequence.getSequenceAsString();
+        }
+        progress = new ArrayList<Integer>();
+        listener = new NJTreeProgressListener() {
+            public void progress(Object njtree, String state, int percentageComplete) {
+                if (state.endsWith("Distances")) {
+                    progress.add(percentageComplete);
+                }
+            }
+            public void progress(Object njtree, String state, int currentCount, int totalCount) { }
+            public void complete(Object njtree) { }
+            public void canceled(Object njtree) { }
+        };
+    }
+
+    @Test
+    public void testCalculateDistanceMatrixPID() throws Exception {
+        DistanceMatrix distance = getDistanceMatrix(TreeConstructionAlgorithm.PID);
+        for (int i = 0; i < sequences.length; i++) {
+            for (int j = 0; j < sequences.length; j++) {
+                double expected = (i == j) ? 0 : 100 - Comparison.PID(sequences[Math.min(i, j)],
+                        sequences[Math.max(i, j)]);
+                assertEquals(Double.doubleToLongBits(distance.getValue(i, j)), Double.doubleToLongBits(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testCalculateDistanceMatrixBLOSUM62() throws Exception {
+        DistanceMatrix distance = getDistanceMatrix(TreeConstructionAlgorithm.BLOSUM62);
+        double[][] expected = getScoreDistances(ResidueProperties.getScoreMatrix("BLOSUM62"));
+        for (int i = 0; i < sequences.length; i++) {
+            for (int j = 0; j < sequences.length; j++) {
+                if (i != j) {
+                    assertEquals(Double.doubleToLongBits(distance.getValue(i, j)),
+                            Double.doubleToLongBits(expected[i][j]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProgress() throws Exception {
+        // the listener passed to the constructor is not registered, so it is added once and hears each update once
+        getDistanceMatrix(TreeConstructionAlgorithm.PID);
+        assertEquals(progress.get(0), (Integer) 0);
+        assertTrue(progress.get(1) > 0);
+        assertEquals(progress.get(progress.size() - 1), (Integer) 100);
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i - 1) <= progress.get(i));
+        }
+    }
+
+    @Test
+    public void testGetDistanceMatrix() {
+        TreeConstructor<ProteinSequence, AminoAcidCompound> tc = getTreeConstructor(TreeConstructionAlgorithm.PID);
+        assertNull(tc.getDistanceMatrix());
+    }
+
+    private TreeConstructor<ProteinSequence, AminoAcidCompound> getTreeConstructor(TreeConstructionAlgorithm tca) {
+        return new TreeConstructor<ProteinSequence, AminoAcidCompound>(msa, TreeType.NJ, tca, listener);
+    }
+
+    // builds the tree with the listener registered and returns the distances it was built from
+    private DistanceMatrix getDistanceMatrix(TreeConstructionAlgorithm tca) throws Exception {
+        TreeConstructor<ProteinSequence, AminoAcidCompound> tc = getTreeConstructor(tca);
+        tc.addProgessListener(listener);
+        tc.process();
+        return tc.getDistanceMatrix();
+    }
+
+    // serial calculation of pairwise score distances, one character pair at a time
+    private double[][] getScoreDistances(ScoreMatrix matrix) {
+        int n = sequences.length, maxscore = 0;
+        double[][] distance = new double[n][n];
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = i; j < n; j++) {
+                int score = 0;
+                for (int k = 0; k < sequences[0].length(); k++) {
+                    score += matrix.getPairwiseScore(sequences[i].charAt(k), sequences[j].charAt(k));
+                }
+                distance[i][j] = (float) score;
+                maxscore = Math.max(maxscore, score);
+            }
+        }
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = i; j < n; j++) {
+                distance[i][j] = (float) maxscore - distance[i][j];
+                distance[j][i] = distance[i][j];
+            }
+        }
+        return distance;
+    }
+
+}
@@ -25,16 +25,23 @@
 package org.biojava3.protmod.parser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.biojava.bio.structure.Atom;
+import org.biojava.bio.structure.AtomGrid;
 import org.biojava.bio.structure.Calc;
 import org.biojava.bio.structure.Chain;
+import org.biojava.bio.structure.Element;
 import org.biojava.bio.structure.Group;
 import org.biojava.bio.structure.Structure;
 import org.biojava.bio.structure.StructureException;
@@ -50,14 +57,33 @@ import org.biojava3.protmod.ProteinModification;
 /**
  * Identify attachment modification in a 3-D structure.
  * 
+ * Candidate atoms of each linkage are indexed in an {@link AtomGrid}, so
+ * only groups with atoms close enough to bond are compared. Chains are
+ * independent of each other and may be parsed in parallel by setting an
+ * {@link ExecutorService}.
+ * 
  * @author Jianjiong Gao
  * @since 3.0
  */
 public class DefaultProteinModificationParser
 implements ProteinModificationParser {
 	
+	/**
+	 * The largest covalent radius of any element.
+	 */
+	private static final double MAX_COVALENT_RADIUS;
+	static {
+		double max = 0;
+		for (Element e : Element.values()) {
+			max = Math.max(max, e.getCovalentRadius());
+		}
+		MAX_COVALENT_RADIUS = max;
+	}
+	
 	private double bondLengthTolerance = 0.4;
 	
+	private ExecutorService executor = null;
+	
 	/**
 	 * 
 	 * @param bondLengthTolerance tolerance of error (in Angstroms) of the
@@ -71,6 +97,16 @@ implements ProteinModificationParser {
 		this.bondLengthTolerance = bondLengthTolerance;
 	}
 	
+	/**
+	 * 
+	 * @param executor executor to parse chains in parallel with; null
+	 *  (the default) to parse them one after another. The executor is
+	 *  not shut down by the parser.
+	 */
+	public void setExecutorService(final ExecutorService executor) {
+		this.executor = executor;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * @throws IllegalArgumentException if null structure or
@@ -102,48 +138,105 @@ implements ProteinModificationParser {
 		}
 		
 		List<Chain> chains = structure.getChains(modelnr);
+		
+		// components are looked up before any parallel work, since
+		// Component initializes its shared tables lazily
+		List<Map<Component, List<Group>>> chainGroups =
+			new ArrayList<Map<Component, List<Group>>>(chains.size());
 		for (Chain chain : chains) {
-			Map<Component, List<Group>> mapCompGroups = 
-				getModificationGroups(chain, potentialModifications);
+			chainGroups.add(getModificationGroups(chain, potentialModifications));
+		}
+		
+		if (executor == null || chains.size() < 2) {
+			for (Map<Component, List<Group>> mapCompGroups : chainGroups) {
+				ret.addAll(parse(mapCompGroups, potentialModifications));
+			}
+			return ret;
+		}
+		
+		List<Future<List<ModifiedCompound>>> futures =
+			new ArrayList<Future<List<ModifiedCompound>>>(chains.size());
+		for (final Map<Component, List<Group>> mapCompGroups : chainGroups) {
+			futures.add(executor.submit(new Callable<List<ModifiedCompound>>() {
+				@Override
+				public List<ModifiedCompound> call() {
+					return parse(mapCompGroups, potentialModifications);
+				}
+			}));
+		}
+		
+		try {
+			for (Future<List<ModifiedCompound>> future : futures) {
+				ret.addAll(future.get());
+			}
+		} catch (InterruptedException e) {
+			for (Future<List<ModifiedCompound>> future : futures) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while parsing chains", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Failed to parse chain", cause);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Identify modifications in one chain.
+	 * @param mapCompGroups map from component to list of corresponding
+	 *  residues in the chain.
+	 * @param potentialModifications a set of {@link ProteinModification}s.
+	 * @return modifications found in the chain.
+	 */
+	private List<ModifiedCompound> parse(
+			final Map<Component, List<Group>> mapCompGroups,
+			final Set<ProteinModification> potentialModifications) {
+		List<ModifiedCompound> ret = new ArrayList<ModifiedCompound>();
+		
+		for (ProteinModification mod : potentialModifications) {
+			ModificationCondition condition = mod.getCondition();
+			List<Component> components = condition.getComponents();
+			if (!mapCompGroups.keySet().containsAll(components)) {
+				// not all components exist for this mod.
+				continue;
+			}
 			
-			for (ProteinModification mod : potentialModifications) {
-				ModificationCondition condition = mod.getCondition();
-				List<Component> components = condition.getComponents();
-				if (!mapCompGroups.keySet().containsAll(components)) {
-					// not all components exist for this mod.
-					continue;
+			int sizeComps = components.size();
+			if (sizeComps==1) {
+				// modified residue
+				// TODO: is this the correct logic for CROSS_LINK_1?
+				List<Group> residues = mapCompGroups.get(components.get(0));
+				if (residues != null) {
+					for (Group residue : residues) {
+						ModifiedCompound modRes = new ModifiedCompoundImpl(mod, residue);
+						ret.add(modRes);
+					}
 				}
+			} else {
+				// for multiple components
 				
-				int sizeComps = components.size();
-				if (sizeComps==1) {
-					// modified residue
-					// TODO: is this the correct logic for CROSS_LINK_1?
-					List<Group> residues = mapCompGroups.get(components.get(0));
-					if (residues != null) {
-						for (Group residue : residues) {
-							ModifiedCompound modRes = new ModifiedCompoundImpl(mod, residue);
-							ret.add(modRes);
-						}
-					}
-				} else {
-					// for multiple components
-					
-					// find linkages first
-					List<List<Atom[]>> matchedAtomsOfLinkages =
-							getMatchedAtomsOfLinkages(condition, mapCompGroups);
-					
-					if (matchedAtomsOfLinkages.size() != condition.getLinkages().size()) {
-						continue;
-					}
-					
-					assembleLinkages(matchedAtomsOfLinkages, mod, ret);
+				// find linkages first
+				List<List<Atom[]>> matchedAtomsOfLinkages =
+						getMatchedAtomsOfLinkages(condition, mapCompGroups);
+				
+				if (matchedAtomsOfLinkages.size() != condition.getLinkages().size()) {
+					continue;
 				}
+				
+				assembleLinkages(matchedAtomsOfLinkages, mod, ret);
 			}
-			
-			// TODO: identify additional attached groups that are not 
-			// directly attached to protein residues.
 		}
 		
+		// TODO: identify additional attached groups that are not 
+		// directly attached to protein residues.
+		
 		return ret;
 	}
 	
@@ -256,8 +349,42 @@ implements ProteinModificationParser {
 			List<String> potentialNamesOfAtomOnGroup1 = linkage.getPDBNameOfPotentialAtomsOnComponent1();
 			List<String> potentialNamesOfAtomOnGroup2 = linkage.getPDBNameOfPotentialAtomsOnComponent2();
 
+			// index the potential atoms of the second groups; groups
+			// too far apart to bond are never compared
+			List<Atom> atoms2 = new ArrayList<Atom>();
+			List<Integer> indicesOfGroups2 = new ArrayList<Integer>();
+			for (int i=0; i<groups2.size(); i++) {
+				for (Atom atom : getPotentialAtoms(groups2.get(i), potentialNamesOfAtomOnGroup2)) {
+					atoms2.add(atom);
+					indicesOfGroups2.add(i);
+				}
+			}
+			
+			double maxBondLength = 2 * MAX_COVALENT_RADIUS + bondLengthTolerance + 1e-6;
+			AtomGrid grid = new AtomGrid(atoms2.toArray(new Atom[atoms2.size()]), maxBondLength);
+			int[] found = new int[grid.size()];
+			int[] nearGroups = new int[groups2.size()];
+			boolean[] isNear = new boolean[groups2.size()];
+
 			for (Group g1 : groups1) {
-				for (Group g2 : groups2) {
+				int nNear = 0;
+				for (Atom atom : getPotentialAtoms(g1, potentialNamesOfAtomOnGroup1)) {
+					int n = grid.getIndicesWithin(atom.getX(), atom.getY(), atom.getZ(),
+							maxBondLength, found);
+					for (int i=0; i<n; i++) {
+						int i2 = indicesOfGroups2.get(found[i]);
+						if (!isNear[i2]) {
+							isNear[i2] = true;
+							nearGroups[nNear++] = i2;
+						}
+					}
+				}
+				
+				// same order as comparing with all groups
+				Arrays.sort(nearGroups, 0, nNear);
+				for (int i=0; i<nNear; i++) {
+					isNear[nearGroups[i]] = false;
+					Group g2 = groups2.get(nearGroups[i]);
 					if (g1 == g2) {
 						continue;
 					}
@@ -369,6 +496,32 @@ implements ProteinModificationParser {
 		return ret;
 	}
 	
+	/**
+	 * Get the atoms of a group that may form a linkage.
+	 * @param group
+	 * @param potentialNames names of the atoms; null for all atoms.
+	 * @return the atoms found.
+	 */
+	private List<Atom> getPotentialAtoms(Group group, List<String> potentialNames) {
+		if (potentialNames == null) {
+			List<Atom> atoms = group.getAtoms();
+			return atoms==null ? Collections.<Atom>emptyList() : atoms;
+		}
+		
+		List<Atom> atoms = new ArrayList<Atom>(potentialNames.size());
+		for (String name : potentialNames) {
+			try {
+				Atom atom = group.getAtom(name);
+				if (atom != null) {
+					atoms.add(atom);
+				}
+			} catch (StructureException e) {
+				// not in this group
+			}
+		}
+		return atoms;
+	}
+	
 	private List<String> getAtomNames(Group group) {
 		List<Atom> atoms = group.getAtoms();
 		if (atoms == null) {
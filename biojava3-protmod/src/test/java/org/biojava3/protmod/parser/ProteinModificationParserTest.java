@@ -26,17 +26,26 @@ package org.biojava3.protmod.parser;
 
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 
+import org.biojava.bio.structure.AminoAcidImpl;
 import org.biojava.bio.structure.Atom;
+import org.biojava.bio.structure.AtomImpl;
 import org.biojava.bio.structure.Calc;
 import org.biojava.bio.structure.Chain;
+import org.biojava.bio.structure.ChainImpl;
+import org.biojava.bio.structure.Element;
 import org.biojava.bio.structure.Group;
 import org.biojava.bio.structure.Structure;
 import org.biojava.bio.structure.StructureException;
+import org.biojava.bio.structure.StructureImpl;
 
 import org.biojava3.protmod.ModificationCategory;
 import org.biojava3.protmod.ModifiedCompound;
@@ -223,6 +232,69 @@ public class ProteinModificationParserTest extends TestCase {
 		}
 	}	
 
+	/**
+	 * Disulfide bonds planted in a generated structure are found, in the
+	 * same order whether chains are parsed one by one or in parallel.
+	 */
+	public void testDisulfideBonds() throws Exception {
+		Random random = new Random(19L);
+		Structure struc = new StructureImpl();
+		int planted = 0;
+		for (int c=0; c<4; c++) {
+			Chain chain = new ChainImpl();
+			chain.setName(String.valueOf((char)('A'+c)));
+			List<Group> residues = new ArrayList<Group>();
+			for (int i=0; i<200; i++) {
+				// cysteines on a lattice 10 A apart, too far to bond
+				double[] sg = new double[] {10.0*(i%6), 10.0*((i/6)%6), 10.0*(i/36) + 100.0*c};
+				residues.add(createCysteine(sg, random));
+				if (random.nextInt(10)==0) {
+					// a partner 2.05 A away
+					residues.add(createCysteine(new double[] {sg[0]+2.05, sg[1], sg[2]}, random));
+					planted++;
+				}
+			}
+			chain.setSeqResGroups(residues);
+			struc.addChain(chain);
+		}
+		
+		Set<ProteinModification> mods = ProteinModification.getByResidId("AA0025");
+		DefaultProteinModificationParser parser = new DefaultProteinModificationParser();
+		List<ModifiedCompound> serial = parser.parse(struc, mods, 0);
+		assertEquals(planted, serial.size());
+		for (ModifiedCompound mc : serial) {
+			Atom[] atoms = mc.getAtomLinkages().get(0);
+			assertEquals(2.05, Calc.getDistance(atoms[0], atoms[1]), 1e-9);
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		parser.setExecutorService(executor);
+		List<ModifiedCompound> parallel = parser.parse(struc, mods, 0);
+		executor.shutdown();
+		assertEquals(serial, parallel);
+	}
+	
+	private Group createCysteine(double[] sg, Random random) throws Exception {
+		Group group = new AminoAcidImpl();
+		group.setPDBName("CYS");
+		String[] names = new String[] {"N", "CA", "C", "O", "CB", "SG"};
+		Element[] elements = new Element[] {Element.N, Element.C, Element.C, Element.O, Element.C, Element.S};
+		for (int i=0; i<names.length; i++) {
+			Atom atom = new AtomImpl();
+			atom.setName(names[i]);
+			atom.setFullName(" "+names[i]+"  ".substring(names[i].length()-1));
+			atom.setElement(elements[i]);
+			if (i == names.length-1) {
+				atom.setCoords(sg);
+			} else {
+				// backbone 3 to 4 A from the sulfur
+				atom.setCoords(new double[] {sg[0]+3.0+random.nextDouble(), sg[1], sg[2]+0.5*i});
+			}
+			group.addAtom(atom);
+		}
+		return group;
+	}
+
 	private void parserTest(String pdbId, String residId) throws IOException, StructureException {		
 		Structure struc = TmpAtomCache.cache.getStructure(pdbId);
 
@@ -30,7 +30,9 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Abstract reader implementation for FASTQ formatted sequences.
@@ -60,6 +62,9 @@ abstract class AbstractFastqReader
         COMPLETE;
     };
 
+    /** Size of the buffer used to read lines, in characters. */
+    private static final int BUFFER_SIZE = 65536;
+
     /**
      * Return the FASTQ sequence format variant for this reader.
      *
@@ -185,14 +190,242 @@ abstract class AbstractFastqReader
         {
             throw new IllegalArgumentException ("inputStream must not be null");
         }
-        int lineNumber = 0;
-        State state = State.DESCRIPTION;
-        List<Fastq> result = new ArrayList<Fastq>();
-        FastqBuilder builder = new FastqBuilder().withVariant(getVariant());
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        while (reader.ready())
+        final List<Fastq> result = new ArrayList<Fastq>();
+        stream(inputStream, new StreamListener()
+            {
+                /** {@inheritDoc} */
+                public void fastq(final Fastq fastq)
+                {
+                    result.add(fastq);
+                }
+            });
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public final void stream(final File file, final StreamListener listener) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file must not be null");
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = new FileInputStream(file);
+            stream(inputStream, listener);
+        }
+        finally
+        {
+            if (inputStream != null)
+            {
+                try
+                {
+                    inputStream.close();
+                }
+                catch (IOException e)
+                {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public final void stream(final URL url, final StreamListener listener) throws IOException
+    {
+        if (url == null)
         {
-            String line = reader.readLine();
+            throw new IllegalArgumentException("url must not be null");
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = url.openStream();
+            stream(inputStream, listener);
+        }
+        finally
+        {
+            if (inputStream != null)
+            {
+                try
+                {
+                    inputStream.close();
+                }
+                catch (IOException e)
+                {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public final void stream(final InputStream inputStream, final StreamListener listener) throws IOException
+    {
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("inputStream must not be null");
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        Parser parser = new Parser();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream), BUFFER_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            Fastq fastq = parser.parseLine(line);
+            if (fastq != null)
+            {
+                listener.fastq(fastq);
+            }
+        }
+        Fastq fastq = parser.finish();
+        if (fastq != null)
+        {
+            listener.fastq(fastq);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public final Iterable<Fastq> iterate(final InputStream inputStream) throws IOException
+    {
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("inputStream must not be null");
+        }
+        final Iterator<Fastq> iterator = new FastqIterator(inputStream);
+        return new Iterable<Fastq>()
+            {
+                /** Whether the iterator has been returned. */
+                private boolean iterated = false;
+
+                /** {@inheritDoc} */
+                public Iterator<Fastq> iterator()
+                {
+                    if (iterated)
+                    {
+                        throw new IllegalStateException("FASTQ formatted sequences may only be iterated once");
+                    }
+                    iterated = true;
+                    return iterator;
+                }
+            };
+    }
+
+
+    /**
+     * Iterator which reads each FASTQ formatted sequence on demand.
+     */
+    private final class FastqIterator
+        implements Iterator<Fastq>
+    {
+        /** Reader for the input stream. */
+        private final BufferedReader reader;
+
+        /** Parser for lines of the input stream. */
+        private final Parser parser = new Parser();
+
+        /** Next FASTQ formatted sequence, if already read. */
+        private Fastq next;
+
+        /** True once the end of the input stream has been reached. */
+        private boolean finished = false;
+
+
+        /**
+         * Create a new iterator over the specified input stream.
+         *
+         * @param inputStream input stream to read from, must not be null
+         */
+        FastqIterator(final InputStream inputStream)
+        {
+            reader = new BufferedReader(new InputStreamReader(inputStream), BUFFER_SIZE);
+        }
+
+
+        /** {@inheritDoc} */
+        public boolean hasNext()
+        {
+            try
+            {
+                while (next == null && !finished)
+                {
+                    String line = reader.readLine();
+                    if (line == null)
+                    {
+                        finished = true;
+                        next = parser.finish();
+                    }
+                    else
+                    {
+                        next = parser.parseLine(line);
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                finished = true;
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return next != null;
+        }
+
+        /** {@inheritDoc} */
+        public Fastq next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            Fastq fastq = next;
+            next = null;
+            return fastq;
+        }
+
+        /** {@inheritDoc} */
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Parser for FASTQ formatted sequences, one line at a time.  A single builder is reused
+     * for every sequence, so parser memory use does not depend on the number of sequences.
+     */
+    private final class Parser
+    {
+        /** Current line number. */
+        private int lineNumber = 0;
+
+        /** Current parser state. */
+        private State state = State.DESCRIPTION;
+
+        /** FASTQ formatted sequence builder. */
+        private final FastqBuilder builder = new FastqBuilder().withVariant(getVariant());
+
+
+        /**
+         * Parse the specified line.
+         *
+         * @param line line to parse, must not be null
+         * @return the previous FASTQ formatted sequence if the specified line begins a new one, otherwise null
+         * @throws IOException if the specified line is not valid
+         */
+        Fastq parseLine(final String line) throws IOException
+        {
+            Fastq fastq = null;
             switch (state)
             {
             case DESCRIPTION:
@@ -228,15 +461,7 @@ abstract class AbstractFastqReader
                 }
                 else
                 {
-                    try
-                    {
-                        result.add(builder.build());
-                    }
-                    catch (IllegalStateException e)
-                    {
-                        throw new IOException("caught an IllegalStateException at line " + lineNumber + " " + e.getMessage());
-                        //throw new IOException("caught an IllegalStateException at line " + lineNumber, e);  jdk 1.6+
-                    }
+                    fastq = build();
                     validateDescription(builder, line, lineNumber);
                     builder.withDescription(line.substring(1).trim());
                     state = State.SEQUENCE;
@@ -246,24 +471,47 @@ abstract class AbstractFastqReader
                 break;
             }
             lineNumber++;
+            return fastq;
         }
-        if (state == State.COMPLETE)
+
+        /**
+         * Finish parsing at the end of the input.
+         *
+         * @return the last FASTQ formatted sequence, or null if there are no more
+         * @throws IOException if the input ends within a FASTQ formatted sequence
+         */
+        Fastq finish() throws IOException
         {
-            try
+            Fastq fastq = null;
+            if (state == State.COMPLETE)
             {
-                result.add(builder.build());
+                fastq = build();
                 state = State.DESCRIPTION;
             }
+            if (state != State.DESCRIPTION)
+            {
+                throw new IOException("truncated sequence at line " + lineNumber);
+            }
+            return fastq;
+        }
+
+        /**
+         * Build a FASTQ formatted sequence from the current state of the builder.
+         *
+         * @return a new FASTQ formatted sequence
+         * @throws IOException if the builder is not in a valid state
+         */
+        private Fastq build() throws IOException
+        {
+            try
+            {
+                return builder.build();
+            }
             catch (IllegalStateException e)
             {
                 throw new IOException("caught an IllegalStateException at line " + lineNumber + " " + e.getMessage());
                 //throw new IOException("caught an IllegalStateException at line " + lineNumber, e);  jdk 1.6+
             }
         }
-        if (state != State.DESCRIPTION)
-        {
-            throw new IOException("truncated sequence at line " + lineNumber);
-        }
-        return result;
     }
 }
\ No newline at end of file
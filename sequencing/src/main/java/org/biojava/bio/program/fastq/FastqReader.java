@@ -60,4 +60,54 @@ public interface FastqReader
      * @throws IOException if an IO error occurs
      */
     Iterable<Fastq> read(InputStream inputStream) throws IOException;
+
+    /**
+     * Stream zero or more FASTQ formatted sequences from the specified file to the specified listener.
+     * Each sequence is passed to the listener as soon as it has been read, so memory use does not
+     * depend on the number of sequences in the file.
+     *
+     * @since 3.0
+     * @param file file to read from, must not be null
+     * @param listener listener to notify of each FASTQ formatted sequence, must not be null
+     * @throws IOException if an IO error occurs
+     */
+    void stream(File file, StreamListener listener) throws IOException;
+
+    /**
+     * Stream zero or more FASTQ formatted sequences from the specified url to the specified listener.
+     * Each sequence is passed to the listener as soon as it has been read, so memory use does not
+     * depend on the number of sequences at the url.
+     *
+     * @since 3.0
+     * @param url URL to read from, must not be null
+     * @param listener listener to notify of each FASTQ formatted sequence, must not be null
+     * @throws IOException if an IO error occurs
+     */
+    void stream(URL url, StreamListener listener) throws IOException;
+
+    /**
+     * Stream zero or more FASTQ formatted sequences from the specified input stream to the specified listener.
+     * Each sequence is passed to the listener as soon as it has been read, so memory use does not
+     * depend on the number of sequences in the input stream.
+     *
+     * @since 3.0
+     * @param inputStream input stream to read from, must not be null
+     * @param listener listener to notify of each FASTQ formatted sequence, must not be null
+     * @throws IOException if an IO error occurs
+     */
+    void stream(InputStream inputStream, StreamListener listener) throws IOException;
+
+    /**
+     * Lazily read zero or more FASTQ formatted sequences from the specified input stream.  Each
+     * sequence is read only when requested from the returned iterable, which may be iterated
+     * only once.  The input stream is not closed.  An IO error or invalid sequence found
+     * during iteration is thrown as an {@link IllegalStateException} whose cause is the
+     * {@link IOException}.
+     *
+     * @since 3.0
+     * @param inputStream input stream to read from, must not be null
+     * @return zero or more FASTQ formatted sequences, read on demand from the specified input stream
+     * @throws IOException if an IO error occurs
+     */
+    Iterable<Fastq> iterate(InputStream inputStream) throws IOException;
 }
\ No newline at end of file
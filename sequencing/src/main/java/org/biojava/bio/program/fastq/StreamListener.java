@@ -0,0 +1,37 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.bio.program.fastq;
+
+/**
+ * Listener to be notified of each FASTQ formatted sequence as it is read.
+ *
+ * @since 3.0
+ */
+public interface StreamListener
+{
+
+    /**
+     * Notify this listener of a FASTQ formatted sequence.
+     *
+     * @param fastq FASTQ formatted sequence, will not be null
+     */
+    void fastq(Fastq fastq);
+}
\ No newline at end of file
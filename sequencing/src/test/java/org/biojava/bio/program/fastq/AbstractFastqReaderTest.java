@@ -26,6 +26,9 @@ import java.io.IOException;
 
 import java.net.URL;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 /**
@@ -333,4 +336,125 @@ extends TestCase
 			}
 		}
 	}
+
+	public void testStreamNullArguments() throws Exception
+	{
+		FastqReader reader = createFastqReader();
+		StreamListener listener = new StreamListener()
+		{
+			public void fastq(final Fastq fastq)
+			{
+				// empty
+			}
+		};
+		try
+		{
+			reader.stream((InputStream) null, listener);
+			fail("stream((InputStream) null, listener) expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+		InputStream empty = getClass().getResourceAsStream("empty.fastq");
+		try
+		{
+			reader.stream(empty, null);
+			fail("stream(inputStream, null) expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+		finally
+		{
+			empty.close();
+		}
+		try
+		{
+			reader.iterate(null);
+			fail("iterate(null) expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	public void testStreamMatchesRead() throws Exception
+	{
+		FastqReader reader = createFastqReader();
+		File multiple = File.createTempFile("abstractFastqReaderTest", null);
+		FastqWriter writer = createFastqWriter();
+		writer.write(multiple, createFastq(), createFastq(), createFastq());
+		final List<Fastq> streamed = new ArrayList<Fastq>();
+		reader.stream(multiple, new StreamListener()
+		{
+			public void fastq(final Fastq fastq)
+			{
+				streamed.add(fastq);
+			}
+		});
+		int count = 0;
+		for (Fastq f : reader.read(multiple))
+		{
+			Fastq g = streamed.get(count++);
+			assertEquals(f.getDescription(), g.getDescription());
+			assertEquals(f.getSequence(), g.getSequence());
+			assertEquals(f.getQuality(), g.getQuality());
+			assertEquals(f.getVariant(), g.getVariant());
+		}
+		assertEquals(3, count);
+		assertEquals(3, streamed.size());
+	}
+
+	public void testIterateMultipleWrappedQuality() throws Exception
+	{
+		FastqReader reader = createFastqReader();
+		InputStream wrappedQuality = getClass().getResourceAsStream("multiple-wrapped-quality.fastq");
+		Iterable<Fastq> iterable = reader.iterate(wrappedQuality);
+		int count = 0;
+		for (Fastq f : iterable)
+		{
+			assertNotNull(f);
+			assertEquals("ZZZZ", f.getQuality());
+			count++;
+		}
+		assertEquals(4, count);
+		wrappedQuality.close();
+		try
+		{
+			iterable.iterator();
+			fail("second iterator() expected IllegalStateException");
+		}
+		catch (IllegalStateException e)
+		{
+			// expected
+		}
+	}
+
+	public void testIterateErrorExamples() throws Exception
+	{
+		FastqReader reader = createFastqReader();
+		for (String errorExample : ERROR_EXAMPLES)
+		{
+			InputStream inputStream = getClass().getResourceAsStream(errorExample);
+			try
+			{
+				for (Fastq f : reader.iterate(inputStream))
+				{
+					assertNotNull(f);
+				}
+				fail("error example " + errorExample + " expected IllegalStateException");
+			}
+			catch (IllegalStateException e)
+			{
+				assertTrue(e.getCause() instanceof IOException);
+			}
+			finally
+			{
+				inputStream.close();
+			}
+		}
+	}
 }
\ No newline at end of file
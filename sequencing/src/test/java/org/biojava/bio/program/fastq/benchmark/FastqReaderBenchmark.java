@@ -0,0 +1,174 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.bio.program.fastq.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import java.util.Random;
+
+import org.biojava.bio.program.fastq.Fastq;
+import org.biojava.bio.program.fastq.FastqReader;
+import org.biojava.bio.program.fastq.SangerFastqReader;
+import org.biojava.bio.program.fastq.StreamListener;
+
+/**
+ * Measures throughput in reads per second of {@link FastqReader#read(File)},
+ * {@link FastqReader#stream(File, StreamListener)} and {@link FastqReader#iterate(InputStream)}
+ * on FASTQ files in Sanger format, along with the peak heap used by each.
+ *
+ * <p>
+ * Files to read are given as arguments.  Without arguments, a file of random 100 bp reads is
+ * written to the temporary directory first; set the system property <code>reads</code> to
+ * change the number of reads, for example <code>-Dreads=20000000</code> for a file of about
+ * 5 GB.  Reading into a list is skipped for files which would not fit in the maximum heap.
+ * </p>
+ */
+public final class FastqReaderBenchmark
+{
+
+    public static void main(final String[] args) throws IOException
+    {
+        File[] files = new File[args.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            files[i] = new File(args[i]);
+        }
+        if (files.length == 0)
+        {
+            int reads = Integer.getInteger("reads", 2000000);
+            File file = File.createTempFile("FastqReaderBenchmark", ".fastq");
+            file.deleteOnExit();
+            System.out.println("writing " + reads + " reads to " + file);
+            writeRandomFastq(file, reads, 100);
+            files = new File[] { file };
+        }
+        FastqReader reader = new SangerFastqReader();
+        System.out.println("file\tMB\tmethod\treads\tseconds\treads/s\tpeak MB");
+        for (File file : files)
+        {
+            // a read as a Fastq object takes several times its size on disk
+            if (file.length() * 8L < Runtime.getRuntime().maxMemory())
+            {
+                long start = begin();
+                int count = 0;
+                for (Fastq fastq : reader.read(file))
+                {
+                    count++;
+                }
+                end(file, "read", count, start);
+            }
+            else
+            {
+                System.out.println(file.getName() + "\t" + (file.length() >> 20) + "\tread\tskipped, needs more heap");
+            }
+
+            final int[] streamed = new int[1];
+            long start = begin();
+            reader.stream(file, new StreamListener()
+                {
+                    public void fastq(final Fastq fastq)
+                    {
+                        streamed[0]++;
+                    }
+                });
+            end(file, "stream", streamed[0], start);
+
+            start = begin();
+            int count = 0;
+            InputStream inputStream = new FileInputStream(file);
+            try
+            {
+                for (Fastq fastq : reader.iterate(inputStream))
+                {
+                    count++;
+                }
+            }
+            finally
+            {
+                inputStream.close();
+            }
+            end(file, "iterate", count, start);
+        }
+    }
+
+    private static long begin()
+    {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            pool.resetPeakUsage();
+        }
+        return System.nanoTime();
+    }
+
+    private static void end(final File file, final String method, final int count, final long start)
+    {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf("%s\t%d\t%s\t%d\t%.2f\t%.0f\t%.1f%n", file.getName(), file.length() >> 20, method, count,
+                          seconds, count / seconds, peak / (1024.0 * 1024.0));
+    }
+
+    private static void writeRandomFastq(final File file, final int reads, final int length) throws IOException
+    {
+        Random random = new Random(0L);
+        byte[] sequence = new byte[length];
+        byte[] quality = new byte[length];
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        try
+        {
+            for (int i = 0; i < reads; i++)
+            {
+                for (int j = 0; j < length; j++)
+                {
+                    sequence[j] = (byte) "ACGT".charAt(random.nextInt(4));
+                    quality[j] = (byte) (33 + random.nextInt(41));
+                }
+                out.write(("@read" + i + "\n").getBytes("US-ASCII"));
+                out.write(sequence);
+                out.write("\n+\n".getBytes("US-ASCII"));
+                out.write(quality);
+                out.write('\n');
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
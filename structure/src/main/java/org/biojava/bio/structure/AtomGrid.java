@@ -0,0 +1,555 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** A spatial index of atoms for fast neighbor searches.
+ * 
+ * <p>The atom coordinates are packed in a single array and sorted into a uniform grid of cubic cells.
+ * A search within a radius only visits the cells that the sphere touches, so finding the neighbors
+ * of an atom takes time proportional to the number of atoms nearby instead of to the size of the
+ * structure. This replaces all against all loops over {@link Calc#getDistance(Atom, Atom)} for contact
+ * detection and similar tasks.</p>
+ * 
+ * <p>Searches are fastest for radii close to the cell size given on construction. The cells of sparse
+ * structures are widened so that the grid holds at most a few cells per atom. An index is a snapshot:
+ * atoms moved after it was built are found at their old positions.</p>
+ */
+public class AtomGrid {
+
+	/** A pair of atoms within a cutoff distance of each other.
+	 */
+	public static class Contact {
+
+		private final int index1, index2;
+		private final Atom atom1, atom2;
+		private final double distance;
+
+		private Contact(int index1, int index2, Atom atom1, Atom atom2, double distance) {
+			this.index1 = index1;
+			this.index2 = index2;
+			this.atom1 = atom1;
+			this.atom2 = atom2;
+			this.distance = distance;
+		}
+
+		/** Returns the index of the first atom in its grid.
+		 * 
+		 * @return the index of the first atom
+		 */
+		public int getIndex1() {
+			return index1;
+		}
+
+		/** Returns the index of the second atom in its grid.
+		 * 
+		 * @return the index of the second atom
+		 */
+		public int getIndex2() {
+			return index2;
+		}
+
+		/** Returns the first atom, or null if its grid was built from coordinates only.
+		 * 
+		 * @return the first atom
+		 */
+		public Atom getAtom1() {
+			return atom1;
+		}
+
+		/** Returns the second atom, or null if its grid was built from coordinates only.
+		 * 
+		 * @return the second atom
+		 */
+		public Atom getAtom2() {
+			return atom2;
+		}
+
+		/** Returns the distance between the atoms.
+		 * 
+		 * @return the distance in &Aring;
+		 */
+		public double getDistance() {
+			return distance;
+		}
+
+		@Override
+		public String toString() {
+			return "Contact [" + index1 + ", " + index2 + ", " + distance + "]";
+		}
+	}
+
+	// most cells along one axis, so that the product of all three fits in a long
+	private static final int MAX_CELLS = 1 << 20;
+
+	private final Atom[] atoms;
+	private final double[] coords;
+	private final int size;
+
+	private double cellSize, minX, minY, minZ, maxX, maxY, maxZ;
+	private int nx, ny, nz;
+
+	// atom indices sorted by cell, ascending within each cell; cellStart[c] is the first of cell c
+	private int[] cellStart, members;
+
+	/** Indexes an array of atoms.
+	 * 
+	 * @param atoms the atoms to index
+	 * @param cellSize the width of the grid cells, usually the most common search radius
+	 */
+	public AtomGrid(Atom[] atoms, double cellSize) {
+		this(atoms, getCoordinates(atoms), cellSize);
+	}
+
+	/** Indexes packed coordinates.
+	 * 
+	 * @param coords x, y and z of each point, one after the other
+	 * @param cellSize the width of the grid cells, usually the most common search radius
+	 */
+	public AtomGrid(double[] coords, double cellSize) {
+		this(null, coords, cellSize);
+	}
+
+	private AtomGrid(Atom[] atoms, double[] coords, double cellSize) {
+		if (!(cellSize > 0.0)) {
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+		}
+		this.atoms = atoms;
+		this.coords = coords;
+		this.cellSize = cellSize;
+		size = coords.length / 3;
+		build();
+	}
+
+	/** Packs the coordinates of atoms into one array.
+	 * 
+	 * @param atoms the atoms
+	 * @return x, y and z of each atom, one after the other
+	 */
+	public static double[] getCoordinates(Atom[] atoms) {
+		double[] coords = new double[3 * atoms.length];
+		for (int i = 0; i < atoms.length; i++) {
+			coords[3 * i] = atoms[i].getX();
+			coords[3 * i + 1] = atoms[i].getY();
+			coords[3 * i + 2] = atoms[i].getZ();
+		}
+		return coords;
+	}
+
+	/** Collects all atoms of a chain.
+	 * 
+	 * @param chain the chain
+	 * @return the atoms of all groups of the chain
+	 */
+	public static Atom[] getAtoms(Chain chain) {
+		List<Atom> atoms = new ArrayList<Atom>();
+		for (Group g : chain.getAtomGroups()) {
+			atoms.addAll(g.getAtoms());
+		}
+		return atoms.toArray(new Atom[atoms.size()]);
+	}
+
+	/** Returns the number of indexed atoms.
+	 * 
+	 * @return the number of atoms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/** Returns an indexed atom.
+	 * 
+	 * @param index the index of the atom
+	 * @return the atom, or null if this grid was built from coordinates only
+	 */
+	public Atom getAtom(int index) {
+		return (atoms == null) ? null : atoms[index];
+	}
+
+	/** Returns the width of the grid cells, which may be wider than requested for sparse structures.
+	 * 
+	 * @return the cell size in &Aring;
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/** Finds the atoms within a radius of a point.
+	 * 
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @param radius the search radius; atoms at exactly this distance are included
+	 * @return the indices of the atoms found, in ascending order
+	 */
+	public int[] getIndicesWithin(double x, double y, double z, double radius) {
+		int[] found = new int[getCandidates(x, y, z, radius)];
+		int count = getIndicesWithin(x, y, z, radius, found);
+		Arrays.sort(found, 0, count);
+		int[] indices = new int[count];
+		System.arraycopy(found, 0, indices, 0, count);
+		return indices;
+	}
+
+	/** Finds the atoms within a radius of a point without allocating.
+	 * 
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @param radius the search radius; atoms at exactly this distance are included
+	 * @param found receives the indices of the atoms found, in no particular order; must hold {@link #size()}
+	 * @return the number of atoms found
+	 */
+	public int getIndicesWithin(double x, double y, double z, double radius, int[] found) {
+		if (!isNear(x, y, z, radius)) {
+			return 0;
+		}
+		int x0 = clamp(x - radius - minX, nx), x1 = clamp(x + radius - minX, nx),
+			y0 = clamp(y - radius - minY, ny), y1 = clamp(y + radius - minY, ny),
+			z0 = clamp(z - radius - minZ, nz), z1 = clamp(z + radius - minZ, nz), count = 0;
+		double r2 = radius * radius;
+		for (int cx = x0; cx <= x1; cx++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				int c = (cx * ny + cy) * nz;
+				for (int m = cellStart[c + z0], end = cellStart[c + z1 + 1]; m < end; m++) {
+					int i = members[m];
+					double dx = coords[3 * i] - x, dy = coords[3 * i + 1] - y, dz = coords[3 * i + 2] - z;
+					if (dx * dx + dy * dy + dz * dz <= r2) {
+						found[count++] = i;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/** Finds the atoms within a radius of an atom, which is included if it is indexed.
+	 * 
+	 * @param center the center of the search
+	 * @param radius the search radius; atoms at exactly this distance are included
+	 * @return the atoms found, in index order
+	 * @throws UnsupportedOperationException if this grid was built from coordinates only
+	 */
+	public List<Atom> getAtomsWithin(Atom center, double radius) {
+		checkAtoms();
+		int[] found = getIndicesWithin(center.getX(), center.getY(), center.getZ(), radius);
+		List<Atom> list = new ArrayList<Atom>(found.length);
+		for (int i : found) {
+			list.add(atoms[i]);
+		}
+		return list;
+	}
+
+	/** Finds the atoms nearest to a point.
+	 * 
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param z the z coordinate of the point
+	 * @param k the number of atoms to find
+	 * @return the indices of the nearest k atoms (or all atoms, if fewer), nearest first; equally distant atoms
+	 *     are in index order
+	 */
+	public int[] getNearest(double x, double y, double z, int k) {
+		k = Math.min(k, size);
+		if (k <= 0) {
+			return new int[0];
+		}
+
+		// widen the search until it holds k atoms; the nearest k are then among them
+		int[] found = new int[0];
+		int count = 0;
+		for (double radius = cellSize; count < k && !Double.isInfinite(radius); radius *= 2) {
+			int candidates = getCandidates(x, y, z, radius);
+			if (found.length < candidates) {
+				found = new int[candidates];
+			}
+			count = getIndicesWithin(x, y, z, radius, found);
+		}
+
+		// sort by distance, then by index
+		final int[] indices = found;
+		final double[] d2 = new double[count];
+		Integer[] order = new Integer[count];
+		for (int n = 0; n < count; n++) {
+			int i = found[n];
+			double dx = coords[3 * i] - x, dy = coords[3 * i + 1] - y, dz = coords[3 * i + 2] - z;
+			d2[n] = dx * dx + dy * dy + dz * dz;
+			order[n] = n;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer m, Integer n) {
+				int c = Double.compare(d2[m], d2[n]);
+				return (c != 0) ? c : (indices[m] < indices[n]) ? -1 : (indices[m] > indices[n]) ? 1 : 0;
+			}
+		});
+		int[] nearest = new int[Math.min(k, count)];
+		for (int n = 0; n < nearest.length; n++) {
+			nearest[n] = found[order[n]];
+		}
+		return nearest;
+	}
+
+	/** Finds the atoms nearest to an atom, which is included if it is indexed.
+	 * 
+	 * @param center the center of the search
+	 * @param k the number of atoms to find
+	 * @return the nearest k atoms (or all atoms, if fewer), nearest first
+	 * @throws UnsupportedOperationException if this grid was built from coordinates only
+	 */
+	public Atom[] getNearestAtoms(Atom center, int k) {
+		checkAtoms();
+		int[] nearest = getNearest(center.getX(), center.getY(), center.getZ(), k);
+		Atom[] list = new Atom[nearest.length];
+		for (int n = 0; n < nearest.length; n++) {
+			list[n] = atoms[nearest[n]];
+		}
+		return list;
+	}
+
+	/** Finds all pairs of indexed atoms within a cutoff distance of each other.
+	 * 
+	 * @param cutoff the greatest distance of a contact
+	 * @return the contacts, with the first index lower than the second, in index order
+	 */
+	public List<Contact> getContacts(double cutoff) {
+		List<Contact> contacts = new ArrayList<Contact>();
+		int[] found = new int[size];
+		for (int i = 0; i < size; i++) {
+			int count = getIndicesWithin(coords[3 * i], coords[3 * i + 1], coords[3 * i + 2], cutoff, found);
+			Arrays.sort(found, 0, count);
+			for (int n = 0; n < count; n++) {
+				if (found[n] > i) {
+					contacts.add(getContact(this, i, found[n]));
+				}
+			}
+		}
+		return contacts;
+	}
+
+	/** Finds all pairs of an atom of this grid and an atom of another grid within a cutoff distance.
+	 * 
+	 * @param other the grid of the second atoms
+	 * @param cutoff the greatest distance of a contact
+	 * @return the contacts, with the first index from this grid and the second from the other, in index order
+	 */
+	public List<Contact> getContacts(AtomGrid other, double cutoff) {
+		List<Contact> contacts = new ArrayList<Contact>();
+		int[] found = new int[other.size];
+		for (int i = 0; i < size; i++) {
+			int count = other.getIndicesWithin(coords[3 * i], coords[3 * i + 1], coords[3 * i + 2], cutoff, found);
+			Arrays.sort(found, 0, count);
+			for (int n = 0; n < count; n++) {
+				contacts.add(other.getContact(this, i, found[n]));
+			}
+		}
+		return contacts;
+	}
+
+	/** Finds all pairs of atoms from two arrays within a cutoff distance of each other.
+	 * 
+	 * @param atoms1 the first atoms
+	 * @param atoms2 the second atoms
+	 * @param cutoff the greatest distance of a contact
+	 * @return the contacts, indexed into the two arrays
+	 */
+	public static List<Contact> getContacts(Atom[] atoms1, Atom[] atoms2, double cutoff) {
+		return new AtomGrid(atoms1, cutoff).getContacts(new AtomGrid(atoms2, cutoff), cutoff);
+	}
+
+	/** Finds all pairs of atoms from two chains within a cutoff distance of each other.
+	 * 
+	 * @param chain1 the first chain
+	 * @param chain2 the second chain
+	 * @param cutoff the greatest distance of a contact
+	 * @return the contacts, indexed into the atoms of each chain as given by {@link #getAtoms(Chain)}
+	 */
+	public static List<Contact> getContacts(Chain chain1, Chain chain2, double cutoff) {
+		return getContacts(getAtoms(chain1), getAtoms(chain2), cutoff);
+	}
+
+	/** Finds all pairs of atoms from different chains of a structure (first model only) within a cutoff
+	 * distance of each other.
+	 * 
+	 * @param s the structure
+	 * @param cutoff the greatest distance of a contact
+	 * @return the contacts, indexed into the atoms of the structure chain by chain as given by
+	 *     {@link #getAtoms(Chain)}
+	 */
+	public static List<Contact> getInterChainContacts(Structure s, double cutoff) {
+		// one grid per chain, so contacts within a chain are never searched
+		List<Chain> chains = s.getChains();
+		AtomGrid[] grids = new AtomGrid[chains.size()];
+		int[] offsets = new int[chains.size()];
+		int maxSize = 0;
+		for (int c = 0; c < grids.length; c++) {
+			grids[c] = new AtomGrid(getAtoms(chains.get(c)), cutoff);
+			offsets[c] = (c == 0) ? 0 : offsets[c - 1] + grids[c - 1].size;
+			maxSize = Math.max(maxSize, grids[c].size);
+		}
+
+		List<Contact> contacts = new ArrayList<Contact>();
+		int[] found = new int[maxSize];
+		for (int c1 = 0; c1 < grids.length; c1++) {
+			AtomGrid grid1 = grids[c1];
+			// later chains within reach of this one, in chain order so that contacts stay in index order
+			List<Integer> near = new ArrayList<Integer>();
+			for (int c2 = c1 + 1; c2 < grids.length; c2++) {
+				if (grid1.size > 0 && grids[c2].isNear(grid1, cutoff)) {
+					near.add(c2);
+				}
+			}
+			for (int i = 0; i < grid1.size && !near.isEmpty(); i++) {
+				double x = grid1.coords[3 * i], y = grid1.coords[3 * i + 1], z = grid1.coords[3 * i + 2];
+				for (int c2 : near) {
+					AtomGrid grid2 = grids[c2];
+					int count = grid2.getIndicesWithin(x, y, z, cutoff, found);
+					Arrays.sort(found, 0, count);
+					for (int n = 0; n < count; n++) {
+						int j = found[n];
+						double dx = x - grid2.coords[3 * j], dy = y - grid2.coords[3 * j + 1], dz = z - grid2.coords[3 * j + 2];
+						contacts.add(new Contact(offsets[c1] + i, offsets[c2] + j, grid1.getAtom(i), grid2.getAtom(j),
+							Math.sqrt(dx * dx + dy * dy + dz * dz)));
+					}
+				}
+			}
+		}
+		return contacts;
+	}
+
+	// helper method that builds the grid
+	private void build() {
+		minX = minY = minZ = Double.POSITIVE_INFINITY;
+		maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			minX = Math.min(minX, coords[3 * i]);
+			minY = Math.min(minY, coords[3 * i + 1]);
+			minZ = Math.min(minZ, coords[3 * i + 2]);
+			maxX = Math.max(maxX, coords[3 * i]);
+			maxY = Math.max(maxY, coords[3 * i + 1]);
+			maxZ = Math.max(maxZ, coords[3 * i + 2]);
+		}
+		if (size == 0) {
+			minX = minY = minZ = maxX = maxY = maxZ = 0.0;
+		}
+
+		// widen the cells of sparse structures to keep the grid small
+		long maxCells = Math.max(4096L, 8L * size), cells;
+		while (true) {
+			nx = getCells(maxX - minX);
+			ny = getCells(maxY - minY);
+			nz = getCells(maxZ - minZ);
+			cells = (long) nx * ny * nz;
+			if (cells <= maxCells) {
+				break;
+			}
+			cellSize *= 2;
+		}
+
+		// counting sort of the atoms by cell, keeping index order within each cell
+		cellStart = new int[(int) cells + 1];
+		int[] cell = new int[size];
+		for (int i = 0; i < size; i++) {
+			cell[i] = (clamp(coords[3 * i] - minX, nx) * ny + clamp(coords[3 * i + 1] - minY, ny)) * nz
+				+ clamp(coords[3 * i + 2] - minZ, nz);
+			cellStart[cell[i] + 1]++;
+		}
+		for (int c = 0; c < cells; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		members = new int[size];
+		int[] next = new int[(int) cells];
+		System.arraycopy(cellStart, 0, next, 0, next.length);
+		for (int i = 0; i < size; i++) {
+			members[next[cell[i]]++] = i;
+		}
+	}
+
+	// helper method that returns the number of atoms in the cells a search visits, which bounds the atoms found
+	private int getCandidates(double x, double y, double z, double radius) {
+		if (!isNear(x, y, z, radius)) {
+			return 0;
+		}
+		int x0 = clamp(x - radius - minX, nx), x1 = clamp(x + radius - minX, nx),
+			y0 = clamp(y - radius - minY, ny), y1 = clamp(y + radius - minY, ny),
+			z0 = clamp(z - radius - minZ, nz), z1 = clamp(z + radius - minZ, nz), count = 0;
+		for (int cx = x0; cx <= x1; cx++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				int c = (cx * ny + cy) * nz;
+				count += cellStart[c + z1 + 1] - cellStart[c + z0];
+			}
+		}
+		return count;
+	}
+
+	// helper method that checks whether a sphere reaches the bounding box of the atoms
+	private boolean isNear(double x, double y, double z, double radius) {
+		if (size == 0 || !(radius >= 0.0)) {
+			return false;
+		}
+		double dx = Math.max(0.0, Math.max(minX - x, x - maxX)), dy = Math.max(0.0, Math.max(minY - y, y - maxY)),
+			dz = Math.max(0.0, Math.max(minZ - z, z - maxZ));
+		return dx * dx + dy * dy + dz * dz <= radius * radius;
+	}
+
+	// helper method that checks whether the bounding boxes of two grids are within a distance of each other
+	private boolean isNear(AtomGrid other, double distance) {
+		if (size == 0 || other.size == 0) {
+			return false;
+		}
+		double dx = Math.max(0.0, Math.max(minX - other.maxX, other.minX - maxX)),
+			dy = Math.max(0.0, Math.max(minY - other.maxY, other.minY - maxY)),
+			dz = Math.max(0.0, Math.max(minZ - other.maxZ, other.minZ - maxZ));
+		return dx * dx + dy * dy + dz * dz <= distance * distance;
+	}
+
+	// helper method that returns the number of cells spanning an extent
+	private int getCells(double extent) {
+		double cells = Math.floor(extent / cellSize) + 1;
+		return (cells > MAX_CELLS) ? MAX_CELLS : Math.max(1, (int) cells);
+	}
+
+	// helper method that returns the cell along one axis of an offset from the grid origin
+	private int clamp(double offset, int cells) {
+		double cell = Math.floor(offset / cellSize);
+		return (cell < 0.0) ? 0 : (cell >= cells) ? cells - 1 : (int) cell;
+	}
+
+	// helper method that builds the contact of atom i of a grid with atom j of this grid
+	private Contact getContact(AtomGrid grid, int i, int j) {
+		double dx = grid.coords[3 * i] - coords[3 * j], dy = grid.coords[3 * i + 1] - coords[3 * j + 1],
+			dz = grid.coords[3 * i + 2] - coords[3 * j + 2];
+		return new Contact(i, j, grid.getAtom(i), getAtom(j), Math.sqrt(dx * dx + dy * dy + dz * dz));
+	}
+
+	// helper method that checks for atoms
+	private void checkAtoms() {
+		if (atoms == null) {
+			throw new UnsupportedOperationException("Grid was built from coordinates only");
+		}
+	}
+
+}
@@ -360,6 +360,7 @@ public class Calc {
     }
     
     /** Rotate a structure.
+     * Structures packed into a {@link PackedAtomStore} are transformed in a single pass over the store.
      *
      * @param structure a Structure object
      * @param rotationmatrix an array (3x3) of double representing the rotation matrix. 
@@ -372,6 +373,11 @@ public class Calc {
         if ( m.length != 3 ) {
             throw new StructureException ("matrix does not have size 3x3 !");
         }
+        PackedAtomStore store = PackedAtomStore.getStore(structure);
+        if ( store != null) {
+            store.rotate(rotationmatrix);
+            return;
+        }
         AtomIterator iter = new AtomIterator(structure) ;
         while (iter.hasNext()) {
             Atom atom = (Atom) iter.next() ;
@@ -443,12 +449,18 @@ public class Calc {
    }
    
     /** Rotate a structure object.
+     * Structures packed into a {@link PackedAtomStore} are transformed in a single pass over the store.
      * 
      * @param structure the structure to be rotated
      * @param m rotation matrix to be applied 
      */
     public static final void rotate(Structure structure, Matrix m){
         
+        PackedAtomStore store = PackedAtomStore.getStore(structure);
+        if ( store != null) {
+            store.rotate(m);
+            return;
+        }
         AtomIterator iter = new AtomIterator(structure) ;
       
         while (iter.hasNext()) {
@@ -509,12 +521,18 @@ public class Calc {
     
     
     /** shift a structure with a vector.
+     * Structures packed into a {@link PackedAtomStore} are transformed in a single pass over the store.
      *
      * @param structure  a Structure object
      * @param a          an Atom object representing a shift vector
      */
     public static final void shift(Structure structure, Atom a ){
         
+        PackedAtomStore store = PackedAtomStore.getStore(structure);
+        if ( store != null) {
+            store.shift(a.getX(), a.getY(), a.getZ());
+            return;
+        }
         AtomIterator iter = new AtomIterator(structure) ;
         while (iter.hasNext() ) {
             Atom atom = null ;
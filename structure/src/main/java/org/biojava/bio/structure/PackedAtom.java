@@ -0,0 +1,229 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.io.Serializable;
+
+/** An {@link Atom} whose fields are kept in a {@link PackedAtomStore}. The view itself only holds
+ * its store, its index in the store and its parent group, so that all field access reads and writes
+ * the arrays of the store.
+ *
+ * <p>Unlike {@link AtomImpl}, the array returned by {@link #getCoords()} is a copy, so changes to it
+ * do not move the atom, and {@link #setCoords(double[])} copies the values of the given array.
+ * {@link #clone()} returns a detached {@link AtomImpl}.</p>
+ *
+ * @see PackedAtomStore#pack(Structure)
+ */
+public class PackedAtom implements Atom, Serializable {
+
+	private static final long serialVersionUID = -4270836525716452378L;
+
+	private final PackedAtomStore store;
+	private final int index;
+	private Group parent;
+
+	/** Creates a view of an atom of a store.
+	 *
+	 * @param store the store that holds the atom
+	 * @param index the index of the atom in the store
+	 * @param parent the parent group of the atom or null
+	 * @throws IndexOutOfBoundsException if there is no atom at the index
+	 */
+	public PackedAtom(PackedAtomStore store, int index, Group parent) {
+		store.checkIndex(index);
+		this.store = store;
+		this.index = index;
+		this.parent = parent;
+	}
+
+	/** Returns the store that holds this atom.
+	 *
+	 * @return the store of this atom
+	 */
+	public PackedAtomStore getStore() {
+		return store;
+	}
+
+	/** Returns the index of this atom in its store.
+	 *
+	 * @return the index of this atom
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/** Get the Hibernate database ID.
+	 *
+	 * @return the id
+	 * @see #setId(long)
+	 */
+	public long getId() {
+		return store.getId(index);
+	}
+
+	/** Set the Hibernate database ID.
+	 *
+	 * @param id the hibernate id
+	 * @see #getId()
+	 */
+	public void setId(long id) {
+		store.setId(index, id);
+	}
+
+	public void setName(String s) {
+		store.setName(index, s);
+	}
+
+	public String getName() {
+		return store.getName(index);
+	}
+
+	public void setFullName(String s) {
+		store.setFullName(index, s);
+	}
+
+	public String getFullName() {
+		return store.getFullName(index);
+	}
+
+	public void setElement(Element e) {
+		store.setElement(index, e);
+	}
+
+	public Element getElement() {
+		return store.getElement(index);
+	}
+
+	public void setPDBserial(int i) {
+		store.setPDBserial(index, i);
+	}
+
+	public int getPDBserial() {
+		return store.getPDBserial(index);
+	}
+
+	/** Copies the coordinates of the given array into the store.
+	 * @see #getCoords
+	 */
+	public void setCoords(double[] c) {
+		store.setX(index, c[0]);
+		store.setY(index, c[1]);
+		store.setZ(index, c[2]);
+	}
+
+	/** Returns a copy of the coordinates as a double[3] array.
+	 * @see #setCoords
+	 */
+	public double[] getCoords() {
+		return new double[] { getX(), getY(), getZ() };
+	}
+
+	public void setX(double x) {
+		store.setX(index, x);
+	}
+
+	public void setY(double y) {
+		store.setY(index, y);
+	}
+
+	public void setZ(double z) {
+		store.setZ(index, z);
+	}
+
+	public double getX() {
+		return store.getX(index);
+	}
+
+	public double getY() {
+		return store.getY(index);
+	}
+
+	public double getZ() {
+		return store.getZ(index);
+	}
+
+	public void setAltLoc(Character c) {
+		store.setAltLoc(index, c);
+	}
+
+	public Character getAltLoc() {
+		return store.getAltLoc(index);
+	}
+
+	public void setPDBline(String s) {
+		store.setPDBline(index, s);
+	}
+
+	public String getPDBline() {
+		return store.getPDBline(index);
+	}
+
+	public void setOccupancy(double occupancy) {
+		store.setOccupancy(index, occupancy);
+	}
+
+	public double getOccupancy() {
+		return store.getOccupancy(index);
+	}
+
+	public void setTempFactor(double temp) {
+		store.setTempFactor(index, temp);
+	}
+
+	public double getTempFactor() {
+		return store.getTempFactor(index);
+	}
+
+	public void setParent(Group parent) {
+		this.parent = parent;
+	}
+
+	public Group getParent() {
+		return parent;
+	}
+
+	/** Returns an identical copy of this atom as a detached {@link AtomImpl}.
+	 * @return an identical copy of this atom
+	 */
+	public Object clone() {
+		AtomImpl n = new AtomImpl();
+		n.setOccupancy(getOccupancy());
+		n.setTempFactor(getTempFactor());
+		n.setAltLoc(getAltLoc());
+		n.setX(getX());
+		n.setY(getY());
+		n.setZ(getZ());
+		n.setPDBserial(getPDBserial());
+		n.setFullName(getFullName());
+		n.setName(getName());
+		n.setElement(getElement());
+		return n;
+	}
+
+	/** string representation. */
+	public String toString() {
+		return getFullName() + " (" + getName() + ") " + getElement() + " " + getPDBserial() + " " + getX() + " "
+				+ getY() + " " + getZ();
+	}
+
+}
@@ -0,0 +1,482 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.biojava.bio.structure.jama.Matrix;
+
+/** A compact, column oriented store for the fields of many atoms.
+ *
+ * <p>Instead of one {@link AtomImpl} with its own coordinate array and boxed alternate location per atom,
+ * the store keeps one array per field: the coordinates of all atoms lie in a single array as x, y, z
+ * triples, and atom names are shared between all atoms of the same name. Atoms are read and written
+ * through {@link PackedAtom} views, which implement {@link Atom} and so fit into any {@link Group}.</p>
+ *
+ * <p>{@link #pack(Structure)} moves the atoms of a whole structure into a new store, one group after the
+ * other, without changing what the Structure, Chain, Group or Atom interfaces return. Whole structure
+ * transformations in {@link Calc} then run as a single loop over the coordinate array.</p>
+ */
+public class PackedAtomStore implements Serializable {
+
+	private static final long serialVersionUID = 6424517880524733171L;
+
+	private static final Element[] ELEMENTS = Element.values();
+
+	// alternate location of an atom without one
+	private static final char NO_ALT_LOC = '\0';
+
+	// store of each packed structure, so that it is only looked up once
+	private static final Map<Structure, PackedAtomStore> STORES =
+		Collections.synchronizedMap(new WeakHashMap<Structure, PackedAtomStore>());
+
+	private int size;
+	private double[] coords;
+	private double[] occupancy, tempFactor;
+	private int[] serial;
+	private String[] name, fullName;
+	private byte[] element;
+	private char[] altLoc;
+
+	// rarely used fields, only allocated once an atom sets them
+	private long[] id;
+	private String[] pdbline;
+
+	// shared instance of each name
+	private Map<String, String> names;
+
+	/** Creates an empty store.
+	 */
+	public PackedAtomStore() {
+		this(16);
+	}
+
+	/** Creates an empty store with room for the given number of atoms.
+	 *
+	 * @param capacity the number of atoms to make room for
+	 */
+	public PackedAtomStore(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		coords = new double[3 * capacity];
+		occupancy = new double[capacity];
+		tempFactor = new double[capacity];
+		serial = new int[capacity];
+		name = new String[capacity];
+		fullName = new String[capacity];
+		element = new byte[capacity];
+		altLoc = new char[capacity];
+		names = new HashMap<String, String>();
+	}
+
+	/** Moves all atoms of a structure into a new store. The atoms of every group, in every model, are
+	 * replaced by views of the new store in the same order, so that each group holds a contiguous range
+	 * of the store. Atoms of alternate location groups are left as they are.
+	 *
+	 * @param structure the structure to pack
+	 * @return the store that now holds the atoms of the structure
+	 */
+	public static PackedAtomStore pack(Structure structure) {
+		List<Group> groups = getGroups(structure);
+		int atoms = 0;
+		for (Group g : groups) {
+			atoms += g.size();
+		}
+		PackedAtomStore store = new PackedAtomStore(atoms);
+		for (Group g : groups) {
+			List<Atom> views = new ArrayList<Atom>(g.size());
+			for (Atom a : g.getAtoms()) {
+				views.add(store.add(a));
+			}
+			g.clearAtoms();
+			for (Atom view : views) {
+				g.addAtom(view);
+			}
+		}
+		STORES.put(structure, store);
+		return store;
+	}
+
+	/** Returns the store that holds all atoms of a structure, if there is one. This is the case if every
+	 * atom, in every model, is a view of the same store, and the atoms appear in the order of the store
+	 * and cover it completely, as after {@link #pack(Structure)}.
+	 *
+	 * <p>The store is remembered for the structure once it is packed or found, so that later calls return
+	 * it without looking at the atoms again. Groups or atoms changed after that are not noticed; pack the
+	 * structure again after changing them.</p>
+	 *
+	 * @param structure the structure to look up
+	 * @return the store of the structure or null if its atoms are not packed into a single store
+	 */
+	public static PackedAtomStore getStore(Structure structure) {
+		PackedAtomStore store = STORES.get(structure);
+		if (store == null) {
+			store = findStore(structure);
+			if (store != null) {
+				STORES.put(structure, store);
+			}
+		}
+		return store;
+	}
+
+	/** Copies an atom to the end of this store.
+	 *
+	 * @param atom the atom to copy
+	 * @return a view of the copy, with the same parent group as the given atom
+	 */
+	public PackedAtom add(Atom atom) {
+		int i = size;
+		ensureCapacity(i + 1);
+		size++;
+		setX(i, atom.getX());
+		setY(i, atom.getY());
+		setZ(i, atom.getZ());
+		setOccupancy(i, atom.getOccupancy());
+		setTempFactor(i, atom.getTempFactor());
+		setPDBserial(i, atom.getPDBserial());
+		setName(i, atom.getName());
+		setFullName(i, atom.getFullName());
+		setElement(i, atom.getElement());
+		setAltLoc(i, atom.getAltLoc());
+		setPDBline(i, atom.getPDBline());
+		if (atom instanceof AtomImpl) {
+			setId(i, ((AtomImpl) atom).getId());
+		} else if (atom instanceof PackedAtom) {
+			setId(i, ((PackedAtom) atom).getId());
+		}
+		return new PackedAtom(this, i, atom.getParent());
+	}
+
+	/** Returns a new view of an atom of this store. The view has no parent group.
+	 *
+	 * @param index the index of the atom
+	 * @return a view of the atom
+	 * @throws IndexOutOfBoundsException if there is no atom at the index
+	 */
+	public PackedAtom getAtom(int index) {
+		checkIndex(index);
+		return new PackedAtom(this, index, null);
+	}
+
+	/** Returns the number of atoms in this store.
+	 *
+	 * @return the number of atoms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/** Returns the coordinates of all atoms of this store as x, y, z triples. This is the live array of
+	 * the store, so changes to it move the atoms. It may be longer than three times the size of the store,
+	 * and it is replaced when atoms are added beyond the capacity of the store.
+	 *
+	 * @return the coordinate array of the store
+	 */
+	public double[] getCoordinates() {
+		return coords;
+	}
+
+	/** Shrinks the arrays of this store to its size.
+	 */
+	public void trimToSize() {
+		if (size < serial.length) {
+			resize(Math.max(size, 1));
+		}
+	}
+
+	/** Rotates all atoms of this store with a rotation matrix, as {@link Calc#rotate(Atom, double[][])}
+	 * does for one atom.
+	 *
+	 * @param m a 3x3 rotation matrix
+	 */
+	public void rotate(double[][] m) {
+		double m00 = m[0][0], m01 = m[0][1], m02 = m[0][2], m10 = m[1][0], m11 = m[1][1], m12 = m[1][2],
+				m20 = m[2][0], m21 = m[2][1], m22 = m[2][2];
+		double[] c = coords;
+		for (int i = 0, n = 3 * size; i < n; i += 3) {
+			double x = c[i], y = c[i + 1], z = c[i + 2];
+			c[i] = m00 * x + m01 * y + m02 * z;
+			c[i + 1] = m10 * x + m11 * y + m12 * z;
+			c[i + 2] = m20 * x + m21 * y + m22 * z;
+		}
+	}
+
+	/** Rotates all atoms of this store with a rotation matrix, as {@link Calc#rotate(Atom, Matrix)} does
+	 * for one atom. The coordinates are multiplied as a row vector from the left.
+	 *
+	 * @param m a 3x3 rotation matrix
+	 */
+	public void rotate(Matrix m) {
+		double m00 = m.get(0, 0), m01 = m.get(0, 1), m02 = m.get(0, 2), m10 = m.get(1, 0), m11 = m.get(1, 1),
+				m12 = m.get(1, 2), m20 = m.get(2, 0), m21 = m.get(2, 1), m22 = m.get(2, 2);
+		double[] c = coords;
+		for (int i = 0, n = 3 * size; i < n; i += 3) {
+			double x = c[i], y = c[i + 1], z = c[i + 2], s;
+			// sums start from zero as in Matrix.times, which keeps results identical
+			s = 0;
+			s += x * m00;
+			s += y * m10;
+			s += z * m20;
+			c[i] = s;
+			s = 0;
+			s += x * m01;
+			s += y * m11;
+			s += z * m21;
+			c[i + 1] = s;
+			s = 0;
+			s += x * m02;
+			s += y * m12;
+			s += z * m22;
+			c[i + 2] = s;
+		}
+	}
+
+	/** Shifts all atoms of this store by a vector.
+	 *
+	 * @param dx the shift along x
+	 * @param dy the shift along y
+	 * @param dz the shift along z
+	 */
+	public void shift(double dx, double dy, double dz) {
+		double[] c = coords;
+		for (int i = 0, n = 3 * size; i < n; i += 3) {
+			c[i] += dx;
+			c[i + 1] += dy;
+			c[i + 2] += dz;
+		}
+	}
+
+	// field access by index, used by PackedAtom
+
+	double getX(int i) {
+		return coords[3 * i];
+	}
+
+	double getY(int i) {
+		return coords[3 * i + 1];
+	}
+
+	double getZ(int i) {
+		return coords[3 * i + 2];
+	}
+
+	void setX(int i, double x) {
+		coords[3 * i] = x;
+	}
+
+	void setY(int i, double y) {
+		coords[3 * i + 1] = y;
+	}
+
+	void setZ(int i, double z) {
+		coords[3 * i + 2] = z;
+	}
+
+	double getOccupancy(int i) {
+		return occupancy[i];
+	}
+
+	void setOccupancy(int i, double o) {
+		occupancy[i] = o;
+	}
+
+	double getTempFactor(int i) {
+		return tempFactor[i];
+	}
+
+	void setTempFactor(int i, double t) {
+		tempFactor[i] = t;
+	}
+
+	int getPDBserial(int i) {
+		return serial[i];
+	}
+
+	void setPDBserial(int i, int s) {
+		serial[i] = s;
+	}
+
+	String getName(int i) {
+		return name[i];
+	}
+
+	void setName(int i, String s) {
+		name[i] = intern(s);
+	}
+
+	String getFullName(int i) {
+		return fullName[i];
+	}
+
+	void setFullName(int i, String s) {
+		fullName[i] = intern(s);
+	}
+
+	Element getElement(int i) {
+		return (element[i] < 0) ? null : ELEMENTS[element[i]];
+	}
+
+	void setElement(int i, Element e) {
+		element[i] = (byte) ((e == null) ? -1 : e.ordinal());
+	}
+
+	Character getAltLoc(int i) {
+		return (altLoc[i] == NO_ALT_LOC) ? null : Character.valueOf(altLoc[i]);
+	}
+
+	void setAltLoc(int i, Character c) {
+		altLoc[i] = (c == null) ? NO_ALT_LOC : c.charValue();
+	}
+
+	String getPDBline(int i) {
+		return (pdbline == null) ? "" : pdbline[i];
+	}
+
+	void setPDBline(int i, String s) {
+		if (pdbline == null) {
+			if (s != null && s.length() == 0) {
+				return;
+			}
+			pdbline = new String[serial.length];
+			Arrays.fill(pdbline, "");
+		}
+		pdbline[i] = s;
+	}
+
+	long getId(int i) {
+		return (id == null) ? 0 : id[i];
+	}
+
+	void setId(int i, long l) {
+		if (id == null) {
+			if (l == 0) {
+				return;
+			}
+			id = new long[serial.length];
+		}
+		id[i] = l;
+	}
+
+	void checkIndex(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Atom " + i + " not in store of " + size + " atoms");
+		}
+	}
+
+	// helper method that checks whether all atoms of a structure are views that cover one store in order;
+	// stops at the first atom that is not
+	private static PackedAtomStore findStore(Structure structure) {
+		PackedAtomStore store = null;
+		int next = 0;
+		for (int m = 0; m < structure.nrModels(); m++) {
+			for (Chain c : structure.getModel(m)) {
+				for (Group g : c.getAtomGroups()) {
+					for (Atom a : g.getAtoms()) {
+						if (!(a instanceof PackedAtom)) {
+							return null;
+						}
+						PackedAtom view = (PackedAtom) a;
+						if (store == null) {
+							store = view.getStore();
+						}
+						if (view.getStore() != store || view.getIndex() != next) {
+							return null;
+						}
+						next++;
+					}
+				}
+			}
+		}
+		return (store != null && next == store.size) ? store : null;
+	}
+
+	// helper method that lists the groups of all models in the order of AtomIterator
+	private static List<Group> getGroups(Structure structure) {
+		List<Group> groups = new ArrayList<Group>();
+		for (int m = 0; m < structure.nrModels(); m++) {
+			for (Chain c : structure.getModel(m)) {
+				groups.addAll(c.getAtomGroups());
+			}
+		}
+		return groups;
+	}
+
+	// helper method that returns the shared instance of a name
+	private String intern(String s) {
+		if (s == null) {
+			return null;
+		}
+		String shared = names.get(s);
+		if (shared == null) {
+			names.put(s, s);
+			shared = s;
+		}
+		return shared;
+	}
+
+	// helper method that grows the arrays to hold at least the given number of atoms
+	private void ensureCapacity(int capacity) {
+		if (capacity > serial.length) {
+			resize(Math.max(capacity, serial.length + (serial.length >> 1) + 1));
+		}
+	}
+
+	// helper method that copies all arrays to the given capacity
+	private void resize(int capacity) {
+		coords = (double[]) copyOf(coords, 3 * capacity);
+		occupancy = (double[]) copyOf(occupancy, capacity);
+		tempFactor = (double[]) copyOf(tempFactor, capacity);
+		serial = (int[]) copyOf(serial, capacity);
+		name = (String[]) copyOf(name, capacity);
+		fullName = (String[]) copyOf(fullName, capacity);
+		element = (byte[]) copyOf(element, capacity);
+		altLoc = (char[]) copyOf(altLoc, capacity);
+		if (id != null) {
+			id = (long[]) copyOf(id, capacity);
+		}
+		if (pdbline != null) {
+			int from = pdbline.length;
+			pdbline = (String[]) copyOf(pdbline, capacity);
+			if (from < capacity) {
+				Arrays.fill(pdbline, from, capacity, "");
+			}
+		}
+	}
+
+	// helper method that copies an array of any component type to a new array of the given length
+	private static Object copyOf(Object array, int length) {
+		Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+		System.arraycopy(array, 0, copy, 0, Math.min(Array.getLength(array), length));
+		return copy;
+	}
+
+}
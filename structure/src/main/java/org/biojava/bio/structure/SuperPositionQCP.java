@@ -0,0 +1,472 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import org.biojava.bio.structure.jama.EigenvalueDecomposition;
+import org.biojava.bio.structure.jama.Matrix;
+
+/** Calculates the superposition of two sets of coordinates with the quaternion characteristic
+ * polynomial (QCP) method.
+ *
+ * <p>The result is the same least squares superposition that {@link SVDSuperimposer} finds, but the
+ * optimal rotation is taken from the largest eigenvalue of a 4x4 key matrix, which is found by a few
+ * Newton steps on its characteristic polynomial instead of a full singular value decomposition. The
+ * coordinates are read from packed arrays of x, y, z triples, and a superposition creates no objects,
+ * so that one instance can be reused for the many superpositions of an alignment. The RMSD is measured
+ * on the transformed coordinates rather than derived from the eigenvalue, which keeps it exact for
+ * close superpositions.</p>
+ *
+ * <p>Citation:<br/>
+ * <i>Theobald DL (2005). "Rapid calculation of RMSDs using a quaternion-based characteristic
+ * polynomial". Acta Crystallogr A 61: 478 - 480.</i><br/>
+ * <i>Liu P, Agrafiotis DK and Theobald DL (2010). "Fast determination of the optimal rotational matrix
+ * for macromolecular superpositions". J Comput Chem 31: 1561 - 1563.</i></p>
+ *
+ * <p>An instance is not thread safe; use one per thread.</p>
+ *
+ * example usage:
+ * <pre>
+ * double[] coords1 = SuperPositionQCP.getCoordinates(ca1);
+ * double[] coords2 = SuperPositionQCP.getCoordinates(ca2);
+ * SuperPositionQCP qcp = new SuperPositionQCP();
+ *
+ * // superimpose 8 atoms of ca2, starting at atom 10, onto 8 atoms of ca1, starting at atom 20
+ * double rmsd = qcp.superpose(coords1, 20, coords2, 10, 8);
+ *
+ * Calc.rotate(structure2, qcp.getRotation());
+ * Calc.shift(structure2, qcp.getTranslation());
+ * </pre>
+ *
+ * @see SVDSuperimposer
+ */
+public class SuperPositionQCP {
+
+	// relative precision of the largest eigenvalue
+	private static final double EVAL_PREC = 1e-11;
+
+	// smallest squared norm of an adjoint column that is used as eigenvector
+	private static final double EVEC_PREC = 1e-6;
+
+	private static final int MAX_ITERATIONS = 50;
+
+	// rotation in the convention of Calc.rotate(Atom, Matrix): x'[j] = sum of x[i] * rot[i][j]
+	private final double[][] rot;
+	private final double[] tran;
+	private double rmsd;
+
+	// reusable buffers for the coordinates of atoms
+	private double[] buffer1, buffer2;
+
+	/** Creates a new instance, set to the identity transformation.
+	 */
+	public SuperPositionQCP() {
+		rot = new double[3][3];
+		tran = new double[3];
+		setIdentity();
+		buffer1 = new double[0];
+		buffer2 = new double[0];
+	}
+
+	/** Copies the coordinates of atoms into a new array of x, y, z triples.
+	 *
+	 * @param atoms atom array
+	 * @return the packed coordinates
+	 */
+	public static double[] getCoordinates(Atom[] atoms) {
+		double[] coords = new double[3 * atoms.length];
+		for (int i = 0, k = 0; i < atoms.length; i++, k += 3) {
+			coords[k] = atoms[i].getX();
+			coords[k + 1] = atoms[i].getY();
+			coords[k + 2] = atoms[i].getZ();
+		}
+		return coords;
+	}
+
+	/** Calculates the superposition of atom set 2 onto atom set 1.
+	 *
+	 * @param atomSet1 Atom array 1, which stays in place
+	 * @param atomSet2 Atom array 2, which is superimposed
+	 * @return the RMSD of the superposition
+	 * @throws StructureException if the atom sets are not of same length
+	 */
+	public double superpose(Atom[] atomSet1, Atom[] atomSet2) throws StructureException {
+		if (atomSet1.length != atomSet2.length) {
+			throw new StructureException("The two atom sets are not of same length!");
+		}
+		int length = atomSet1.length;
+		ensureCapacity(length);
+		for (int i = 0, k = 0; i < length; i++, k += 3) {
+			copy(atomSet1[i], buffer1, k);
+			copy(atomSet2[i], buffer2, k);
+		}
+		return superpose(buffer1, 0, buffer2, 0, length);
+	}
+
+	/** Calculates the superposition of a run of atoms of set 2 onto a run of atoms of set 1.
+	 *
+	 * @param atomSet1 Atom array 1, which stays in place
+	 * @param offset1 the first atom of atomSet1 to use
+	 * @param atomSet2 Atom array 2, which is superimposed
+	 * @param offset2 the first atom of atomSet2 to use
+	 * @param length the number of atoms to use from both arrays
+	 * @return the RMSD of the superposition
+	 */
+	public double superpose(Atom[] atomSet1, int offset1, Atom[] atomSet2, int offset2, int length) {
+		ensureCapacity(length);
+		for (int i = 0, k = 0; i < length; i++, k += 3) {
+			copy(atomSet1[offset1 + i], buffer1, k);
+			copy(atomSet2[offset2 + i], buffer2, k);
+		}
+		return superpose(buffer1, 0, buffer2, 0, length);
+	}
+
+	/** Calculates the superposition of selected atoms of set 2 onto selected atoms of set 1, without
+	 * the need to copy the selection into new arrays first.
+	 *
+	 * @param atomSet1 Atom array 1, which stays in place
+	 * @param positions1 the positions of the selected atoms in atomSet1
+	 * @param atomSet2 Atom array 2, which is superimposed
+	 * @param positions2 the positions of the selected atoms in atomSet2, in the order of their equivalent in positions1
+	 * @param length the number of selected atoms
+	 * @return the RMSD of the superposition
+	 */
+	public double superpose(Atom[] atomSet1, int[] positions1, Atom[] atomSet2, int[] positions2, int length) {
+		ensureCapacity(length);
+		for (int i = 0, k = 0; i < length; i++, k += 3) {
+			copy(atomSet1[positions1[i]], buffer1, k);
+			copy(atomSet2[positions2[i]], buffer2, k);
+		}
+		return superpose(buffer1, 0, buffer2, 0, length);
+	}
+
+	/** Calculates the superposition of a run of coordinates of set 2 onto a run of coordinates of set 1.
+	 * The arrays hold the coordinates of one atom after the other as x, y, z triples, and are not
+	 * changed.
+	 *
+	 * @param coords1 packed coordinates of set 1, which stays in place
+	 * @param offset1 the first atom of set 1 to use
+	 * @param coords2 packed coordinates of set 2, which is superimposed
+	 * @param offset2 the first atom of set 2 to use
+	 * @param length the number of atoms to use from both sets
+	 * @return the RMSD of the superposition
+	 */
+	public double superpose(double[] coords1, int offset1, double[] coords2, int offset2, int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("At least one atom is needed for a superposition, got " + length);
+		}
+		int start1 = 3 * offset1, start2 = 3 * offset2, end1 = start1 + 3 * length;
+		if (start1 < 0 || end1 > coords1.length || start2 < 0 || start2 + 3 * length > coords2.length) {
+			throw new IndexOutOfBoundsException("Atoms " + offset1 + " and " + offset2 + " to " + length
+					+ " atoms further are out of range");
+		}
+
+		// centroids
+		double c1x = 0.0, c1y = 0.0, c1z = 0.0, c2x = 0.0, c2y = 0.0, c2z = 0.0;
+		for (int i = start1, j = start2; i < end1; i += 3, j += 3) {
+			c1x += coords1[i];
+			c1y += coords1[i + 1];
+			c1z += coords1[i + 2];
+			c2x += coords2[j];
+			c2y += coords2[j + 1];
+			c2z += coords2[j + 2];
+		}
+		c1x /= length;
+		c1y /= length;
+		c1z /= length;
+		c2x /= length;
+		c2y /= length;
+		c2z /= length;
+
+		// inner product of the centered coordinates
+		double g1 = 0.0, g2 = 0.0;
+		double sxx = 0.0, sxy = 0.0, sxz = 0.0, syx = 0.0, syy = 0.0, syz = 0.0, szx = 0.0, szy = 0.0, szz = 0.0;
+		for (int i = start1, j = start2; i < end1; i += 3, j += 3) {
+			double x1 = coords1[i] - c1x, y1 = coords1[i + 1] - c1y, z1 = coords1[i + 2] - c1z;
+			double x2 = coords2[j] - c2x, y2 = coords2[j + 1] - c2y, z2 = coords2[j + 2] - c2z;
+			g1 += x1 * x1 + y1 * y1 + z1 * z1;
+			g2 += x2 * x2 + y2 * y2 + z2 * z2;
+			sxx += x1 * x2;
+			sxy += x1 * y2;
+			sxz += x1 * z2;
+			syx += y1 * x2;
+			syy += y1 * y2;
+			syz += y1 * z2;
+			szx += z1 * x2;
+			szy += z1 * y2;
+			szz += z1 * z2;
+		}
+
+		calculateRotation(sxx, sxy, sxz, syx, syy, syz, szx, szy, szz, 0.5 * (g1 + g2));
+
+		// shift the rotated centroid of set 2 onto the centroid of set 1
+		tran[0] = c1x - (c2x * rot[0][0] + c2y * rot[1][0] + c2z * rot[2][0]);
+		tran[1] = c1y - (c2x * rot[0][1] + c2y * rot[1][1] + c2z * rot[2][1]);
+		tran[2] = c1z - (c2x * rot[0][2] + c2y * rot[1][2] + c2z * rot[2][2]);
+
+		double sum = 0.0;
+		for (int i = start1, j = start2; i < end1; i += 3, j += 3) {
+			double x = coords2[j], y = coords2[j + 1], z = coords2[j + 2];
+			double dx = coords1[i] - (x * rot[0][0] + y * rot[1][0] + z * rot[2][0] + tran[0]);
+			double dy = coords1[i + 1] - (x * rot[0][1] + y * rot[1][1] + z * rot[2][1] + tran[1]);
+			double dz = coords1[i + 2] - (x * rot[0][2] + y * rot[1][2] + z * rot[2][2] + tran[2]);
+			sum += dx * dx + dy * dy + dz * dz;
+		}
+		rmsd = Math.sqrt(sum / length);
+		return rmsd;
+	}
+
+	/** Get the RMSD of the last superposition.
+	 *
+	 * @return the RMSD
+	 */
+	public double getRmsd() {
+		return rmsd;
+	}
+
+	/** Get the rotation matrix of the last superposition, in the convention of
+	 * {@link SVDSuperimposer#getRotation()} and {@link Calc#rotate(Atom, Matrix)}.
+	 *
+	 * @return a new rotation matrix
+	 */
+	public Matrix getRotation() {
+		double[][] m = new double[3][];
+		for (int i = 0; i < 3; i++) {
+			m[i] = rot[i].clone();
+		}
+		return new Matrix(m);
+	}
+
+	/** Get the shift vector of the last superposition, which is applied after the rotation.
+	 *
+	 * @return a new shift vector
+	 */
+	public Atom getTranslation() {
+		Atom a = new AtomImpl();
+		a.setX(tran[0]);
+		a.setY(tran[1]);
+		a.setZ(tran[2]);
+		return a;
+	}
+
+	/** Applies the rotation and shift of the last superposition to an atom.
+	 *
+	 * @param atom atom to be transformed
+	 */
+	public void transform(Atom atom) {
+		double x = atom.getX(), y = atom.getY(), z = atom.getZ();
+		atom.setX(x * rot[0][0] + y * rot[1][0] + z * rot[2][0] + tran[0]);
+		atom.setY(x * rot[0][1] + y * rot[1][1] + z * rot[2][1] + tran[1]);
+		atom.setZ(x * rot[0][2] + y * rot[1][2] + z * rot[2][2] + tran[2]);
+	}
+
+	/** Applies the rotation and shift of the last superposition to a run of packed coordinates.
+	 *
+	 * @param coords packed coordinates
+	 * @param offset the first atom to transform
+	 * @param length the number of atoms to transform
+	 */
+	public void transform(double[] coords, int offset, int length) {
+		for (int k = 3 * offset, end = k + 3 * length; k < end; k += 3) {
+			double x = coords[k], y = coords[k + 1], z = coords[k + 2];
+			coords[k] = x * rot[0][0] + y * rot[1][0] + z * rot[2][0] + tran[0];
+			coords[k + 1] = x * rot[0][1] + y * rot[1][1] + z * rot[2][1] + tran[1];
+			coords[k + 2] = x * rot[0][2] + y * rot[1][2] + z * rot[2][2] + tran[2];
+		}
+	}
+
+	// helper method that finds the optimal rotation from the inner product matrix and
+	// half the sum of the squared norms, after Liu, Agrafiotis and Theobald (2010)
+	private void calculateRotation(double sxx, double sxy, double sxz, double syx, double syy, double syz,
+			double szx, double szy, double szz, double e0) {
+
+		if (e0 <= 0.0) {
+			// all atoms lie on their centroid, so any rotation is optimal
+			setIdentity();
+			return;
+		}
+
+		double sxx2 = sxx * sxx, syy2 = syy * syy, szz2 = szz * szz;
+		double sxy2 = sxy * sxy, syz2 = syz * syz, sxz2 = sxz * sxz;
+		double syx2 = syx * syx, szy2 = szy * szy, szx2 = szx * szx;
+
+		double syzSzymSyySzz2 = 2.0 * (syz * szy - syy * szz);
+		double sxx2Syy2Szz2Syz2Szy2 = syy2 + szz2 - sxx2 + syz2 + szy2;
+		double sxy2Sxz2Syx2Szx2 = sxy2 + sxz2 - syx2 - szx2;
+
+		double sxzpSzx = sxz + szx, syzpSzy = syz + szy, sxypSyx = sxy + syx;
+		double syzmSzy = syz - szy, sxzmSzx = sxz - szx, sxymSyx = sxy - syx;
+		double sxxpSyy = sxx + syy, sxxmSyy = sxx - syy;
+
+		// coefficients of the characteristic polynomial x^4 + c2 x^2 + c1 x + c0 of the key matrix
+		double c2 = -2.0 * (sxx2 + syy2 + szz2 + sxy2 + syx2 + sxz2 + szx2 + syz2 + szy2);
+		double c1 = 8.0 * (sxx * syz * szy + syy * szx * sxz + szz * sxy * syx
+				- sxx * syy * szz - syz * szx * sxy - szy * syx * sxz);
+		double c0 = sxy2Sxz2Syx2Szx2 * sxy2Sxz2Syx2Szx2
+				+ (sxx2Syy2Szz2Syz2Szy2 + syzSzymSyySzz2) * (sxx2Syy2Szz2Syz2Szy2 - syzSzymSyySzz2)
+				+ (-sxzpSzx * syzmSzy + sxymSyx * (sxxmSyy - szz)) * (-sxzmSzx * syzpSzy + sxymSyx * (sxxmSyy + szz))
+				+ (-sxzpSzx * syzpSzy - sxypSyx * (sxxpSyy - szz)) * (-sxzmSzx * syzmSzy - sxypSyx * (sxxpSyy + szz))
+				+ (sxypSyx * syzpSzy + sxzpSzx * (sxxmSyy + szz)) * (-sxymSyx * syzmSzy + sxzpSzx * (sxxpSyy + szz))
+				+ (sxypSyx * syzmSzy + sxzmSzx * (sxxmSyy - szz)) * (-sxymSyx * syzpSzy + sxzmSzx * (sxxpSyy - szz));
+
+		// Newton-Raphson from e0, which is an upper bound of the largest eigenvalue
+		double eigenvalue = e0;
+		boolean converged = false;
+		for (int i = 0; i < MAX_ITERATIONS; i++) {
+			double old = eigenvalue;
+			double x2 = eigenvalue * eigenvalue;
+			double b = (x2 + c2) * eigenvalue;
+			double a = b + c1;
+			double derivative = 2.0 * x2 * eigenvalue + b + a;
+			if (derivative == 0.0) {
+				break;
+			}
+			eigenvalue -= (a * eigenvalue + c0) / derivative;
+			if (Math.abs(eigenvalue - old) < Math.abs(EVAL_PREC * eigenvalue)) {
+				converged = true;
+				break;
+			}
+		}
+
+		// the key matrix minus the eigenvalue
+		double a11 = sxxpSyy + szz - eigenvalue, a12 = syzmSzy, a13 = -sxzmSzx, a14 = sxymSyx;
+		double a21 = syzmSzy, a22 = sxxmSyy - szz - eigenvalue, a23 = sxypSyx, a24 = sxzpSzx;
+		double a31 = a13, a32 = a23, a33 = syy - sxx - szz - eigenvalue, a34 = syzpSzy;
+		double a41 = a14, a42 = a24, a43 = a34, a44 = szz - sxxpSyy - eigenvalue;
+
+		double a3344_4334 = a33 * a44 - a43 * a34, a3244_4234 = a32 * a44 - a42 * a34;
+		double a3243_4233 = a32 * a43 - a42 * a33, a3143_4133 = a31 * a43 - a41 * a33;
+		double a3144_4134 = a31 * a44 - a41 * a34, a3142_4132 = a31 * a42 - a41 * a32;
+
+		// the eigenvector is any non zero column of the adjoint matrix
+		double q1 = a22 * a3344_4334 - a23 * a3244_4234 + a24 * a3243_4233;
+		double q2 = -a21 * a3344_4334 + a23 * a3144_4134 - a24 * a3143_4133;
+		double q3 = a21 * a3244_4234 - a22 * a3144_4134 + a24 * a3142_4132;
+		double q4 = -a21 * a3243_4233 + a22 * a3143_4133 - a23 * a3142_4132;
+		double qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+
+		if (qsqr < EVEC_PREC) {
+			q1 = a12 * a3344_4334 - a13 * a3244_4234 + a14 * a3243_4233;
+			q2 = -a11 * a3344_4334 + a13 * a3144_4134 - a14 * a3143_4133;
+			q3 = a11 * a3244_4234 - a12 * a3144_4134 + a14 * a3142_4132;
+			q4 = -a11 * a3243_4233 + a12 * a3143_4133 - a13 * a3142_4132;
+			qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+		}
+
+		if (qsqr < EVEC_PREC) {
+			double a1324_1423 = a13 * a24 - a14 * a23, a1224_1422 = a12 * a24 - a14 * a22;
+			double a1223_1322 = a12 * a23 - a13 * a22, a1124_1421 = a11 * a24 - a14 * a21;
+			double a1123_1321 = a11 * a23 - a13 * a21, a1122_1221 = a11 * a22 - a12 * a21;
+
+			q1 = a42 * a1324_1423 - a43 * a1224_1422 + a44 * a1223_1322;
+			q2 = -a41 * a1324_1423 + a43 * a1124_1421 - a44 * a1123_1321;
+			q3 = a41 * a1224_1422 - a42 * a1124_1421 + a44 * a1122_1221;
+			q4 = -a41 * a1223_1322 + a42 * a1123_1321 - a43 * a1122_1221;
+			qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+
+			if (qsqr < EVEC_PREC) {
+				q1 = a32 * a1324_1423 - a33 * a1224_1422 + a34 * a1223_1322;
+				q2 = -a31 * a1324_1423 + a33 * a1124_1421 - a34 * a1123_1321;
+				q3 = a31 * a1224_1422 - a32 * a1124_1421 + a34 * a1122_1221;
+				q4 = -a31 * a1223_1322 + a32 * a1123_1321 - a33 * a1122_1221;
+				qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+			}
+		}
+
+		if (! converged || qsqr < EVEC_PREC || Double.isNaN(qsqr) || Double.isInfinite(qsqr)) {
+			// degenerate cases, like atoms on a line, where the largest eigenvalue is not single
+			double[] q = getEigenvector(new double[][] {
+					{ sxxpSyy + szz, syzmSzy, -sxzmSzx, sxymSyx },
+					{ syzmSzy, sxxmSyy - szz, sxypSyx, sxzpSzx },
+					{ -sxzmSzx, sxypSyx, syy - sxx - szz, syzpSzy },
+					{ sxymSyx, sxzpSzx, syzpSzy, szz - sxxpSyy } });
+			q1 = q[0];
+			q2 = q[1];
+			q3 = q[2];
+			q4 = q[3];
+			qsqr = q1 * q1 + q2 * q2 + q3 * q3 + q4 * q4;
+		}
+
+		double normq = Math.sqrt(qsqr);
+		q1 /= normq;
+		q2 /= normq;
+		q3 /= normq;
+		q4 /= normq;
+
+		double a2 = q1 * q1, x2 = q2 * q2, y2 = q3 * q3, z2 = q4 * q4;
+		double xy = q2 * q3, az = q1 * q4, zx = q4 * q2, ay = q1 * q3, yz = q3 * q4, ax = q1 * q2;
+
+		rot[0][0] = a2 + x2 - y2 - z2;
+		rot[1][0] = 2.0 * (xy + az);
+		rot[2][0] = 2.0 * (zx - ay);
+		rot[0][1] = 2.0 * (xy - az);
+		rot[1][1] = a2 - x2 + y2 - z2;
+		rot[2][1] = 2.0 * (yz + ax);
+		rot[0][2] = 2.0 * (zx + ay);
+		rot[1][2] = 2.0 * (yz - ax);
+		rot[2][2] = a2 - x2 - y2 + z2;
+	}
+
+	// helper method that returns the eigenvector of the largest eigenvalue of a symmetric matrix
+	private static double[] getEigenvector(double[][] key) {
+		EigenvalueDecomposition eig = new Matrix(key).eig();
+		double[] values = eig.getRealEigenvalues();
+		int max = 0;
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] > values[max]) {
+				max = i;
+			}
+		}
+		double[][] vectors = eig.getV().getArray();
+		double[] q = new double[values.length];
+		for (int i = 0; i < q.length; i++) {
+			q[i] = vectors[i][max];
+		}
+		return q;
+	}
+
+	// helper method that resets the transformation
+	private void setIdentity() {
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				rot[i][j] = (i == j) ? 1.0 : 0.0;
+			}
+			tran[i] = 0.0;
+		}
+	}
+
+	// helper method that makes room for the coordinates of the given number of atoms
+	private void ensureCapacity(int length) {
+		if (buffer1.length < 3 * length) {
+			buffer1 = new double[3 * length];
+			buffer2 = new double[3 * length];
+		}
+	}
+
+	// helper method that copies the coordinates of an atom into a packed array
+	private static void copy(Atom atom, double[] coords, int k) {
+		coords[k] = atom.getX();
+		coords[k + 1] = atom.getY();
+		coords[k + 2] = atom.getZ();
+	}
+
+}
@@ -0,0 +1,411 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.bio.structure.align;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.biojava.bio.structure.Atom;
+import org.biojava.bio.structure.StructureException;
+import org.biojava.bio.structure.StructureTools;
+import org.biojava.bio.structure.align.ce.CeParameters;
+import org.biojava.bio.structure.align.ce.ConfigStrucAligParams;
+import org.biojava.bio.structure.align.client.FarmJobRunnable;
+import org.biojava.bio.structure.align.client.PdbPair;
+import org.biojava.bio.structure.align.fatcat.calc.FatCatParameters;
+import org.biojava.bio.structure.align.model.AFPChain;
+import org.biojava.bio.structure.align.seq.SmithWaterman3DParameters;
+import org.biojava.bio.structure.align.util.AtomCache;
+import org.biojava.bio.structure.align.xml.AFPChainXMLConverter;
+import org.biojava.utils.xml.PrettyXMLWriter;
+
+/** Aligns many pairs of structures locally, using all processor cores.
+ *
+ * <p>Unlike a {@link FarmJob}, which aligns the pairs of each thread one after another and fetches both
+ * structures of every pair from its {@link AtomCache}, the CA atoms of every structure are loaded once
+ * up front and shared by all pairs. The pairs are then run on a thread pool, largest first, so that
+ * long alignments do not hold up the end of the run. Only a few pairs for each thread are queued at
+ * any time, so memory use does not grow with the number of pairs. Each worker thread has its own
+ * instance of the {@link StructureAlignment} algorithm and its own copy of the parameters.</p>
+ *
+ * <p>Results are streamed as they finish, as the XML of each {@link AFPChain} inside an
+ * <code>alignments</code> element, which {@link org.biojava.bio.structure.align.xml.AFPChainXMLParser#parseMultiXML(String)}
+ * reads back. A pair that fails is written as an <code>AFPChain</code> element with an <code>error</code>
+ * attribute, as the farm job does. The throughput and the latency of each pair of the last run are
+ * kept for inspection.</p>
+ */
+public class AllVsAllAligner {
+
+	private final AtomCache cache;
+	private final StructureAlignment algorithm;
+	private final ConfigStrucAligParams params;
+	private int threads;
+	private ExecutorService executor;
+
+	// pairs queued or running for each thread
+	private static final int PENDING_PER_THREAD = 4;
+
+	// one instance of the algorithm and its parameters for each worker thread
+	private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>();
+
+	// statistics of the last run
+	private int failures;
+	private long elapsed;
+	private long[] latencies = new long[0];
+
+	/** Prepares to align pairs with an algorithm. The algorithm is not used itself, but copied for each
+	 * worker thread along with its current parameters.
+	 *
+	 * @param cache the cache to load the CA atoms of each structure from
+	 * @param algorithm the algorithm to align with, for example from {@link StructureAlignmentFactory}
+	 * @throws IllegalArgumentException if the parameters of the algorithm are not {@link CeParameters},
+	 *  {@link FatCatParameters} or {@link SmithWaterman3DParameters}, which are the ones that can be copied
+	 */
+	public AllVsAllAligner(AtomCache cache, StructureAlignment algorithm) {
+		this.cache = cache;
+		this.algorithm = algorithm;
+		params = copy(algorithm.getParameters());
+		threads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/** Sets the number of worker threads. The default is one for each processor core.
+	 *
+	 * @param threads number of worker threads
+	 * @throws IllegalArgumentException if threads < 1
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Need at least one thread: " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/** Sets the executor to run alignments on, for example a work stealing pool.
+	 *
+	 * @param executor executor to run alignments on; null (the default) to
+	 *  start a pool of {@link #setThreads(int)} threads for each run. The
+	 *  executor is not shut down by the aligner.
+	 */
+	public void setExecutorService(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/** Aligns every structure of a list with every other one.
+	 *
+	 * @param names names of the structures as understood by {@link AtomCache#getAtoms(String)}
+	 * @param out where to write the XML of the alignments to
+	 * @return the number of pairs aligned, including failed pairs
+	 * @throws IOException if writing to out fails
+	 */
+	public int alignAllVsAll(List<String> names, Writer out) throws IOException {
+		List<PdbPair> pairs = new ArrayList<PdbPair>();
+		for (int i = 0; i < names.size(); i++) {
+			for (int j = i + 1; j < names.size(); j++) {
+				pairs.add(new PdbPair(names.get(i), names.get(j)));
+			}
+		}
+		return align(pairs, out);
+	}
+
+	/** Aligns the given pairs of structures.
+	 *
+	 * @param pairs pairs of structure names as understood by {@link AtomCache#getAtoms(String)}
+	 * @param out where to write the XML of the alignments to
+	 * @return the number of pairs aligned, including failed pairs
+	 * @throws IOException if writing to out fails
+	 */
+	public int align(Collection<PdbPair> pairs, Writer out) throws IOException {
+		long start = System.nanoTime();
+		ExecutorService pool = (executor != null) ? executor : Executors.newFixedThreadPool(threads);
+		try {
+			Map<String, Object> atoms = load(pairs, pool);
+			return align(pairs, atoms, pool, out, start);
+		} finally {
+			if (pool != executor) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/** Returns the number of pairs that failed in the last run.
+	 *
+	 * @return number of failed pairs
+	 */
+	public int getFailures() {
+		return failures;
+	}
+
+	/** Returns the time taken by the last run, including the loading of structures.
+	 *
+	 * @return time in milliseconds
+	 */
+	public long getElapsedTime() {
+		return elapsed / 1000000L;
+	}
+
+	/** Returns the number of pairs aligned per second in the last run.
+	 *
+	 * @return pairs per second
+	 */
+	public double getThroughput() {
+		return (elapsed == 0) ? 0.0 : latencies.length * 1.0e9 / elapsed;
+	}
+
+	/** Returns the latency of a pair below which the given fraction of the pairs of the last run finished.
+	 * The latency of a pair is the time taken to align it and to convert the result to XML.
+	 *
+	 * @param fraction fraction of pairs, for example 0.5 for the median or 1.0 for the slowest pair
+	 * @return latency in milliseconds, or 0 if no pairs were aligned
+	 */
+	public double getLatency(double fraction) {
+		if (latencies.length == 0) {
+			return 0.0;
+		}
+		int index = (int) Math.ceil(fraction * latencies.length) - 1;
+		return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1.0e6;
+	}
+
+	// helper method that loads the CA atoms of all structures in parallel; failures are kept as messages
+	private Map<String, Object> load(Collection<PdbPair> pairs, ExecutorService pool) {
+		Set<String> names = new LinkedHashSet<String>();
+		for (PdbPair pair : pairs) {
+			names.add(pair.getName1());
+			names.add(pair.getName2());
+		}
+		Map<String, Future<Atom[]>> futures = new HashMap<String, Future<Atom[]>>();
+		for (final String name : names) {
+			futures.put(name, pool.submit(new Callable<Atom[]>() {
+				public Atom[] call() throws Exception {
+					return cache.getAtoms(name);
+				}
+			}));
+		}
+		Map<String, Object> atoms = new HashMap<String, Object>();
+		for (String name : names) {
+			try {
+				atoms.put(name, futures.get(name).get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while loading structures", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				atoms.put(name, "Could not load " + name + ": " + cause.getMessage());
+			}
+		}
+		return atoms;
+	}
+
+	// helper method that runs the alignments largest first and writes results as they finish
+	private int align(Collection<PdbPair> pairs, final Map<String, Object> atoms, ExecutorService pool, Writer out,
+			long start) throws IOException {
+		List<PdbPair> ordered = new ArrayList<PdbPair>(pairs);
+		Collections.sort(ordered, new Comparator<PdbPair>() {
+			public int compare(PdbPair p1, PdbPair p2) {
+				long c1 = getCost(atoms, p1), c2 = getCost(atoms, p2);
+				return (c1 > c2) ? -1 : (c1 < c2) ? 1 : 0;
+			}
+		});
+
+		// only a window of pairs is in flight; each one that finishes makes room for the next
+		CompletionService<Result> results = new ExecutorCompletionService<Result>(pool);
+		Set<Future<Result>> pending = new HashSet<Future<Result>>();
+		int window = PENDING_PER_THREAD * threads, submitted = 0;
+
+		out.write("<alignments>\n");
+		long[] times = new long[ordered.size()];
+		int failed = 0;
+		try {
+			for (int i = 0; i < ordered.size(); i++) {
+				for (; submitted < ordered.size() && pending.size() < window; submitted++) {
+					final PdbPair pair = ordered.get(submitted);
+					ordered.set(submitted, null);
+					pending.add(results.submit(new Callable<Result>() {
+						public Result call() {
+							return align(pair, atoms.get(pair.getName1()), atoms.get(pair.getName2()));
+						}
+					}));
+				}
+				Future<Result> future = results.take();
+				pending.remove(future);
+				Result result = future.get();
+				out.write(result.xml);
+				out.write("\n");
+				times[i] = result.latency;
+				if (result.failed) {
+					failed++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while aligning pairs", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Failed to align pair", cause);
+		} finally {
+			// pairs still in flight after a failure are of no use
+			for (Future<Result> future : pending) {
+				future.cancel(true);
+			}
+		}
+		out.write("</alignments>\n");
+		out.flush();
+
+		Arrays.sort(times);
+		latencies = times;
+		failures = failed;
+		elapsed = System.nanoTime() - start;
+		FarmJobRunnable.log(String.format("aligned %d pairs (%d failed) in %.2f sec: %.2f pairs/sec, latency " +
+				"median %.1f ms, 95%% %.1f ms, max %.1f ms", times.length, failed, elapsed / 1.0e9, getThroughput(),
+				getLatency(0.5), getLatency(0.95), getLatency(1.0)));
+		return times.length;
+	}
+
+	// helper method that aligns one pair on the current worker thread
+	private Result align(PdbPair pair, Object atoms1, Object atoms2) {
+		long start = System.nanoTime();
+		String name1 = pair.getName1(), name2 = pair.getName2();
+		try {
+			if (!(atoms1 instanceof Atom[])) {
+				throw new StructureException((String) atoms1);
+			}
+			if (!(atoms2 instanceof Atom[])) {
+				throw new StructureException((String) atoms2);
+			}
+			// the shared atoms are cloned, since algorithms may rotate them
+			Atom[] ca1 = StructureTools.cloneCAArray((Atom[]) atoms1);
+			Atom[] ca2 = StructureTools.cloneCAArray((Atom[]) atoms2);
+			Worker worker = getWorker();
+			AFPChain afpChain = (worker.params == null) ? worker.algorithm.align(ca1, ca2)
+					: worker.algorithm.align(ca1, ca2, worker.params);
+			afpChain.setName1(name1);
+			afpChain.setName2(name2);
+			return new Result(AFPChainXMLConverter.toXML(afpChain, ca1, ca2), System.nanoTime() - start, false);
+		} catch (Exception e) {
+			return new Result(getErrorXML(name1, name2, e), System.nanoTime() - start, true);
+		}
+	}
+
+	// helper method that returns the algorithm instance and parameters of the current worker thread
+	private Worker getWorker() throws InstantiationException, IllegalAccessException {
+		Worker worker = workers.get();
+		if (worker == null) {
+			worker = new Worker(algorithm.getClass().newInstance(), copy(params));
+			workers.set(worker);
+		}
+		return worker;
+	}
+
+	// helper method that copies parameters with the copy method of their class
+	private static ConfigStrucAligParams copy(ConfigStrucAligParams params) {
+		if (params == null) {
+			return null;
+		} else if (params instanceof CeParameters) {
+			return ((CeParameters) params).clone();
+		} else if (params instanceof FatCatParameters) {
+			return ((FatCatParameters) params).clone();
+		} else if (params instanceof SmithWaterman3DParameters) {
+			return ((SmithWaterman3DParameters) params).clone();
+		}
+		throw new IllegalArgumentException("Can not copy parameters of " + params.getClass().getName());
+	}
+
+	// helper method that estimates the cost of aligning a pair from the lengths of its structures
+	private static long getCost(Map<String, Object> atoms, PdbPair pair) {
+		Object atoms1 = atoms.get(pair.getName1()), atoms2 = atoms.get(pair.getName2());
+		if (!(atoms1 instanceof Atom[]) || !(atoms2 instanceof Atom[])) {
+			return 0L;
+		}
+		return (long) ((Atom[]) atoms1).length * ((Atom[]) atoms2).length;
+	}
+
+	// helper method that writes a failed pair in the same way as FarmJobRunnable
+	private static String getErrorXML(String name1, String name2, Exception e) {
+		StringWriter sw = new StringWriter();
+		PrintWriter writer = new PrintWriter(sw);
+		PrettyXMLWriter xml = new PrettyXMLWriter(writer);
+		try {
+			xml.openTag("AFPChain");
+			xml.attribute("name1", name1);
+			xml.attribute("name2", name2);
+			xml.attribute("error", String.valueOf(e.getMessage()));
+			xml.closeTag("AFPChain");
+		} catch (IOException ex) {
+			ex.printStackTrace();
+		}
+		writer.flush();
+		return sw.toString();
+	}
+
+	// the algorithm and parameters used by one worker thread
+	private static class Worker {
+
+		private final StructureAlignment algorithm;
+		private final ConfigStrucAligParams params;
+
+		private Worker(StructureAlignment algorithm, ConfigStrucAligParams params) {
+			this.algorithm = algorithm;
+			this.params = params;
+		}
+
+	}
+
+	// the outcome of aligning one pair
+	private static class Result {
+
+		private final String xml;
+		private final long latency;
+		private final boolean failed;
+
+		private Result(String xml, long latency, boolean failed) {
+			this.xml = xml;
+			this.latency = latency;
+			this.failed = failed;
+		}
+
+	}
+
+}
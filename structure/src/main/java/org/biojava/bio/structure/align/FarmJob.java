@@ -6,6 +6,7 @@ import java.util.List;
 
 import org.biojava.bio.structure.align.client.FarmJobParameters;
 import org.biojava.bio.structure.align.client.FarmJobRunnable;
+import org.biojava.bio.structure.align.client.PipelinedFarmJobRunnable;
 import org.biojava.bio.structure.align.events.AlignmentProgressListener;
 import org.biojava.bio.structure.align.util.CliTools;
 import org.biojava.bio.structure.align.util.ConfigurationException;
@@ -128,7 +129,7 @@ public class FarmJob implements Runnable {
 		jobs = new ArrayList<FarmJobRunnable>();
 		for ( int i = 0 ; i < params.getThreads();i++){
 			FarmJobRunnable.log("starting thread #" + (i+1));
-			FarmJobRunnable runner = new FarmJobRunnable(params);	
+			FarmJobRunnable runner = params.isPipelined() ? new PipelinedFarmJobRunnable(params) : new FarmJobRunnable(params);	
 			params.setUsername(username+"_thread_" + (i+1));
 			jobs.add(runner);
 			
@@ -190,5 +191,6 @@ public class FarmJob implements Runnable {
 		System.out.println(" -pdbDirSplit true/false the directory containing PDB files has all PDBs in one level or is split into multiple subdirs, like the ftp site. Default: " + FarmJobParameters.DEFAULT_DIR_SPLIT );
 		System.out.println(" -username a unique name that can be given to this client. Can be used to give credit for who is doing the calculations. Default: IP and a random id");
 		System.out.println(" -stepSize the number of pairs to be requsted from server. Default: " + FarmJobParameters.DEFAULT_BATCH_SIZE);
+		System.out.println(" -pipelined true/false request pairs, load structures and send results in the background while aligning. Default: false");
 	}
 }
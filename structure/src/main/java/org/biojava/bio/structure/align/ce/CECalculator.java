@@ -25,14 +25,18 @@
 package org.biojava.bio.structure.align.ce;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.biojava.bio.structure.Atom;
 import org.biojava.bio.structure.Calc;
 import org.biojava.bio.structure.Group;
-import org.biojava.bio.structure.SVDSuperimposer;
 import org.biojava.bio.structure.StructureException;
 import org.biojava.bio.structure.StructureTools;
+import org.biojava.bio.structure.SuperPositionQCP;
 import org.biojava.bio.structure.align.model.AFP;
 import org.biojava.bio.structure.align.model.AFPChain;
 import org.biojava.bio.structure.align.util.AFPAlignmentDisplay;
@@ -87,6 +91,9 @@ public class CECalculator {
 	private Atom t;
 	private int nTraces;
 
+	// reused for the superposition of every candidate alignment
+	private final SuperPositionQCP qcp = new SuperPositionQCP();
+
 	private double z;
 	private int[] a;
 
@@ -96,6 +103,12 @@ public class CECalculator {
 	private static final int nIter = 1;
 	private static final boolean distAll = false;
 
+	// number of fragment matrix rows filled by each parallel task
+	private static final int ROWS_PER_TASK = 16;
+
+	private ExecutorService executor;
+	private boolean slidingWindow;
+
 
 
 
@@ -295,7 +308,8 @@ public class CECalculator {
 		}
 	}
 
-	/** build up intramolecular distance matrix dist1 & dist2
+	/** build up intramolecular distance matrix dist1 & dist2.
+	 * All distance measures are symmetric, so only the upper half is calculated and then mirrored.
 	 * 
 	 * @param ca
 	 * @param nse
@@ -311,9 +325,10 @@ public class CECalculator {
 		// 
 		for(int ise1=0; ise1<nse; ise1++)  {
 
-			for(int ise2=0; ise2<nse; ise2++)  {
+			for(int ise2=ise1; ise2<nse; ise2++)  {
 
 				intraDist[ise1][ise2] = getDistanceWithSidechain(ca[ise1], ca[ise2]);            
+				intraDist[ise2][ise1] = intraDist[ise1][ise2];
 
 			}
 		}
@@ -321,39 +336,154 @@ public class CECalculator {
 	}
 
 
-	public double[][] initSumOfDistances(int nse1, int nse2, int winSize, int  winSizeComb1, Atom[] ca1, Atom[] ca2) {
+	/** Sets the executor that fills the rows of the fragment matrix in {@link #initSumOfDistances}.
+	 * Each cell is summed up in the same order either way, so the results do not change.
+	 * 
+	 * @param executor executor to fill rows in parallel with; null
+	 *  (the default) to fill them one after another. The executor is
+	 *  not shut down by the calculator.
+	 */
+	public void setExecutorService(ExecutorService executor) {
+		this.executor = executor;
+	}
 
-		double d;
+	/** Sets whether {@link #initSumOfDistances} updates the sum of each fragment pair from the previous pair
+	 * on the same diagonal, in O(winSize) steps, instead of adding up all O(winSize<sup>2</sup>) distances
+	 * of each pair again. The sums are the same up to rounding, so scores may differ in the last digits.
+	 * 
+	 * @param slidingWindow true to update the sums along the diagonals; false (the default) to add up
+	 *  each sum again
+	 */
+	public void setSlidingWindow(boolean slidingWindow) {
+		this.slidingWindow = slidingWindow;
+	}
+
+	public double[][] initSumOfDistances(int nse1, int nse2, final int winSize, final int  winSizeComb1, Atom[] ca1, Atom[] ca2) {
 
-		double[][] mat   = new double[nse1][nse2];
+		final double[][] mat   = new double[nse1][nse2];
 
 		// init the initial mat[] array.
 		// at this stage mat contains the sum of the distances of fragments of the matrices dist1, dist
-		for(int ise1=0; ise1<nse1; ise1++) {
-			for(int ise2=0; ise2<nse2; ise2++) {
+		if ( executor == null || nse1 < 2 * ROWS_PER_TASK) {
+			initSumOfDistances(mat, 0, nse1, winSize, winSizeComb1);
+			return mat;
+		}
+
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int from = 0; from < nse1; from += ROWS_PER_TASK) {
+			final int rowFrom = from, rowTo = Math.min(from + ROWS_PER_TASK, nse1);
+			futures.add(executor.submit(new Runnable() {
+				public void run() {
+					initSumOfDistances(mat, rowFrom, rowTo, winSize, winSizeComb1);
+				}
+			}));
+		}
+
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while filling the fragment matrix", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Failed to fill the fragment matrix", cause);
+		}
 
-				mat[ise1][ise2]=-1.0;
+		// verified: mat[][] probably ok.
 
-				if(ise1>nse1-winSize || ise2>nse2-winSize) continue;
+		return mat;
+	}
 
-				d=0.0; 
+	// helper method that fills the rows rowFrom to rowTo (exclusive) of the fragment matrix
+	private void initSumOfDistances(double[][] mat, int rowFrom, int rowTo, int winSize, int winSizeComb1) {
+
+		if (slidingWindow) {
+			initSlidingSums(mat, rowFrom, rowTo, winSize, winSizeComb1);
+			return;
+		}
+
+		int nse1 = mat.length;
+		for(int ise1=rowFrom; ise1<rowTo; ise1++) {
+			double[] row = mat[ise1];
+			int nse2 = row.length;
+			Arrays.fill(row, -1.0);
+
+			if(ise1>nse1-winSize) continue;
+
+			for(int ise2=0; ise2<=nse2-winSize; ise2++) {
+
+				double d=0.0; 
 				// this sums up over the distances of the fragments
-				for(int is1=0; is1<winSize-2; is1++)
+				for(int is1=0; is1<winSize-2; is1++) {
+					double[] d1 = dist1[ise1+is1], d2 = dist2[ise2+is1];
 					for(int is2=is1+2; is2<winSize; is2++) {
-						//System.out.println("pos1 :" +  (ise1+is1) + " " + (ise1+is2) +  " " + (ise2+is1) + " " + (ise2+is2));
 						// is this abs or floor? check!
-						d+=Math.abs(dist1[ise1+is1][ise1+is2]-dist2[ise2+is1][ise2+is2]);							
-					}					
-				mat[ise1][ise2]=d/winSizeComb1;					
+						d+=Math.abs(d1[ise1+is2]-d2[ise2+is2]);							
+					}
+				}
+				row[ise2]=d/winSizeComb1;					
 
-				//System.out.println("mat ["+ise1+"]["+ise2+"]="+mat[ise1][ise2]);
 			}
 
 		}
+	}
 
-		// verified: mat[][] probably ok.
+	// helper method that fills the rows rowFrom to rowTo (exclusive) of the fragment matrix, taking the sum of
+	// each fragment pair from the one before it on the same diagonal: the distances from the first residue of
+	// that pair leave the window and those to the last residue of this pair enter it
+	private void initSlidingSums(double[][] mat, int rowFrom, int rowTo, int winSize, int winSizeComb1) {
+
+		int nse1 = mat.length;
+		int nse2 = (nse1 > 0) ? mat[0].length : 0;
+		double[] prev = new double[Math.max(0, nse2)], sums = new double[prev.length];
+		for(int ise1=rowFrom; ise1<rowTo; ise1++) {
+			double[] row = mat[ise1];
+			Arrays.fill(row, -1.0);
+
+			if(ise1>nse1-winSize) continue;
+
+			int last1 = ise1+winSize-1;
+			for(int ise2=0; ise2<=nse2-winSize; ise2++) {
+
+				double d;
+				if (ise1 == rowFrom || ise2 == 0) {
+					d = 0.0;
+					for(int is1=0; is1<winSize-2; is1++) {
+						double[] d1 = dist1[ise1+is1], d2 = dist2[ise2+is1];
+						for(int is2=is1+2; is2<winSize; is2++) {
+							d+=Math.abs(d1[ise1+is2]-d2[ise2+is2]);
+						}
+					}
+				} else {
+					d = prev[ise2-1];
+					double[] d1 = dist1[ise1-1], d2 = dist2[ise2-1];
+					for(int is2=2; is2<winSize; is2++) {
+						d-=Math.abs(d1[ise1-1+is2]-d2[ise2-1+is2]);
+					}
+					int last2 = ise2+winSize-1;
+					for(int is1=0; is1<winSize-2; is1++) {
+						d+=Math.abs(dist1[ise1+is1][last1]-dist2[ise2+is1][last2]);
+					}
+				}
+				sums[ise2]=d;
+				row[ise2]=d/winSizeComb1;
 
-		return mat;
+			}
+
+			double[] swap = prev;
+			prev = sums;
+			sums = swap;
+		}
 	}
 
 
@@ -1712,66 +1842,15 @@ nBestTrace=nTrace;
 	 */
 	public double calc_rmsd(Atom[] pro1, Atom[] pro2, int strLen, boolean storeTransform, boolean show) throws StructureException {
 
-		Atom[] cod1 = getAtoms(pro1,  strLen,false);
-		Atom[] cod2 = getAtoms(pro2,  strLen,true);
-
-		assert(cod1.length == cod2.length);
-		SVDSuperimposer svd = new SVDSuperimposer(cod1, cod2);
-
-		Matrix matrix = svd.getRotation();
-		Atom shift = svd.getTranslation();
+		// superimposes the coordinates of the first strLen atoms, instead of rotating cloned groups
+		double rmsd = qcp.superpose(pro1, 0, pro2, 0, strLen);
 
 		if ( storeTransform) {
-			r=matrix;
-			t = shift;
+			r = qcp.getRotation();
+			t = qcp.getTranslation();
 		}
-		for (Atom a : cod2){
+		return rmsd;
 
-			Calc.rotate(a.getParent(), matrix);
-			Calc.shift(a.getParent(),  shift);
-			//Calc.rotate(a,r);
-			//Calc.shift(a,t);
-		}
-		//		if ( show){
-		//			StructureAlignmentJmol jmol = new StructureAlignmentJmol();
-		//
-		//			jmol.setAtoms(cod1);
-		//			jmol.evalString("select * ; wireframe off; spacefill off;  backbone on; color chain; select ligand;color cpk; wireframe 40;spacefill 120;  ");
-		//			jmol.setTitle("calCaRmsd - pdb1");
-		//
-		//			StructureAlignmentJmol jmol2 = new StructureAlignmentJmol();
-		//			jmol2.setAtoms(cod2);
-		//			jmol2.evalString("select * ; wireframe off; spacefill off;  backbone on; color chain; select ligand;color cpk; wireframe 40;spacefill 120;  ");
-		//			jmol2.setTitle("calCaRmsd - pdb2");
-		//		}
-		return SVDSuperimposer.getRMS(cod1, cod2);
-
-	}
-
-	/**
-	 * Copies the first length atoms from the input array
-	 * @param ca The array to copy
-	 * @param length the number of atoms to copy
-	 * @param clone If true, preform a deep copy, cloning the underlying Groups
-	 * @return An array with the first length items of ca, possibly cloning the Atoms.
-	 * @throws StructureException
-	 */
-	private Atom[] getAtoms(Atom[] ca,  int length, boolean clone) throws StructureException{
-
-		List<Atom> atoms = new ArrayList<Atom>();
-		for ( int i = 0 ; i < length ; i++){
-
-			Atom a;
-			if ( clone ){
-				Group g = (Group)ca[i].getParent().clone();
-				a = g.getAtom(" CA ");
-			}
-			else {
-				a = ca[i];
-			}
-			atoms.add(a);
-		}
-		return (Atom[]) atoms.toArray(new Atom[atoms.size()]);
 	}
 
 
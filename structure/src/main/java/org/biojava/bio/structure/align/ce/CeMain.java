@@ -27,6 +27,7 @@ package org.biojava.bio.structure.align.ce;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import org.biojava.bio.structure.Atom;
 import org.biojava.bio.structure.Group;
 import org.biojava.bio.structure.StructureException;
@@ -57,12 +58,39 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 	protected CECalculator calculator;
 	protected Atom[] ca2clone;
 
+	private ExecutorService executor;
+	private boolean slidingWindow;
+
 	public CeMain(){
 		super();
 		params = new CeParameters();
 		calculator = new CECalculator(params);
 	}
 
+	/** Sets the executor that fills the rows of the fragment matrix of each alignment.
+	 * The alignments are the same with or without one.
+	 * 
+	 * @param executor executor to fill rows in parallel with; null
+	 *  (the default) to fill them one after another. The executor is
+	 *  not shut down by the algorithm.
+	 * @see CECalculator#setExecutorService(ExecutorService)
+	 */
+	public void setExecutorService(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/** Sets whether the fragment matrix of each alignment is filled by updating the sums of the
+	 * fragment pairs along its diagonals, which is faster for large window sizes. The scores may
+	 * differ in the last digits.
+	 * 
+	 * @param slidingWindow true to update the sums along the diagonals; false (the default) to add up
+	 *  each sum again
+	 * @see CECalculator#setSlidingWindow(boolean)
+	 */
+	public void setSlidingWindow(boolean slidingWindow) {
+		this.slidingWindow = slidingWindow;
+	}
+
 
 	public static void main(String[] args){
 
@@ -124,6 +152,8 @@ public class CeMain extends AbstractStructureAlignment implements StructureAlign
 		}
 
 		calculator = new CECalculator(params);
+		calculator.setExecutorService(executor);
+		calculator.setSlidingWindow(slidingWindow);
 
 		//Build alignment ca1 to ca2-ca2
 		AFPChain afpChain = new AFPChain();
@@ -33,7 +33,7 @@ import java.util.List;
  * @author Andreas Prlic
  *
  */
-public class CeParameters implements ConfigStrucAligParams  {
+public class CeParameters implements ConfigStrucAligParams, Cloneable  {
 
    int winSize;
    double rmsdThr;
@@ -68,6 +68,19 @@ public class CeParameters implements ConfigStrucAligParams  {
       reset();
    }
 
+   /** Returns a copy of these parameters, which can be changed without affecting this instance.
+    * 
+    * @return a copy of these parameters
+    */
+   @Override
+   public CeParameters clone() {
+      try {
+         return (CeParameters) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new InternalError(e.getMessage());
+      }
+   }
+
 
 
    @Override
@@ -31,6 +31,7 @@ public class FarmJobParameters {
 	boolean runBackground;
 	
 	int stepSize;
+	boolean pipelined;
 
 		
 	public FarmJobParameters(){
@@ -41,6 +42,7 @@ public class FarmJobParameters {
 		pdbFilePath = DEFAULT_PDB_PATH;
 		pdbDirSplit = DEFAULT_DIR_SPLIT;
 		runBackground = false;
+		pipelined = false;
 		
 		String nrPairsProp = resourceManager.getString(DEFAULT_BATCH_SIZE_PROP);
 		
@@ -143,4 +145,18 @@ public class FarmJobParameters {
 		this.stepSize = stepSize;
 	}
 	
+	/** Flag if jobs should request pairs, load structures and send results in the background while
+	 * they align. Default: false
+	 * 
+	 * @return flag
+	 * @see PipelinedFarmJobRunnable
+	 */
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+	
 }
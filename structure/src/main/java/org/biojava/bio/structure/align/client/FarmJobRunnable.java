@@ -60,7 +60,7 @@ public class FarmJobRunnable implements Runnable {
 
 	private static final String randomUsername = getRandomUsername();
 
-	boolean terminated ;
+	volatile boolean terminated ;
 
 	List<AlignmentProgressListener> progressListeners;
 	CountProgressListener counter ;
@@ -130,6 +130,34 @@ public class FarmJobRunnable implements Runnable {
 
 	public void run() {
 
+		startJob();
+
+		while (! terminated){
+
+			// talk to server
+			// get list of alignments to run
+			// if maxNrAlignments > 100 we split up the calculations in junks of 100.
+			// otherwise we request all of them at once.
+			// we request
+			SortedSet<PdbPair> alignmentPairs = getAlignmentPairsFromServer(); 
+			log(userName+": Server responded with " + alignmentPairs.size() + " pairs.");
+			List<String> results = alignPairs(alignmentPairs);
+
+			// send results back to server
+			sendResultsToServer(results);
+			//log("sent results to server: " + counter.toString());
+
+			checkJobStatus();
+		}	
+
+		finishJob();
+	}
+
+
+	/** Resets the counters and limits of the job at its start.
+	 */
+	protected void startJob() {
+
 		// Retrieve resource
 		String appVersion = resourceManager.getString(JFATCAT_VERSION);
 		String appName    = resourceManager.getString(JFATCAT_NAME);
@@ -148,7 +176,6 @@ public class FarmJobRunnable implements Runnable {
 		terminated = false;
 
 		alignmentsCalculated = 0;
-		int totalAligs = 0;
 		maxNrAlignments = params.getNrAlignments();
 
 		if ( maxNrAlignments < 0 ){
@@ -156,112 +183,120 @@ public class FarmJobRunnable implements Runnable {
 		}
 
 		log("running job for max: " + maxNrAlignments + " alignments");
+	}
 
 
-		while (! terminated){
+	/** Terminates the job once the maximum time or number of alignments is reached and logs its progress.
+	 */
+	protected void checkJobStatus() {
 
-			// talk to server
-			// get list of alignments to run
-			// if maxNrAlignments > 100 we split up the calculations in junks of 100.
-			// otherwise we request all of them at once.
-			// we request
-			SortedSet<PdbPair> alignmentPairs = getAlignmentPairsFromServer(); 
-			log(userName+": Server responded with " + alignmentPairs.size() + " pairs.");
-			List<String> results = new ArrayList<String>();
+		long end = System.currentTimeMillis();
+		if ( end >= maxTime)  {
+			System.out.println("OK end of job: reached maxTime.");
+			terminated = true;
 
-			for(PdbPair pair : alignmentPairs){
+		}
 
-				if ( terminated)
-					break;
+		if ( alignmentsCalculated >= maxNrAlignments) {
+			System.out.println("OK end of job: reached maxNrAlignments");
+			terminated = true;
 
-				long now = System.currentTimeMillis();
-				if ( now >= maxTime)  {
-					terminated = true;
-					break;
-				}
+		}		
 
-				if ( alignmentsCalculated >= maxNrAlignments) {
-					terminated = true;
-					break;
-				}
+		long tdiff = (end - startTime);
+		if ( tdiff != 0) {
 
+			log(userName + String.format(": job has run for :  %.2f", ( tdiff)/1000.0/60) + " min.");
+			log(userName + ": total nr of alignments calculated: " +alignmentsCalculated );
+			if ( alignmentsCalculated > 0)
+				log(userName + String.format(": average time / alignment: %.2f", ( tdiff / alignmentsCalculated / 1000.0 )) + " sec.");
+		}
+	}
 
-				String name1 = pair.getName1();
-				String name2 = pair.getName2();
 
-				if ( progressListeners != null)
-					notifyStartAlignment(name1,name2);
+	/** Logs the result of the job and removes its listeners.
+	 */
+	protected void finishJob() {
 
-				try {
-					//System.out.println("calculating alignent: " + name1 + "  " + name2);
-					String resultXML = alignPair(name1, name2);
-
-					if ( progressListeners != null)
-						notifyEndAlignment();
-
-					//System.out.println("got XML: " + resultXML);
-					results.add(resultXML);
-
-				} catch (Exception e){
-					if (e.getMessage() == null)
-						e.printStackTrace();
-					// log that an exception has occurred and send it back to server!1
-					log("Error: " + e.getMessage() + " while aligning " + name1 + " vs. " + name2);
-					System.err.println(e.getMessage());
-					//e.printStackTrace();
-
-					StringWriter sw = new StringWriter();
-					PrintWriter writer = new PrintWriter(sw);
-
-					PrettyXMLWriter xml = new PrettyXMLWriter(writer);
-					try {
-						xml.openTag("AFPChain");
-
-						xml.attribute("name1", name1);
-						xml.attribute("name2", name2);
-						xml.attribute("error", e.getMessage());
-						xml.closeTag("AFPChain");
-					} catch(IOException ex){
-						ex.printStackTrace();
-					}
-					results.add(sw.toString());
-				}
+		log(userName+": JFatCat job result: " + counter.toString());
 
-				alignmentsCalculated++;
-				totalAligs++;
-			}
+		// clean up in the end...
+		clearListeners();
+	}
 
-			// send results back to server
-			sendResultsToServer(results);
-			//log("sent results to server: " + counter.toString());
 
-			long end = System.currentTimeMillis();
-			if ( end >= maxTime)  {
-				System.out.println("OK end of job: reached maxTime.");
-				terminated = true;
+	/** Aligns a batch of pairs one after another, until the maximum time or number of alignments is reached.
+	 * Failed alignments are returned as an AFPChain element with an error attribute.
+	 * 
+	 * @param alignmentPairs the pairs to align
+	 * @return the XML of each alignment
+	 */
+	protected List<String> alignPairs(SortedSet<PdbPair> alignmentPairs) {
+
+		List<String> results = new ArrayList<String>();
 
+		for(PdbPair pair : alignmentPairs){
+
+			if ( terminated)
+				break;
+
+			long now = System.currentTimeMillis();
+			if ( now >= maxTime)  {
+				terminated = true;
+				break;
 			}
 
 			if ( alignmentsCalculated >= maxNrAlignments) {
-				System.out.println("OK end of job: reached maxNrAlignments");
 				terminated = true;
+				break;
+			}
+
+
+			String name1 = pair.getName1();
+			String name2 = pair.getName2();
+
+			if ( progressListeners != null)
+				notifyStartAlignment(name1,name2);
+
+			try {
+				//System.out.println("calculating alignent: " + name1 + "  " + name2);
+				String resultXML = alignPair(name1, name2);
 
-			}		
+				if ( progressListeners != null)
+					notifyEndAlignment();
 
-			long tdiff = (end - startTime);
-			if ( tdiff != 0) {
+				//System.out.println("got XML: " + resultXML);
+				results.add(resultXML);
 
-				log(userName + String.format(": job has run for :  %.2f", ( tdiff)/1000.0/60) + " min.");
-				log(userName + ": total nr of alignments calculated: " +alignmentsCalculated );
-				if ( alignmentsCalculated > 0)
-					log(userName + String.format(": average time / alignment: %.2f", ( tdiff / alignmentsCalculated / 1000.0 )) + " sec.");
+			} catch (Exception e){
+				if (e.getMessage() == null)
+					e.printStackTrace();
+				// log that an exception has occurred and send it back to server!1
+				log("Error: " + e.getMessage() + " while aligning " + name1 + " vs. " + name2);
+				System.err.println(e.getMessage());
+				//e.printStackTrace();
+
+				StringWriter sw = new StringWriter();
+				PrintWriter writer = new PrintWriter(sw);
+
+				PrettyXMLWriter xml = new PrettyXMLWriter(writer);
+				try {
+					xml.openTag("AFPChain");
+
+					xml.attribute("name1", name1);
+					xml.attribute("name2", name2);
+					xml.attribute("error", e.getMessage());
+					xml.closeTag("AFPChain");
+				} catch(IOException ex){
+					ex.printStackTrace();
+				}
+				results.add(sw.toString());
 			}
-		}	
 
-		log(userName+": JFatCat job result: " + counter.toString());
+			alignmentsCalculated++;
+		}
 
-		// clean up in the end...
-		clearListeners();
+		return results;
 	}
 
 
@@ -348,7 +383,8 @@ public class FarmJobRunnable implements Runnable {
 	}
 
 
-	/** talk to centralized server and fetch all alignments to run.
+	/** talk to centralized server and fetch all alignments to run. If the thread is interrupted while
+	 * waiting, the job is terminated and the interrupt status of the thread is kept.
 	 * 
 	 * @return a list of pairs to align.
 	 */
@@ -378,8 +414,7 @@ public class FarmJobRunnable implements Runnable {
 
 		try {
 
-			if ( progressListeners != null)
-				notifyRequestingAlignments(nrPairs);
+			requestingAlignments(nrPairs);
 
 			if ( ! waitForAlignments) {
 				
@@ -398,7 +433,10 @@ public class FarmJobRunnable implements Runnable {
 							System.err.println("sleeping "+ delay/1000 + " sec.");
 							Thread.sleep(delay);
 						} catch (InterruptedException ex){
-							ex.printStackTrace();
+							// asked to stop while waiting for pairs
+							Thread.currentThread().interrupt();
+							terminate();
+							break;
 						}
 					}
 				}
@@ -418,7 +456,8 @@ public class FarmJobRunnable implements Runnable {
 				System.err.println("sleeping "+ delay/1000 + " sec.");
 				Thread.sleep(delay);
 			} catch (InterruptedException ex){
-				ex.printStackTrace();
+				Thread.currentThread().interrupt();
+				terminate();
 			}
 
 
@@ -436,23 +475,72 @@ public class FarmJobRunnable implements Runnable {
 
 		//System.out.println("sending " + results.size() + " results back to server");
 
-		String fullXml = "<alignments>";
-
-		for (String xml: results){
-			fullXml +=xml;
+		String msg = "";
+		try {
+			msg = JFatCatClient.sendMultiAFPChainToServer(serverLocation,getResultsXml(results), userName);
+		} catch (JobKillException e){
+			e.printStackTrace();
+			terminate();
 		}
-		fullXml += "</alignments>";
+
+		resultsSent(results.size(), msg);
+	}
+
+
+	/** Sends results to the server in a single attempt. Unlike {@link #sendResultsToServer(List)}, which
+	 * keeps trying until the server can be reached, a failure is reported to the caller.
+	 * 
+	 * @param results the XML of each alignment
+	 * @throws IOException if the results could not be sent
+	 */
+	protected void trySendResultsToServer(List<String> results) throws IOException {
+
+		if ( results.size() < 1)
+			return;
+
 		String msg = "";
 		try {
-			msg = JFatCatClient.sendMultiAFPChainToServer(serverLocation,fullXml, userName);
+			msg = JFatCatClient.submitMultiAFPChainToServer(params.getServer(), getResultsXml(results), userName);
 		} catch (JobKillException e){
 			e.printStackTrace();
 			terminate();
 		}
 
+		resultsSent(results.size(), msg);
+	}
+
+
+	// helper method that joins the results into one document
+	private static String getResultsXml(List<String> results) {
+		String fullXml = "<alignments>";
+
+		for (String xml: results){
+			fullXml +=xml;
+		}
+		fullXml += "</alignments>";
+		return fullXml;
+	}
+
+
+	/** Notifies the listeners that alignments are requested from the server.
+	 * 
+	 * @param nrAlignments the number of alignments requested
+	 */
+	protected void requestingAlignments(int nrAlignments) {
+		if ( progressListeners != null)
+			notifyRequestingAlignments(nrAlignments);
+	}
+
+
+	/** Notifies the listeners that results were sent to the server and logs the status of the job.
+	 * 
+	 * @param nrAlignments the number of results sent
+	 * @param serverMessage the response of the server
+	 */
+	protected void resultsSent(int nrAlignments, String serverMessage) {
 		if ( progressListeners != null)
-			notifySubmittingAlignments(results.size(), msg);
-		log (userName + ": Sent " + results.size() +" results to server. job status:" + counter.toString());
+			notifySubmittingAlignments(nrAlignments, serverMessage);
+		log (userName + ": Sent " + nrAlignments +" results to server. job status:" + counter.toString());
 		log (userName + ": fileCache size:" + FlatFileCache.getInstance().size());
 	}
 
@@ -202,28 +202,11 @@ public class JFatCatClient {
 
    public static String sendMultiAFPChainToServer(String serverLocation, String multiXML, String username) throws JobKillException{
 
-      String multiSendURL = serverLocation + multiSendAPPEND;
-
-      String responseS = "";
-      String version = resourceManager.getString("jfatcat.version");
-
-      String u = String.format(multiSendURL,username,version);
-
-      int timeout = getTimeout();
-
-      boolean submitted = false;
-
-      while (! submitted ){
+      while (true){
          try { 
-            URL url = new URL(u); 
-            //System.out.println("posting xml: " + xml);
-            InputStream response = HTTPConnectionTools.doPOST(url, multiXML,timeout);
-            //System.out.println("got response: " + convertStreamToString(response));
-            responseS = convertStreamToString(response);
-            submitted = true;
-            if (! responseS.contains("OK"))
-               System.err.println("server returned " + responseS);
-
+            return submitMultiAFPChainToServer(serverLocation, multiXML, username);
+         } catch (JobKillException e){
+            throw e;
          } catch (Exception e){
             System.err.println("Error in JFatCatClient: while sending results back to server : " + e.getMessage());
 
@@ -236,6 +219,36 @@ public class JFatCatClient {
             }
          }
       } 
+   }
+
+   /** Sends the results of several alignments to the server in a single attempt. Unlike
+    * {@link #sendMultiAFPChainToServer(String, String, String)} this does not try again if sending fails.
+    * 
+    * @param serverLocation the URL of the server
+    * @param multiXML the results, as an alignments XML document
+    * @param username the name of the job
+    * @return the response of the server
+    * @throws IOException if the server could not be reached
+    * @throws JobKillException if the server asks the job to stop
+    */
+   public static String submitMultiAFPChainToServer(String serverLocation, String multiXML, String username)
+   throws IOException, JobKillException{
+
+      String multiSendURL = serverLocation + multiSendAPPEND;
+
+      String version = resourceManager.getString("jfatcat.version");
+
+      String u = String.format(multiSendURL,username,version);
+
+      int timeout = getTimeout();
+
+      URL url = new URL(u); 
+      //System.out.println("posting xml: " + xml);
+      InputStream response = HTTPConnectionTools.doPOST(url, multiXML,timeout);
+      //System.out.println("got response: " + convertStreamToString(response));
+      String responseS = convertStreamToString(response);
+      if (! responseS.contains("OK"))
+         System.err.println("server returned " + responseS);
 
       if ( responseS.startsWith("KILL_JOB")){
          throw new JobKillException("Server responded with KILL message.");
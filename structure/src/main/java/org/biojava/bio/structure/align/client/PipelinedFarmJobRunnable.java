@@ -0,0 +1,268 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava.bio.structure.align.client;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/** A job thread that keeps the CPU busy while it talks to the server.
+ *
+ * <p>A {@link FarmJobRunnable} aligns a batch of pairs, then waits for the results to be sent, then
+ * waits for the next batch to arrive. This job splits that into a pipeline of stages on background
+ * threads: the next batch is requested from the server while the current one is aligned, the
+ * structures of upcoming pairs are loaded into the cache ahead of their alignment, and results are
+ * sent to the server in the background, in order, with a few attempts if sending fails. The
+ * alignments themselves still run one after another on the thread of the job.</p>
+ *
+ * <p>The next batch is only requested while the job is not expected to reach its maximum number of
+ * alignments with the current one. All results are sent before {@link #run()} returns.</p>
+ *
+ * <p>Progress listeners are only called on the thread of the job. Requests and uploads made by the
+ * background threads are reported to them once the job thread gets to it, between batches, so they
+ * can arrive later than with a {@link FarmJobRunnable}.</p>
+ */
+public class PipelinedFarmJobRunnable extends FarmJobRunnable {
+
+	/** The number of times sending a batch of results is tried before it is given up. */
+	public static final int MAX_UPLOAD_ATTEMPTS = 3;
+
+	private long retryDelay;
+
+	private ExecutorService fetcher, prefetcher, uploader;
+
+	// listener calls made on the background threads, to be delivered on the thread of the job
+	private final Queue<Runnable> events = new ConcurrentLinkedQueue<Runnable>();
+	private Thread jobThread;
+
+	public PipelinedFarmJobRunnable(FarmJobParameters params) {
+		super(params);
+		retryDelay = 5000L;
+	}
+
+	/** Sets the time to wait before the first retry of a failed upload. The time doubles with each retry.
+	 *
+	 * @param retryDelay time in milliseconds
+	 */
+	public void setRetryDelay(long retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+
+	@Override
+	public void run() {
+
+		jobThread = Thread.currentThread();
+		startJob();
+
+		fetcher = Executors.newSingleThreadExecutor(getThreadFactory("fetch"));
+		prefetcher = Executors.newSingleThreadExecutor(getThreadFactory("prefetch"));
+		uploader = Executors.newSingleThreadExecutor(getThreadFactory("upload"));
+
+		try {
+			Future<SortedSet<PdbPair>> next = fetchNext();
+
+			while (! terminated) {
+
+				SortedSet<PdbPair> alignmentPairs = getBatch(next);
+				next = null;
+				deliverEvents();
+				log(userName + ": Server responded with " + alignmentPairs.size() + " pairs.");
+
+				prefetch(alignmentPairs);
+
+				// ask for the next batch while this one is aligned, unless it completes the job
+				if (alignmentsCalculated + alignmentPairs.size() < maxNrAlignments) {
+					next = fetchNext();
+				}
+
+				List<String> results = alignPairs(alignmentPairs);
+				upload(results);
+				deliverEvents();
+
+				checkJobStatus();
+
+				if (next == null && ! terminated) {
+					next = fetchNext();
+				}
+			}
+
+			if (next != null) {
+				next.cancel(true);
+			}
+
+		} finally {
+			fetcher.shutdownNow();
+			prefetcher.shutdownNow();
+			awaitUploads();
+			deliverEvents();
+		}
+
+		finishJob();
+	}
+
+	@Override
+	protected void requestingAlignments(final int nrAlignments) {
+		if (Thread.currentThread() == jobThread) {
+			super.requestingAlignments(nrAlignments);
+			return;
+		}
+		events.add(new Runnable() {
+			public void run() {
+				PipelinedFarmJobRunnable.super.requestingAlignments(nrAlignments);
+			}
+		});
+	}
+
+	@Override
+	protected void resultsSent(final int nrAlignments, final String serverMessage) {
+		if (Thread.currentThread() == jobThread) {
+			super.resultsSent(nrAlignments, serverMessage);
+			return;
+		}
+		events.add(new Runnable() {
+			public void run() {
+				PipelinedFarmJobRunnable.super.resultsSent(nrAlignments, serverMessage);
+			}
+		});
+	}
+
+	// helper method that calls the listeners for what happened on the background threads
+	private void deliverEvents() {
+		for (Runnable event; (event = events.poll()) != null; ) {
+			event.run();
+		}
+	}
+
+	// helper method that requests the next batch of pairs in the background
+	private Future<SortedSet<PdbPair>> fetchNext() {
+		return fetcher.submit(new Callable<SortedSet<PdbPair>>() {
+			public SortedSet<PdbPair> call() {
+				return getAlignmentPairsFromServer();
+			}
+		});
+	}
+
+	// helper method that waits for a requested batch of pairs
+	private SortedSet<PdbPair> getBatch(Future<SortedSet<PdbPair>> next) {
+		try {
+			return next.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			terminate();
+		} catch (ExecutionException e) {
+			log(userName + ": Error while requesting alignment pairs: " + e.getCause().getMessage());
+		}
+		return new TreeSet<PdbPair>();
+	}
+
+	// helper method that loads the structures of a batch into the cache in the order they are aligned
+	private void prefetch(SortedSet<PdbPair> alignmentPairs) {
+		Set<String> names = new LinkedHashSet<String>();
+		for (PdbPair pair : alignmentPairs) {
+			names.add(pair.getName1());
+			names.add(pair.getName2());
+		}
+		for (final String name : names) {
+			prefetcher.submit(new Runnable() {
+				public void run() {
+					if (terminated) {
+						return;
+					}
+					try {
+						cache.getAtoms(name);
+					} catch (Exception e) {
+						// the alignment of the pair reports the error
+					}
+				}
+			});
+		}
+	}
+
+	// helper method that sends results in the background, trying again after a growing delay if sending fails
+	private void upload(final List<String> results) {
+		if (results.isEmpty()) {
+			return;
+		}
+		final List<String> batch = Collections.unmodifiableList(results);
+		uploader.submit(new Runnable() {
+			public void run() {
+				long delay = retryDelay;
+				for (int attempt = 1; ; attempt++) {
+					try {
+						trySendResultsToServer(batch);
+						return;
+					} catch (Exception e) {
+						if (attempt >= MAX_UPLOAD_ATTEMPTS) {
+							log(userName + ": Giving up sending " + batch.size() + " results after " + attempt
+									+ " attempts: " + e.getMessage());
+							return;
+						}
+						log(userName + ": Error while sending results, attempt " + attempt + ": " + e.getMessage());
+						try {
+							Thread.sleep(delay);
+						} catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+						delay *= 2;
+					}
+				}
+			}
+		});
+	}
+
+	// helper method that waits until all results are sent
+	private void awaitUploads() {
+		uploader.shutdown();
+		try {
+			while (! uploader.awaitTermination(60L, TimeUnit.SECONDS)) {
+				log(userName + ": waiting for results to be sent to server");
+			}
+		} catch (InterruptedException e) {
+			uploader.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// helper method that names the background threads after the job and lets the JVM exit without them
+	private ThreadFactory getThreadFactory(final String stage) {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, userName + "_" + stage);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+}
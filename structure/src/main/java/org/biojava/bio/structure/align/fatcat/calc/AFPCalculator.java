@@ -32,7 +32,7 @@ import java.util.List;
 import org.biojava.bio.structure.Atom;
 import org.biojava.bio.structure.AtomImpl;
 import org.biojava.bio.structure.Calc;
-import org.biojava.bio.structure.SVDSuperimposer;
+import org.biojava.bio.structure.SuperPositionQCP;
 import org.biojava.bio.structure.align.model.AFP;
 import org.biojava.bio.structure.align.model.AFPChain;
 import org.biojava.bio.structure.jama.Matrix;
@@ -67,6 +67,11 @@ public class AFPCalculator
       Matrix r = new Matrix(3,3);
       Atom   t = new AtomImpl();
 
+      // one superposition and packed coordinates are reused for all fragment pairs
+      SuperPositionQCP qcp = new SuperPositionQCP();
+      double[] coords1 = SuperPositionQCP.getCoordinates(ca1);
+      double[] coords2 = SuperPositionQCP.getCoordinates(ca2);
+
 
       int sparse = params.getSparse();
       int maxTra = params.getMaxTra();
@@ -109,10 +114,10 @@ public class AFPCalculator
 
             // here FATCAT does a a jacobi transformation
             //rmsd = kearsay(fragLen, ca1[p1], ca2[p2], r, t);
-            // we use the BioJava SVD instead...
+            // we use the BioJava QCP superposition instead...
 
             //
-            rmsd = getRmsd(ca1,ca2,fragLen, p1,p2,r,t);
+            rmsd = getRmsd(qcp, coords1, coords2, fragLen, p1, p2);
 
             //printf("afp %d: p1 %d p2 %d rmsd %f end-to-end dis %f\n", afpSet.size(), p1, p2, rmsd, filter1);
 
@@ -194,73 +199,27 @@ public class AFPCalculator
       return false;
    }
    
-   private static final double getRmsd(Atom[] ca1, Atom[] ca2, int fragLen, int p1, int p2, Matrix m, Atom t) {
+   private static final double getRmsd(SuperPositionQCP qcp, double[] coords1, double[] coords2, int fragLen, int p1, int p2) {
 
 
       double rmsd = 99.9;
-      try {
-         Atom[] catmp1 = getFragment(ca1, p1, fragLen,false);
-         Atom[] catmp2 = getFragment(ca2, p2, fragLen,true); // clone the atoms for fragment 2 so we can manipulate them...
-         
-         if ( catmp1 == null) {
-            System.err.println("could not get fragment for ca1 " + p1 + " " + fragLen );
-            return rmsd;
-            
-         }
-         
-         if ( catmp2 == null) {
-            System.err.println("could not get fragment for ca2 " + p2 + " " + fragLen );
-            return rmsd;
-            
-         }
-         
-         SVDSuperimposer svd = new SVDSuperimposer(catmp1, catmp2);
-
-         m = svd.getRotation();
-         t = svd.getTranslation();
-
-         for (Atom a : catmp2){
-            Calc.rotate(a,m);
-            Calc.shift(a,t);
-              
-         }
-
-         rmsd = SVDSuperimposer.getRMS(catmp1,catmp2);
-
-      } catch (Exception e){
-         e.printStackTrace();
+      
+      if ( 3 * (p1 + fragLen) > coords1.length) {
+         System.err.println("could not get fragment for ca1 " + p1 + " " + fragLen );
+         return rmsd;
+      }
+      
+      if ( 3 * (p2 + fragLen) > coords2.length) {
+         System.err.println("could not get fragment for ca2 " + p2 + " " + fragLen );
+         return rmsd;
       }
+      
+      // superimposes the packed coordinates in place of cloned atoms
+      rmsd = qcp.superpose(coords1, p1, coords2, p2, fragLen);
 
       return rmsd;
    }
    
-   /** get a continue subset of Atoms based by the starting position and the length
-   *
-   * @param caall
-   * @param pos ... the start position
-   * @param fragmentLength .. the length of the subset to extract.
-   * @param clone: returns a copy of the atom (in case the coordinate get manipulated...)
-   * @return an Atom[] array
-   */
-  private static final Atom[] getFragment(Atom[] caall, int pos, int fragmentLength , boolean clone){
-
-     if ( pos+fragmentLength > caall.length)
-        return null;
-
-     Atom[] tmp = new Atom[fragmentLength];
-
-     for (int i=0;i< fragmentLength;i++){
-        if (clone){
-           tmp[i] = (Atom)caall[i+pos].clone();
-        } else {
-           tmp[i] = (Atom)caall[i+pos];
-        }
-     }
-     return tmp;
-
-  }
-  
-
   /**
    * Assign score to each AFP
    */
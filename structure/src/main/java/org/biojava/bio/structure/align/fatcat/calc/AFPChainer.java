@@ -30,8 +30,8 @@ import java.util.List;
 
 import org.biojava.bio.structure.Atom;
 import org.biojava.bio.structure.Calc;
-import org.biojava.bio.structure.SVDSuperimposer;
 import org.biojava.bio.structure.StructureException;
+import org.biojava.bio.structure.SuperPositionQCP;
 import org.biojava.bio.structure.align.AFPTwister;
 import org.biojava.bio.structure.align.model.AFP;
 import org.biojava.bio.structure.align.model.AFPChain;
@@ -667,26 +667,10 @@ public class AFPChainer
   */
  private static double getRmsd(int focusResn, int[] focusRes1, int[] focusRes2, AFPChain afpChain, Atom[] ca1, Atom[] ca2){
 
-    
-    
-    Atom[] tmp1 = new Atom[focusResn];
-    Atom[] tmp2 = new Atom[focusResn];
-
-    for ( int i =0 ; i< focusResn;i++){
-       tmp1[i] =       ca1[focusRes1[i]];
-       tmp2[i] = (Atom)ca2[focusRes2[i]].clone();
-       if (tmp1[i].getCoords() == null){
-          System.err.println("tmp1 got null: " +i + " pos: " + focusRes1[i]);
-       }
-       if (tmp2[i].getCoords() == null){
-          System.err.println("tmp1 got null: " +i + " pos: " + focusRes2[i]);
-       }
-       //XX
-       //tmp2[i].setParent((Group) ca2[focusRes2[i]].getParent().clone());
-    }
     double rmsd = 99;
     try {
-       rmsd = getRmsd(tmp1,tmp2);
+       // superimposes the selected residues directly, without cloning them
+       rmsd = new SuperPositionQCP().superpose(ca1, focusRes1, ca2, focusRes2, focusResn);
 
     } catch (Exception e){
        e.printStackTrace();
@@ -694,65 +678,5 @@ public class AFPChainer
     return rmsd;
 
  }
- /** Calculate the RMSD for two sets of atoms. Rotates the 2nd atom set so make sure this does not cause problems later
- *
- *
- * @param catmp1
- * @return
- */
-private static double getRmsd(Atom[] catmp1, Atom[] catmp2) throws StructureException{
-      
-   SVDSuperimposer svd = new SVDSuperimposer(catmp1, catmp2);
-
-   Matrix m = svd.getRotation();
-   Atom t = svd.getTranslation();
-   
-   for (Atom a : catmp2){
-      Calc.rotate(a,m);
-      Calc.shift(a,t);
-   
-   }
-
-   double rmsd = SVDSuperimposer.getRMS(catmp1,catmp2);
-   
-//   if ( showAlig) {
-//      StructureAlignmentJmol jmol = new StructureAlignmentJmol();
-//      jmol.setTitle("AFPCHainer: getRmsd" + rmsd);
-//
-//      Chain c1 = new ChainImpl();
-//      c1.setName("A");
-//      for ( Atom a : catmp1){
-//         c1.addGroup(a.getParent());
-//      }
-//
-//      Chain c2 = new ChainImpl();
-//      c2.setName("B");
-//      for ( Atom a : catmp2){
-//         c2.addGroup(a.getParent());
-//      }
-//      
-//      Structure fake = new StructureImpl();
-//      fake.setPDBCode("AFPCHainer: getRmsd" + rmsd);
-//      List<Chain> model1 = new ArrayList<Chain>();
-//      model1.add(c1);
-//      List<Chain> model2 = new ArrayList<Chain>();
-//      model2.add(c2);
-//      fake.addModel(model1);
-//      fake.addModel(model2);
-//      fake.setNmr(true);
-//
-//      jmol.setStructure(fake);
-//      jmol.evalString("select *; backbone 0.4; wireframe off; spacefill off; " +
-//      "select not protein and not solvent; spacefill on;");
-//      jmol.evalString("select */1 ; color red; model 1; ");
-//
-//      // now show both models again.
-//      jmol.evalString("model 0;");
-//   }
-   
-   
-   return rmsd;
-
-}
 
 }
@@ -34,7 +34,7 @@ import java.util.List;
 import org.biojava.bio.structure.align.ce.ConfigStrucAligParams;
 
 
-public class FatCatParameters implements ConfigStrucAligParams
+public class FatCatParameters implements ConfigStrucAligParams, Cloneable
 {
 
 	public static final int DEFAULT_FRAGLEN = 8;
@@ -65,6 +65,19 @@ public class FatCatParameters implements ConfigStrucAligParams
 		reset();
 	}
 
+	/** Returns a copy of these parameters, which can be changed without affecting this instance.
+	 * 
+	 * @return a copy of these parameters
+	 */
+	@Override
+	public FatCatParameters clone() {
+		try {
+			return (FatCatParameters) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError(e.getMessage());
+		}
+	}
+
 
 	public void reset(){
 		fragLen = DEFAULT_FRAGLEN;
@@ -29,7 +29,7 @@ import java.util.List;
 
 import org.biojava.bio.structure.align.ce.ConfigStrucAligParams;
 
-public class SmithWaterman3DParameters implements ConfigStrucAligParams
+public class SmithWaterman3DParameters implements ConfigStrucAligParams, Cloneable
 {
 
    short match ;     // match
@@ -41,6 +41,19 @@ public class SmithWaterman3DParameters implements ConfigStrucAligParams
    public SmithWaterman3DParameters(){
       reset();
    }
+
+   /** Returns a copy of these parameters, which can be changed without affecting this instance.
+    * 
+    * @return a copy of these parameters
+    */
+   @Override
+   public SmithWaterman3DParameters clone() {
+      try {
+         return (SmithWaterman3DParameters) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new InternalError(e.getMessage());
+      }
+   }
    
   
    
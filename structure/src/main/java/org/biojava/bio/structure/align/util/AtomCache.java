@@ -2,7 +2,7 @@ package org.biojava.bio.structure.align.util;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.Callable;
 
 
 import org.biojava.bio.structure.Atom;
@@ -23,15 +23,26 @@ public class AtomCache {
 	String path;
 
 	
-	// this is a static flag across all instances of AtomCaches, to make sure 
-	// only one file is accessed in the file system at a time.
+	// these locks are shared across all instances of AtomCaches, to make sure 
+	// only one thread accesses the file of a PDB ID at a time.
 	// this is to avoid reading of partial files that are being
-	// automatically downloaded by other instances / threads.	
-	private static AtomicBoolean loading  = new AtomicBoolean();
+	// automatically downloaded by other instances / threads.
+	// files of different PDB IDs can be read in parallel.
+	private static final Object[] fileLocks = new Object[64];
+	static {
+		for (int i = 0; i < fileLocks.length; i++)
+			fileLocks[i] = new Object();
+	}
 	
 	boolean autoFetch;
 	boolean isSplit;
 	FileParsingParameters params;
+
+	// parsed structures, each reduced to its first model
+	private StructureCache cache = new StructureCache();
+
+	// shared by all loads, rebuilt when the settings change
+	private volatile PDBFileReader reader;
 	public AtomCache(String pdbFilePath, boolean isSplit){
 		
 		// we are caching the binary files that contain the PDBs gzipped
@@ -46,7 +57,6 @@ public class AtomCache {
 		this.isSplit = isSplit;
 		
 		autoFetch = true;
-		loading.set(false);
 		params = new FileParsingParameters();
 		
 	}
@@ -64,6 +74,7 @@ public class AtomCache {
 
 	public void setPath(String path) {
 		this.path = path;
+		settingsChanged();
 	}
 
 	public boolean isSplit() {
@@ -72,6 +83,7 @@ public class AtomCache {
 
 	public void setSplit(boolean isSplit) {
 		this.isSplit = isSplit;
+		settingsChanged();
 	}
 
 	public boolean isAutoFetch() {
@@ -80,6 +92,7 @@ public class AtomCache {
 
 	public void setAutoFetch(boolean autoFetch) {
 		this.autoFetch = autoFetch;
+		settingsChanged();
 	}
 
 	
@@ -145,12 +158,6 @@ public class AtomCache {
 	   if ( name.length() < 4)
 	      throw new IllegalArgumentException("Can't interpred IDs that are shorter than 4 residues!");
 	   
-		while ( loading.get() ){
-			// waiting for loading to be finished...
-			
-		}
-		loading.set(true);
-				
 		Structure n = null;
 		
 		boolean useChainNr = false;
@@ -159,13 +166,6 @@ public class AtomCache {
 		int chainNr = -1;
 	
 		try {
-			PDBFileReader reader = new PDBFileReader();
-			reader.setPath(path);
-			reader.setPdbDirectorySplit(isSplit);
-			reader.setAutoFetch(autoFetch);
-			
-			reader.setFileParsingParameters(params);
-
 			String pdbId   = null;
 			String chainId = null;
 			if ( name.length() == 4){
@@ -190,20 +190,21 @@ public class AtomCache {
 			//System.out.println("got: " + name + " " + pdbId + " " + chainId + " useChainNr:" + useChainNr + " " +chainNr + " useDomainInfo:" + useDomainInfo + " " + range);
 
 			if (pdbId == null) {
-				loading.set(false);
 				return null;
 			}
 
-			
-			//long start  = System.currentTimeMillis();
-			Structure s= reader.getStructureById(pdbId.toLowerCase());
-			//long end  = System.currentTimeMillis();
-			//System.out.println("time to load " + pdbId + " " + (end-start) + "\t  size :" + StructureTools.getNrAtoms(s) + "\t cached: " + cache.size());
+			final String id = pdbId.toLowerCase();
+			Structure cached = cache.get(id, new Callable<Structure>() {
+				public Structure call() throws IOException, StructureException {
+					return loadStructure(id);
+				}
+			});
+
+			// the cached structure is shared, so callers get their own copy to modify
+			Structure s = cached.clone();
 			if ( chainId == null && chainNr < 0 && range == null) {
-				loading.set(false);
-				
 				// we only want the 1st model in this case
-				return StructureTools.getReducedStructure(s,-1);
+				return s;
 
 			}
 			
@@ -222,11 +223,9 @@ public class AtomCache {
 						
 		} catch (Exception e){
 			e.printStackTrace();
-			loading.set(false);
 			throw new StructureException(e.getMessage(),e);
 
 		}
-		loading.set(false);
 		return n;
 
 
@@ -240,6 +239,61 @@ public class AtomCache {
    public void setFileParsingParams(FileParsingParameters params)
    {
       this.params = params;
+      settingsChanged();
+   }
+
+   /** Returns the cache of parsed structures. Its hit, miss and load time statistics show how well it is sized.
+    * 
+    * @return the cache of parsed structures
+    */
+   public StructureCache getStructureCache()
+   {
+      return cache;
+   }
+
+   /** Sets the cache of parsed structures, for example to change its bounds. A cache may be shared by AtomCaches
+    * with the same path and parsing parameters. Changing the settings of an AtomCache clears its cache.
+    * 
+    * @param cache the cache of parsed structures
+    */
+   public void setStructureCache(StructureCache cache)
+   {
+      if (cache == null)
+         throw new IllegalArgumentException("cache must not be null");
+      this.cache = cache;
+   }
+
+   // cached structures and the reader no longer match the settings
+   private void settingsChanged()
+   {
+      reader = null;
+      if (cache != null)
+         cache.clear();
+   }
+
+   // returns the reader for the current settings
+   private PDBFileReader getReader()
+   {
+      PDBFileReader r = reader;
+      if (r == null) {
+         r = new PDBFileReader();
+         r.setPath(path);
+         r.setPdbDirectorySplit(isSplit);
+         r.setAutoFetch(autoFetch);
+         r.setFileParsingParameters(params);
+         reader = r;
+      }
+      return r;
+   }
+
+   // loads the first model of a structure, while holding the lock on its file
+   private Structure loadStructure(String pdbId) throws IOException, StructureException
+   {
+      Structure s;
+      synchronized (fileLocks[(pdbId.hashCode() & 0x7fffffff) % fileLocks.length]) {
+         s = getReader().getStructureById(pdbId);
+      }
+      return StructureTools.getReducedStructure(s, -1);
    }
 	
 	
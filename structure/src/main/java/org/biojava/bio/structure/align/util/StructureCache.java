@@ -0,0 +1,356 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.bio.structure.align.util;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.biojava.bio.structure.Structure;
+import org.biojava.bio.structure.StructureException;
+import org.biojava.bio.structure.StructureTools;
+
+/** A thread safe, bounded cache of parsed structures.
+ * 
+ * <p>Structures of different keys are loaded in parallel, while concurrent requests for the same key
+ * wait for a single load. Loaded structures are kept in least recently used order and evicted once
+ * either the number of structures or their total number of atoms exceeds its bound. Counts of hits,
+ * misses, loads and evictions, and the time spent loading, are kept for tuning the bounds.</p>
+ * 
+ * <p>Cached structures are shared, so callers which modify a structure should clone it first.</p>
+ */
+public class StructureCache {
+
+	/** Default bound on the number of cached structures. */
+	public static final int DEFAULT_MAX_STRUCTURES = 200;
+
+	/** Default bound on the total number of atoms in cached structures. */
+	public static final long DEFAULT_MAX_ATOMS = 4000000L;
+
+	private final int maxStructures;
+	private final long maxAtoms;
+
+	// loaded structures in access order, guarded by itself along with the atom count and generation
+	private final LinkedHashMap<String, Entry> structures = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long atoms;
+
+	// counts calls to clear(), so that loads started before the last one are not cached
+	private long generation;
+
+	// loads in progress, so that concurrent requests for the same key wait on the same load
+	private final ConcurrentMap<String, Load> loading = new ConcurrentHashMap<String, Load>();
+
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), loads = new AtomicLong(),
+		failures = new AtomicLong(), evictions = new AtomicLong(), loadNanos = new AtomicLong(),
+		maxLoadNanos = new AtomicLong();
+
+	/** Creates a cache with the default bounds.
+	 */
+	public StructureCache() {
+		this(DEFAULT_MAX_STRUCTURES, DEFAULT_MAX_ATOMS);
+	}
+
+	/** Creates a cache with the given bounds.
+	 * 
+	 * @param maxStructures the most structures to keep
+	 * @param maxAtoms the most atoms to keep, summed over all structures
+	 */
+	public StructureCache(int maxStructures, long maxAtoms) {
+		if (maxStructures < 0 || maxAtoms < 0)
+			throw new IllegalArgumentException("Cache bounds must not be negative");
+		this.maxStructures = maxStructures;
+		this.maxAtoms = maxAtoms;
+	}
+
+	/** Returns the structure of the given key, loading it if it is not cached. If another thread is already
+	 * loading the same key, waits for that load instead of starting another.
+	 * 
+	 * @param key identifies the structure
+	 * @param loader loads the structure if it is not cached
+	 * @return the cached or newly loaded structure
+	 * @throws IOException if the loader throws an IOException
+	 * @throws StructureException if the loader throws a StructureException or other checked exception, or the
+	 * wait is interrupted
+	 */
+	public Structure get(String key, Callable<Structure> loader) throws IOException, StructureException {
+		Structure s = getIfPresent(key);
+		if (s != null) {
+			hits.incrementAndGet();
+			return s;
+		}
+		misses.incrementAndGet();
+
+		Load task = new Load(loader, getGeneration());
+		Load running = loading.putIfAbsent(key, task);
+		if (running == null) {
+			// another load of the key may have finished between the first look and putIfAbsent
+			s = getIfPresent(key);
+			if (s != null) {
+				task.complete(s);
+				loading.remove(key, task);
+				return s;
+			}
+
+			// this thread loads; waiting threads find either the task or the cached structure
+			long start = System.nanoTime();
+			task.run();
+			long nanos = System.nanoTime() - start;
+			loads.incrementAndGet();
+			loadNanos.addAndGet(nanos);
+			long max = maxLoadNanos.get();
+			while (nanos > max && !maxLoadNanos.compareAndSet(max, nanos))
+				max = maxLoadNanos.get();
+			boolean loaded = false;
+			try {
+				s = getResult(key, task);
+				if (s != null)
+					put(key, s, task.generation);
+				loaded = true;
+			} finally {
+				if (!loaded)
+					failures.incrementAndGet();
+				loading.remove(key, task);
+			}
+			return s;
+		}
+		return getResult(key, running);
+	}
+
+	/** Returns the structure of the given key only if it is cached. Does not count as a hit or miss.
+	 * 
+	 * @param key identifies the structure
+	 * @return the cached structure, or null
+	 */
+	public Structure getIfPresent(String key) {
+		synchronized (structures) {
+			Entry entry = structures.get(key);
+			return (entry == null) ? null : entry.structure;
+		}
+	}
+
+	/** Removes all structures. Loads in progress still return their structures to the threads waiting for
+	 * them, but do not add them to the cache, and later requests start new loads.
+	 */
+	public void clear() {
+		synchronized (structures) {
+			generation++;
+			structures.clear();
+			atoms = 0;
+		}
+		loading.clear();
+	}
+
+	/** Returns the number of cached structures.
+	 * 
+	 * @return the number of cached structures
+	 */
+	public int size() {
+		synchronized (structures) {
+			return structures.size();
+		}
+	}
+
+	/** Returns the total number of atoms in cached structures.
+	 * 
+	 * @return the total number of atoms in cached structures
+	 */
+	public long getAtomCount() {
+		synchronized (structures) {
+			return atoms;
+		}
+	}
+
+	public int getMaxStructures() {
+		return maxStructures;
+	}
+
+	public long getMaxAtoms() {
+		return maxAtoms;
+	}
+
+	/** Returns the number of requests answered from the cache.
+	 * 
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/** Returns the number of requests not answered from the cache, including those which waited for a load
+	 * started by another thread.
+	 * 
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/** Returns the number of loads run, whether they succeeded or failed.
+	 * 
+	 * @return the number of loads
+	 */
+	public long getLoads() {
+		return loads.get();
+	}
+
+	/** Returns the number of loads which failed.
+	 * 
+	 * @return the number of failed loads
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/** Returns the number of structures evicted to keep within the bounds.
+	 * 
+	 * @return the number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/** Returns the total time spent loading.
+	 * 
+	 * @return the total load time in nanoseconds
+	 */
+	public long getLoadNanos() {
+		return loadNanos.get();
+	}
+
+	/** Returns the longest time spent on a single load.
+	 * 
+	 * @return the longest load time in nanoseconds
+	 */
+	public long getMaxLoadNanos() {
+		return maxLoadNanos.get();
+	}
+
+	/** Returns the fraction of requests answered from the cache.
+	 * 
+	 * @return hits divided by all requests, or 0 if there were none
+	 */
+	public double getHitRatio() {
+		long h = hits.get(), total = h + misses.get();
+		return (total == 0) ? 0.0 : (double) h / total;
+	}
+
+	@Override
+	public String toString() {
+		long n = loads.get();
+		return String.format("StructureCache[size=%d/%d, atoms=%d/%d, hits=%d, misses=%d, loads=%d, failures=%d, "
+				+ "evictions=%d, mean load=%.1f ms, max load=%.1f ms]", size(), maxStructures, getAtomCount(),
+				maxAtoms, hits.get(), misses.get(), n, failures.get(), evictions.get(),
+				(n == 0) ? 0.0 : loadNanos.get() / (n * 1e6), maxLoadNanos.get() / 1e6);
+	}
+
+	// returns the current generation
+	private long getGeneration() {
+		synchronized (structures) {
+			return generation;
+		}
+	}
+
+	// adds a structure loaded in the given generation, then evicts least recently used structures until within
+	// bounds; a structure loaded before the cache was last cleared is dropped
+	private void put(String key, Structure s, long loadGeneration) {
+		int weight = StructureTools.getNrAtoms(s);
+		if (maxStructures == 0 || weight > maxAtoms)
+			return;
+		synchronized (structures) {
+			if (loadGeneration != generation)
+				return;
+			Entry old = structures.put(key, new Entry(s, weight));
+			if (old != null)
+				atoms -= old.atoms;
+			atoms += weight;
+			Iterator<Map.Entry<String, Entry>> it = structures.entrySet().iterator();
+			while ((structures.size() > maxStructures || atoms > maxAtoms) && it.hasNext()) {
+				Map.Entry<String, Entry> eldest = it.next();
+				if (eldest.getKey().equals(key))
+					continue;
+				atoms -= eldest.getValue().atoms;
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	// waits for a load and unwraps its exception
+	private static Structure getResult(String key, FutureTask<Structure> task)
+	throws IOException, StructureException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StructureException("Interrupted while loading " + key, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof StructureException)
+				throw (StructureException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new StructureException(cause.getMessage(), cause);
+		}
+	}
+
+	// a cached structure and its weight
+	private static class Entry {
+
+		private final Structure structure;
+		private final int atoms;
+
+		private Entry(Structure structure, int atoms) {
+			this.structure = structure;
+			this.atoms = atoms;
+		}
+
+	}
+
+	// a load tagged with the generation it started in, which can also be completed with a structure that another
+	// load cached in the meantime
+	private static class Load extends FutureTask<Structure> {
+
+		private final long generation;
+
+		private Load(Callable<Structure> loader, long generation) {
+			super(loader);
+			this.generation = generation;
+		}
+
+		private void complete(Structure s) {
+			set(s);
+		}
+
+	}
+
+}
@@ -65,6 +65,11 @@ public class FileParsingParameters implements Serializable
     */
    boolean headerOnly;
 
+   /** Flag to store the atoms in a compact PackedAtomStore after parsing.
+    *
+    */
+   boolean packAtoms;
+
 
    public FileParsingParameters(){
       setDefault();
@@ -81,6 +86,7 @@ public class FileParsingParameters implements Serializable
       // don't download ChemComp dictionary by default.
       loadChemCompInfo = false;
       headerOnly = false;
+      packAtoms = false;
 
    }
 
@@ -167,4 +173,21 @@ public class FileParsingParameters implements Serializable
 
 
 
+   /** the flag if the atoms of the structure are moved into a compact {@link org.biojava.bio.structure.PackedAtomStore} after parsing.
+    *
+    * @return the flag
+    */
+   public boolean isPackAtoms() {
+      return packAtoms;
+   }
+
+   /** the flag if the atoms of the structure are moved into a compact {@link org.biojava.bio.structure.PackedAtomStore} after parsing.
+    * This reduces the memory used by large structures. Default is false.
+    *
+    * @param packAtoms boolean flag to enable or disable packing of the atoms
+    */
+   public void setPackAtoms(boolean packAtoms) {
+      this.packAtoms = packAtoms;
+   }
+
 }
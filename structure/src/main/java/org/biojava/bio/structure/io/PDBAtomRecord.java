@@ -0,0 +1,383 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure.io;
+
+import org.biojava.bio.structure.Element;
+
+/** Splits an ATOM or HETATM record into its fields, straight from the bytes of the line.
+ *
+ * <p>Numbers are parsed without creating Strings, and give exactly the values of
+ * {@link Double#parseDouble(String)} and {@link Integer#parseInt(String)}. The names of atoms, groups,
+ * chains and residue numbers repeat from line to line, so each distinct one is made into a String only
+ * once and then shared.</p>
+ *
+ * <p>{@link #parse(byte[], int, int)} only accepts well formed ASCII records with all fields up to the
+ * z coordinate. For every other line it returns false, and the line is left to the String based
+ * handlers of {@link PDBFileParser}, which keep their handling of unusual and broken lines.</p>
+ */
+class PDBAtomRecord {
+
+	// powers of ten that are exact as doubles
+	private static final double[] POW10 = new double[23];
+
+	static {
+		POW10[0] = 1.0;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = 10.0 * POW10[i - 1];
+		}
+	}
+
+	// the most digits a long holds below 2^53, so that it converts to a double exactly
+	private static final int MAX_DIGITS = 15;
+
+	// the fields of the last parsed record
+	String recordName;
+	String chainId;
+	String residueNumber;
+	String groupCode3;
+	String fullName;
+	String name;
+	int serial;
+	Character altLoc;
+	double x, y, z;
+	double occupancy;
+	double tempFactor;
+	Element element;
+
+	private final Cache chains = new Cache();
+	private final Cache residueNumbers = new Cache();
+	private final Cache groupCodes = new Cache();
+	private final Cache fullNames = new Cache();
+	private final Cache names = new Cache();
+	private final Cache elements = new Cache();
+	private final Cache elementsByName = new Cache();
+
+	/** Splits a line into the fields of an ATOM or HETATM record.
+	 *
+	 * @param b the bytes of the line
+	 * @param start the first byte of the line
+	 * @param length the length of the line
+	 * @return true if the line is an ATOM or HETATM record that was parsed, false if the line has to be
+	 * parsed as String
+	 */
+	boolean parse(byte[] b, int start, int length) {
+
+		if (length < 54) {
+			return false;
+		}
+		if (b[start] == 'A' && b[start + 1] == 'T' && b[start + 2] == 'O' && b[start + 3] == 'M'
+				&& isBlank(b[start + 4]) && isBlank(b[start + 5])) {
+			recordName = "ATOM";
+		} else if (b[start] == 'H' && b[start + 1] == 'E' && b[start + 2] == 'T' && b[start + 3] == 'A'
+				&& b[start + 4] == 'T' && b[start + 5] == 'M') {
+			recordName = "HETATM";
+		} else {
+			return false;
+		}
+
+		int end = start + length;
+		for (int i = start; i < end; i++) {
+			if (b[i] < 0) {
+				// not ASCII, so it depends on the character set
+				return false;
+			}
+		}
+
+		try {
+			serial = parseInt(b, start + 6, start + 11);
+			x = parseDouble(b, start + 30, start + 38);
+			y = parseDouble(b, start + 38, start + 46);
+			z = parseDouble(b, start + 46, start + 54);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		occupancy = 1.0;
+		if (length > 59) {
+			try {
+				occupancy = parseDouble(b, start + 54, start + 60);
+			} catch (NumberFormatException e) {}
+		}
+
+		tempFactor = 0.0;
+		if (length > 65) {
+			try {
+				tempFactor = parseDouble(b, start + 60, start + 66);
+			} catch (NumberFormatException e) {}
+		}
+
+		chainId = getString(chains, b, start + 21, start + 22, false);
+		residueNumber = getString(residueNumbers, b, start + 22, start + 27, true);
+		groupCode3 = getString(groupCodes, b, start + 17, start + 20, false);
+		fullName = getString(fullNames, b, start + 12, start + 16, false);
+		name = getString(names, b, start + 12, start + 16, true);
+		altLoc = Character.valueOf((char) b[start + 16]);
+
+		if (length > 77) {
+			long key = getKey(b, start + 76, start + 78);
+			element = (Element) elements.get(key);
+			if (element == null) {
+				element = getElement(toString(b, start + 76, 2), fullName);
+				elements.put(key, element);
+			}
+		} else {
+			long key = getKey(b, start + 12, start + 16);
+			element = (Element) elementsByName.get(key);
+			if (element == null) {
+				element = getElement(null, fullName);
+				elementsByName.put(key, element);
+			}
+		}
+
+		return true;
+	}
+
+	/** Finds the element of an atom from the element field of its record or, if the record has none,
+	 * from the atom name.
+	 *
+	 * @param elementField columns 77 and 78 of the record, or null if the record is shorter
+	 * @param fullname the atom name with spaces, columns 13 to 16 of the record
+	 * @return the element, or {@link Element#R} if it is unknown
+	 */
+	static Element getElement(String elementField, String fullname) {
+		Element element = Element.R;
+		if ( elementField != null ) {
+			// parse element from element field
+			try {
+				element = Element.valueOfIgnoreCase(elementField.trim());
+			}  catch (IllegalArgumentException e){}
+		} else {
+			// parse the name from the atom name
+			String elementSymbol = null;
+			// for atom names with 4 characters, the element is
+			// at the first position, example HG23 in Valine
+			if (fullname.trim().length() == 4) {
+				elementSymbol = fullname.substring(0, 1);
+			} else if ( fullname.trim().length() > 1){
+				elementSymbol = fullname.substring(0, 2).trim();
+			} else {
+				// unknown element...
+				elementSymbol = "R";
+			}
+
+			try {
+				element = Element.valueOfIgnoreCase(elementSymbol);
+			}  catch (IllegalArgumentException e){}
+		}
+		return element;
+	}
+
+	/** Parses a number as {@link Double#parseDouble(String)} does after {@link String#trim()}.
+	 * Plain decimals of up to 15 digits are divided by an exact power of ten, which rounds them
+	 * correctly; everything else is handed on to Double.parseDouble.
+	 *
+	 * @param b ASCII bytes
+	 * @param start the first byte of the field
+	 * @param end the byte after the field
+	 * @return the number
+	 * @throws NumberFormatException if the field is not a number
+	 */
+	static double parseDouble(byte[] b, int start, int end) {
+		int s = start, e = end;
+		while (s < e && isBlank(b[s])) {
+			s++;
+		}
+		while (e > s && isBlank(b[e - 1])) {
+			e--;
+		}
+		int i = s;
+		boolean negative = false;
+		if (i < e && (b[i] == '-' || b[i] == '+')) {
+			negative = (b[i] == '-');
+			i++;
+		}
+		long mantissa = 0L;
+		int digits = 0, fraction = 0;
+		boolean point = false;
+		for (; i < e; i++) {
+			byte c = b[i];
+			if (c >= '0' && c <= '9' && digits < MAX_DIGITS) {
+				mantissa = 10L * mantissa + (c - '0');
+				digits++;
+				if (point) {
+					fraction++;
+				}
+			} else if (c == '.' && ! point) {
+				point = true;
+			} else {
+				return Double.parseDouble(toString(b, s, e - s));
+			}
+		}
+		if (digits == 0) {
+			return Double.parseDouble(toString(b, s, e - s));
+		}
+		double value = mantissa / POW10[fraction];
+		return negative ? -value : value;
+	}
+
+	/** Parses a number as {@link Integer#parseInt(String)} does after {@link String#trim()}.
+	 *
+	 * @param b ASCII bytes
+	 * @param start the first byte of the field
+	 * @param end the byte after the field
+	 * @return the number
+	 * @throws NumberFormatException if the field is not a number
+	 */
+	static int parseInt(byte[] b, int start, int end) {
+		int s = start, e = end;
+		while (s < e && isBlank(b[s])) {
+			s++;
+		}
+		while (e > s && isBlank(b[e - 1])) {
+			e--;
+		}
+		int i = s;
+		boolean negative = false;
+		if (i < e && b[i] == '-') {
+			negative = true;
+			i++;
+		}
+		if (i == e || e - i > 9) {
+			return Integer.parseInt(toString(b, s, e - s));
+		}
+		int value = 0;
+		for (; i < e; i++) {
+			byte c = b[i];
+			if (c < '0' || c > '9') {
+				return Integer.parseInt(toString(b, s, e - s));
+			}
+			value = 10 * value + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	// helper method that makes a String of bytes, each taken as the character of the same code, as
+	// ISO-8859-1 does
+	private static String toString(byte[] b, int start, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) (b[start + i] & 0xff);
+		}
+		return new String(chars);
+	}
+
+	// helper method that treats characters as String.trim() does
+	private static boolean isBlank(byte c) {
+		return c >= 0 && c <= ' ';
+	}
+
+	// helper method that returns the shared String of a field
+	private static String getString(Cache cache, byte[] b, int start, int end, boolean trim) {
+		long key = getKey(b, start, end);
+		String s = (String) cache.get(key);
+		if (s == null) {
+			int e = end;
+			if (trim) {
+				while (start < e && isBlank(b[start])) {
+					start++;
+				}
+				while (e > start && isBlank(b[e - 1])) {
+					e--;
+				}
+			}
+			s = toString(b, start, e - start);
+			cache.put(key, s);
+		}
+		return s;
+	}
+
+	// helper method that packs up to 7 bytes into a key; the leading 1 marks the length
+	private static long getKey(byte[] b, int start, int end) {
+		long key = 1L;
+		for (int i = start; i < end; i++) {
+			key = (key << 8) | b[i];
+		}
+		return key;
+	}
+
+	/** A small open addressing map from keys of packed bytes to the values made of them. It starts
+	 * over once it gets large, so that files with many distinct values do not keep them all.
+	 */
+	private static class Cache {
+
+		private static final int MAX_CAPACITY = 1 << 15;
+
+		private long[] keys;
+		private Object[] values;
+		private int size;
+
+		Cache() {
+			keys = new long[64];
+			values = new Object[64];
+		}
+
+		Object get(long key) {
+			int mask = keys.length - 1;
+			for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					return values[i];
+				}
+			}
+			return null;
+		}
+
+		void put(long key, Object value) {
+			if (2 * (size + 1) > keys.length) {
+				if (keys.length >= MAX_CAPACITY) {
+					keys = new long[64];
+					values = new Object[64];
+					size = 0;
+				} else {
+					long[] oldKeys = keys;
+					Object[] oldValues = values;
+					keys = new long[2 * oldKeys.length];
+					values = new Object[2 * oldValues.length];
+					size = 0;
+					for (int i = 0; i < oldKeys.length; i++) {
+						if (oldValues[i] != null) {
+							insert(oldKeys[i], oldValues[i]);
+						}
+					}
+				}
+			}
+			insert(key, value);
+		}
+
+		// helper method that adds a key that is not in the map yet
+		private void insert(long key, Object value) {
+			int mask = keys.length - 1;
+			int i = hash(key) & mask;
+			while (values[i] != null) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			values[i] = value;
+			size++;
+		}
+
+		private static int hash(long key) {
+			return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+		}
+	}
+
+}
@@ -24,7 +24,6 @@ package org.biojava.bio.structure.io;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -54,6 +53,7 @@ import org.biojava.bio.structure.Compound;
 import org.biojava.bio.structure.JournalArticle;
 import org.biojava.bio.structure.NucleotideImpl;
 import org.biojava.bio.structure.PDBHeader;
+import org.biojava.bio.structure.PackedAtomStore;
 import org.biojava.bio.structure.SSBond;
 import org.biojava.bio.structure.Structure;
 import org.biojava.bio.structure.StructureException;
@@ -1477,10 +1477,166 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 		// build up chains first.
 		// headerOnly just goes down to chain resolution.
 
-		boolean startOfNewChain = false;
-
 		String chain_id      = line.substring(21,22);
 
+		boolean startOfNewChain = startChain(chain_id);
+
+		// process group data:
+		// join residue numbers and insertion codes together
+		String recordName     = line.substring (0, 6).trim ();
+		String residueNumber  = line.substring(22,27).trim();
+		String groupCode3     = line.substring(17,20);
+
+		startGroup(startOfNewChain, recordName, residueNumber, groupCode3);
+
+		if ( ! countAtom(line))
+			return;
+
+		//TODO: treat the following residues as amino acids?
+		/*
+		MSE Selenomethionine
+		CSE Selenocysteine
+		PTR Phosphotyrosine
+		SEP Phosphoserine
+		TPO Phosphothreonine
+		HYP 4-hydroxyproline
+		5HP Pyroglutamic acid; 5-hydroxyproline
+		PCA Pyroglutamic Acid
+		LYZ 5-hydroxylysine
+		GLX Glu or Gln
+		ASX Asp or Asn
+		GLA gamma-carboxy-glutamic acid
+		 */
+		//          1         2         3         4         5         6
+		//012345678901234567890123456789012345678901234567890123456789
+		//ATOM      1  N   MET     1      20.154  29.699   5.276   1.0
+		//ATOM    112  CA  ASP   112      41.017  33.527  28.371  1.00  0.00
+		//ATOM     53  CA  MET     7      23.772  33.989 -21.600  1.00  0.00           C
+		//ATOM    112  CA  ASP   112      37.613  26.621  33.571     0     0
+
+
+
+		String fullname = line.substring (12, 16);
+
+		// check for CA only if requested
+		if ( params.isParseCAOnly()){
+			// yes , user wants to get CA only
+			// only parse CA atoms...
+			if (! fullname.equals(" CA ")){
+				//System.out.println("ignoring " + line);
+				atomCount--;
+				return;
+			}
+		}
+		// create new atom
+
+		int pdbnumber = Integer.parseInt (line.substring (6, 11).trim ());
+		AtomImpl atom = new AtomImpl() ;
+		atom.setPDBserial(pdbnumber) ;
+
+		Character altLoc   = new Character(line.substring (16, 17).charAt(0));
+
+		atom.setAltLoc(altLoc);
+		atom.setFullName(fullname) ;
+		atom.setName(fullname.trim());
+
+		double x = Double.parseDouble (line.substring (30, 38).trim());
+		double y = Double.parseDouble (line.substring (38, 46).trim());
+		double z = Double.parseDouble (line.substring (46, 54).trim());
+
+		double[] coords = new double[3];
+		coords[0] = x ;
+		coords[1] = y ;
+		coords[2] = z ;
+		atom.setCoords(coords);
+
+		double occu  = 1.0;
+		if ( line.length() > 59 ) {
+			try {
+				// occu and tempf are sometimes not used :-/
+				occu = Double.parseDouble (line.substring (54, 60).trim());
+			}  catch (NumberFormatException e){}
+		}
+
+		double tempf = 0.0;
+		if ( line.length() > 65) {
+			try {
+				tempf = Double.parseDouble (line.substring (60, 66).trim());
+			}  catch (NumberFormatException e){}
+		}
+
+		atom.setOccupancy(  occu  );
+		atom.setTempFactor( tempf );
+
+
+
+		
+		// Parse element from the element field. If this field is
+		// missing (i.e. misformatted PDB file), then parse the
+		// name from the atom name.
+		String elementField = null;
+		if ( line.length() > 77 )
+			elementField = line.substring (76, 78);
+		Element element = PDBAtomRecord.getElement(elementField, fullname);
+		atom.setElement(element);
+		
+		
+		//see if chain_id is one of the previous chains ...
+		current_group.addAtom(atom);
+		//System.out.println(current_group);
+	}
+
+	/** Handler for an ATOM or HETATM record that was already split into its fields by a
+	 * {@link PDBAtomRecord}. Does the same as {@link #pdb_ATOM_Handler(String)}.
+	 *
+	 * @param record the fields of the record
+	 * @param reader the reader positioned on the line of the record
+	 */
+	private void pdb_ATOM_Handler(PDBAtomRecord record, PDBLineReader reader)
+	throws PDBParseException
+	{
+		boolean startOfNewChain = startChain(record.chainId);
+
+		startGroup(startOfNewChain, record.recordName, record.residueNumber, record.groupCode3);
+
+		// the line is only decoded for the message at the last atom
+		if ( ! countAtom(atomCount + 1 == MAX_ATOMS ? reader.getLine() : null))
+			return;
+
+		// check for CA only if requested
+		if ( params.isParseCAOnly() && ! record.fullName.equals(" CA ")){
+			atomCount--;
+			return;
+		}
+
+		AtomImpl atom = new AtomImpl() ;
+		atom.setPDBserial(record.serial) ;
+		atom.setAltLoc(record.altLoc);
+		atom.setFullName(record.fullName) ;
+		atom.setName(record.name);
+
+		double[] coords = new double[3];
+		coords[0] = record.x ;
+		coords[1] = record.y ;
+		coords[2] = record.z ;
+		atom.setCoords(coords);
+
+		atom.setOccupancy(  record.occupancy  );
+		atom.setTempFactor( record.tempFactor );
+		atom.setElement(record.element);
+
+		current_group.addAtom(atom);
+	}
+
+	/** Moves to the chain of an atom record, and adds it to the current model if it is new.
+	 *
+	 * @param chain_id the chain id of the record
+	 * @return true if a different chain was started
+	 */
+	private boolean startChain(String chain_id)
+	{
+		boolean startOfNewChain = false;
+
 		if (current_chain == null) {
 			current_chain = new ChainImpl();
 			current_chain.setName(chain_id);
@@ -1524,13 +1680,15 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 
 
 		} 
+		return startOfNewChain;
+	}
 
-		// process group data:
-		// join residue numbers and insertion codes together
-		String recordName     = line.substring (0, 6).trim ();
-		String residueNumber  = line.substring(22,27).trim();
-		String groupCode3     = line.substring(17,20);
-
+	/** Moves to the group of an atom record, and adds the previous group to the current chain
+	 * when the residue number changes.
+	 */
+	private void startGroup(boolean startOfNewChain, String recordName, String residueNumber, String groupCode3)
+	throws PDBParseException
+	{
 		Character aminoCode1 = null;
 
 		if ( recordName.equals("ATOM") ){
@@ -1575,9 +1733,17 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 			current_group.setPDBName(groupCode3);
 
 		}
+	}
 
+	/** Counts an atom, and switches to CA only or stops at the atom limits.
+	 *
+	 * @param line the line of the atom, for the message at the last atom
+	 * @return false if the atom is not to be parsed
+	 */
+	private boolean countAtom(String line)
+	{
 		if ( params.isHeaderOnly())
-			return;
+			return false;
 
 		atomCount++;
 
@@ -1593,125 +1759,14 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 		if ( atomCount == MAX_ATOMS){
 			System.err.println("too many atoms (>"+MAX_ATOMS+"in this protein structure.");
 			System.err.println("ignoring lines after: " + line);
-			return;
+			return false;
 		}
 		if ( atomCount > MAX_ATOMS){
 			//System.out.println("too many atoms in this protein structure.");
 			//System.out.println("ignoring line: " + line);
-			return;
-		}
-
-		//TODO: treat the following residues as amino acids?
-		/*
-		MSE Selenomethionine
-		CSE Selenocysteine
-		PTR Phosphotyrosine
-		SEP Phosphoserine
-		TPO Phosphothreonine
-		HYP 4-hydroxyproline
-		5HP Pyroglutamic acid; 5-hydroxyproline
-		PCA Pyroglutamic Acid
-		LYZ 5-hydroxylysine
-		GLX Glu or Gln
-		ASX Asp or Asn
-		GLA gamma-carboxy-glutamic acid
-		 */
-		//          1         2         3         4         5         6
-		//012345678901234567890123456789012345678901234567890123456789
-		//ATOM      1  N   MET     1      20.154  29.699   5.276   1.0
-		//ATOM    112  CA  ASP   112      41.017  33.527  28.371  1.00  0.00
-		//ATOM     53  CA  MET     7      23.772  33.989 -21.600  1.00  0.00           C
-		//ATOM    112  CA  ASP   112      37.613  26.621  33.571     0     0
-
-
-		String fullname = line.substring (12, 16);
-
-		// check for CA only if requested
-		if ( params.isParseCAOnly()){
-			// yes , user wants to get CA only
-			// only parse CA atoms...
-			if (! fullname.equals(" CA ")){
-				//System.out.println("ignoring " + line);
-				atomCount--;
-				return;
-			}
-		}
-		// create new atom
-
-		int pdbnumber = Integer.parseInt (line.substring (6, 11).trim ());
-		AtomImpl atom = new AtomImpl() ;
-		atom.setPDBserial(pdbnumber) ;
-
-		Character altLoc   = new Character(line.substring (16, 17).charAt(0));
-
-		atom.setAltLoc(altLoc);
-		atom.setFullName(fullname) ;
-		atom.setName(fullname.trim());
-
-		double x = Double.parseDouble (line.substring (30, 38).trim());
-		double y = Double.parseDouble (line.substring (38, 46).trim());
-		double z = Double.parseDouble (line.substring (46, 54).trim());
-
-		double[] coords = new double[3];
-		coords[0] = x ;
-		coords[1] = y ;
-		coords[2] = z ;
-		atom.setCoords(coords);
-
-		double occu  = 1.0;
-		if ( line.length() > 59 ) {
-			try {
-				// occu and tempf are sometimes not used :-/
-				occu = Double.parseDouble (line.substring (54, 60).trim());
-			}  catch (NumberFormatException e){}
+			return false;
 		}
-
-		double tempf = 0.0;
-		if ( line.length() > 65) {
-			try {
-				tempf = Double.parseDouble (line.substring (60, 66).trim());
-			}  catch (NumberFormatException e){}
-		}
-
-		atom.setOccupancy(  occu  );
-		atom.setTempFactor( tempf );
-
-
-
-		
-		// Parse element from the element field. If this field is
-		// missing (i.e. misformatted PDB file), then parse the
-		// name from the atom name.
-		Element element = Element.R;
-		if ( line.length() > 77 ) {
-			// parse element from element field
-			try {
-				element = Element.valueOfIgnoreCase(line.substring (76, 78).trim());
-			}  catch (IllegalArgumentException e){}
-		} else {
-			// parse the name from the atom name
-			String elementSymbol = null;
-			// for atom names with 4 characters, the element is
-			// at the first position, example HG23 in Valine
-			if (fullname.trim().length() == 4) {
-				elementSymbol = fullname.substring(0, 1);
-			} else if ( fullname.trim().length() > 1){
-				elementSymbol = fullname.substring(0, 2).trim();
-			} else {
-				// unknown element...
-				elementSymbol = "R";
-			}
-				
-			try {
-			element = Element.valueOfIgnoreCase(elementSymbol);
-			}  catch (IllegalArgumentException e){}
-		}
-		atom.setElement(element);
-		
-		
-		//see if chain_id is one of the previous chains ...
-		current_group.addAtom(atom);
-		//System.out.println(current_group);
+		return true;
 	}
 
 
@@ -1990,16 +2045,14 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 
 
 
-	private BufferedReader getBufferedReader(InputStream inStream)
+	private PDBLineReader getLineReader(InputStream inStream)
 	throws IOException {
 
-		BufferedReader buf ;
 		if (inStream == null) {
 			throw new IOException ("input stream is null!");
 		}
 
-		buf = new BufferedReader (new InputStreamReader (inStream));
-		return buf ;
+		return new PDBLineReader(inStream);
 
 	}
 
@@ -2008,6 +2061,11 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 	/** parse a PDB file and return a datastructure implementing
 	 * PDBStructure interface.
 	 *
+	 * <p>The lines are read as bytes, and ATOM and HETATM records are split into
+	 * their fields without decoding the line into a String (see {@link PDBAtomRecord}).
+	 * All other records, and atom records that do not look as expected,
+	 * are parsed as in {@link #parsePDBFile(BufferedReader)}.</p>
+	 *
 	 * @param inStream  an InputStream object
 	 * @return a Structure object
 	 * @throws IOException
@@ -2016,18 +2074,55 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 	throws IOException
 	{
 
-		//System.out.println("preparing buffer");
-		BufferedReader buf ;
+		PDBLineReader reader ;
 		try {
-			buf = getBufferedReader(inStream);
+			reader = getLineReader(inStream);
 
 		} catch (IOException e) {
 			e.printStackTrace();
-			throw new IOException ("error initializing BufferedReader");
+			throw new IOException ("error initializing PDBLineReader");
 		}
-		//System.out.println("done");
 
-		return parsePDBFile(buf);
+		initParsing();
+		String line = null;
+		try {
+
+			// if there is no line already for the first time, the stream had a problem
+			if ( ! reader.readLine()) {
+				throw new IOException ("could not parse PDB File, InputStream is empty!");
+			}
+
+			PDBAtomRecord record = new PDBAtomRecord();
+			do {
+				if ( record.parse(reader.getBuffer(), reader.getStart(), reader.getLength())) {
+					line = null;
+					try {
+						pdb_ATOM_Handler(record, reader);
+					} catch (Exception e){
+						// the line is badly formatted, ignore it!
+						e.printStackTrace();
+						System.err.println("badly formatted line ... " + reader.getLine());
+					}
+				} else {
+					line = reader.getLine();
+					handleLine(line);
+				}
+			} while (reader.readLine());
+			line = null;
+
+			finishParsing();
+
+		} catch (Exception e) {
+			System.err.println(line);
+			e.printStackTrace();
+			throw new IOException ("Error parsing PDB file");
+		}
+
+		if ( params.isParseSecStruc())
+			setSecStruc();
+
+
+		return structure;
 
 	}
 
@@ -2042,8 +2137,43 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 	public Structure parsePDBFile(BufferedReader buf)
 	throws IOException
 	{
-		// (re)set structure
+		initParsing();
+		String line = null;
+		try {
+
+			line = buf.readLine ();
+
+			// if line is null already for the first time, the buffered Reader had a problem
+			if ( line == null ) {
+				throw new IOException ("could not parse PDB File, BufferedReader returns null!");
+			}
+
+
+
+			while (line != null) {
+				handleLine(line);
+				line = buf.readLine ();
+			}
+
+			finishParsing();
+
+		} catch (Exception e) {
+			System.err.println(line);
+			e.printStackTrace();
+			throw new IOException ("Error parsing PDB file");
+		}
 
+		if ( params.isParseSecStruc())
+			setSecStruc();
+
+
+		return structure;
+
+	}
+
+	/** (re)set the structure and the state of the parser before a file is parsed. */
+	private void initParsing()
+	{
 		structure     = new StructureImpl() ;
 		current_model = new ArrayList<Chain>();
 		seqResChains  = new ArrayList<Chain>();
@@ -2067,126 +2197,104 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 		lengthCheck = -1;
 		atomCount = 0;
 		atomOverflow = false;
-		String line = null;
-		try {
-
-			line = buf.readLine ();
-			String recordName = "";
-
-			// if line is null already for the first time, the buffered Reader had a problem
-			if ( line == null ) {
-				throw new IOException ("could not parse PDB File, BufferedReader returns null!");
-			}
-
-
+	}
 
-			while (line != null) {
+	/** Passes one line of a PDB file on to the handler of its record. */
+	private void handleLine(String line)
+	{
+		String recordName = "";
 
-				// System.out.println (">"+line+"<");
+		// System.out.println (">"+line+"<");
 
-				// ignore empty lines
-				if ( line.equals("") ||
-						(line.equals(NEWLINE))){
+		// ignore empty lines
+		if ( line.equals("") ||
+				(line.equals(NEWLINE))){
 
-					line = buf.readLine ();
-					continue;
-				}
+			return;
+		}
 
 
-				// ignore short TER and END lines
-				if ( (line.startsWith("TER")) ||
-						(line.startsWith("END"))) {
+		// ignore short TER and END lines
+		if ( (line.startsWith("TER")) ||
+				(line.startsWith("END"))) {
 
-					line = buf.readLine ();
-					continue;
-				}
+			return;
+		}
 
-				if ( line.length() < 6) {
-					System.err.println("found line length < 6. ignoring it. >" + line +"<" );
-					line = buf.readLine ();
-					continue;
-				}
+		if ( line.length() < 6) {
+			System.err.println("found line length < 6. ignoring it. >" + line +"<" );
+			return;
+		}
 
-				try {
-					recordName = line.substring (0, 6).trim ();
+		try {
+			recordName = line.substring (0, 6).trim ();
 
-				} catch (StringIndexOutOfBoundsException e){
+		} catch (StringIndexOutOfBoundsException e){
 
-					System.err.println("StringIndexOutOfBoundsException at line >" + line + "<" + NEWLINE +
-					"this does not look like an expected PDB file") ;
-					e.printStackTrace();
-					throw new StringIndexOutOfBoundsException(e.getMessage());
+			System.err.println("StringIndexOutOfBoundsException at line >" + line + "<" + NEWLINE +
+			"this does not look like an expected PDB file") ;
+			e.printStackTrace();
+			throw new StringIndexOutOfBoundsException(e.getMessage());
 
-				}
+		}
 
-				//System.out.println(recordName);
+		//System.out.println(recordName);
 
-				try {
-					if (recordName.equals("ATOM"))
-						pdb_ATOM_Handler(line);
-					else if (recordName.equals("SEQRES"))
-						pdb_SEQRES_Handler(line);
-					else if (recordName.equals("HETATM"))
-						pdb_ATOM_Handler(line);
-					else if (recordName.equals("MODEL"))
-						pdb_MODEL_Handler(line);
-					else if (recordName.equals("HEADER"))
-						pdb_HEADER_Handler(line);
-					else if (recordName.equals("AUTHOR"))
-						pdb_AUTHOR_Handler(line);
-					else if (recordName.equals("TITLE"))
-						pdb_TITLE_Handler(line);
-					else if (recordName.equals("SOURCE"))
-						sourceLines.add(line); //pdb_SOURCE_Handler
-					else if (recordName.equals("COMPND"))
-						compndLines.add(line); //pdb_COMPND_Handler
-					else if (recordName.equals("JRNL"))
-						pdb_JRNL_Handler(line);
-					else if (recordName.equals("EXPDTA"))
-						pdb_EXPDTA_Handler(line);
-					else if (recordName.equals("REMARK"))
-						pdb_REMARK_Handler(line);
-					else if (recordName.equals("CONECT"))
-						pdb_CONECT_Handler(line);
-					else if (recordName.equals("REVDAT"))
-						pdb_REVDAT_Handler(line);
-					else if (recordName.equals("DBREF"))
-						pdb_DBREF_Handler(line);
-					else if (recordName.equals("SSBOND"))
-						pdb_SSBOND_Handler(line);
-					else if ( params.isParseSecStruc()) {
-						if ( recordName.equals("HELIX") ) pdb_HELIX_Handler (  line ) ;
-						else if (recordName.equals("SHEET")) pdb_SHEET_Handler(line ) ;
-						else if (recordName.equals("TURN")) pdb_TURN_Handler(   line ) ;
-					}
-					else {
-						// this line type is not supported, yet.
-						// we ignore it
-					}
-				} catch (Exception e){
-					// the line is badly formatted, ignore it!
-					e.printStackTrace();
-					System.err.println("badly formatted line ... " + line);
-				}
-				line = buf.readLine ();
+		try {
+			if (recordName.equals("ATOM"))
+				pdb_ATOM_Handler(line);
+			else if (recordName.equals("SEQRES"))
+				pdb_SEQRES_Handler(line);
+			else if (recordName.equals("HETATM"))
+				pdb_ATOM_Handler(line);
+			else if (recordName.equals("MODEL"))
+				pdb_MODEL_Handler(line);
+			else if (recordName.equals("HEADER"))
+				pdb_HEADER_Handler(line);
+			else if (recordName.equals("AUTHOR"))
+				pdb_AUTHOR_Handler(line);
+			else if (recordName.equals("TITLE"))
+				pdb_TITLE_Handler(line);
+			else if (recordName.equals("SOURCE"))
+				sourceLines.add(line); //pdb_SOURCE_Handler
+			else if (recordName.equals("COMPND"))
+				compndLines.add(line); //pdb_COMPND_Handler
+			else if (recordName.equals("JRNL"))
+				pdb_JRNL_Handler(line);
+			else if (recordName.equals("EXPDTA"))
+				pdb_EXPDTA_Handler(line);
+			else if (recordName.equals("REMARK"))
+				pdb_REMARK_Handler(line);
+			else if (recordName.equals("CONECT"))
+				pdb_CONECT_Handler(line);
+			else if (recordName.equals("REVDAT"))
+				pdb_REVDAT_Handler(line);
+			else if (recordName.equals("DBREF"))
+				pdb_DBREF_Handler(line);
+			else if (recordName.equals("SSBOND"))
+				pdb_SSBOND_Handler(line);
+			else if ( params.isParseSecStruc()) {
+				if ( recordName.equals("HELIX") ) pdb_HELIX_Handler (  line ) ;
+				else if (recordName.equals("SHEET")) pdb_SHEET_Handler(line ) ;
+				else if (recordName.equals("TURN")) pdb_TURN_Handler(   line ) ;
 			}
-
-			makeCompounds(compndLines, sourceLines);
-
-			triggerEndFileChecks();
-
-		} catch (Exception e) {
-			System.err.println(line);
+			else {
+				// this line type is not supported, yet.
+				// we ignore it
+			}
+		} catch (Exception e){
+			// the line is badly formatted, ignore it!
 			e.printStackTrace();
-			throw new IOException ("Error parsing PDB file");
+			System.err.println("badly formatted line ... " + line);
 		}
+	}
 
-		if ( params.isParseSecStruc())
-			setSecStruc();
-
-
-		return structure;
+	/** Builds what needs all lines of a PDB file, after the last line was parsed. */
+	private void finishParsing()
+	{
+		makeCompounds(compndLines, sourceLines);
 
+		triggerEndFileChecks();
 	}
 
 	/**
@@ -2280,6 +2388,10 @@ COLUMNS   DATA TYPE         FIELD          DEFINITION
 
 		linkChains2Compound(structure);
 
+		if ( params.isPackAtoms()){
+			PackedAtomStore.pack(structure);
+		}
+
 	}
 
 
@@ -0,0 +1,152 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Reads the lines of a stream as bytes, without decoding them into Strings.
+ *
+ * <p>Lines end at a line feed, a carriage return, or a carriage return followed by a line feed, as
+ * for {@link java.io.BufferedReader#readLine()}. The current line stays in a reusable buffer until
+ * the next call of {@link #readLine()}, and is only decoded by {@link #getLine()}.</p>
+ */
+class PDBLineReader {
+
+	private final InputStream in;
+
+	private byte[] buffer;
+
+	// unread bytes are buffer[pos] to buffer[limit - 1]
+	private int pos, limit;
+
+	private int start, length;
+
+	private boolean eof;
+
+	// whether the last line ended with a carriage return, so that a following line feed is skipped
+	private boolean skipLF;
+
+	PDBLineReader(InputStream in) {
+		this.in = in;
+		buffer = new byte[65536];
+	}
+
+	/** Moves to the next line.
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	boolean readLine() throws IOException {
+		int scanned = 0;
+		while (true) {
+			if (skipLF) {
+				if (pos < limit) {
+					if (buffer[pos] == '\n') {
+						pos++;
+					}
+					skipLF = false;
+				} else if (eof) {
+					skipLF = false;
+				} else {
+					fill();
+					continue;
+				}
+			}
+			for (int i = pos + scanned; i < limit; i++) {
+				byte c = buffer[i];
+				if (c == '\n' || c == '\r') {
+					start = pos;
+					length = i - pos;
+					pos = i + 1;
+					skipLF = (c == '\r');
+					return true;
+				}
+			}
+			scanned = limit - pos;
+			if (eof) {
+				if (scanned == 0) {
+					return false;
+				}
+				start = pos;
+				length = scanned;
+				pos = limit;
+				return true;
+			}
+			fill();
+		}
+	}
+
+	/** Get the buffer that holds the current line.
+	 *
+	 * @return the buffer, which is reused for later lines
+	 */
+	byte[] getBuffer() {
+		return buffer;
+	}
+
+	/** Get the position of the current line in the buffer.
+	 *
+	 * @return the index of the first byte of the line
+	 */
+	int getStart() {
+		return start;
+	}
+
+	/** Get the length of the current line, without the line end.
+	 *
+	 * @return the number of bytes of the line
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/** Decodes the current line with the default character set, like an {@link java.io.InputStreamReader}.
+	 *
+	 * @return the current line
+	 */
+	String getLine() {
+		return new String(buffer, start, length);
+	}
+
+	// helper method that keeps the unread bytes, grows the buffer if they fill it, and reads more
+	private void fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+			limit -= pos;
+			pos = 0;
+		}
+		if (limit == buffer.length) {
+			byte[] larger = new byte[2 * buffer.length];
+			System.arraycopy(buffer, 0, larger, 0, limit);
+			buffer = larger;
+		}
+		int n = in.read(buffer, limit, buffer.length - limit);
+		if (n < 0) {
+			eof = true;
+		} else {
+			limit += n;
+		}
+	}
+
+}
@@ -27,11 +27,13 @@ package org.biojava.bio.structure.secstruc;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.biojava.bio.structure.Atom;
+import org.biojava.bio.structure.AtomGrid;
 import org.biojava.bio.structure.Calc;
 import org.biojava.bio.structure.Chain;
 import org.biojava.bio.structure.Group;
@@ -54,7 +56,7 @@ import org.biojava.bio.structure.io.PDBParseException;
  * 2nd Edition, Freeman 1994
  */
 public class SecStruc {
-   private static final boolean debug = true;
+   private static final boolean debug = false;
 
    /** the minimal distance between two residues */
    public static double MINDIST       = 0.5      ;
@@ -83,8 +85,19 @@ public class SecStruc {
    public static double Q            = -27888.0 ;
    //public static double Q            = ( -332 * 0.42 * 0.2 * 1000 ); // -27888.0
 
+   /** doubles per group in the backbone array: N, H, C and O coordinates */
+   private static final int BACKBONE = 12;
+   private static final int N_OFFSET = 0;
+   private static final int H_OFFSET = 3;
+   private static final int C_OFFSET = 6;
+   private static final int O_OFFSET = 9;
+
    private SecStrucGroup[] groups;
 
+   private double[] backbone;
+
+   private boolean useGrid = true;
+
    List<DistEn> distVsEnergy;
 
 
@@ -321,12 +334,26 @@ public class SecStruc {
    /** calculate the HBonds between different groups ...
     * see Creighton page 147 f
     *
+    * Only pairs of groups with CA atoms closer than CA_MIN_DIST can form
+    * HBonds, so the CA atoms are indexed in an AtomGrid and only groups
+    * within that distance are compared.
     */
    private void calculateHBonds()
    throws StructureException
    {
       System.out.println("groups length: " + groups.length);
 
+      backbone = getBackbone(groups);
+      double[] ca = new double[3 * groups.length];
+      for (int i = 0 ; i < groups.length ; i++){
+         Atom a = groups[i].getCA();
+         ca[3 * i] = a.getX();
+         ca[3 * i + 1] = a.getY();
+         ca[3 * i + 2] = a.getZ();
+      }
+      AtomGrid grid = useGrid ? new AtomGrid(ca, CA_MIN_DIST) : null;
+      int[] candidates = new int[groups.length], found = new int[groups.length];
+
       // skip the first residue , unable to calc H for it ...
       for (int i=1 ; i < groups.length ;  i++){
 
@@ -337,13 +364,32 @@ public class SecStruc {
             continue;
          }
 
-         for ( int j = i+1 ; j < groups.length ; j++){
+         // pairs are visited in the order of the all against all loop
+         int count = 0;
+         if (grid != null) {
+            int n = grid.getIndicesWithin(ca[3 * i], ca[3 * i + 1], ca[3 * i + 2], CA_MIN_DIST, found);
+            for (int f = 0 ; f < n ; f++){
+               if (found[f] > i) {
+                  candidates[count++] = found[f];
+               }
+            }
+            Arrays.sort(candidates, 0, count);
+         } else {
+            for ( int j = i+1 ; j < groups.length ; j++){
+               candidates[count++] = j;
+            }
+         }
+
+         for ( int c = 0 ; c < count ; c++){
 
-            SecStrucGroup two = groups[j];
+            int j = candidates[c];
 
             // check if distance is  too large.
             // if too big - for sure no HBonds ...
-            double dist = Calc.getDistance(one.getCA(),two.getCA());
+            double x = ca[3 * i] - ca[3 * j];
+            double y = ca[3 * i + 1] - ca[3 * j + 1];
+            double z = ca[3 * i + 2] - ca[3 * j + 2];
+            double dist = Math.sqrt(x * x  + y * y + z * z);
 
             // speed up...
             if ( dist >= CA_MIN_DIST  )
@@ -362,7 +408,14 @@ public class SecStruc {
          }
       }
 
+      backbone = null;
+   }
 
+   /** use the grid for the HBond calculation? Only turned off to compare
+    * against the all against all loop.
+    */
+   void setUseGrid(boolean useGrid) {
+      this.useGrid = useGrid;
    }
 
 
@@ -381,19 +434,76 @@ public class SecStruc {
          return ;
       }
 
-      double energy = 0;
-      try {
-         energy = calculateHBondEnergy(one,two);
-      } catch (Exception e){
-         e.printStackTrace();
-         return;
-      }
+      double energy = calculateHBondEnergy(backbone, i, j);
       //System.out.println(" " + energy);
 
       trackHBondEnergy(i,j,energy);
 
    }
 
+   /** copy the N, H, C and O coordinates of each group into one array */
+   private static double[] getBackbone(SecStrucGroup[] groups) {
+      double[] backbone = new double[BACKBONE * groups.length];
+      for (int i = 0 ; i < groups.length ; i++){
+         SecStrucGroup g = groups[i];
+         Atom[] atoms = new Atom[] { g.getN(), g.getH(), g.getC(), g.getO() };
+         for (int a = 0 ; a < atoms.length ; a++){
+            if (atoms[a] != null) {
+               backbone[BACKBONE * i + 3 * a] = atoms[a].getX();
+               backbone[BACKBONE * i + 3 * a + 1] = atoms[a].getY();
+               backbone[BACKBONE * i + 3 * a + 2] = atoms[a].getZ();
+            }
+         }
+      }
+      return backbone;
+   }
+
+   /** distance between two atoms in the backbone array, as in Calc.getDistance */
+   private static double getDistance(double[] backbone, int a, int b) {
+      double x = backbone[a] - backbone[b];
+      double y = backbone[a + 1] - backbone[b + 1];
+      double z = backbone[a + 2] - backbone[b + 2];
+
+      double s  = x * x  + y * y + z * z;
+
+      return Math.sqrt(s);
+   }
+
+   /** calculate HBond energy of group i (N-H) to group j (C=O) in cal/mol
+    * from the backbone array. Gives the same energy as
+    * calculateHBondEnergy(SecStrucGroup, SecStrucGroup) without any Atom lookups.
+    */
+   private static double calculateHBondEnergy(double[] backbone, int i, int j) {
+      int one = BACKBONE * i, two = BACKBONE * j;
+
+      double dno = getDistance(backbone, two + O_OFFSET, one + N_OFFSET);
+      double dhc = getDistance(backbone, two + C_OFFSET, one + H_OFFSET);
+      double dho = getDistance(backbone, two + O_OFFSET, one + H_OFFSET);
+      double dnc = getDistance(backbone, two + C_OFFSET, one + N_OFFSET);
+
+      double contact = MINDIST ;
+
+      //		 there seems to be a contact!
+      if ( (dno < contact) || (dhc < contact) || (dnc < contact)) {
+         return HBONDLOWENERGY ;
+      }
+
+      double e1 = Q / dho  - Q / dhc ;
+      double e2 = Q / dnc  - Q / dno ;
+
+      double energy = e1 + e2;
+
+      // bond too weak
+      if ( energy > HBONDHIGHENERGY)
+         return 0;
+
+      // test to avoid bond too strong
+      if ( energy > HBONDLOWENERGY)
+         return energy;
+
+      return HBONDLOWENERGY ;
+   }
+
    /** calculate HBond energy of two groups in cal/mol ...
     * see Creighton page 147 f
     *
@@ -680,14 +790,4 @@ public class SecStruc {
 
    }
 
-
 }
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,188 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.bio.structure.io.PDBFileParser;
+
+import junit.framework.TestCase;
+
+public class AtomGridTest extends TestCase {
+
+	private Random random;
+	private double[] coords;
+
+	protected void setUp() {
+		random = new Random(18L);
+		coords = new double[3 * 3000];
+		for (int i = 0; i < coords.length; i++) {
+			coords[i] = 60.0 * random.nextDouble() - 30.0;
+		}
+	}
+
+	public void testIndicesWithin() {
+		AtomGrid grid = new AtomGrid(coords, 4.0);
+		for (int q = 0; q < 200; q++) {
+			double x = 80.0 * random.nextDouble() - 40.0, y = 80.0 * random.nextDouble() - 40.0,
+				z = 80.0 * random.nextDouble() - 40.0, radius = 15.0 * random.nextDouble();
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int i = 0; i < grid.size(); i++) {
+				if (getDistance(i, x, y, z) <= radius) {
+					expected.add(i);
+				}
+			}
+			int[] found = grid.getIndicesWithin(x, y, z, radius);
+			assertEquals(expected.size(), found.length);
+			for (int n = 0; n < found.length; n++) {
+				assertEquals(expected.get(n).intValue(), found[n]);
+			}
+		}
+	}
+
+	public void testNearest() {
+		AtomGrid grid = new AtomGrid(coords, 2.0);
+		for (int q = 0; q < 100; q++) {
+			double x = 200.0 * random.nextDouble() - 100.0, y = 80.0 * random.nextDouble() - 40.0,
+				z = 80.0 * random.nextDouble() - 40.0;
+			int k = 1 + random.nextInt(20);
+			int[] nearest = grid.getNearest(x, y, z, k);
+			assertEquals(k, nearest.length);
+			for (int n = 1; n < k; n++) {
+				assertTrue(getDistance(nearest[n - 1], x, y, z) <= getDistance(nearest[n], x, y, z));
+			}
+			double kth = getDistance(nearest[k - 1], x, y, z);
+			int closer = 0;
+			for (int i = 0; i < grid.size(); i++) {
+				if (getDistance(i, x, y, z) < kth) {
+					closer++;
+				}
+			}
+			assertTrue(closer < k);
+		}
+		assertEquals(grid.size(), grid.getNearest(0.0, 0.0, 0.0, grid.size() + 5).length);
+		assertEquals(0, new AtomGrid(new double[0], 1.0).getNearest(0.0, 0.0, 0.0, 3).length);
+	}
+
+	public void testContacts() {
+		double[] coords2 = new double[3 * 500];
+		for (int i = 0; i < coords2.length; i++) {
+			coords2[i] = 60.0 * random.nextDouble();
+		}
+		AtomGrid grid = new AtomGrid(coords, 5.0), grid2 = new AtomGrid(coords2, 5.0);
+
+		List<AtomGrid.Contact> contacts = grid.getContacts(3.0);
+		int n = 0;
+		for (int i = 0; i < grid.size(); i++) {
+			for (int j = i + 1; j < grid.size(); j++) {
+				if (getDistance(i, coords[3 * j], coords[3 * j + 1], coords[3 * j + 2]) <= 3.0) {
+					assertEquals(i, contacts.get(n).getIndex1());
+					assertEquals(j, contacts.get(n++).getIndex2());
+				}
+			}
+		}
+		assertEquals(n, contacts.size());
+
+		contacts = grid.getContacts(grid2, 3.0);
+		n = 0;
+		for (int i = 0; i < grid.size(); i++) {
+			for (int j = 0; j < grid2.size(); j++) {
+				if (getDistance(i, coords2[3 * j], coords2[3 * j + 1], coords2[3 * j + 2]) <= 3.0) {
+					assertEquals(i, contacts.get(n).getIndex1());
+					assertEquals(j, contacts.get(n++).getIndex2());
+				}
+			}
+		}
+		assertEquals(n, contacts.size());
+	}
+
+	public void testSparse() {
+		double[] far = {0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 1e6, 1e6, 1e6, 1e6, 1e6, 1e6 + 0.5};
+		AtomGrid grid = new AtomGrid(far, 1.0);
+		assertTrue(grid.getCellSize() > 1.0);
+		assertEquals(2, grid.getContacts(1.0).size());
+		assertEquals(2, grid.getIndicesWithin(1e6, 1e6, 1e6, 1.0).length);
+		assertEquals(1, grid.getNearest(0.9, 0.0, 0.0, 1)[0]);
+	}
+
+	public void testInterChainContacts() throws Exception {
+		InputStream inStream = new GZIPInputStream(this.getClass().getResourceAsStream("/4hhb.pdb.gz"));
+		Structure s = new PDBFileParser().parsePDBFile(inStream);
+		inStream.close();
+
+		List<Chain> chains = s.getChains();
+		int expected = 0;
+		for (int a = 0; a < chains.size(); a++) {
+			for (int b = a + 1; b < chains.size(); b++) {
+				Atom[] atoms1 = AtomGrid.getAtoms(chains.get(a)), atoms2 = AtomGrid.getAtoms(chains.get(b));
+				int pairs = 0;
+				for (Atom atom1 : atoms1) {
+					for (Atom atom2 : atoms2) {
+						if (Calc.getDistance(atom1, atom2) <= 4.0) {
+							pairs++;
+						}
+					}
+				}
+				List<AtomGrid.Contact> contacts = AtomGrid.getContacts(chains.get(a), chains.get(b), 4.0);
+				assertEquals(pairs, contacts.size());
+				for (AtomGrid.Contact contact : contacts) {
+					assertSame(atoms1[contact.getIndex1()], contact.getAtom1());
+					assertEquals(Calc.getDistance(contact.getAtom1(), contact.getAtom2()), contact.getDistance(), 1e-9);
+				}
+				expected += pairs;
+			}
+		}
+		assertTrue(expected > 0);
+
+		// indices refer to the atoms of all chains in order, and contacts come sorted by them
+		List<Atom> all = new ArrayList<Atom>();
+		for (Chain c : chains) {
+			all.addAll(Arrays.asList(AtomGrid.getAtoms(c)));
+		}
+		List<AtomGrid.Contact> contacts = AtomGrid.getInterChainContacts(s, 4.0);
+		assertEquals(expected, contacts.size());
+		AtomGrid.Contact previous = null;
+		for (AtomGrid.Contact contact : contacts) {
+			assertSame(all.get(contact.getIndex1()), contact.getAtom1());
+			assertSame(all.get(contact.getIndex2()), contact.getAtom2());
+			assertTrue(contact.getIndex1() < contact.getIndex2());
+			if (previous != null) {
+				assertTrue(previous.getIndex1() < contact.getIndex1()
+					|| (previous.getIndex1() == contact.getIndex1() && previous.getIndex2() < contact.getIndex2()));
+			}
+			previous = contact;
+		}
+	}
+
+	// helper method that returns the distance of a point from (x, y, z)
+	private double getDistance(int i, double x, double y, double z) {
+		double dx = coords[3 * i] - x, dy = coords[3 * i + 1] - y, dz = coords[3 * i + 2] - z;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+}
@@ -23,8 +23,14 @@
 package org.biojava.bio.structure;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.biojava.bio.structure.io.PDBFileParser;
 
@@ -198,4 +204,75 @@ public class PDBFileParserTest extends TestCase {
 		assertEquals("parsing failed with error " + errorMsg, parsingOK, true);
 	}
 
+	public void testAtomRecordsFromBytes() throws Exception {
+
+		// unusual atom records, and all kinds of line ends
+		String t =
+			"ATOM      1  N   ASP L   1A     11.095  19.341  20.188  1.00 30.14           N\r\n"+
+			"ATOM      2  CA  ASP L   1A    +10.070  -0.000 -19.379                        \r"+
+			"ATOM      3  C   ASP L   1A      9.846  17.102  19.503  1.00 26.08 \n"+
+			"ATOM      4  O   ASP L   1A      8.744  16.584  19.1  \n"+
+			"ATOM      5  CB  ASP L   1A      1.2e1   18.858  17.853   1.0\n"+
+			"ATOM      6  CG  ASP L   1A      8.836  19.264  17.401  x.xx yy.yy           XX\n"+
+			"ATOM      7 HG23 VAL L   2       8.058  19.292  18.400  1.00 44.03\n"+
+			"HETATM    8 NA    NA   542      18.411 -16.475  38.464  0.88 24.77\n"+
+			"HETATM   9  O   HOH W 100      .5      5.      -.5\n"+
+			"ATOM     10  CA  GLY L   3      abcdef  14.970  20.210  1.00 20.89\n"+
+			"ATOM     11  CA  GLY L   3      10.769  14.970  20.210  1.00 20.89\r\n"+
+			"TER\r\n"+
+			"ATOM     12  CA  GLY M   1     123.456789012345678  14.970  20.210\n"+
+			"ATOM     13  CA  GLY M   2    -9999.999-9999.999-9999.999  1.00 20.89\n";
+		assertSameAtoms(t.getBytes("ISO-8859-1"));
+
+		InputStream in = new GZIPInputStream(this.getClass().getResourceAsStream("/4hhb.pdb.gz"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) > 0)
+			out.write(buffer, 0, n);
+		in.close();
+		assertSameAtoms(out.toByteArray());
+	}
+
+	/** parse a file from an InputStream and from a BufferedReader, and compare the atoms */
+	private void assertSameAtoms(byte[] file) throws Exception {
+		Structure s1 = parser.parsePDBFile(new ByteArrayInputStream(file));
+		Structure s2 = new PDBFileParser().parsePDBFile(
+				new BufferedReader(new InputStreamReader(new ByteArrayInputStream(file))));
+
+		assertEquals(s2.toPDB(), s1.toPDB());
+
+		List<Chain> chains1 = s1.getChains(), chains2 = s2.getChains();
+		assertEquals(chains2.size(), chains1.size());
+		for (int c = 0; c < chains1.size(); c++) {
+			assertEquals(chains2.get(c).getName(), chains1.get(c).getName());
+			List<Group> groups1 = chains1.get(c).getAtomGroups(), groups2 = chains2.get(c).getAtomGroups();
+			assertEquals(groups2.size(), groups1.size());
+			for (int g = 0; g < groups1.size(); g++) {
+				Group g1 = groups1.get(g), g2 = groups2.get(g);
+				assertEquals(g2.getPDBCode(), g1.getPDBCode());
+				assertEquals(g2.getPDBName(), g1.getPDBName());
+				assertEquals(g2.getType(), g1.getType());
+				assertEquals(g2.size(), g1.size());
+				for (int i = 0; i < g1.size(); i++) {
+					assertSameAtom(g2.getAtom(i), g1.getAtom(i));
+				}
+			}
+		}
+	}
+
+	private static void assertSameAtom(Atom a2, Atom a1) {
+		assertEquals(a2.getPDBserial(), a1.getPDBserial());
+		assertEquals(a2.getFullName(), a1.getFullName());
+		assertEquals(a2.getName(), a1.getName());
+		assertEquals(a2.getAltLoc(), a1.getAltLoc());
+		assertEquals(a2.getElement(), a1.getElement());
+		// the numbers have to be exactly the same
+		assertEquals(Double.doubleToLongBits(a2.getX()), Double.doubleToLongBits(a1.getX()));
+		assertEquals(Double.doubleToLongBits(a2.getY()), Double.doubleToLongBits(a1.getY()));
+		assertEquals(Double.doubleToLongBits(a2.getZ()), Double.doubleToLongBits(a1.getZ()));
+		assertEquals(a2.getOccupancy(), a1.getOccupancy());
+		assertEquals(a2.getTempFactor(), a1.getTempFactor());
+	}
+
 }
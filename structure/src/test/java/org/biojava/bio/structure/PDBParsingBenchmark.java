@@ -0,0 +1,161 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.bio.structure.io.PDBFileParser;
+
+/** Measures how fast {@link PDBFileParser} parses a local collection of PDB files, reading the lines
+ * as bytes with {@link PDBFileParser#parsePDBFile(InputStream)} and as Strings with
+ * {@link PDBFileParser#parsePDBFile(BufferedReader)}.
+ *
+ * <p>All files below a directory that end with .pdb, .ent, .pdb.gz or .ent.gz are loaded into memory
+ * first, so that the disk is not measured. Gzipped files are uncompressed in each round, as they would
+ * be when parsed from a local PDB installation. Each way of parsing is run for a number of warm up
+ * rounds, then timed rounds, and the fastest timed round is reported in atoms and files per second.</p>
+ *
+ * usage: PDBParsingBenchmark [directory] [rounds]
+ */
+public class PDBParsingBenchmark {
+
+	private final List<String> names = new ArrayList<String>();
+	private final List<byte[]> contents = new ArrayList<byte[]>();
+
+	// sum of all results, printed so that no work can be left out
+	private long sink;
+
+	public PDBParsingBenchmark(File dir) throws IOException {
+		List<File> files = new ArrayList<File>();
+		collect(dir, files);
+		Collections.sort(files);
+		for (File f : files) {
+			names.add(f.getPath());
+			contents.add(read(f));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		File dir = new File((args.length > 0) ? args[0] : "src/test/resources");
+		int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+		PDBParsingBenchmark b = new PDBParsingBenchmark(dir);
+		if (b.names.isEmpty()) {
+			System.err.println("no PDB files found in " + dir);
+			return;
+		}
+		System.out.println(b.names.size() + " files in " + dir);
+		b.run("bytes (InputStream)", rounds, true);
+		b.run("Strings (BufferedReader)", rounds, false);
+		System.out.println("(checksum " + b.sink + ")");
+	}
+
+	// helper method that times parsing all files and prints the fastest round
+	private void run(String name, int rounds, boolean bytes) throws IOException {
+		double best = Double.MAX_VALUE;
+		long atoms = 0;
+		for (int i = 0; i < 2 * rounds; i++) {
+			long start = System.nanoTime();
+			atoms = parseAll(bytes);
+			double time = (System.nanoTime() - start) / 1e9;
+			// the first half of the rounds warms up
+			if (i >= rounds && time < best) {
+				best = time;
+			}
+		}
+		System.out.println(String.format("%-26s %10d atoms %8.1f ms %12.0f atoms/s %8.1f files/s",
+				name, atoms, 1000.0 * best, atoms / best, names.size() / best));
+	}
+
+	// helper method that parses every file once and returns the number of atoms
+	private long parseAll(boolean bytes) throws IOException {
+		long atoms = 0;
+		PDBFileParser parser = new PDBFileParser();
+		for (int i = 0; i < contents.size(); i++) {
+			InputStream in = open(i);
+			Structure s;
+			if (bytes) {
+				s = parser.parsePDBFile(in);
+			} else {
+				s = parser.parsePDBFile(new BufferedReader(new InputStreamReader(in)));
+			}
+			in.close();
+			atoms += StructureTools.getNrAtoms(s);
+		}
+		sink += atoms;
+		return atoms;
+	}
+
+	// helper method that opens a loaded file, uncompressing it if needed
+	private InputStream open(int i) throws IOException {
+		InputStream in = new ByteArrayInputStream(contents.get(i));
+		if (names.get(i).endsWith(".gz")) {
+			in = new GZIPInputStream(in);
+		}
+		return in;
+	}
+
+	// helper method that finds the PDB files below a directory
+	private static void collect(File dir, List<File> files) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File f : children) {
+			String name = f.getName();
+			if (f.isDirectory()) {
+				collect(f, files);
+			} else if (name.endsWith(".pdb") || name.endsWith(".ent")
+					|| name.endsWith(".pdb.gz") || name.endsWith(".ent.gz")) {
+				files.add(f);
+			}
+		}
+	}
+
+	// helper method that reads a whole file
+	private static byte[] read(File f) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream((int) f.length());
+		InputStream in = new FileInputStream(f);
+		try {
+			byte[] buffer = new byte[65536];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.bio.structure.io.FileParsingParameters;
+import org.biojava.bio.structure.io.PDBFileParser;
+import org.biojava.bio.structure.jama.Matrix;
+
+import junit.framework.TestCase;
+
+public class PackedAtomStoreTest extends TestCase {
+
+	private Structure plain, packed;
+	private PackedAtomStore store;
+
+	protected void setUp() throws IOException {
+		plain = parse(false);
+		packed = parse(true);
+		store = PackedAtomStore.getStore(packed);
+	}
+
+	public void testPack() throws StructureException {
+		assertNull(PackedAtomStore.getStore(plain));
+		assertNotNull(store);
+		List<Atom> expected = getAtoms(plain), found = getAtoms(packed);
+		assertEquals(expected.size(), store.size());
+		assertEquals(expected.size(), found.size());
+		for (int i = 0; i < found.size(); i++) {
+			Atom e = expected.get(i), f = found.get(i);
+			assertTrue(f instanceof PackedAtom);
+			assertEquals(e.toString(), f.toString());
+			assertEquals(e.getAltLoc(), f.getAltLoc());
+			assertEquals(e.getOccupancy(), f.getOccupancy());
+			assertEquals(e.getTempFactor(), f.getTempFactor());
+			assertEquals(e.getPDBline(), f.getPDBline());
+			assertEquals(e.getParent().getPDBCode(), f.getParent().getPDBCode());
+			assertSame(f, f.getParent().getAtom(f.getFullName()));
+		}
+	}
+
+	public void testSharedNames() {
+		Atom ca = null;
+		for (Atom a : getAtoms(packed)) {
+			if (a.getName().equals("CA")) {
+				if (ca == null) {
+					ca = a;
+				} else {
+					assertSame(ca.getName(), a.getName());
+					assertSame(ca.getFullName(), a.getFullName());
+				}
+			}
+		}
+		assertNotNull(ca);
+	}
+
+	public void testSetters() {
+		PackedAtom a = store.getAtom(10);
+		a.setCoords(new double[] { 1.0, 2.0, 3.0 });
+		a.setZ(4.0);
+		a.setAltLoc(Character.valueOf('B'));
+		a.setElement(Element.Fe);
+		a.setPDBline("ATOM");
+		a.setId(7L);
+		PackedAtom b = store.getAtom(10);
+		assertEquals(1.0, b.getX());
+		assertEquals(2.0, b.getY());
+		assertEquals(4.0, b.getZ());
+		assertEquals(Character.valueOf('B'), b.getAltLoc());
+		assertEquals(Element.Fe, b.getElement());
+		assertEquals("ATOM", b.getPDBline());
+		assertEquals("", store.getAtom(11).getPDBline());
+		assertEquals(7L, b.getId());
+		assertEquals(0L, store.getAtom(11).getId());
+		Atom c = (Atom) b.clone();
+		assertTrue(c instanceof AtomImpl);
+		c.setX(9.0);
+		assertEquals(1.0, b.getX());
+		b.getCoords()[0] = 9.0;
+		assertEquals(1.0, b.getX());
+	}
+
+	public void testAdd() {
+		PackedAtomStore s = new PackedAtomStore(1);
+		for (Atom a : getAtoms(plain)) {
+			s.add(a);
+		}
+		s.trimToSize();
+		List<Atom> atoms = getAtoms(plain);
+		assertEquals(atoms.size(), s.size());
+		assertEquals(3 * atoms.size(), s.getCoordinates().length);
+		for (int i = 0; i < atoms.size(); i++) {
+			assertEquals(atoms.get(i).toString(), s.getAtom(i).toString());
+		}
+		try {
+			s.getAtom(atoms.size());
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	public void testTransform() throws StructureException {
+		Random random = new Random(20L);
+		double[][] m = new double[3][3], n = new double[3][3];
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				m[i][j] = 2.0 * random.nextDouble() - 1.0;
+				n[i][j] = 2.0 * random.nextDouble() - 1.0;
+			}
+		}
+		Matrix matrix = new Matrix(n);
+		Atom shift = new AtomImpl();
+		shift.setCoords(new double[] { 1.5, -2.25, 3.125 });
+		Calc.rotate(plain, m);
+		Calc.rotate(packed, m);
+		Calc.rotate(plain, matrix);
+		Calc.rotate(packed, matrix);
+		Calc.shift(plain, shift);
+		Calc.shift(packed, shift);
+		List<Atom> expected = getAtoms(plain), found = getAtoms(packed);
+		for (int i = 0; i < found.size(); i++) {
+			assertEquals(expected.get(i).getX(), found.get(i).getX());
+			assertEquals(expected.get(i).getY(), found.get(i).getY());
+			assertEquals(expected.get(i).getZ(), found.get(i).getZ());
+		}
+	}
+
+	public void testUnpackedGroup() throws StructureException {
+		// only the first group is packed
+		Group g = plain.getChain(0).getAtomGroup(0);
+		PackedAtomStore other = new PackedAtomStore();
+		List<Atom> views = new ArrayList<Atom>();
+		for (Atom a : g.getAtoms()) {
+			views.add(other.add(a));
+		}
+		g.clearAtoms();
+		for (Atom view : views) {
+			g.addAtom(view);
+		}
+		assertNull(PackedAtomStore.getStore(plain));
+	}
+
+	public void testRepack() throws StructureException {
+		assertSame(store, PackedAtomStore.getStore(packed));
+		Group g = packed.getChain(0).getAtomGroup(0);
+		Atom a = (Atom) g.getAtom(0).clone();
+		g.clearAtoms();
+		g.addAtom(a);
+		PackedAtomStore repacked = PackedAtomStore.pack(packed);
+		assertNotSame(store, repacked);
+		assertSame(repacked, PackedAtomStore.getStore(packed));
+		assertEquals(store.size() - getAtoms(plain).get(0).getParent().size() + 1, repacked.size());
+	}
+
+	// helper method that parses 4hhb
+	private Structure parse(boolean pack) throws IOException {
+		InputStream inStream = new GZIPInputStream(this.getClass().getResourceAsStream("/4hhb.pdb.gz"));
+		PDBFileParser parser = new PDBFileParser();
+		FileParsingParameters params = new FileParsingParameters();
+		params.setPackAtoms(pack);
+		parser.setFileParsingParameters(params);
+		return parser.parsePDBFile(inStream);
+	}
+
+	// helper method that lists atoms in the order of AtomIterator
+	private static List<Atom> getAtoms(Structure s) {
+		List<Atom> atoms = new ArrayList<Atom>();
+		AtomIterator iter = new AtomIterator(s);
+		while (iter.hasNext()) {
+			atoms.add(iter.next());
+		}
+		return atoms;
+	}
+
+}
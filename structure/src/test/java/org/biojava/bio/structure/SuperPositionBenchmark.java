@@ -0,0 +1,196 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.bio.structure.align.fatcat.calc.AFPCalculator;
+import org.biojava.bio.structure.align.fatcat.calc.FatCatParameters;
+import org.biojava.bio.structure.align.model.AFPChain;
+import org.biojava.bio.structure.io.PDBFileParser;
+import org.biojava.bio.structure.jama.Matrix;
+
+/** Microbenchmarks of {@link SVDSuperimposer} against {@link SuperPositionQCP}, on the CA atoms
+ * of the first two chains of 4hhb.
+ *
+ * <p>Each case is run for a number of warm up rounds, then timed rounds, and the fastest timed round
+ * is reported as time per operation. The SVD cases follow what the aligners did before: clone the
+ * atoms of structure 2, superimpose, rotate and shift the clones, and measure the RMSD.</p>
+ *
+ * usage: SuperPositionBenchmark [rounds]
+ */
+public class SuperPositionBenchmark {
+
+	private static final int FRAGMENT_LENGTH = 8;
+
+	private final Atom[] ca1, ca2;
+	private final double[] coords1, coords2;
+	private final SuperPositionQCP qcp;
+
+	// sum of all results, printed so that no work can be left out
+	private double sink;
+
+	public SuperPositionBenchmark() throws IOException {
+		InputStream inStream = new GZIPInputStream(SuperPositionBenchmark.class.getResourceAsStream("/4hhb.pdb.gz"));
+		Structure s = new PDBFileParser().parsePDBFile(inStream);
+		ca1 = StructureTools.getAtomCAArray(s.getChain(0));
+		ca2 = StructureTools.getAtomCAArray(s.getChain(1));
+		coords1 = SuperPositionQCP.getCoordinates(ca1);
+		coords2 = SuperPositionQCP.getCoordinates(ca2);
+		qcp = new SuperPositionQCP();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+		SuperPositionBenchmark b = new SuperPositionBenchmark();
+		b.run("fragments, SVD", rounds, new Case() {
+			public int run(SuperPositionBenchmark b) throws StructureException {
+				return b.fragmentsSVD();
+			}
+		});
+		b.run("fragments, QCP", rounds, new Case() {
+			public int run(SuperPositionBenchmark b) {
+				return b.fragmentsQCP();
+			}
+		});
+		b.run("whole chain, SVD", rounds, new Case() {
+			public int run(SuperPositionBenchmark b) throws StructureException {
+				return b.chainSVD();
+			}
+		});
+		b.run("whole chain, QCP", rounds, new Case() {
+			public int run(SuperPositionBenchmark b) throws StructureException {
+				return b.chainQCP();
+			}
+		});
+		b.run("FATCAT AFP extraction", rounds, new Case() {
+			public int run(SuperPositionBenchmark b) {
+				return b.extractAFPs();
+			}
+		});
+		System.out.println("(checksum " + b.sink + ")");
+	}
+
+	/** A timed piece of work. */
+	private interface Case {
+
+		/** Runs the work once.
+		 *
+		 * @param b the benchmark with the atoms
+		 * @return the number of operations done
+		 */
+		int run(SuperPositionBenchmark b) throws StructureException;
+	}
+
+	// helper method that times a case and prints the fastest round
+	private void run(String name, int rounds, Case c) throws StructureException {
+		double best = Double.MAX_VALUE;
+		for (int i = 0; i < 2 * rounds; i++) {
+			long start = System.nanoTime();
+			int ops = c.run(this);
+			double time = (double) (System.nanoTime() - start) / ops;
+			// the first half of the rounds warms up
+			if (i >= rounds && time < best) {
+				best = time;
+			}
+		}
+		System.out.println(String.format("%-24s %12.1f ns/op", name, best));
+	}
+
+	// superimposes every fragment of chain 2 onto every 4th fragment of chain 1, the old way
+	private int fragmentsSVD() throws StructureException {
+		int ops = 0;
+		Atom[] tmp1 = new Atom[FRAGMENT_LENGTH];
+		for (int p1 = 0; p1 + FRAGMENT_LENGTH <= ca1.length; p1 += 4) {
+			System.arraycopy(ca1, p1, tmp1, 0, FRAGMENT_LENGTH);
+			for (int p2 = 0; p2 + FRAGMENT_LENGTH <= ca2.length; p2++) {
+				Atom[] tmp2 = new Atom[FRAGMENT_LENGTH];
+				for (int i = 0; i < FRAGMENT_LENGTH; i++) {
+					tmp2[i] = (Atom) ca2[p2 + i].clone();
+				}
+				sink += superimposeSVD(tmp1, tmp2);
+				ops++;
+			}
+		}
+		return ops;
+	}
+
+	// superimposes the same fragments on packed coordinates
+	private int fragmentsQCP() {
+		int ops = 0;
+		for (int p1 = 0; p1 + FRAGMENT_LENGTH <= ca1.length; p1 += 4) {
+			for (int p2 = 0; p2 + FRAGMENT_LENGTH <= ca2.length; p2++) {
+				sink += qcp.superpose(coords1, p1, coords2, p2, FRAGMENT_LENGTH);
+				ops++;
+			}
+		}
+		return ops;
+	}
+
+	// superimposes the equal length parts of both chains 100 times, the old way
+	private int chainSVD() throws StructureException {
+		int length = Math.min(ca1.length, ca2.length);
+		Atom[] tmp1 = new Atom[length];
+		System.arraycopy(ca1, 0, tmp1, 0, length);
+		for (int n = 0; n < 100; n++) {
+			Atom[] tmp2 = new Atom[length];
+			for (int i = 0; i < length; i++) {
+				tmp2[i] = (Atom) ca2[i].clone();
+			}
+			sink += superimposeSVD(tmp1, tmp2);
+		}
+		return 100;
+	}
+
+	// superimposes the same atoms 100 times, reading them from the Atom objects
+	private int chainQCP() throws StructureException {
+		int length = Math.min(ca1.length, ca2.length);
+		for (int n = 0; n < 100; n++) {
+			sink += qcp.superpose(ca1, 0, ca2, 0, length);
+		}
+		return 100;
+	}
+
+	// runs the AFP extraction of FATCAT, which superimposes all fragment pairs that pass its filters
+	private int extractAFPs() {
+		AFPChain afpChain = new AFPChain();
+		AFPCalculator.extractAFPChains(new FatCatParameters(), afpChain, ca1, ca2);
+		sink += afpChain.getAfpSet().size();
+		return 1;
+	}
+
+	// helper method that superimposes atoms with SVDSuperimposer and moves the second set
+	private static double superimposeSVD(Atom[] tmp1, Atom[] tmp2) throws StructureException {
+		SVDSuperimposer svd = new SVDSuperimposer(tmp1, tmp2);
+		Matrix m = svd.getRotation();
+		Atom t = svd.getTranslation();
+		for (Atom a : tmp2) {
+			Calc.rotate(a, m);
+			Calc.shift(a, t);
+		}
+		return SVDSuperimposer.getRMS(tmp1, tmp2);
+	}
+
+}
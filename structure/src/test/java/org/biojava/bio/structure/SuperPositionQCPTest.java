@@ -0,0 +1,175 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.bio.structure.io.PDBFileParser;
+import org.biojava.bio.structure.jama.Matrix;
+
+import junit.framework.TestCase;
+
+public class SuperPositionQCPTest extends TestCase {
+
+	private Atom[] ca1, ca2;
+
+	protected void setUp() throws IOException {
+		InputStream inStream = new GZIPInputStream(this.getClass().getResourceAsStream("/4hhb.pdb.gz"));
+		Structure s = new PDBFileParser().parsePDBFile(inStream);
+		ca1 = StructureTools.getAtomCAArray(s.getChain(0));
+		ca2 = StructureTools.getAtomCAArray(s.getChain(1));
+	}
+
+	public void testFragments() throws StructureException {
+		double[] coords1 = SuperPositionQCP.getCoordinates(ca1);
+		double[] coords2 = SuperPositionQCP.getCoordinates(ca2);
+		SuperPositionQCP qcp = new SuperPositionQCP();
+		for (int p1 = 0; p1 + 8 <= ca1.length; p1 += 13) {
+			for (int p2 = 0; p2 + 8 <= ca2.length; p2 += 11) {
+				double rmsd = qcp.superpose(coords1, p1, coords2, p2, 8);
+				assertSameAsSVD(subset(ca1, p1, 8), subset(ca2, p2, 8), qcp, rmsd);
+			}
+		}
+	}
+
+	public void testWholeChains() throws StructureException {
+		int length = Math.min(ca1.length, ca2.length);
+		Atom[] a1 = subset(ca1, 0, length), a2 = subset(ca2, 0, length);
+		SuperPositionQCP qcp = new SuperPositionQCP();
+		assertSameAsSVD(a1, a2, qcp, qcp.superpose(a1, a2));
+
+		// a selection gives the same result as a copy of the selected atoms
+		int[] positions1 = new int[length / 2], positions2 = new int[length / 2];
+		Atom[] s1 = new Atom[length / 2], s2 = new Atom[length / 2];
+		for (int i = 0; i < positions1.length; i++) {
+			positions1[i] = 2 * i;
+			positions2[i] = 2 * i + 1;
+			s1[i] = ca1[positions1[i]];
+			s2[i] = ca2[positions2[i]];
+		}
+		double rmsd = qcp.superpose(ca1, positions1, ca2, positions2, positions1.length);
+		assertEquals(rmsd, qcp.superpose(s1, s2));
+		assertSameAsSVD(s1, s2, qcp, rmsd);
+	}
+
+	public void testKnownTransform() {
+		Random random = new Random(24L);
+		double[] coords1 = new double[3 * 50];
+		for (int i = 0; i < coords1.length; i++) {
+			coords1[i] = 40.0 * random.nextDouble() - 20.0;
+		}
+
+		// move a copy away by a random rotation and shift
+		SuperPositionQCP qcp = new SuperPositionQCP();
+		double[] coords2 = SuperPositionQCP.getCoordinates(ca2);
+		qcp.superpose(SuperPositionQCP.getCoordinates(ca1), 40, coords2, 0, 50);
+		double[] copy = coords1.clone();
+		qcp.transform(copy, 0, 50);
+		assertTrue(Math.abs(coords1[0] - copy[0]) > 1e-3);
+
+		// superimposing the copy undoes the move
+		double rmsd = qcp.superpose(coords1, 0, copy, 0, 50);
+		qcp.transform(copy, 0, 50);
+		assertEquals(0.0, rmsd, 1e-9);
+		for (int i = 0; i < coords1.length; i++) {
+			assertEquals(coords1[i], copy[i], 1e-9);
+		}
+	}
+
+	public void testDegenerate() throws StructureException {
+		SuperPositionQCP qcp = new SuperPositionQCP();
+
+		// a single atom is only shifted
+		assertEquals(0.0, qcp.superpose(new double[] { 1.0, 2.0, 3.0 }, 0, new double[] { 4.0, 6.0, 8.0 }, 0, 1));
+		Atom t = qcp.getTranslation();
+		assertEquals(-3.0, t.getX());
+		assertEquals(-4.0, t.getY());
+		assertEquals(-5.0, t.getZ());
+
+		// atoms on a line have no single optimal rotation
+		double[] line1 = { 0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 2.0, 0.0, 0.0 };
+		double[] line2 = { 5.0, 5.0, 5.0, 5.0, 6.0, 5.0, 5.0, 7.0, 5.0 };
+		assertEquals(0.0, qcp.superpose(line1, 0, line2, 0, 3), 1e-9);
+
+		try {
+			qcp.superpose(line1, 0, line2, 0, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			qcp.superpose(line1, 1, line2, 0, 3);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+		try {
+			qcp.superpose(ca1, subset(ca2, 0, 10));
+			fail();
+		} catch (StructureException e) {
+		}
+	}
+
+	// helper method that compares a superposition with the one of SVDSuperimposer
+	private static void assertSameAsSVD(Atom[] atoms1, Atom[] atoms2, SuperPositionQCP qcp, double rmsd)
+	throws StructureException {
+		SVDSuperimposer svd = new SVDSuperimposer(atoms1, atoms2);
+		Matrix m = svd.getRotation(), q = qcp.getRotation();
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				assertEquals(m.get(i, j), q.get(i, j), 1e-6);
+			}
+		}
+		Atom t = svd.getTranslation();
+		assertEquals(t.getX(), qcp.getTranslation().getX(), 1e-4);
+		assertEquals(t.getY(), qcp.getTranslation().getY(), 1e-4);
+		assertEquals(t.getZ(), qcp.getTranslation().getZ(), 1e-4);
+
+		Atom[] moved = new Atom[atoms2.length];
+		for (int i = 0; i < atoms2.length; i++) {
+			moved[i] = (Atom) atoms2[i].clone();
+			Calc.rotate(moved[i], m);
+			Calc.shift(moved[i], t);
+		}
+		assertEquals(SVDSuperimposer.getRMS(atoms1, moved), rmsd, 1e-10);
+		assertEquals(rmsd, qcp.getRmsd());
+
+		// transform moves atoms the same way
+		for (int i = 0; i < atoms2.length; i++) {
+			Atom a = (Atom) atoms2[i].clone();
+			qcp.transform(a);
+			assertEquals(moved[i].getX(), a.getX(), 1e-4);
+			assertEquals(moved[i].getY(), a.getY(), 1e-4);
+			assertEquals(moved[i].getZ(), a.getZ(), 1e-4);
+		}
+	}
+
+	// helper method that returns a run of atoms
+	private static Atom[] subset(Atom[] atoms, int pos, int length) {
+		Atom[] sub = new Atom[length];
+		System.arraycopy(atoms, pos, sub, 0, length);
+		return sub;
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.bio.structure.align;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.biojava.bio.structure.Atom;
+import org.biojava.bio.structure.StructureTools;
+import org.biojava.bio.structure.align.ce.CeMain;
+import org.biojava.bio.structure.align.ce.CeParameters;
+import org.biojava.bio.structure.align.ce.ConfigStrucAligParams;
+import org.biojava.bio.structure.align.client.PdbPair;
+import org.biojava.bio.structure.align.model.AFPChain;
+import org.biojava.bio.structure.align.seq.SmithWaterman3DParameters;
+import org.biojava.bio.structure.align.util.AtomCache;
+import org.biojava.bio.structure.align.xml.AFPChainXMLConverter;
+
+import junit.framework.TestCase;
+
+public class AllVsAllAlignerTest extends TestCase {
+
+	private static final String[] FILES = { "5pti", "1a4w", "3cdl" };
+
+	private File dir;
+	private AtomCache cache;
+
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("AllVsAllAlignerTest", "");
+		dir.delete();
+		dir.mkdir();
+		for (String name : FILES) {
+			InputStream in = getClass().getResourceAsStream("/" + name + ".pdb");
+			OutputStream out = new FileOutputStream(new File(dir, name + ".pdb"));
+			byte[] buffer = new byte[8192];
+			for (int n; (n = in.read(buffer)) > 0; )
+				out.write(buffer, 0, n);
+			in.close();
+			out.close();
+		}
+		cache = new AtomCache(dir.getPath(), false);
+		cache.setAutoFetch(false);
+	}
+
+	protected void tearDown() {
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	public void testAllVsAll() throws Exception {
+		AllVsAllAligner aligner = new AllVsAllAligner(cache, new CeMain());
+		aligner.setThreads(2);
+		StringWriter out = new StringWriter();
+		assertEquals(3, aligner.alignAllVsAll(Arrays.asList(FILES), out));
+		assertEquals(0, aligner.getFailures());
+		assertTrue(aligner.getThroughput() > 0.0);
+		assertTrue(aligner.getLatency(0.5) <= aligner.getLatency(1.0));
+
+		String xml = out.toString();
+		assertTrue(xml.startsWith("<alignments>"));
+		assertTrue(xml.trim().endsWith("</alignments>"));
+		assertEquals(3, count(xml, "<AFPChain "));
+
+		// every result is the same as that of a single alignment; PdbPair upper cases PDB codes
+		for (int i = 0; i < FILES.length; i++) {
+			for (int j = i + 1; j < FILES.length; j++) {
+				assertTrue(xml.contains(align(FILES[i].toUpperCase(), FILES[j].toUpperCase())));
+			}
+		}
+	}
+
+	public void testFailedPair() throws Exception {
+		AllVsAllAligner aligner = new AllVsAllAligner(cache, new CeMain());
+		StringWriter out = new StringWriter();
+		List<PdbPair> pairs = Arrays.asList(new PdbPair("5pti", "1a4w"), new PdbPair("5pti", "9xyz"));
+		assertEquals(2, aligner.align(pairs, out));
+		assertEquals(1, aligner.getFailures());
+		String xml = out.toString();
+		assertEquals(2, count(xml, "<AFPChain "));
+		assertEquals(1, count(xml, "error="));
+		assertTrue(xml.contains("name2=\"9XYZ\""));
+	}
+
+	public void testMorePairsThanWindow() throws Exception {
+		AllVsAllAligner aligner = new AllVsAllAligner(cache, new CeMain());
+		aligner.setThreads(1);
+		StringWriter out = new StringWriter();
+		List<PdbPair> pairs = new ArrayList<PdbPair>();
+		for (int i = 0; i < 10; i++)
+			pairs.add(new PdbPair("5pti", "1a4w"));
+		assertEquals(10, aligner.align(pairs, out));
+		assertEquals(0, aligner.getFailures());
+		assertEquals(10, count(out.toString(), "<AFPChain "));
+	}
+
+	public void testParametersAreCopied() {
+		CeParameters params = new CeParameters();
+		params.setWinSize(6);
+		CeParameters copy = params.clone();
+		params.setWinSize(10);
+		assertEquals(Integer.valueOf(6), copy.getWinSize());
+		assertEquals(Integer.valueOf(10), params.getWinSize());
+
+		// subclasses of known parameters are copied too, other parameters are rejected
+		CeMain ce = new CeMain() {
+			public ConfigStrucAligParams getParameters() {
+				return new SmithWaterman3DParameters() {};
+			}
+		};
+		new AllVsAllAligner(cache, ce);
+		ce = new CeMain() {
+			public ConfigStrucAligParams getParameters() {
+				return new ConfigStrucAligParams() {
+					public List<String> getUserConfigHelp() { return null; }
+					public List<String> getUserConfigParameterNames() { return null; }
+					public List<String> getUserConfigParameters() { return null; }
+					public List<Class> getUserConfigTypes() { return null; }
+					public void reset() {}
+				};
+			}
+		};
+		try {
+			new AllVsAllAligner(cache, ce);
+			fail("Parameters without a copy method should be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	// helper method that aligns a pair on its own
+	private String align(String name1, String name2) throws Exception {
+		Atom[] ca1 = StructureTools.cloneCAArray(cache.getAtoms(name1));
+		Atom[] ca2 = StructureTools.cloneCAArray(cache.getAtoms(name2));
+		CeMain ce = new CeMain();
+		AFPChain afpChain = ce.align(ca1, ca2, ce.getParameters());
+		afpChain.setName1(name1);
+		afpChain.setName2(name2);
+		return AFPChainXMLConverter.toXML(afpChain, ca1, ca2);
+	}
+
+	private static int count(String s, String part) {
+		int n = 0;
+		for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1))
+			n++;
+		return n;
+	}
+
+}
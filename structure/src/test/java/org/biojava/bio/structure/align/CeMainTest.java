@@ -5,7 +5,13 @@ package org.biojava.bio.structure.align;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
 
 import org.biojava.bio.structure.AminoAcidImpl;
 import org.biojava.bio.structure.Atom;
@@ -13,10 +19,14 @@ import org.biojava.bio.structure.AtomImpl;
 import org.biojava.bio.structure.Chain;
 import org.biojava.bio.structure.ChainImpl;
 import org.biojava.bio.structure.Group;
+import org.biojava.bio.structure.Structure;
 import org.biojava.bio.structure.StructureException;
+import org.biojava.bio.structure.StructureTools;
 import org.biojava.bio.structure.align.ce.CECalculator;
 import org.biojava.bio.structure.align.ce.CeMain;
+import org.biojava.bio.structure.align.ce.CeParameters;
 import org.biojava.bio.structure.align.model.AFPChain;
+import org.biojava.bio.structure.io.PDBFileParser;
 import org.junit.*;
 
 
@@ -107,4 +117,63 @@ public class CeMainTest {
 			fail(e.getMessage());
 		}
 	}
+
+	@Test
+	public void testExecutorService() throws IOException, StructureException {
+		InputStream inStream = new GZIPInputStream(this.getClass().getResourceAsStream("/4hhb.pdb.gz"));
+		Structure s = new PDBFileParser().parsePDBFile(inStream);
+		Atom[] ca1 = StructureTools.getAtomCAArray(s.getChain(0));
+		Atom[] ca2 = StructureTools.getAtomCAArray(s.getChain(1));
+
+		CeParameters params = new CeParameters();
+		AFPChain serial = new CeMain().align(ca1, ca2, params);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			CeMain ce = new CeMain();
+			ce.setExecutorService(executor);
+			AFPChain parallel = ce.align(ca1, ca2, params);
+
+			assertEquals(serial.getTotalRmsdOpt(), parallel.getTotalRmsdOpt(), 0.0);
+			assertEquals(serial.getAlignScore(), parallel.getAlignScore(), 0.0);
+			assertTrue(Arrays.deepEquals(serial.getOptAln(), parallel.getOptAln()));
+			assertTrue(Arrays.deepEquals(serial.getDistanceMatrix().getArray(),
+					parallel.getDistanceMatrix().getArray()));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSlidingWindow() throws IOException, StructureException {
+		InputStream inStream = new GZIPInputStream(this.getClass().getResourceAsStream("/4hhb.pdb.gz"));
+		Structure s = new PDBFileParser().parsePDBFile(inStream);
+		Atom[] ca1 = StructureTools.getAtomCAArray(s.getChain(0));
+		Atom[] ca2 = StructureTools.getAtomCAArray(s.getChain(1));
+
+		CeParameters params = new CeParameters();
+		AFPChain full = new CeMain().align(ca1, ca2, params);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (ExecutorService e : new ExecutorService[] {null, executor}) {
+				CeMain ce = new CeMain();
+				ce.setExecutorService(e);
+				ce.setSlidingWindow(true);
+				AFPChain sliding = ce.align(ca1, ca2, params);
+
+				double[][] expected = full.getDistanceMatrix().getArray();
+				double[][] actual = sliding.getDistanceMatrix().getArray();
+				assertEquals(expected.length, actual.length);
+				for (int i = 0; i < expected.length; i++) {
+					assertArrayEquals(expected[i], actual[i], 1e-9);
+				}
+				assertEquals(full.getTotalRmsdOpt(), sliding.getTotalRmsdOpt(), 1e-6);
+				assertEquals(full.getAlignScore(), sliding.getAlignScore(), 1e-6);
+				assertTrue(Arrays.deepEquals(full.getOptAln(), sliding.getOptAln()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
@@ -0,0 +1,233 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+package org.biojava.bio.structure.align.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.bio.structure.align.events.AlignmentProgressListener;
+import org.biojava.bio.structure.align.xml.PdbPairXMLConverter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+public class PipelinedFarmJobRunnableTest extends TestCase {
+
+	private static final String[] FILES = { "5pti", "1a4w", "3cdl" };
+
+	private File dir;
+	private HttpServer server;
+
+	// state of the stand-in server
+	private final LinkedList<SortedSet<PdbPair>> batches = new LinkedList<SortedSet<PdbPair>>();
+	private final List<String> submitted = Collections.synchronizedList(new ArrayList<String>());
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger failedSubmits = new AtomicInteger();
+
+	protected void setUp() throws Exception {
+		dir = File.createTempFile("PipelinedFarmJobRunnableTest", "");
+		dir.delete();
+		dir.mkdir();
+		for (String name : FILES) {
+			InputStream in = getClass().getResourceAsStream("/" + name + ".pdb");
+			OutputStream out = new FileOutputStream(new File(dir, name + ".pdb"));
+			byte[] buffer = new byte[8192];
+			for (int n; (n = in.read(buffer)) > 0; )
+				out.write(buffer, 0, n);
+			in.close();
+			out.close();
+		}
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/getPairs", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				SortedSet<PdbPair> batch;
+				synchronized (batches) {
+					batch = batches.isEmpty() ? new TreeSet<PdbPair>() : batches.removeFirst();
+				}
+				respond(exchange, PdbPairXMLConverter.convertPairsToXML(batch));
+			}
+		});
+		server.createContext("/jobSubmit", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				String body = read(exchange.getRequestBody());
+				if (failedSubmits.getAndDecrement() > 0) {
+					exchange.sendResponseHeaders(500, -1);
+					exchange.close();
+					return;
+				}
+				submitted.add(body);
+				respond(exchange, "OK");
+			}
+		});
+		server.start();
+
+		SortedSet<PdbPair> first = new TreeSet<PdbPair>();
+		first.add(new PdbPair("5pti", "1a4w"));
+		first.add(new PdbPair("5pti", "3cdl"));
+		SortedSet<PdbPair> second = new TreeSet<PdbPair>();
+		second.add(new PdbPair("1a4w", "3cdl"));
+		batches.add(first);
+		batches.add(second);
+	}
+
+	protected void tearDown() {
+		server.stop(0);
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	public void testPipeline() {
+		PipelinedFarmJobRunnable job = new PipelinedFarmJobRunnable(getParameters());
+		job.setWaitForAlignments(false);
+		job.run();
+
+		// the second batch completes the job, so no third batch is requested
+		assertEquals(2, requests.get());
+		assertEquals(2, submitted.size());
+		assertEquals(2, count(submitted.get(0), "<AFPChain "));
+		assertEquals(1, count(submitted.get(1), "<AFPChain "));
+		assertEquals(0, count(submitted.get(0) + submitted.get(1), "error="));
+		assertTrue(submitted.get(1).contains("name1=\"1A4W\""));
+	}
+
+	public void testUploadRetry() {
+		// the server rejects the first upload, which is sent again after the retry delay
+		failedSubmits.set(1);
+		final AtomicInteger attempts = new AtomicInteger();
+		PipelinedFarmJobRunnable job = new PipelinedFarmJobRunnable(getParameters()) {
+			protected void trySendResultsToServer(List<String> results) throws IOException {
+				attempts.incrementAndGet();
+				super.trySendResultsToServer(results);
+			}
+		};
+		job.setRetryDelay(10L);
+		job.setWaitForAlignments(false);
+		job.run();
+
+		assertEquals(3, attempts.get());
+		assertEquals(2, submitted.size());
+	}
+
+	public void testInterruptWhileWaitingForPairs() throws InterruptedException {
+		batches.clear();
+		final FarmJobRunnable job = new FarmJobRunnable(getParameters());
+		job.setWaitForAlignments(true);
+		Thread thread = new Thread(job);
+		thread.setDaemon(true);
+		thread.start();
+		while (requests.get() == 0)
+			Thread.sleep(10L);
+		thread.interrupt();
+		thread.join(10000L);
+
+		assertFalse(thread.isAlive());
+	}
+
+	public void testListenersCalledOnJobThread() {
+		final List<Thread> threads = new ArrayList<Thread>();
+		final AtomicInteger requested = new AtomicInteger();
+		final AtomicInteger sent = new AtomicInteger();
+		PipelinedFarmJobRunnable job = new PipelinedFarmJobRunnable(getParameters());
+		job.setWaitForAlignments(false);
+		job.addAlignmentProgressListener(new AlignmentProgressListener() {
+			public void alignmentStarted(String name1, String name2) {
+				threads.add(Thread.currentThread());
+			}
+			public void alignmentEnded() {
+				threads.add(Thread.currentThread());
+			}
+			public void logStatus(String message) {
+				threads.add(Thread.currentThread());
+			}
+			public void downloadingStructures(String name) {
+				threads.add(Thread.currentThread());
+			}
+			public void requestingAlignmentsFromServer(int nrAlignments) {
+				threads.add(Thread.currentThread());
+				requested.incrementAndGet();
+			}
+			public void sentResultsToServer(int nrAlignments, String serverMessage) {
+				threads.add(Thread.currentThread());
+				sent.addAndGet(nrAlignments);
+			}
+		});
+		job.run();
+
+		assertEquals(2, requested.get());
+		assertEquals(3, sent.get());
+		for (Thread thread : threads)
+			assertSame(Thread.currentThread(), thread);
+	}
+
+	private FarmJobParameters getParameters() {
+		FarmJobParameters params = new FarmJobParameters();
+		params.setServer("http://localhost:" + server.getAddress().getPort() + "/");
+		params.setPdbFilePath(dir.getPath());
+		params.setPdbDirSplit(false);
+		params.setNrAlignments(3);
+		params.setStepSize(2);
+		params.setUsername("test");
+		return params;
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		for (int n; (n = in.read(buffer)) > 0; )
+			out.write(buffer, 0, n);
+		in.close();
+		return out.toString("UTF-8");
+	}
+
+	private static int count(String s, String part) {
+		int n = 0;
+		for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1))
+			n++;
+		return n;
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.bio.structure.align.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.biojava.bio.structure.AtomImpl;
+import org.biojava.bio.structure.Chain;
+import org.biojava.bio.structure.ChainImpl;
+import org.biojava.bio.structure.Group;
+import org.biojava.bio.structure.HetatomImpl;
+import org.biojava.bio.structure.Structure;
+import org.biojava.bio.structure.StructureImpl;
+
+import junit.framework.TestCase;
+
+public class StructureCacheTest extends TestCase {
+
+	public void testSingleLoadPerKey() throws Exception {
+		final StructureCache cache = new StructureCache();
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		final Callable<Structure> loader = new Callable<Structure>() {
+			public Structure call() throws Exception {
+				calls.incrementAndGet();
+				release.await();
+				return getStructure(1);
+			}
+		};
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<Structure>> results = new ArrayList<Future<Structure>>();
+		for (int i = 0; i < 4; i++) {
+			results.add(pool.submit(new Callable<Structure>() {
+				public Structure call() throws Exception {
+					return cache.get("1abc", loader);
+				}
+			}));
+		}
+		Thread.sleep(100);
+		release.countDown();
+		Structure first = results.get(0).get();
+		for (Future<Structure> result : results)
+			assertSame(first, result.get());
+		pool.shutdown();
+		assertEquals(1, calls.get());
+		assertEquals(1, cache.getLoads());
+		assertEquals(4, cache.getHits() + cache.getMisses());
+		assertSame(first, cache.get("1abc", loader));
+		assertTrue(cache.getHits() >= 1);
+	}
+
+	public void testParallelLoadsOfDifferentKeys() throws Exception {
+		final StructureCache cache = new StructureCache();
+		// each load waits until both have started, so this only finishes if they run in parallel
+		final CountDownLatch started = new CountDownLatch(2);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		List<Future<Structure>> results = new ArrayList<Future<Structure>>();
+		for (final String key : new String[] {"1abc", "2abc"}) {
+			results.add(pool.submit(new Callable<Structure>() {
+				public Structure call() throws Exception {
+					return cache.get(key, new Callable<Structure>() {
+						public Structure call() throws Exception {
+							started.countDown();
+							assertTrue(started.await(10, java.util.concurrent.TimeUnit.SECONDS));
+							return getStructure(1);
+						}
+					});
+				}
+			}));
+		}
+		for (Future<Structure> result : results)
+			assertNotNull(result.get());
+		pool.shutdown();
+		assertEquals(2, cache.size());
+	}
+
+	public void testEviction() throws Exception {
+		StructureCache cache = new StructureCache(2, 10);
+		cache.get("a", loader(3));
+		cache.get("b", loader(3));
+		cache.get("a", loader(3));
+		cache.get("c", loader(3));
+		// b was least recently used
+		assertNotNull(cache.getIfPresent("a"));
+		assertNull(cache.getIfPresent("b"));
+		assertNotNull(cache.getIfPresent("c"));
+		assertEquals(6, cache.getAtomCount());
+		// evicting a brings the atoms within bounds
+		cache.get("d", loader(4));
+		assertNull(cache.getIfPresent("a"));
+		assertNotNull(cache.getIfPresent("c"));
+		assertEquals(7, cache.getAtomCount());
+		// too large to cache at all
+		cache.get("e", loader(11));
+		assertNull(cache.getIfPresent("e"));
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getEvictions());
+		assertEquals(1, cache.getHits());
+		assertEquals(5, cache.getMisses());
+	}
+
+	public void testFailedLoadIsNotCached() throws Exception {
+		StructureCache cache = new StructureCache();
+		try {
+			cache.get("1abc", new Callable<Structure>() {
+				public Structure call() throws Exception {
+					throw new IOException("missing");
+				}
+			});
+			fail("expected IOException");
+		} catch (IOException e) {
+			assertEquals("missing", e.getMessage());
+		}
+		assertEquals(1, cache.getFailures());
+		assertNotNull(cache.get("1abc", loader(1)));
+		assertEquals(2, cache.getLoads());
+	}
+
+	public void testLoadStartedBeforeClearIsNotCached() throws Exception {
+		final StructureCache cache = new StructureCache();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Structure stale = getStructure(1);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		Future<Structure> result = pool.submit(new Callable<Structure>() {
+			public Structure call() throws Exception {
+				return cache.get("1abc", new Callable<Structure>() {
+					public Structure call() throws Exception {
+						started.countDown();
+						release.await();
+						return stale;
+					}
+				});
+			}
+		});
+		started.await();
+		cache.clear();
+		// a request after clear does not wait for the stale load
+		Structure fresh = cache.get("1abc", loader(2));
+		assertNotSame(stale, fresh);
+		release.countDown();
+		assertSame(stale, result.get());
+		pool.shutdown();
+		assertSame(fresh, cache.getIfPresent("1abc"));
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getLoads());
+	}
+
+	public void testAtomCache() throws Exception {
+		File dir = File.createTempFile("StructureCacheTest", "");
+		dir.delete();
+		dir.mkdir();
+		File pdb = new File(dir, "5pti.pdb");
+		InputStream in = getClass().getResourceAsStream("/5pti.pdb");
+		OutputStream out = new FileOutputStream(pdb);
+		byte[] buffer = new byte[8192];
+		for (int n; (n = in.read(buffer)) > 0; )
+			out.write(buffer, 0, n);
+		in.close();
+		out.close();
+
+		AtomCache atomCache = new AtomCache(dir.getPath(), false);
+		atomCache.setAutoFetch(false);
+		Structure whole = atomCache.getStructure("5PTI");
+		Structure chain = atomCache.getStructure("5pti.A");
+		assertNotSame(whole, atomCache.getStructure("5pti"));
+		assertEquals(1, chain.getChains().size());
+		assertEquals(whole.getChainByPDB("A").getAtomLength(), chain.getChainByPDB("A").getAtomLength());
+		assertEquals(1, atomCache.getStructureCache().getLoads());
+		assertEquals(2, atomCache.getStructureCache().getHits());
+
+		atomCache.setFileParsingParams(atomCache.getFileParsingParams());
+		assertEquals(0, atomCache.getStructureCache().size());
+
+		pdb.delete();
+		dir.delete();
+	}
+
+	private static Callable<Structure> loader(final int atoms) {
+		return new Callable<Structure>() {
+			public Structure call() {
+				return getStructure(atoms);
+			}
+		};
+	}
+
+	private static Structure getStructure(int atoms) {
+		Group group = new HetatomImpl();
+		for (int i = 0; i < atoms; i++) {
+			AtomImpl atom = new AtomImpl();
+			atom.setName("C" + i);
+			atom.setFullName(" C" + i + " ");
+			group.addAtom(atom);
+		}
+		Chain chain = new ChainImpl();
+		chain.addGroup(group);
+		Structure s = new StructureImpl();
+		s.addChain(chain);
+		return s;
+	}
+
+}
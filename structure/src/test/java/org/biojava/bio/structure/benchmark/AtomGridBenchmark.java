@@ -0,0 +1,94 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+
+package org.biojava.bio.structure.benchmark;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.bio.structure.Atom;
+import org.biojava.bio.structure.AtomGrid;
+import org.biojava.bio.structure.AtomImpl;
+import org.biojava.bio.structure.Calc;
+import org.biojava.bio.structure.Chain;
+import org.biojava.bio.structure.Structure;
+import org.biojava.bio.structure.io.PDBFileParser;
+
+/** Times contact detection with {@link AtomGrid} against the all against all loop over
+ * {@link Calc#getDistance(Atom, Atom)}. The atoms of 4HHB are copied onto a cubic lattice; the number
+ * of copies along each axis is given as the first argument and defaults to 2 (8 copies, 35000 atoms).
+ */
+public class AtomGridBenchmark {
+
+	private static final double CUTOFF = 4.0;
+
+	public static void main(String[] args) throws Exception {
+		int copies = (args.length > 0) ? Integer.parseInt(args[0]) : 2;
+		InputStream inStream = new GZIPInputStream(AtomGridBenchmark.class.getResourceAsStream("/4hhb.pdb.gz"));
+		Structure s = new PDBFileParser().parsePDBFile(inStream);
+		inStream.close();
+
+		List<Atom> list = new ArrayList<Atom>();
+		for (int x = 0; x < copies; x++) {
+			for (int y = 0; y < copies; y++) {
+				for (int z = 0; z < copies; z++) {
+					for (Chain c : s.getChains()) {
+						for (Atom a : AtomGrid.getAtoms(c)) {
+							Atom copy = new AtomImpl();
+							copy.setCoords(new double[] {a.getX() + 70.0 * x, a.getY() + 70.0 * y,
+									a.getZ() + 70.0 * z});
+							list.add(copy);
+						}
+					}
+				}
+			}
+		}
+		Atom[] atoms = list.toArray(new Atom[list.size()]);
+		System.out.println(atoms.length + " atoms, cutoff " + CUTOFF);
+
+		System.out.println("run\tloop ms\tgrid ms\tcontacts");
+		for (int run = 1; run <= 3; run++) {
+			long start = System.nanoTime();
+			int loop = 0;
+			for (int i = 0; i < atoms.length; i++) {
+				for (int j = i + 1; j < atoms.length; j++) {
+					if (Calc.getDistance(atoms[i], atoms[j]) <= CUTOFF) {
+						loop++;
+					}
+				}
+			}
+			long loopMillis = (System.nanoTime() - start) / 1000000L;
+
+			start = System.nanoTime();
+			int grid = new AtomGrid(atoms, CUTOFF).getContacts(CUTOFF).size();
+			long gridMillis = (System.nanoTime() - start) / 1000000L;
+
+			if (loop != grid) {
+				throw new IllegalStateException("Found " + grid + " contacts instead of " + loop);
+			}
+			System.out.printf("%d\t%d\t%d\t%d%n", run, loopMillis, gridMillis, grid);
+		}
+	}
+
+}
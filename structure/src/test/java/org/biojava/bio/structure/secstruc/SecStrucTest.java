@@ -0,0 +1,63 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ */
+
+
+package org.biojava.bio.structure.secstruc;
+
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+import org.biojava.bio.structure.Structure;
+import org.biojava.bio.structure.io.PDBFileParser;
+
+public class SecStrucTest extends TestCase {
+
+   private static final String[] FILES = {"/5pti.pdb", "/1a4w.pdb", "/3cdl.pdb", "/2gox.pdb", "/4hhb.pdb.gz"};
+
+   /** the grid must find the same HBonds as the all against all loop */
+   public void testGridMatchesAllPairs() throws Exception {
+      for (String file : FILES) {
+         Structure s = getStructure(file);
+
+         SecStruc grid = new SecStruc();
+         grid.assign(s);
+
+         SecStruc allPairs = new SecStruc();
+         allPairs.setUseGrid(false);
+         allPairs.assign(s);
+
+         assertEquals(file, allPairs.toString(), grid.toString());
+      }
+   }
+
+   private Structure getStructure(String file) throws Exception {
+      InputStream inStream = this.getClass().getResourceAsStream(file);
+      if (file.endsWith(".gz")) {
+         inStream = new GZIPInputStream(inStream);
+      }
+      PDBFileParser pdbpars = new PDBFileParser();
+      Structure s = pdbpars.parsePDBFile(inStream);
+      inStream.close();
+      return s;
+   }
+
+}